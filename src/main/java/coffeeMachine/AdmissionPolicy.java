@@ -0,0 +1,99 @@
+package coffeeMachine;
+
+import java.util.StringJoiner;
+
+/**
+ * AdmissionPolicy decides how long an order can wait for an outlet and when orders are rejected without waiting
+ * Default policy waits forever and never rejects, which is the classic behaviour of the machine
+ */
+public class AdmissionPolicy {
+
+    /**
+     * Variable to store maximum time an order waits for an outlet, negative value waits forever
+     */
+    private final long acquireTimeoutMillis;
+
+    /**
+     * Variable to store maximum number of orders allowed to wait for an outlet
+     */
+    private final int maxQueueDepth;
+
+    /**
+     * Variable to store maximum estimated wait for an outlet after which orders are rejected
+     */
+    private final long maxEstimatedWaitMillis;
+
+    /**
+     * Constructs a policy which waits forever and never rejects an order
+     */
+    public AdmissionPolicy() {
+        this(-1, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a policy with given limits
+     * @param acquireTimeoutMillis maximum time an order waits for an outlet, negative value waits forever
+     * @param maxQueueDepth orders are rejected when this many orders are already waiting
+     * @param maxEstimatedWaitMillis orders are rejected when estimated wait for an outlet is more than this
+     */
+    public AdmissionPolicy(long acquireTimeoutMillis, int maxQueueDepth, long maxEstimatedWaitMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxEstimatedWaitMillis = maxEstimatedWaitMillis;
+    }
+
+    /**
+     * Function to get maximum time an order waits for an outlet
+     * @return timeout in milliseconds, negative value means wait forever
+     */
+    public long getAcquireTimeoutMillis() {
+        return this.acquireTimeoutMillis;
+    }
+
+    /**
+     * Function to get maximum number of orders allowed to wait for an outlet
+     * @return maximum queue depth
+     */
+    public int getMaxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    /**
+     * Function to get maximum estimated wait after which orders are rejected
+     * @return maximum estimated wait in milliseconds
+     */
+    public long getMaxEstimatedWaitMillis() {
+        return this.maxEstimatedWaitMillis;
+    }
+
+    /**
+     * Function to check if a new order should be rejected instead of waiting for an outlet
+     * Wait is estimated as the number of orders ahead divided by outlets times average time of an order
+     * @param queueDepth number of orders already waiting for an outlet
+     * @param totalOutlets number of outlets of the machine
+     * @param averageServiceNanos average time an order holds an outlet
+     * @return True if order should be rejected else False
+     */
+    public boolean isOverloaded(int queueDepth, int totalOutlets, long averageServiceNanos) {
+        if (queueDepth >= this.maxQueueDepth) {
+            return true;
+        }
+        if (this.maxEstimatedWaitMillis == Long.MAX_VALUE || totalOutlets <= 0) {
+            return false;
+        }
+        double estimatedWaitNanos = (queueDepth + 1.0) / totalOutlets * averageServiceNanos;
+        return estimatedWaitNanos > this.maxEstimatedWaitMillis * 1e6;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", AdmissionPolicy.class.getSimpleName() + "[", "]")
+            .add("acquireTimeoutMillis=" + acquireTimeoutMillis)
+            .add("maxQueueDepth=" + maxQueueDepth)
+            .add("maxEstimatedWaitMillis=" + maxEstimatedWaitMillis)
+            .toString();
+    }
+}
@@ -0,0 +1,147 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Class to hold the changes applied to a running machine by a new configuration
+ */
+public class CatalogDiff {
+
+    /**
+     * Names of ingredients which were not present before
+     */
+    private final List<String> addedIngredients = new ArrayList<>();
+
+    /**
+     * Names of recipes which were not present before
+     */
+    private final List<String> addedRecipes = new ArrayList<>();
+
+    /**
+     * Names of recipes whose ingredients changed
+     */
+    private final List<String> changedRecipes = new ArrayList<>();
+
+    /**
+     * Names of recipes which are not present in new configuration
+     */
+    private final List<String> removedRecipes = new ArrayList<>();
+
+    /**
+     * Variable to store number of outlets before the change
+     */
+    private int previousOutlets;
+
+    /**
+     * Variable to store number of outlets after the change
+     */
+    private int outlets;
+
+    /**
+     * Function to record an added ingredient
+     * @param name name of the ingredient
+     */
+    void addIngredient(String name) {
+        this.addedIngredients.add(name);
+    }
+
+    /**
+     * Function to record an added recipe
+     * @param name name of the recipe
+     */
+    void addRecipe(String name) {
+        this.addedRecipes.add(name);
+    }
+
+    /**
+     * Function to record a changed recipe
+     * @param name name of the recipe
+     */
+    void changeRecipe(String name) {
+        this.changedRecipes.add(name);
+    }
+
+    /**
+     * Function to record a removed recipe
+     * @param name name of the recipe
+     */
+    void removeRecipe(String name) {
+        this.removedRecipes.add(name);
+    }
+
+    /**
+     * Function to record change in number of outlets
+     * @param previousOutlets number of outlets before the change
+     * @param outlets number of outlets after the change
+     */
+    void setOutlets(int previousOutlets, int outlets) {
+        this.previousOutlets = previousOutlets;
+        this.outlets = outlets;
+    }
+
+    /**
+     * Function to get ingredients which were added
+     * @return names of added ingredients
+     */
+    public List<String> getAddedIngredients() {
+        return Collections.unmodifiableList(this.addedIngredients);
+    }
+
+    /**
+     * Function to get recipes which were added
+     * @return names of added recipes
+     */
+    public List<String> getAddedRecipes() {
+        return Collections.unmodifiableList(this.addedRecipes);
+    }
+
+    /**
+     * Function to get recipes whose ingredients changed
+     * @return names of changed recipes
+     */
+    public List<String> getChangedRecipes() {
+        return Collections.unmodifiableList(this.changedRecipes);
+    }
+
+    /**
+     * Function to get recipes which were removed
+     * @return names of removed recipes
+     */
+    public List<String> getRemovedRecipes() {
+        return Collections.unmodifiableList(this.removedRecipes);
+    }
+
+    /**
+     * Function to get number of outlets after the change
+     * @return number of outlets
+     */
+    public int getOutlets() {
+        return this.outlets;
+    }
+
+    /**
+     * Function to check if anything changed
+     * @return True if no ingredient, recipe or outlet changed else False
+     */
+    public boolean isEmpty() {
+        return this.addedIngredients.isEmpty() && this.addedRecipes.isEmpty() && this.changedRecipes.isEmpty()
+            && this.removedRecipes.isEmpty() && this.previousOutlets == this.outlets;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", CatalogDiff.class.getSimpleName() + "[", "]")
+            .add("addedIngredients=" + addedIngredients)
+            .add("addedRecipes=" + addedRecipes)
+            .add("changedRecipes=" + changedRecipes)
+            .add("removedRecipes=" + removedRecipes)
+            .add("outlets=" + previousOutlets + "->" + outlets)
+            .toString();
+    }
+}
@@ -1,13 +1,36 @@
 package coffeeMachine;
 
+import history.OrderLog;
+import history.OrderOutcome;
+import ingredient.FlightRecorderSupport;
 import ingredient.IngredientsHolder;
+import ingredient.RefillScheduler;
+import ingredient.ReservationBook;
+import ingredient.StockEventBus;
+import ingredient.StockListener;
+import ingredient.StockSnapshot;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import javafx.util.Pair;
+import recipe.PreparationPlan;
 import recipe.Recipe;
+import recipe.RecipeComposer;
 import recipe.RecipeHolder;
-import recipe.RecipeIngredient;
+import recipe.RecipeModifier;
+import recipe.RecipeState;
 
 /**
  * Class to simulate a Coffee machine With following functionality
@@ -26,13 +49,42 @@ public class CoffeeMachine {
     /**
      * RecipeHolder object to store all the available recipes
      */
-    private RecipeHolder recipeHolder; // Holder to hold all the recipes
+    private volatile RecipeHolder recipeHolder; // Holder to hold all the recipes, replaced as a whole on reconfiguration
 
     /**
-     * Variable to store total number of outlets
-     * CoffeeMachine will be able to execute this many order simultaneously
+     * Log every order is appended to, null when orders are not recorded
      */
-    private final int totalOutlets;
+    private volatile OrderLog orderLog;
+
+    /**
+     * Book of ingredients held for orders placed ahead of pickup
+     */
+    private ReservationBook reservationBook;
+
+    /**
+     * Scheduler of refills which take time, null until first such refill is requested
+     */
+    private volatile RefillScheduler refillScheduler;
+
+    /**
+     * Executor running independent preparation steps of orders in parallel, shared by all the machines
+     * Threads are created on demand, they are daemons and die after a minute of idling, so it needs no shutdown
+     */
+    private static final ExecutorService PREPARATION_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "preparation-step");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Map to store modifier name -> modifier which can be applied to any beverage at order time
+     */
+    private final ConcurrentHashMap<String, RecipeModifier> recipeModifiers = new ConcurrentHashMap<>();
+
+    /**
+     * Map to store base name -> base recipe which is only used as component of other recipes and cannot be ordered
+     */
+    private final ConcurrentHashMap<String, Recipe> baseRecipes = new ConcurrentHashMap<>();
 
     /**
      * Variable to store if machine is started or not
@@ -41,9 +93,21 @@ public class CoffeeMachine {
     private boolean machineStarted =  false;
 
     /**
-     * Semaphore to restrict parallel execution to totalOutlets
+     * Semaphore to restrict parallel execution to total number of outlets
+     * CoffeeMachine will be able to execute this many order simultaneously, size can be changed at runtime
+     */
+    private final OutletPool outletCountLock;
+
+    /**
+     * Policy to decide how long orders wait for an outlet and when they are rejected
      */
-    private final Semaphore outletCountLock;
+    private final AdmissionPolicy admissionPolicy;
+
+    /**
+     * Moving average of time an order holds an outlet, used to estimate waiting time
+     * Updates from parallel orders can overwrite each other which is fine for an estimate
+     */
+    private volatile long averageServiceNanos = 0;
 
     /**
      * Lock to handle threads in all system level functions
@@ -56,8 +120,17 @@ public class CoffeeMachine {
      * @param numOutlets number of outlets machine will have
      */
     public CoffeeMachine (int numOutlets) {
-        this.totalOutlets = numOutlets;
-        this.outletCountLock = new Semaphore(numOutlets); // Set default to 1 outlet
+        this(numOutlets, new AdmissionPolicy());
+    }
+
+    /**
+     * Creates a structure of coffee machine which admits orders according to given policy
+     * @param numOutlets number of outlets machine will have
+     * @param admissionPolicy policy to decide waiting and rejection of orders
+     */
+    public CoffeeMachine (int numOutlets, AdmissionPolicy admissionPolicy) {
+        this.outletCountLock = new OutletPool(numOutlets);
+        this.admissionPolicy = admissionPolicy;
     }
 
     /**
@@ -73,19 +146,31 @@ public class CoffeeMachine {
 
     /**
      * Function to initialze and start the machine with given ingredients and recipes
+     * Adapter over initialize with holders, kept for callers building Pair lists
      * @param ingredients ingredients to store in ingredientsHolder
      * @param recipes recipes to hold in recipeHolder
      * @throws Exception if machine is already started
      */
     public void initialize(List<Pair<String, Integer>> ingredients, List<Pair<String, List<Pair<String, Integer>>>> recipes) throws Exception {
+        initialize(new IngredientsHolder(ingredients), new RecipeHolder(recipes));
+    }
+
+    /**
+     * Function to initialze and start the machine with already built holders
+     * @param ingredientsHolder holder of all the ingredients
+     * @param recipeHolder holder of all the recipes
+     * @throws Exception if machine is already started
+     */
+    public void initialize(IngredientsHolder ingredientsHolder, RecipeHolder recipeHolder) throws Exception {
         try {
             holderLock.lock();
 
             if (machineStarted) {
                 throw new Exception("Machine already started");
             }
-            this.ingredientsHolder = new IngredientsHolder(ingredients);
-            this.recipeHolder = new RecipeHolder(recipes);
+            this.ingredientsHolder = ingredientsHolder;
+            this.recipeHolder = recipeHolder;
+            this.reservationBook = new ReservationBook(ingredientsHolder);
             this.machineStarted = true;
 
         } finally {
@@ -95,37 +180,408 @@ public class CoffeeMachine {
 
     /**
      * Function to prepare a given beverage
-     * This function can be used by totalOutlets number of threads in parallel
+     * This function can be used by as many threads in parallel as there are outlets
+     * Invalid and clearly unbrewable orders are answered before waiting for an outlet
      * @param beverage Recipe to prepare
      * @return status of preparation
      * @throws Exception when machine is not yet started
      */
     public String prepareBeverage(String beverage) throws Exception {
+        return serveOrder(beverage, null, null, new OrderTrace());
+    }
+
+    /**
+     * Function to prepare a variant of a given beverage, for eg a large hot_coffee
+     * Quantities of the beverage are changed by the modifier only for this order, see RecipeModifier
+     * @param beverage Recipe to prepare
+     * @param modifier name of a modifier added with addRecipeModifier, null for the base beverage
+     * @return status of preparation
+     * @throws Exception when machine is not yet started
+     */
+    public String prepareBeverage(String beverage, String modifier) throws Exception {
+        return serveOrder(beverage, modifier, null, new OrderTrace());
+    }
+
+    /**
+     * Function to prepare a given beverage and get its outcome instead of a status message, see prepareBeverage
+     * Meant for callers which encode the result themselves, for eg a binary protocol
+     * @param beverage Recipe to prepare
+     * @return outcome of the order
+     * @throws Exception when machine is not yet started
+     */
+    public OrderOutcome orderBeverage(String beverage) throws Exception {
+        return orderBeverage(beverage, status -> { });
+    }
+
+    /**
+     * Function to prepare a given beverage and get both its outcome and its status message, see prepareBeverage
+     * Meant for callers which decide on the outcome but still show the message, for eg a json protocol
+     * @param beverage Recipe to prepare
+     * @param statusConsumer called with status of preparation before the outcome is returned
+     * @return outcome of the order
+     * @throws Exception when machine is not yet started
+     */
+    public OrderOutcome orderBeverage(String beverage, Consumer<String> statusConsumer) throws Exception {
+        OrderTrace trace = new OrderTrace();
+        statusConsumer.accept(serveOrder(beverage, null, null, trace));
+        return trace.outcome;
+    }
+
+    /**
+     * Function to prepare a beverage and record the order as a flight recorder event and in the order log
+     * Flight recorder event is skipped on a runtime without jdk.jfr, see FlightRecorderSupport
+     * @param beverage Recipe to prepare
+     * @param modifier name of the modifier of the order, null for the base beverage
+     * @param orderId id of a reservation whose ingredients are already taken, null for a walk in order
+     * @param trace details of the order, filled while it is prepared
+     * @return status of preparation
+     * @throws Exception when machine is not yet started
+     */
+    private String serveOrder(String beverage, String modifier, String orderId, OrderTrace trace) throws Exception {
         checkIfMachineStarted();
+        OrderEvent event = FlightRecorderSupport.isAvailable() ? new OrderEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        long startNanos = System.nanoTime();
+        String status = orderId == null ? brewBeverage(beverage, modifier, trace) : brewReservation(orderId, beverage, modifier, trace);
+        if (trace.outcome == null) {
+            return status; // Not an order, for eg reservation expired while waiting for an outlet
+        }
+        String orderedBeverage = modifier == null ? beverage : modifier + " " + beverage; // Variants are told apart by their modifier
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.beverage = orderedBeverage;
+                event.status = status;
+                event.prepared = trace.outcome == OrderOutcome.PREPARED;
+                event.commit();
+            }
+        }
+        OrderLog orderLog = this.orderLog;
+        if (orderLog != null) {
+            orderLog.append(System.currentTimeMillis(), orderedBeverage, trace.outcome, trace.failedIngredient, trace.outlet, System.nanoTime() - startNanos);
+        }
+        return status;
+    }
 
-        try {
-            this.outletCountLock.acquire(); // It will allow only N outlets to work at the same time
-            // First fetch the recipe
-            Recipe recipe = this.recipeHolder.getRecipe(beverage); // This is thread safe because we are not allowing changing existing recipes
-            if (recipe == null) {
-                return String.format("%s is not a valid beverage", beverage);
+    /**
+     * Function to do the actual preparation of prepareBeverage
+     * @param beverage Recipe to prepare
+     * @param modifierName name of the modifier of the order, null for the base beverage
+     * @param trace details of the order, filled while it is prepared
+     * @return status of preparation
+     * @throws InterruptedException when interrupted while waiting for an outlet
+     */
+    private String brewBeverage(String beverage, String modifierName, OrderTrace trace) throws InterruptedException {
+        // First fetch the recipe with its adaptive state on this machine
+        RecipeState recipeState = this.recipeHolder.getRecipeState(beverage); // This is thread safe because we are not allowing changing existing recipes
+        if (recipeState == null) {
+            trace.outcome = OrderOutcome.NOT_A_VALID_BEVERAGE;
+            return String.format("%s is not a valid beverage", beverage);
+        }
+        Recipe recipe = recipeState.getRecipe();
+        RecipeModifier modifier = null;
+        if (modifierName != null) {
+            modifier = this.recipeModifiers.get(modifierName);
+            if (modifier == null) {
+                trace.outcome = OrderOutcome.NOT_A_VALID_BEVERAGE;
+                return String.format("%s is not a valid modifier", modifierName);
             }
+            beverage = modifierName + " " + beverage; // Name used in status of the order
+        }
+        int[] requiredQuantities = recipeState.getRequiredQuantities(modifier);
 
-            for (RecipeIngredient recipeIngredient : recipe.getIngredients()) {
-                if (!this.ingredientsHolder.isIngredientPresent(recipeIngredient.getName())) {
-                    return String.format("%s cannot be prepared because %s is not available", beverage, recipeIngredient.getName());
-                }
-                if (!this.ingredientsHolder.useIngredient(recipeIngredient.getName(), recipeIngredient.getRequiredQuantity())) {
-                    return String.format("%s cannot be prepared because item %s is not sufficient", beverage, recipeIngredient.getName());
-                }
+        // Cheap check without locks so that unbrewable orders do not occupy an outlet
+        // Ingredients are probed in the recipe's adaptive order so a failing order usually stops at the first probe
+        int failedIngredient = this.ingredientsHolder.checkIngredients(recipe.getIngredientNames(), requiredQuantities, recipeState.getCheckOrder());
+        if (failedIngredient >= 0) {
+            recipeState.recordFailure(failedIngredient);
+            return getFailureMessage(beverage, recipe.getIngredientNames()[failedIngredient], trace);
+        }
+
+        String outletFailure = acquireOutlet(beverage, trace);
+        if (outletFailure != null) {
+            return outletFailure;
+        }
+        if (this.orderLog != null) {
+            trace.outlet = this.outletCountLock.claimOutlet();
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            // All the ingredients are used together so a failed order does not take anything
+            failedIngredient = this.ingredientsHolder.useIngredients(recipe.getIngredientNames(), requiredQuantities, recipeState.getCheckOrder());
+            if (failedIngredient >= 0) {
+                recipeState.recordFailure(failedIngredient);
+                return getFailureMessage(beverage, recipe.getIngredientNames()[failedIngredient], trace);
+            }
+            if (recipeState.recordServed()) {
+                recipeState.recordServingsLeft(this.ingredientsHolder.getServingsLeft(recipe.getIngredientNames(), requiredQuantities));
+            }
+            PreparationPlan preparationPlan = recipe.getPreparationPlan();
+            if (preparationPlan != null) {
+                preparationPlan.execute(PREPARATION_EXECUTOR); // Outlet stays busy until the critical path is done
             }
 
             return String.format("%s is prepared", beverage);
         } finally {
-            this.outletCountLock.release(); // release semaphore
+            releaseOutlet(startNanos, trace);
+        }
+    }
+
+    /**
+     * Function to do the actual preparation of confirmReservation, ingredients were already taken by the reservation
+     * @param orderId id of the order
+     * @param beverage name of the reserved beverage
+     * @param modifierName name of the modifier of the reservation, null for the base beverage
+     * @param trace details of the order, outcome is set to null when reservation is not there anymore
+     * @return status of preparation
+     * @throws InterruptedException when interrupted while waiting for an outlet
+     */
+    private String brewReservation(String orderId, String beverage, String modifierName, OrderTrace trace) throws InterruptedException {
+        Recipe recipe = this.recipeHolder.getRecipe(beverage);
+        if (modifierName != null) {
+            beverage = modifierName + " " + beverage; // Name used in status of the order
+        }
+        String outletFailure = acquireOutlet(beverage, trace);
+        if (outletFailure != null) {
+            return outletFailure; // Reservation stays outstanding
+        }
+        if (this.orderLog != null) {
+            trace.outlet = this.outletCountLock.claimOutlet();
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            if (this.reservationBook.confirm(orderId) == null) {
+                trace.outcome = null;
+                return String.format("%s has no reservation", orderId); // Expired while waiting for an outlet
+            }
+            PreparationPlan preparationPlan = recipe == null ? null : recipe.getPreparationPlan();
+            if (preparationPlan != null) {
+                preparationPlan.execute(PREPARATION_EXECUTOR);
+            }
+            return String.format("%s is prepared", beverage);
+        } finally {
+            releaseOutlet(startNanos, trace);
         }
     }
 
+    /**
+     * Function to give back an outlet taken by acquireOutlet and account the time it was held
+     * @param startNanos time at which preparation started
+     * @param trace details of the order holding the outlet
+     */
+    private void releaseOutlet(long startNanos, OrderTrace trace) {
+        long serviceNanos = System.nanoTime() - startNanos;
+        this.averageServiceNanos += (serviceNanos - this.averageServiceNanos) / 8; // Exponential moving average
+        this.outletCountLock.releaseOutlet(trace.outlet);
+        this.outletCountLock.release(); // release semaphore
+    }
+
+    /**
+     * Function to take an outlet as per admission policy, every successful call should be followed by releasing the outlet
+     * @param beverage name of the beverage to prepare
+     * @param trace details of the order, outcome is set when no outlet is taken
+     * @return null when an outlet is taken else status of preparation
+     * @throws InterruptedException when interrupted while waiting for an outlet
+     */
+    private String acquireOutlet(String beverage, OrderTrace trace) throws InterruptedException {
+        if (!this.outletCountLock.tryAcquire()) {
+            if (this.admissionPolicy.isOverloaded(this.outletCountLock.getQueueLength(), this.outletCountLock.getSize(), this.averageServiceNanos)) {
+                trace.outcome = OrderOutcome.MACHINE_BUSY;
+                return String.format("%s cannot be prepared because machine is busy", beverage);
+            }
+            OutletWaitEvent event = FlightRecorderSupport.isAvailable() ? new OutletWaitEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            int queuedOrders = this.outletCountLock.getQueueLength();
+            boolean acquired = true;
+            if (this.admissionPolicy.getAcquireTimeoutMillis() < 0) {
+                this.outletCountLock.acquire(); // It will allow only N outlets to work at the same time
+            } else {
+                acquired = this.outletCountLock.tryAcquire(this.admissionPolicy.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.beverage = beverage;
+                    event.outlets = this.outletCountLock.getSize();
+                    event.queuedOrders = queuedOrders;
+                    event.acquired = acquired;
+                    event.commit();
+                }
+            }
+            if (!acquired) {
+                trace.outcome = OrderOutcome.NO_OUTLET_IN_TIME;
+                return String.format("%s cannot be prepared because no outlet was free in time", beverage);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Function to hold ingredients of a beverage for an order which will be picked up later
+     * Reservation is released automatically if it is not confirmed within hold time
+     * @param orderId id of the order
+     * @param beverage beverage to reserve
+     * @param holdMillis time for which ingredients are held
+     * @return status of reservation
+     * @throws Exception when machine is not yet started or order is already reserved
+     */
+    public String reserveBeverage(String orderId, String beverage, long holdMillis) throws Exception {
+        return reserveBeverage(orderId, beverage, null, holdMillis);
+    }
+
+    /**
+     * Function to hold ingredients of a variant of a beverage for an order which will be picked up later
+     * Quantities are changed by the modifier in the same way as for prepareBeverage, see RecipeModifier
+     * @param orderId id of the order
+     * @param beverage beverage to reserve
+     * @param modifierName name of a modifier added with addRecipeModifier, null for the base beverage
+     * @param holdMillis time for which ingredients are held
+     * @return status of reservation
+     * @throws Exception when machine is not yet started or order is already reserved
+     */
+    public String reserveBeverage(String orderId, String beverage, String modifierName, long holdMillis) throws Exception {
+        checkIfMachineStarted();
+        RecipeState recipeState = this.recipeHolder.getRecipeState(beverage);
+        if (recipeState == null) {
+            return String.format("%s is not a valid beverage", beverage);
+        }
+        Recipe recipe = recipeState.getRecipe();
+        RecipeModifier modifier = null;
+        if (modifierName != null) {
+            modifier = this.recipeModifiers.get(modifierName);
+            if (modifier == null) {
+                return String.format("%s is not a valid modifier", modifierName);
+            }
+        }
+        int failedIngredient = this.reservationBook.reserve(orderId, beverage, modifierName, recipe.getIngredientNames(),
+            recipeState.getRequiredQuantities(modifier), holdMillis);
+        String label = modifierName == null ? beverage : modifierName + " " + beverage; // Same as name of a variant order
+        if (failedIngredient >= 0) {
+            return getFailureMessage(label, recipe.getIngredientNames()[failedIngredient]);
+        }
+        return String.format("%s is reserved", label);
+    }
+
+    /**
+     * Function to prepare a reserved beverage, ingredients were already taken by the reservation
+     * Reservation stays outstanding if no outlet can be taken
+     * Order is recorded in the same way as one of prepareBeverage
+     * @param orderId id of the order
+     * @return status of preparation
+     * @throws Exception when machine is not yet started
+     */
+    public String confirmReservation(String orderId) throws Exception {
+        checkIfMachineStarted();
+        ReservationBook.Reservation reservation = this.reservationBook.findReservation(orderId);
+        if (reservation == null) {
+            return String.format("%s has no reservation", orderId);
+        }
+        return serveOrder(reservation.getBeverage(), reservation.getModifier(), orderId, new OrderTrace());
+    }
+
+    /**
+     * Function to cancel a reservation and put its ingredients back
+     * @param orderId id of the order
+     * @return True if reservation was released else False when order has no reservation
+     * @throws Exception when machine is not yet started
+     */
+    public boolean releaseReservation(String orderId) throws Exception {
+        checkIfMachineStarted();
+        return this.reservationBook.release(orderId);
+    }
+
+    /**
+     * Function to get book of reservations, for eg to start background expiry
+     * @return book of reservations
+     * @throws Exception when machine is not yet started
+     */
+    public ReservationBook getReservationBook() throws Exception {
+        checkIfMachineStarted();
+        return this.reservationBook;
+    }
+
+    /**
+     * Function to get the message of an order which failed because of an ingredient
+     * @param beverage name of the beverage
+     * @param ingredient name of the ingredient which is not present or not sufficient
+     * @return status of preparation
+     */
+    private String getFailureMessage(String beverage, String ingredient) {
+        return getFailureMessage(beverage, ingredient, new OrderTrace());
+    }
+
+    /**
+     * Function to get the message of an order which failed because of an ingredient and record the failure in its trace
+     * @param beverage name of the beverage
+     * @param ingredient name of the ingredient which is not present or not sufficient
+     * @param trace details of the order
+     * @return status of preparation
+     */
+    private String getFailureMessage(String beverage, String ingredient, OrderTrace trace) {
+        trace.failedIngredient = ingredient;
+        if (!this.ingredientsHolder.isIngredientPresent(ingredient)) {
+            trace.outcome = OrderOutcome.INGREDIENT_NOT_AVAILABLE;
+            return String.format("%s cannot be prepared because %s is not available", beverage, ingredient);
+        }
+        trace.outcome = OrderOutcome.INGREDIENT_NOT_SUFFICIENT;
+        return String.format("%s cannot be prepared because item %s is not sufficient", beverage, ingredient);
+    }
+
+    /**
+     * Function to add a modifier which can be applied to any beverage at order time, see prepareBeverage
+     * A modifier with same name is replaced
+     * @param modifier modifier to add
+     */
+    public void addRecipeModifier(RecipeModifier modifier) {
+        this.recipeModifiers.put(modifier.getName(), modifier);
+    }
+
+    /**
+     * Function to get names of all the modifiers
+     * @return read only view of modifier names
+     */
+    public Set<String> getRecipeModifiers() {
+        return Collections.unmodifiableSet(this.recipeModifiers.keySet());
+    }
+
+    /**
+     * Function to record every order of prepareBeverage in given log
+     * @param orderLog log to append orders to, null to stop recording
+     */
+    public void setOrderLog(OrderLog orderLog) {
+        this.orderLog = orderLog;
+    }
+
+    /**
+     * Function to get log of orders
+     * @return log orders are appended to, null when orders are not recorded
+     */
+    public OrderLog getOrderLog() {
+        return this.orderLog;
+    }
+
+    /**
+     * Function to get number of orders waiting for an outlet
+     * @return estimated number of waiting orders
+     */
+    public int getQueuedOrders() {
+        return this.outletCountLock.getQueueLength();
+    }
+
+    /**
+     * Function to get policy deciding waiting and rejection of orders, for eg to admit orders queued in front of the machine
+     * @return admission policy of the machine
+     */
+    public AdmissionPolicy getAdmissionPolicy() {
+        return this.admissionPolicy;
+    }
+
     /**
      * Function to add a new ingredient to ingredientHolder
      * @param item name of the ingredient to add
@@ -149,10 +605,196 @@ public class CoffeeMachine {
      * @throws Exception when machine is not yet started
      */
     public void addRecipe(String name, List<Pair<String, Integer>> ingredients) throws Exception {
+        addRecipe(new Recipe(name, ingredients));
+    }
+
+    /**
+     * Function to add an already built recipe to recipeHolder
+     * A composite recipe is flattened first, its components can be bases or recipes of the machine
+     * @param recipe recipe to add
+     * @throws Exception when machine is not yet started, recipe has the name of a base or cannot be flattened
+     */
+    public void addRecipe(Recipe recipe) throws Exception {
+        checkIfMachineStarted();
+        try {
+            holderLock.lock();
+            if (this.baseRecipes.containsKey(recipe.getName())) {
+                throw new Exception(String.format("%s is already a base", recipe.getName()));
+            }
+            RecipeHolder currentHolder = this.recipeHolder;
+            currentHolder.addNewRecipe(flattenRecipes(Collections.singletonList(recipe), this.baseRecipes.values(), currentHolder::getRecipe).get(0));
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
+    /**
+     * Function to add a base, a recipe which is only used as component of other recipes and cannot be ordered
+     * Recipes which were already added keep the quantities of the base they were flattened with
+     * @param base base to add, a base with same name is replaced
+     * @throws Exception when machine is not yet started or base has the name of a recipe
+     */
+    public void addBaseRecipe(Recipe base) throws Exception {
+        checkIfMachineStarted();
+        try {
+            holderLock.lock();
+            if (this.recipeHolder.hasRecipe(base.getName())) {
+                throw new Exception(String.format("%s is already a beverage", base.getName()));
+            }
+            this.baseRecipes.put(base.getName(), base);
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
+    /**
+     * Function to get names of all the bases
+     * @return read only view of base names
+     */
+    public Set<String> getBaseRecipes() {
+        return Collections.unmodifiableSet(this.baseRecipes.keySet());
+    }
+
+    /**
+     * Function to flatten composite recipes into plain ones which can be brewed, plain recipes are kept as they are
+     * @param recipes recipes to flatten
+     * @param bases bases which can be used as components
+     * @param knownRecipes function to get a flat recipe which can be used as component, null when not known
+     * @return flat recipes in same order
+     * @throws Exception when two recipes or a recipe and a base have same name or a recipe cannot be flattened
+     */
+    static List<Recipe> flattenRecipes(Collection<Recipe> recipes, Collection<Recipe> bases, Function<String, Recipe> knownRecipes) throws Exception {
+        RecipeComposer recipeComposer = new RecipeComposer(knownRecipes);
+        for (Recipe base : bases) {
+            recipeComposer.addUniqueRecipe(base);
+        }
+        for (Recipe recipe : recipes) {
+            recipeComposer.addUniqueRecipe(recipe);
+        }
+        List<Recipe> flatRecipes = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            flatRecipes.add(recipe.isComposite() ? recipeComposer.compose(recipe.getName()) : recipe);
+        }
+        return flatRecipes;
+    }
+
+    /**
+     * Function to reconfigure a running machine with a new catalog
+     * New recipe holder is built aside and swapped in with a single write so orders never see a half applied catalog
+     * Stock of existing ingredients is kept as it is, ingredients missing in new configuration are not removed
+     * Orders are not paused, an order which already fetched its recipe finishes with the old recipe
+     * Shared catalog or lazy definitions of the machine are kept, given recipes are the machine's own ones on top of them
+     * Adapter over the primitive applyConfiguration, kept for callers building Pair lists
+     * @param numOutlets number of outlets
+     * @param ingredients ingredients of new configuration
+     * @param recipes recipes of new configuration
+     * @return changes applied to the machine
+     * @throws Exception when machine is not yet started or a predefined recipe would be changed
+     */
+    public CatalogDiff applyConfiguration(int numOutlets, List<Pair<String, Integer>> ingredients, List<Pair<String, List<Pair<String, Integer>>>> recipes) throws Exception {
+        String[] ingredientNames = new String[ingredients.size()];
+        int[] quantities = new int[ingredients.size()];
+        for (int i = 0; i < ingredientNames.length; i++) {
+            ingredientNames[i] = ingredients.get(i).getKey();
+            quantities[i] = ingredients.get(i).getValue();
+        }
+        List<Recipe> recipeObjects = new ArrayList<>(recipes.size());
+        for (Pair<String, List<Pair<String, Integer>>> recipeObject : recipes) {
+            recipeObjects.add(new Recipe(recipeObject.getKey(), recipeObject.getValue()));
+        }
+        return applyConfiguration(numOutlets, ingredientNames, quantities, ingredientNames.length, recipeObjects);
+    }
+
+    /**
+     * Function to reconfigure a running machine with a new catalog given as primitive arrays and built recipes
+     * Works in the same way as the Pair based applyConfiguration
+     * @param numOutlets number of outlets
+     * @param ingredientNames names of ingredients of new configuration
+     * @param quantities quantity of every ingredient of new configuration
+     * @param ingredientCount number of ingredients, only first ingredientCount entries of the arrays are used
+     * @param recipes recipes of new configuration, bases of the machine are kept
+     * @return changes applied to the machine
+     * @throws Exception when machine is not yet started, a predefined recipe would be changed or recipes cannot be
+     * flattened, nothing is applied then
+     */
+    public CatalogDiff applyConfiguration(int numOutlets, String[] ingredientNames, int[] quantities, int ingredientCount, Collection<Recipe> recipes) throws Exception {
+        return applyConfiguration(numOutlets, ingredientNames, quantities, ingredientCount, recipes, new ArrayList<>(this.baseRecipes.values()));
+    }
+
+    /**
+     * Function to reconfigure a running machine with a new catalog and new bases
+     * Works in the same way as the Pair based applyConfiguration, composite recipes are flattened with given bases
+     * and predefined recipes, bases of the machine are replaced with given ones
+     * @param numOutlets number of outlets
+     * @param ingredientNames names of ingredients of new configuration
+     * @param quantities quantity of every ingredient of new configuration
+     * @param ingredientCount number of ingredients, only first ingredientCount entries of the arrays are used
+     * @param recipes recipes of new configuration
+     * @param bases bases of new configuration, see addBaseRecipe
+     * @return changes applied to the machine
+     * @throws Exception when machine is not yet started, a predefined recipe would be changed, two recipes or a recipe
+     * and a base have same name, recipes cannot be flattened or number of outlets is negative, nothing is applied then
+     */
+    public CatalogDiff applyConfiguration(int numOutlets, String[] ingredientNames, int[] quantities, int ingredientCount,
+                                          Collection<Recipe> recipes, Collection<Recipe> bases) throws Exception {
         checkIfMachineStarted();
+        if (numOutlets < 0) {
+            throw new Exception("Number of outlets cannot be negative");
+        }
         try {
             holderLock.lock();
-            this.recipeHolder.addNewRecipe(name, ingredients);
+            CatalogDiff catalogDiff = new CatalogDiff();
+            RecipeHolder currentHolder = this.recipeHolder;
+            // Recipes of the machine itself are replaced, so only predefined ones can be used as components
+            List<Recipe> flatRecipes = flattenRecipes(recipes, bases,
+                name -> currentHolder.isPredefined(name) ? currentHolder.getRecipe(name) : null);
+            Map<String, Recipe> newRecipes = new LinkedHashMap<>();
+            for (Recipe recipe : flatRecipes) {
+                Recipe currentRecipe = currentHolder.getRecipe(recipe.getName());
+                if (currentRecipe == null) {
+                    catalogDiff.addRecipe(recipe.getName());
+                } else if (currentRecipe.hasSameIngredients(recipe)) {
+                    // Keep the existing object for unchanged recipes, steps are not part of the diff but a recipe with
+                    // other steps is taken as it is because the existing one can be shared with other machines
+                    newRecipes.putIfAbsent(recipe.getName(), currentRecipe.getPreparationPlan() == recipe.getPreparationPlan() ? currentRecipe : recipe);
+                    continue;
+                } else if (currentHolder.isPredefined(recipe.getName())) {
+                    throw new Exception(String.format("%s is a predefined recipe and cannot be changed", recipe.getName()));
+                } else {
+                    catalogDiff.changeRecipe(recipe.getName());
+                }
+                newRecipes.putIfAbsent(recipe.getName(), recipe);
+            }
+            // Shared catalog or lazy definitions are kept, so only recipes of the machine itself can go away
+            RecipeHolder newHolder = currentHolder.withRecipes(newRecipes.values());
+            for (Recipe base : bases) {
+                if (newHolder.hasRecipe(base.getName())) {
+                    throw new Exception(String.format("%s is already a beverage", base.getName()));
+                }
+            }
+            for (String name : currentHolder.getRecipeNames()) {
+                if (!newHolder.hasRecipe(name)) {
+                    catalogDiff.removeRecipe(name);
+                }
+            }
+
+            for (int i = 0; i < ingredientCount; i++) {
+                if (!this.ingredientsHolder.isIngredientPresent(ingredientNames[i])) {
+                    this.ingredientsHolder.addNewIngredient(ingredientNames[i], quantities[i]);
+                    catalogDiff.addIngredient(ingredientNames[i]);
+                }
+            }
+            this.recipeHolder = newHolder; // Single swap of the whole catalog, unchanged recipes keep their state
+            Map<String, Recipe> newBases = new LinkedHashMap<>();
+            for (Recipe base : bases) {
+                newBases.put(base.getName(), base);
+            }
+            this.baseRecipes.keySet().retainAll(newBases.keySet());
+            this.baseRecipes.putAll(newBases);
+
+            catalogDiff.setOutlets(getTotalOutlets(), numOutlets);
+            setTotalOutlets(numOutlets);
+            return catalogDiff;
         } finally {
             holderLock.unlock();
         }
@@ -172,6 +814,22 @@ public class CoffeeMachine {
         }
     }
 
+    /**
+     * Function to refill a single ingredient to its maxQuantity
+     * @param item name of the ingredient to refill
+     * @return quantity added by the refill, 0 when ingredient is not present
+     * @throws Exception when machine is not yet started
+     */
+    public int refillIngredient(String item) throws Exception {
+        checkIfMachineStarted();
+        try {
+            holderLock.lock();
+            return this.ingredientsHolder.refillIngredient(item);
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
     /**
      * Function to refill only running low ingredients
      * @throws Exception when machine is not yet started
@@ -188,6 +846,109 @@ public class CoffeeMachine {
         }
     }
 
+    /**
+     * Function to plan the fewest refills which bring the most offline beverages back, see RefillPlanner
+     * Machine stock is not changed, this is only a plan
+     * @param maxRefills most ingredients that can be refilled
+     * @return steps of the plan, most beverages restored per refill first
+     * @throws Exception when machine is not yet started
+     */
+    public List<RefillStep> planRefills(int maxRefills) throws Exception {
+        checkIfMachineStarted();
+        RefillPlanner refillPlanner;
+        try {
+            holderLock.lock();
+            StockSnapshot stockSnapshot = this.ingredientsHolder.getSnapshot();
+            refillPlanner = new RefillPlanner(this.recipeHolder, stockSnapshot.getQuantities(), stockSnapshot.getMaxQuantities());
+        } finally {
+            holderLock.unlock();
+        }
+        return refillPlanner.plan(maxRefills);
+    }
+
+    /**
+     * Function to refill only ingredients of the refill plan, instead of every running low ingredient
+     * @param maxRefills most ingredients that can be refilled
+     * @return names of refilled ingredients in order of the plan
+     * @throws Exception when machine is not yet started
+     */
+    public List<String> refillPlannedIngredients(int maxRefills) throws Exception {
+        List<String> refilled = new ArrayList<>();
+        for (RefillStep refillStep : planRefills(maxRefills)) {
+            refilled.addAll(refillStep.getIngredients());
+        }
+        try {
+            holderLock.lock();
+            for (String ingredient : refilled) {
+                this.ingredientsHolder.refillIngredient(ingredient);
+            }
+        } finally {
+            holderLock.unlock();
+        }
+        return refilled;
+    }
+
+    /**
+     * Function to refill an ingredient gradually in background, see RefillScheduler
+     * Orders keep using the ingredient while it is refilled and no outlet is blocked
+     * @param item name of the ingredient to refill
+     * @param flowRate quantity poured per second
+     * @return completed with total quantity added once the ingredient is full
+     * @throws Exception when machine is not yet started or ingredient is not present
+     */
+    public CompletableFuture<Integer> startRefill(String item, double flowRate) throws Exception {
+        checkIfMachineStarted();
+        if (!this.ingredientsHolder.isIngredientPresent(item)) {
+            throw new Exception(String.format("%s is not a valid ingredient", item));
+        }
+        try {
+            holderLock.lock(); // Same lock as stopRefills so a refill is never started on a stopped scheduler
+            if (this.refillScheduler == null) {
+                this.refillScheduler = new RefillScheduler(this.ingredientsHolder, 1);
+            }
+            return this.refillScheduler.startRefill(item, flowRate);
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
+    /**
+     * Function to set how many refills can run at the same time
+     * Refills which are in progress are stopped with quantity added so far
+     * @param workers number of refills which can run at the same time
+     * @return new scheduler of refills
+     * @throws Exception when machine is not yet started
+     */
+    public RefillScheduler setRefillWorkers(int workers) throws Exception {
+        checkIfMachineStarted();
+        try {
+            holderLock.lock();
+            RefillScheduler previous = this.refillScheduler;
+            if (previous != null) {
+                previous.stop();
+            }
+            this.refillScheduler = new RefillScheduler(this.ingredientsHolder, workers);
+            return this.refillScheduler;
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
+    /**
+     * Function to stop all the refills which are in progress, quantity added so far is kept
+     */
+    public void stopRefills() {
+        try {
+            holderLock.lock();
+            if (this.refillScheduler != null) {
+                this.refillScheduler.stop();
+                this.refillScheduler = null;
+            }
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
     /**
      * Function to get a list of all running low ingredients
      * @return A list of all the ingredients who are running low on quantity
@@ -203,12 +964,105 @@ public class CoffeeMachine {
         }
     }
 
+    /**
+     * Function to get state of the machine as of a single instant
+     * No machine level lock is taken and orders are not paused, see IngredientsHolder.getSnapshot
+     * @return snapshot of outlets, stock and recipes
+     * @throws Exception when machine is not yet started
+     */
+    public MachineSnapshot getSnapshot() throws Exception {
+        checkIfMachineStarted();
+        RecipeHolder currentHolder = this.recipeHolder; // Holder is replaced as a whole so a single read is consistent
+        return new MachineSnapshot(getTotalOutlets(), this.ingredientsHolder.getSnapshot(), currentHolder);
+    }
+
+    /**
+     * Function to notify a listener whenever stock of an ingredient crosses a level of its max quantity, for eg StockHistory
+     * @param stockListener listener to notify, null to stop notifying
+     * @param levels number of evenly spaced levels
+     * @throws Exception when machine is not yet started
+     */
+    public void setStockListener(StockListener stockListener, int levels) throws Exception {
+        checkIfMachineStarted();
+        this.ingredientsHolder.setStockListener(stockListener, levels);
+    }
+
+    /**
+     * Function to publish every stock change of the machine to given bus, orders only pay for an enqueue
+     * @param stockEventBus started bus, null to stop publishing
+     * @throws Exception when machine is not yet started
+     */
+    public void setStockEventBus(StockEventBus stockEventBus) throws Exception {
+        checkIfMachineStarted();
+        this.ingredientsHolder.setStockEventBus(stockEventBus);
+    }
+
+    /**
+     * Function to get current available quantity of every ingredient
+     * @return map of ingredient name -> available quantity
+     * @throws Exception when machine is not yet started
+     */
+    public Map<String, Integer> getAvailableQuantities() throws Exception {
+        checkIfMachineStarted();
+        try {
+            holderLock.lock();
+            return this.ingredientsHolder.getAvailableQuantities();
+        } finally {
+            holderLock.unlock();
+        }
+    }
+
+    /**
+     * Function to plan the serving mix which fulfils the most orders with current stock
+     * Machine stock is not used, this is only a plan
+     * @param demandForecast beverage name -> number of expected orders
+     * @return beverage name -> number of servings that can be fulfilled
+     * @throws Exception when machine is not yet started
+     */
+    public Map<String, Integer> planServings(Map<String, Integer> demandForecast) throws Exception {
+        checkIfMachineStarted();
+        ServingPlanner servingPlanner;
+        try {
+            holderLock.lock();
+            servingPlanner = new ServingPlanner(this.recipeHolder, this.ingredientsHolder.getAvailableQuantities());
+        } finally {
+            holderLock.unlock();
+        }
+        return servingPlanner.plan(demandForecast);
+    }
+
     /**
      * Function to get total number of outlets in the machine
      * @return number of outlets
      */
     public int getTotalOutlets() {
-        return totalOutlets;
+        return this.outletCountLock.getSize();
+    }
+
+    /**
+     * Function to change number of outlets while machine is running
+     * When outlets are removed orders being prepared are finished, only new orders wait for the smaller pool
+     * @param numOutlets new number of outlets
+     * @throws Exception when numOutlets is negative
+     */
+    public void setTotalOutlets(int numOutlets) throws Exception {
+        this.outletCountLock.resize(numOutlets);
+    }
+
+    /**
+     * Function to get number of outlets preparing an order
+     * @return number of busy outlets
+     */
+    public int getBusyOutlets() {
+        return this.outletCountLock.getBusyOutlets();
+    }
+
+    /**
+     * Function to get moving average of time an order holds an outlet
+     * @return average service time in nanoseconds
+     */
+    public long getAverageServiceNanos() {
+        return this.averageServiceNanos;
     }
 
     /**
@@ -240,4 +1094,52 @@ public class CoffeeMachine {
             holderLock.unlock();
         }
     }
+
+    /**
+     * Function to get least time an order of a beverage takes, its critical path of preparation steps
+     * @param beverage name of the beverage
+     * @return critical path in milliseconds, 0 when beverage is prepared as one instant step
+     * @throws Exception when machine is not yet started or beverage is not present
+     */
+    public long getCriticalPathMillis(String beverage) throws Exception {
+        checkIfMachineStarted();
+        Recipe recipe = this.recipeHolder.getRecipe(beverage);
+        if (recipe == null) {
+            throw new Exception(String.format("%s is not a valid beverage", beverage));
+        }
+        PreparationPlan preparationPlan = recipe.getPreparationPlan();
+        return preparationPlan == null ? 0 : preparationPlan.getCriticalPathMillis();
+    }
+
+    /**
+     * Function to get names of all the beverages the machine can prepare
+     * @return names of the beverages in alphabetical order
+     * @throws Exception when machine is not yet started
+     */
+    public List<String> getBeverages() throws Exception {
+        checkIfMachineStarted();
+        List<String> beverages = this.recipeHolder.getRecipeNames();
+        Collections.sort(beverages);
+        return beverages;
+    }
+
+    /**
+     * Function to get beverages which cannot be prepared once an ingredient runs out
+     * @param ingredient name of the ingredient
+     * @return names of the beverages needing the ingredient
+     * @throws Exception when machine is not yet started
+     */
+    public Set<String> getBeveragesUsing(String ingredient) throws Exception {
+        checkIfMachineStarted();
+        return this.recipeHolder.getRecipesUsing(ingredient);
+    }
+
+    /**
+     * Function to get beverages needing any of the running low ingredients
+     * @return names of the beverages in alphabetical order
+     * @throws Exception when machine is not yet started
+     */
+    public List<String> getBeveragesAtRisk() throws Exception {
+        return this.recipeHolder.getRecipesUsing(getRunningLowIngredients());
+    }
 }
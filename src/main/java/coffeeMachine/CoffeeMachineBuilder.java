@@ -0,0 +1,243 @@
+package coffeeMachine;
+
+import ingredient.IngredientsHolder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import recipe.Recipe;
+import recipe.RecipeCatalog;
+import recipe.RecipeDefinitions;
+import recipe.RecipeHolder;
+import recipe.RecipeModifier;
+
+/**
+ * Fluent builder to create a CoffeeMachine without boxing quantities or allocating a Pair per ingredient
+ * For eg
+ * new CoffeeMachineBuilder(3)
+ *     .addIngredient("hot_water", 500)
+ *     .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 100).build())
+ *     .build();
+ */
+public class CoffeeMachineBuilder {
+
+    /**
+     * Variable to store number of outlets
+     */
+    private final int outlets;
+
+    /**
+     * Policy to decide waiting and rejection of orders
+     */
+    private AdmissionPolicy admissionPolicy = new AdmissionPolicy();
+
+    /**
+     * Names of ingredients added so far
+     */
+    private String[] ingredientNames;
+
+    /**
+     * Quantities of ingredients added so far
+     */
+    private int[] quantities;
+
+    /**
+     * Variable to store number of ingredients added so far
+     */
+    private int ingredientCount = 0;
+
+    /**
+     * Recipes added so far
+     */
+    private final List<Recipe> recipes;
+
+    /**
+     * Catalog shared with other machines, null when machine owns all of its recipes
+     */
+    private RecipeCatalog sharedCatalog;
+
+    /**
+     * Raw definitions materialized on first order, null when all recipes are built upfront
+     */
+    private RecipeDefinitions recipeDefinitions;
+
+    /**
+     * Most materialized definitions kept by the machine, 0 or less keeps all of them
+     */
+    private int maxCachedRecipes;
+
+    /**
+     * Modifiers added so far
+     */
+    private final List<RecipeModifier> recipeModifiers = new ArrayList<>();
+
+    /**
+     * List to store bases, recipes which are only used as components of other recipes and cannot be ordered
+     */
+    private final List<Recipe> baseRecipes = new ArrayList<>();
+
+    /**
+     * Constructs a builder for a machine with given number of outlets
+     * @param outlets number of outlets
+     */
+    public CoffeeMachineBuilder(int outlets) {
+        this(outlets, 16, 16);
+    }
+
+    /**
+     * Constructs a builder presized for given number of ingredients and recipes
+     * @param outlets number of outlets
+     * @param expectedIngredients number of ingredients the machine is expected to have
+     * @param expectedRecipes number of recipes the machine is expected to have
+     */
+    public CoffeeMachineBuilder(int outlets, int expectedIngredients, int expectedRecipes) {
+        this.outlets = outlets;
+        this.ingredientNames = new String[Math.max(1, expectedIngredients)];
+        this.quantities = new int[this.ingredientNames.length];
+        this.recipes = new ArrayList<>(Math.max(1, expectedRecipes));
+    }
+
+    /**
+     * Function to set admission policy of the machine
+     * @param admissionPolicy policy to decide waiting and rejection of orders
+     * @return this builder
+     */
+    public CoffeeMachineBuilder setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+        return this;
+    }
+
+    /**
+     * Function to make the machine use a catalog shared with other machines
+     * Added recipes whose name is in the catalog are ignored, others are kept only by this machine
+     * @param sharedCatalog catalog shared with other machines
+     * @return this builder
+     */
+    public CoffeeMachineBuilder setRecipeCatalog(RecipeCatalog sharedCatalog) {
+        this.sharedCatalog = sharedCatalog;
+        return this;
+    }
+
+    /**
+     * Function to make the machine materialize recipes of a huge catalog only when they are ordered
+     * Added recipes whose name is in the definitions are ignored, others are kept as usual
+     * @param recipeDefinitions raw definitions of the recipes
+     * @param maxCachedRecipes most materialized recipes kept, 0 or less keeps all of them
+     * @return this builder
+     */
+    public CoffeeMachineBuilder setRecipeDefinitions(RecipeDefinitions recipeDefinitions, int maxCachedRecipes) {
+        this.recipeDefinitions = recipeDefinitions;
+        this.maxCachedRecipes = maxCachedRecipes;
+        return this;
+    }
+
+    /**
+     * Function to add an ingredient, given quantity is also its max quantity
+     * @param ingredient name of the ingredient
+     * @param quantity initial quantity of the ingredient
+     * @return this builder
+     */
+    public CoffeeMachineBuilder addIngredient(String ingredient, int quantity) {
+        if (this.ingredientCount == this.ingredientNames.length) {
+            this.ingredientNames = Arrays.copyOf(this.ingredientNames, this.ingredientCount * 2);
+            this.quantities = Arrays.copyOf(this.quantities, this.ingredientCount * 2);
+        }
+        this.ingredientNames[this.ingredientCount] = ingredient;
+        this.quantities[this.ingredientCount] = quantity;
+        this.ingredientCount++;
+        return this;
+    }
+
+    /**
+     * Function to add a recipe
+     * @param recipe recipe to add, see RecipeBuilder
+     * @return this builder
+     */
+    public CoffeeMachineBuilder addRecipe(Recipe recipe) {
+        this.recipes.add(recipe);
+        return this;
+    }
+
+    /**
+     * Function to add a base, a recipe which is only used as component of other recipes and cannot be ordered
+     * @param base base to add, see RecipeBuilder
+     * @return this builder
+     */
+    public CoffeeMachineBuilder addBaseRecipe(Recipe base) {
+        this.baseRecipes.add(base);
+        return this;
+    }
+
+    /**
+     * Function to add a modifier which can be applied to any recipe at order time
+     * @param recipeModifier modifier to add
+     * @return this builder
+     */
+    public CoffeeMachineBuilder addRecipeModifier(RecipeModifier recipeModifier) {
+        this.recipeModifiers.add(recipeModifier);
+        return this;
+    }
+
+    /**
+     * Function to create and start the machine
+     * Composite recipes are flattened with the bases and, when there are any, the predefined recipes
+     * @return started CoffeeMachine
+     * @throws Exception when machine cannot be started, two recipes or a recipe and a base have same name or recipes
+     * cannot be flattened
+     */
+    public CoffeeMachine build() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(this.outlets, this.admissionPolicy);
+        RecipeHolder recipeHolder;
+        String[] names = this.ingredientNames;
+        if (this.recipeDefinitions != null) {
+            recipeHolder = new RecipeHolder(this.recipeDefinitions, this.maxCachedRecipes);
+            for (Recipe recipe : CoffeeMachine.flattenRecipes(this.recipes, this.baseRecipes, recipeHolder::getRecipe)) {
+                recipeHolder.addNewRecipe(recipe);
+            }
+        } else if (this.sharedCatalog == null) {
+            recipeHolder = new RecipeHolder(CoffeeMachine.flattenRecipes(this.recipes, this.baseRecipes, name -> null));
+        } else {
+            recipeHolder = new RecipeHolder(this.sharedCatalog);
+            for (Recipe recipe : CoffeeMachine.flattenRecipes(this.recipes, this.baseRecipes, recipeHolder::getRecipe)) {
+                recipeHolder.addNewRecipe(recipe);
+            }
+            // Share ingredient names with the catalog as well
+            names = new String[this.ingredientCount];
+            for (int i = 0; i < this.ingredientCount; i++) {
+                names[i] = this.sharedCatalog.intern(this.ingredientNames[i]);
+            }
+        }
+        coffeeMachine.initialize(new IngredientsHolder(names, this.quantities, this.ingredientCount), recipeHolder);
+        for (Recipe base : this.baseRecipes) {
+            coffeeMachine.addBaseRecipe(base);
+        }
+        for (RecipeModifier recipeModifier : this.recipeModifiers) {
+            coffeeMachine.addRecipeModifier(recipeModifier);
+        }
+        return coffeeMachine;
+    }
+
+    /**
+     * Function to create a catalog from added recipes which can be shared by many machines
+     * Composite recipes are flattened with the bases, bases themselves are not part of the catalog
+     * @return RecipeCatalog with all the added recipes
+     * @throws Exception when two recipes or a recipe and a base have same name or recipes cannot be flattened
+     */
+    public RecipeCatalog getRecipeCatalog() throws Exception {
+        return new RecipeCatalog(CoffeeMachine.flattenRecipes(this.recipes, this.baseRecipes, name -> null));
+    }
+
+    /**
+     * Function to apply built configuration to a running machine, see CoffeeMachine.applyConfiguration
+     * @param coffeeMachine machine to reconfigure
+     * @return changes applied to the machine
+     * @throws Exception when machine is not yet started or configuration cannot be applied
+     */
+    public CatalogDiff applyTo(CoffeeMachine coffeeMachine) throws Exception {
+        CatalogDiff catalogDiff = coffeeMachine.applyConfiguration(this.outlets, this.ingredientNames, this.quantities, this.ingredientCount,
+            this.recipes, this.baseRecipes);
+        for (RecipeModifier recipeModifier : this.recipeModifiers) {
+            coffeeMachine.addRecipeModifier(recipeModifier);
+        }
+        return catalogDiff;
+    }
+}
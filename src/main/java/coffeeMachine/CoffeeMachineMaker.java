@@ -1,10 +1,18 @@
 package coffeeMachine;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javafx.util.Pair;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import recipe.PreparationPlan;
+import recipe.PreparationStep;
+import recipe.Recipe;
+import recipe.RecipeBuilder;
+import recipe.RecipeCatalog;
+import recipe.RecipeModifier;
 
 /**
  * Class to create a coffee machine from given json representation of a machine
@@ -48,47 +56,180 @@ import org.json.JSONObject;
  *         "sugar_syrup": 50,
  *         "green_mixture": 30
  *       },
+ *       "masala_tea": {
+ *         "ginger_syrup": 20,
+ *         "components": { ---> optional portions of other beverages or bases, flattened when recipe is added
+ *           "tea_base": 1
+ *         },
+ *         "steps": { ---------> optional preparation steps, steps which do not depend on each other run in parallel
+ *           "boil_tea": {
+ *             "millis": 40
+ *           },
+ *           "heat_milk": {
+ *             "millis": 30
+ *           },
+ *           "mix": {
+ *             "millis": 5,
+ *             "after": ["boil_tea", "heat_milk"] ---> steps which should be finished first
+ *           }
+ *         }
+ *       }
+ *     },
+ *     "bases": { ------------> optional recipes which are only used as components and cannot be ordered
+ *       "tea_base": {
+ *         "hot_water": 200,
+ *         "hot_milk": 100,
+ *         "tea_leaves_syrup": 30
+ *       }
+ *     },
+ *     "modifiers": { ---------> optional variants which can be applied to any beverage at order time
+ *       "large": {
+ *         "scale": 1.5 ---------> every quantity is multiplied with scale
+ *       },
+ *       "extra_shot": {
+ *         "tea_leaves_syrup": 10 ---> added after scaling, to beverages which use the ingredient
+ *       }
  *     }
  *   }
  * }
  */
 public class CoffeeMachineMaker {
-    private static final String MACHINE = "machine";
+    public static final String MACHINE = "machine";
     public static final String TOTAL_ITEMS_QUANTITY = "total_items_quantity";
     public static final String OUTLETS = "outlets";
     public static final String BEVERAGES = "beverages";
     public static final String OUTLETS_COUNT = "count_n";
+    public static final String MODIFIERS = "modifiers";
+    public static final String MODIFIER_SCALE = "scale";
+    public static final String BASES = "bases";
+    public static final String COMPONENTS = "components";
+    public static final String STEPS = "steps";
+    public static final String STEP_MILLIS = "millis";
+    public static final String STEP_AFTER = "after";
+
+    /**
+     * Function to fill a recipe builder with ingredients of json representation of a recipe
+     * @param recipeObject json representation of a recipe
+     * @param recipeBuilder builder to fill
+     * @return filled builder
+     */
+    private static RecipeBuilder getRecipeBuilder(JSONObject recipeObject, RecipeBuilder recipeBuilder) {
+        for (String ingredient : recipeObject.keySet()) {
+            Object quantity = recipeObject.opt(ingredient);
+            if (quantity instanceof Integer) {
+                recipeBuilder.addIngredient(ingredient, (int) quantity);
+            }
+        }
+        return recipeBuilder;
+    }
+
+    /**
+     * Function to create a recipe with its components and steps from json representation of a recipe
+     * @param name name of the recipe
+     * @param recipeObject json representation of the recipe
+     * @return Recipe, composite when it has components
+     * @throws Exception when steps do not form a valid plan
+     */
+    private static Recipe getRecipe(String name, JSONObject recipeObject) throws Exception {
+        RecipeBuilder recipeBuilder = getRecipeBuilder(recipeObject, new RecipeBuilder(name, recipeObject.length()));
+        JSONObject components = recipeObject.optJSONObject(COMPONENTS);
+        if (components != null) {
+            for (String component : components.keySet()) {
+                recipeBuilder.addComponent(component, components.getInt(component));
+            }
+        }
+        JSONObject steps = recipeObject.optJSONObject(STEPS);
+        if (steps != null) {
+            recipeBuilder.setPreparationPlan(getPreparationPlan(steps));
+        }
+        return recipeBuilder.build();
+    }
 
     /**
-     * Function to get List of pairs of ingredients with their name and quantity
-     * @param rawIngredientsObject json representation of a collection of ingredients
-     * @return list of pair of ingredients name and quantity
+     * Function to create a preparation plan from json representation of steps of a recipe
+     * @param stepsObject json with step name -> duration and steps it depends on
+     * @return PreparationPlan
+     * @throws Exception when steps do not form a valid plan
      */
-    private static List<Pair<String, Integer>> getIngredients(JSONObject rawIngredientsObject) {
-        List<Pair<String, Integer>> rawIngredientsList = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : rawIngredientsObject.toMap().entrySet()) {
-            if (entry.getValue() instanceof Integer) {
-                rawIngredientsList.add(new Pair<>(entry.getKey(), (int)entry.getValue()));
+    private static PreparationPlan getPreparationPlan(JSONObject stepsObject) throws Exception {
+        List<PreparationStep> steps = new ArrayList<>(stepsObject.length());
+        for (String step : stepsObject.keySet()) {
+            JSONObject stepObject = stepsObject.getJSONObject(step);
+            JSONArray after = stepObject.optJSONArray(STEP_AFTER);
+            String[] dependencies = new String[after == null ? 0 : after.length()];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = after.getString(i);
             }
+            steps.add(new PreparationStep(step, stepObject.optLong(STEP_MILLIS, 0), dependencies));
         }
-        return rawIngredientsList;
+        return new PreparationPlan(steps);
     }
 
     /**
-     * Function to get list of recipes in form of pair(name, ingredients pairs)
-     * @param recipesObject Json representation of a collection of recipes
-     * @return list of pair of recipes name and their ingredients
+     * Function to create a modifier from its json representation
+     * @param name name of the modifier
+     * @param modifierObject json with optional scale and quantity added to every ingredient
+     * @return RecipeModifier
+     * @throws Exception when scale is negative
      */
-    private static List<Pair<String, List<Pair<String, Integer>>>> getRecipes(JSONObject recipesObject) {
-        List<Pair<String, List<Pair<String, Integer>>>> recipes = new ArrayList<>();
-        for (Object keyObj : recipesObject.names()) {
-            JSONObject recipeIngredients = recipesObject.getJSONObject((String) keyObj);
-            if (recipeIngredients instanceof JSONObject) {
-                List<Pair<String, Integer>> ingredients = getIngredients(recipeIngredients);
-                recipes.add(new Pair<>((String) keyObj, ingredients));
+    private static RecipeModifier getRecipeModifier(String name, JSONObject modifierObject) throws Exception {
+        Map<String, Integer> adjustments = new HashMap<>();
+        for (String ingredient : modifierObject.keySet()) {
+            Object quantity = modifierObject.opt(ingredient);
+            if (!MODIFIER_SCALE.equals(ingredient) && quantity instanceof Integer) {
+                adjustments.put(ingredient, (int) quantity);
+            }
+        }
+        double scale = modifierObject.optDouble(MODIFIER_SCALE, 1);
+        if (scale < 0) {
+            throw new Exception("scale of modifier " + name + " should not be negative");
+        }
+        return new RecipeModifier(name, scale, adjustments);
+    }
+
+    /**
+     * Function to create a machine builder from json representation of machine
+     * @param machineConfig json representation of machine
+     * @return builder with all the outlets, ingredients and recipes of the machine
+     * @throws Exception when machine is not valid
+     */
+    private static CoffeeMachineBuilder getCoffeeMachineBuilder(JSONObject machineConfig) throws Exception {
+        JSONObject machine = machineConfig.getJSONObject(MACHINE);
+        if (machine == null) {
+            throw new Exception("machine field is mandatory");
+        }
+
+        JSONObject outlets = machine.getJSONObject(OUTLETS);
+        JSONObject rawIngredients = machine.getJSONObject(TOTAL_ITEMS_QUANTITY);
+        JSONObject beverages = machine.getJSONObject(BEVERAGES);
+
+        if (outlets == null || rawIngredients == null || beverages == null) {
+            throw new Exception("outlets, total_items_quantity, beverages are all mandatory fields");
+        }
+
+        CoffeeMachineBuilder coffeeMachineBuilder = new CoffeeMachineBuilder(outlets.getInt(OUTLETS_COUNT), rawIngredients.length(), beverages.length());
+        for (String ingredient : rawIngredients.keySet()) {
+            Object quantity = rawIngredients.opt(ingredient);
+            if (quantity instanceof Integer) {
+                coffeeMachineBuilder.addIngredient(ingredient, (int) quantity);
+            }
+        }
+        JSONObject bases = machine.optJSONObject(BASES);
+        if (bases != null) {
+            for (String base : bases.keySet()) {
+                coffeeMachineBuilder.addBaseRecipe(getRecipe(base, bases.getJSONObject(base)));
             }
         }
-        return recipes;
+        for (String beverage : beverages.keySet()) {
+            coffeeMachineBuilder.addRecipe(getRecipe(beverage, beverages.getJSONObject(beverage)));
+        }
+        JSONObject modifiers = machine.optJSONObject(MODIFIERS);
+        if (modifiers != null) {
+            for (String modifier : modifiers.keySet()) {
+                coffeeMachineBuilder.addRecipeModifier(getRecipeModifier(modifier, modifiers.getJSONObject(modifier)));
+            }
+        }
+        return coffeeMachineBuilder;
     }
 
     /**
@@ -111,26 +252,56 @@ public class CoffeeMachineMaker {
      */
     public static CoffeeMachine getCoffeeMachineFromGivenInput(JSONObject machineConfig)
         throws Exception {
-        JSONObject machine = machineConfig.getJSONObject(MACHINE);
-        if (machine == null) {
-            throw new Exception("machine field is mandatory");
-        }
+        return getCoffeeMachineBuilder(machineConfig).build();
+    }
 
-        JSONObject outlets = machine.getJSONObject(OUTLETS);
-        JSONObject rawIngredients = machine.getJSONObject(TOTAL_ITEMS_QUANTITY);
-        JSONObject beverages = machine.getJSONObject(BEVERAGES);
+    /**
+     * Create machine from json representation whose recipes come from a catalog shared with other machines
+     * Beverages of the json which are also in the catalog are not kept by the machine
+     * @param machineConfig json representation of machine
+     * @param sharedCatalog catalog shared with other machines
+     * @return CoffeeMachine object
+     * @throws Exception when machine is not valid
+     */
+    public static CoffeeMachine getCoffeeMachineFromGivenInput(JSONObject machineConfig, RecipeCatalog sharedCatalog)
+        throws Exception {
+        return getCoffeeMachineBuilder(machineConfig).setRecipeCatalog(sharedCatalog).build();
+    }
 
-        if (outlets == null || rawIngredients == null || beverages == null) {
-            throw new Exception("outlets, total_items_quantity, beverages are all mandatory fields");
-        }
+    /**
+     * Create a catalog which can be shared by many machines from beverages of json representation of machine
+     * @param machineConfig json representation of machine
+     * @return RecipeCatalog with all the beverages
+     * @throws Exception when machine is not valid
+     */
+    public static RecipeCatalog getRecipeCatalog(JSONObject machineConfig) throws Exception {
+        return getCoffeeMachineBuilder(machineConfig).getRecipeCatalog();
+    }
 
-        int totalOutlets = outlets.getInt(OUTLETS_COUNT);
-        List<Pair<String, Integer>> rawIngredientsList = getIngredients(rawIngredients);
-        List<Pair<String, List<Pair<String, Integer>>>> recipes = getRecipes(beverages);
+    /**
+     * Reconfigure a running machine from json representation
+     * Given json should be in same format as used to create the machine
+     * @param coffeeMachine machine to reconfigure
+     * @param machineConfig json representation of machine
+     * @return changes applied to the machine
+     * @throws Exception when machine is not valid or not yet started
+     */
+    public static CatalogDiff reconfigureCoffeeMachine(CoffeeMachine coffeeMachine, JSONObject machineConfig)
+        throws Exception {
+        return getCoffeeMachineBuilder(machineConfig).applyTo(coffeeMachine);
+    }
 
-        CoffeeMachine coffeeMachine = new CoffeeMachine(totalOutlets);
-        coffeeMachine.initialize(rawIngredientsList, recipes);
-        return coffeeMachine;
+    /**
+     * Watch a configuration file and reconfigure given machine whenever the file changes
+     * @param configurationFile path of the json configuration file
+     * @param coffeeMachine machine to reconfigure
+     * @return started watcher, close it to stop watching
+     * @throws Exception when file cannot be watched
+     */
+    public static ConfigWatcher watchConfiguration(Path configurationFile, CoffeeMachine coffeeMachine) throws Exception {
+        ConfigWatcher configWatcher = new ConfigWatcher(configurationFile, coffeeMachine);
+        configWatcher.start();
+        return configWatcher;
     }
 
     // Check this to understand how input will be given to machine maker functions
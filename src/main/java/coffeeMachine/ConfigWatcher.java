@@ -0,0 +1,167 @@
+package coffeeMachine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+
+/**
+ * Class to watch a json configuration file and apply it to a running machine whenever it changes
+ * A file which cannot be parsed (for eg while an editor is still writing it) is ignored until next change
+ */
+public class ConfigWatcher implements Closeable {
+
+    /**
+     * Path of the watched configuration file
+     */
+    private final Path configurationFile;
+
+    /**
+     * Machine which is reconfigured
+     */
+    private final CoffeeMachine coffeeMachine;
+
+    /**
+     * Watch service of the directory of configuration file
+     */
+    private WatchService watchService;
+
+    /**
+     * Thread waiting for file changes
+     */
+    private Thread watcherThread;
+
+    /**
+     * Content of the last applied configuration, used to skip duplicate events
+     */
+    private String lastContent;
+
+    /**
+     * Changes applied by the last successful reconfiguration
+     */
+    private volatile CatalogDiff lastDiff;
+
+    /**
+     * Error of the last failed reconfiguration, null when last reconfiguration succeeded
+     */
+    private volatile Exception lastError;
+
+    /**
+     * Number of configurations applied so far
+     */
+    private final AtomicInteger appliedConfigurations = new AtomicInteger();
+
+    /**
+     * Constructs a watcher for given file and machine, call start to begin watching
+     * @param configurationFile path of the json configuration file
+     * @param coffeeMachine machine to reconfigure
+     */
+    public ConfigWatcher(Path configurationFile, CoffeeMachine coffeeMachine) {
+        this.configurationFile = configurationFile.toAbsolutePath();
+        this.coffeeMachine = coffeeMachine;
+    }
+
+    /**
+     * Function to start watching the file on a background thread
+     * @throws Exception when directory of the file cannot be watched or watcher is already started
+     */
+    public synchronized void start() throws Exception {
+        if (this.watchService != null) {
+            throw new Exception("Watcher already started");
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.configurationFile.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watcherThread = new Thread(this::watch, "config-watcher");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+    }
+
+    /**
+     * Function run by the watcher thread
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey watchKey = this.watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (this.configurationFile.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                watchKey.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher is closed
+        }
+    }
+
+    /**
+     * Function to read the configuration file and apply it if it changed since last time
+     * @return True if a new configuration was applied else False
+     */
+    public synchronized boolean reload() {
+        try {
+            String content = new String(Files.readAllBytes(this.configurationFile), StandardCharsets.UTF_8);
+            if (content.equals(this.lastContent)) {
+                return false;
+            }
+            this.lastDiff = CoffeeMachineMaker.reconfigureCoffeeMachine(this.coffeeMachine, new JSONObject(content));
+            this.lastContent = content;
+            this.lastError = null;
+            this.appliedConfigurations.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            this.lastError = e;
+            return false;
+        }
+    }
+
+    /**
+     * Function to get changes applied by the last successful reconfiguration
+     * @return last changes, null when nothing was applied yet
+     */
+    public CatalogDiff getLastDiff() {
+        return this.lastDiff;
+    }
+
+    /**
+     * Function to get error of the last failed reconfiguration
+     * @return last error, null when last reconfiguration succeeded
+     */
+    public Exception getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Function to get number of configurations applied so far
+     * @return number of applied configurations
+     */
+    public int getAppliedConfigurations() {
+        return this.appliedConfigurations.get();
+    }
+
+    /**
+     * Stop watching the file
+     * @throws IOException when watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.watchService != null) {
+            this.watchService.close();
+            this.watcherThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package coffeeMachine;
+
+import ingredient.StockSnapshot;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import org.json.JSONObject;
+import recipe.Recipe;
+import recipe.RecipeDefinitions;
+import recipe.RecipeHolder;
+
+/**
+ * State of a machine as of a single instant, see CoffeeMachine.getSnapshot
+ * It has number of outlets, quantity of every ingredient and all the recipes
+ */
+public class MachineSnapshot {
+
+    /**
+     * Key of the current quantities in json representation of snapshot
+     */
+    public static final String STOCK = "stock";
+
+    /**
+     * Key of the stock version in json representation of snapshot
+     */
+    public static final String VERSION = "version";
+
+    /**
+     * Key of the snapshot time in json representation of snapshot
+     */
+    public static final String TIMESTAMP = "timestamp";
+
+    /**
+     * Variable to store number of outlets
+     */
+    private final int outlets;
+
+    /**
+     * Quantity of every ingredient
+     */
+    private final StockSnapshot stockSnapshot;
+
+    /**
+     * All the recipes of the machine, kept as compact definitions so a huge catalog costs a few flat arrays
+     */
+    private final RecipeDefinitions recipes = new RecipeDefinitions();
+
+    /**
+     * Constructs a snapshot
+     * @param outlets number of outlets
+     * @param stockSnapshot quantity of every ingredient
+     * @param recipes all the recipes of the machine
+     */
+    public MachineSnapshot(int outlets, StockSnapshot stockSnapshot, List<Recipe> recipes) {
+        this.outlets = outlets;
+        this.stockSnapshot = stockSnapshot;
+        for (Recipe recipe : recipes) {
+            this.recipes.addDefinition(recipe.getName(), recipe.getIngredientNames(), recipe.getRequiredQuantities(), recipe.getIngredientNames().length);
+        }
+    }
+
+    /**
+     * Constructs a snapshot of all the recipes of a holder, lazy definitions of the holder are not materialized
+     * @param outlets number of outlets
+     * @param stockSnapshot quantity of every ingredient
+     * @param recipeHolder holder of all the recipes of the machine
+     */
+    public MachineSnapshot(int outlets, StockSnapshot stockSnapshot, RecipeHolder recipeHolder) {
+        this.outlets = outlets;
+        this.stockSnapshot = stockSnapshot;
+        recipeHolder.forEachRecipe((name, ingredientNames, requiredQuantities) ->
+            this.recipes.addDefinition(name, ingredientNames, requiredQuantities, ingredientNames.length));
+    }
+
+    /**
+     * Function to get number of outlets
+     * @return number of outlets
+     */
+    public int getOutlets() {
+        return this.outlets;
+    }
+
+    /**
+     * Function to get quantity of every ingredient
+     * @return stock snapshot
+     */
+    public StockSnapshot getStockSnapshot() {
+        return this.stockSnapshot;
+    }
+
+    /**
+     * Function to get all the recipes of the machine
+     * Recipes are created on every call, json representation does not need them
+     * @return read only list of recipes
+     */
+    public List<Recipe> getRecipes() {
+        List<Recipe> recipeList = new ArrayList<>(this.recipes.size());
+        for (int id = 0; id < this.recipes.size(); id++) {
+            recipeList.add(this.recipes.materialize(id));
+        }
+        return Collections.unmodifiableList(recipeList);
+    }
+
+    /**
+     * Function to get json representation of the snapshot
+     * Machine part is in the format read by CoffeeMachineMaker, with max quantities as total_items_quantity,
+     * current quantities are kept next to it under stock
+     * @return json representation
+     */
+    public JSONObject toJSONObject() {
+        JSONObject beverages = new JSONObject();
+        for (int id = 0; id < this.recipes.size(); id++) {
+            JSONObject recipeObject = new JSONObject();
+            String[] names = this.recipes.getIngredientNames(id);
+            int[] quantities = this.recipes.getRequiredQuantities(id);
+            for (int i = 0; i < names.length; i++) {
+                recipeObject.put(names[i], quantities[i]);
+            }
+            beverages.put(this.recipes.getName(id), recipeObject);
+        }
+        JSONObject machine = new JSONObject()
+            .put(CoffeeMachineMaker.OUTLETS, new JSONObject().put(CoffeeMachineMaker.OUTLETS_COUNT, this.outlets))
+            .put(CoffeeMachineMaker.TOTAL_ITEMS_QUANTITY, new JSONObject(this.stockSnapshot.getMaxQuantities()))
+            .put(CoffeeMachineMaker.BEVERAGES, beverages);
+        return new JSONObject()
+            .put(CoffeeMachineMaker.MACHINE, machine)
+            .put(STOCK, new JSONObject(this.stockSnapshot.getQuantities()))
+            .put(VERSION, this.stockSnapshot.getVersion())
+            .put(TIMESTAMP, this.stockSnapshot.getTimestampMillis());
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", MachineSnapshot.class.getSimpleName() + "[", "]")
+            .add("outlets=" + outlets)
+            .add("stockSnapshot=" + stockSnapshot)
+            .add("recipes=" + recipes.size())
+            .toString();
+    }
+}
@@ -0,0 +1,40 @@
+package coffeeMachine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a single order of CoffeeMachine.prepareBeverage, from start till its status is known
+ * Disabled by default, enable coffeeMachine.Order in a recording settings file to collect it
+ */
+@Name("coffeeMachine.Order")
+@Label("Order")
+@Category({"Coffee Machine", "Orders"})
+@Description("Preparation of a single beverage")
+@Enabled(false)
+@StackTrace(false)
+class OrderEvent extends Event {
+
+    /**
+     * Name of ordered beverage
+     */
+    @Label("Beverage")
+    String beverage;
+
+    /**
+     * True if beverage was prepared else False
+     */
+    @Label("Prepared")
+    boolean prepared;
+
+    /**
+     * Status returned to the caller
+     */
+    @Label("Status")
+    String status;
+}
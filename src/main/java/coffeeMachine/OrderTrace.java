@@ -0,0 +1,24 @@
+package coffeeMachine;
+
+import history.OrderOutcome;
+
+/**
+ * Details of a single order collected while it is prepared, used to record the order once its status is known
+ */
+class OrderTrace {
+
+    /**
+     * Outcome of the order, null when it turned out there was no order, for eg its reservation expired
+     */
+    OrderOutcome outcome = OrderOutcome.PREPARED;
+
+    /**
+     * Ingredient which was not available or not sufficient, null otherwise
+     */
+    String failedIngredient;
+
+    /**
+     * Number of the outlet which prepared the order, -1 when no outlet was used or it is not known
+     */
+    int outlet = -1;
+}
@@ -0,0 +1,131 @@
+package coffeeMachine;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller which grows and shrinks outlets of a machine based on its load
+ * 1. An outlet is added when orders are waiting and estimated wait is more than the target
+ * 2. An outlet is removed when no order was waiting and at most half of the outlets were busy for some rounds
+ * Outlets always stay between minOutlets and maxOutlets
+ */
+public class OutletController {
+
+    /**
+     * Number of quiet rounds after which an outlet is removed
+     */
+    private static final int IDLE_ROUNDS_TO_SHRINK = 3;
+
+    /**
+     * Machine whose outlets are controlled
+     */
+    private final CoffeeMachine coffeeMachine;
+
+    /**
+     * Variable to store minimum number of outlets
+     */
+    private final int minOutlets;
+
+    /**
+     * Variable to store maximum number of outlets
+     */
+    private final int maxOutlets;
+
+    /**
+     * Variable to store wait for an outlet which is acceptable
+     */
+    private final long targetWaitMillis;
+
+    /**
+     * Variable to store number of consecutive quiet rounds
+     */
+    private int idleRounds = 0;
+
+    /**
+     * Executor running the controller periodically, null when not started
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a controller for given machine
+     * @param coffeeMachine machine whose outlets are controlled
+     * @param minOutlets minimum number of outlets
+     * @param maxOutlets maximum number of outlets
+     * @param targetWaitMillis wait for an outlet which is acceptable
+     */
+    public OutletController(CoffeeMachine coffeeMachine, int minOutlets, int maxOutlets, long targetWaitMillis) {
+        this.coffeeMachine = coffeeMachine;
+        this.minOutlets = minOutlets;
+        this.maxOutlets = maxOutlets;
+        this.targetWaitMillis = targetWaitMillis;
+    }
+
+    /**
+     * Function to run a single round of the controller
+     * @return change in number of outlets, +1, -1 or 0
+     * @throws Exception when outlets cannot be changed
+     */
+    public synchronized int adjust() throws Exception {
+        int outlets = this.coffeeMachine.getTotalOutlets();
+        int queuedOrders = this.coffeeMachine.getQueuedOrders();
+
+        if (outlets < this.minOutlets || outlets > this.maxOutlets) {
+            int bounded = Math.max(this.minOutlets, Math.min(this.maxOutlets, outlets));
+            this.coffeeMachine.setTotalOutlets(bounded);
+            return Integer.signum(bounded - outlets);
+        }
+
+        double estimatedWaitNanos = outlets == 0 ? Double.MAX_VALUE : (double) queuedOrders / outlets * this.coffeeMachine.getAverageServiceNanos();
+        if (queuedOrders > 0 && estimatedWaitNanos > this.targetWaitMillis * 1e6 && outlets < this.maxOutlets) {
+            this.idleRounds = 0;
+            this.coffeeMachine.setTotalOutlets(outlets + 1);
+            return 1;
+        }
+
+        if (queuedOrders == 0 && this.coffeeMachine.getBusyOutlets() * 2 <= outlets) {
+            this.idleRounds++;
+        } else {
+            this.idleRounds = 0;
+        }
+        if (this.idleRounds >= IDLE_ROUNDS_TO_SHRINK && outlets > this.minOutlets) {
+            this.idleRounds = 0;
+            this.coffeeMachine.setTotalOutlets(outlets - 1);
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Function to start running the controller periodically on its own thread
+     * @param periodMillis time between two rounds
+     * @throws Exception when controller is already started
+     */
+    public synchronized void start(long periodMillis) throws Exception {
+        if (this.scheduler != null) {
+            throw new Exception("Controller already started");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outlet-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(() -> {
+            try {
+                adjust();
+            } catch (Exception e) {
+                // Keep controlling in the next round
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to stop the controller, outlets are left as they are
+     */
+    public synchronized void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+}
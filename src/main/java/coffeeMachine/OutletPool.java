@@ -0,0 +1,100 @@
+package coffeeMachine;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Semaphore of outlets whose size can be changed while orders are running
+ * Growing releases new permits straight away
+ * Shrinking takes permits away, permits of in-flight orders are absorbed as they finish so no order is cancelled
+ */
+public class OutletPool extends Semaphore {
+
+    /**
+     * Version of the serialized form, Semaphore is serializable
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Variable to store current number of outlets
+     */
+    private volatile int size;
+
+    /**
+     * Bit i is set while outlet number i is preparing an order, only first 64 outlets are numbered
+     */
+    private final AtomicLong busyOutlets = new AtomicLong();
+
+    /**
+     * Constructs a pool with given number of outlets
+     * @param size number of outlets
+     */
+    public OutletPool(int size) {
+        super(size);
+        this.size = size;
+    }
+
+    /**
+     * Function to change number of outlets
+     * @param newSize new number of outlets
+     * @throws Exception when newSize is negative
+     */
+    public synchronized void resize(int newSize) throws Exception {
+        if (newSize < 0) {
+            throw new Exception("Number of outlets cannot be negative");
+        }
+        int delta = newSize - this.size;
+        if (delta > 0) {
+            release(delta);
+        } else if (delta < 0) {
+            reducePermits(-delta); // Available permits can go below zero until in-flight orders finish
+        }
+        this.size = newSize;
+    }
+
+    /**
+     * Function to get current number of outlets
+     * @return number of outlets
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Function to get number of outlets which are preparing an order
+     * While the pool is draining after a shrink this can be more than getSize
+     * @return number of busy outlets
+     */
+    public int getBusyOutlets() {
+        return Math.max(0, this.size - availablePermits());
+    }
+
+    /**
+     * Function to pick the lowest numbered free outlet for an order which holds a permit
+     * Every call should be followed by releaseOutlet with the returned number
+     * @return number of the outlet, -1 when all the numbered outlets are busy
+     */
+    public int claimOutlet() {
+        while (true) {
+            long busy = this.busyOutlets.get();
+            if (busy == -1L) {
+                return -1;
+            }
+            int outlet = Long.numberOfTrailingZeros(~busy);
+            if (this.busyOutlets.compareAndSet(busy, busy | (1L << outlet))) {
+                return outlet;
+            }
+        }
+    }
+
+    /**
+     * Function to free an outlet picked by claimOutlet
+     * @param outlet number of the outlet, -1 is ignored
+     */
+    public void releaseOutlet(int outlet) {
+        if (outlet >= 0) {
+            long mask = ~(1L << outlet);
+            this.busyOutlets.getAndUpdate(busy -> busy & mask);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package coffeeMachine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for an order which had to wait because all the outlets were busy
+ * Disabled by default, enable coffeeMachine.OutletWait in a recording settings file to collect it
+ */
+@Name("coffeeMachine.OutletWait")
+@Label("Outlet Wait")
+@Category({"Coffee Machine", "Outlets"})
+@Description("Wait of an order for a free outlet")
+@Enabled(false)
+@StackTrace(false)
+class OutletWaitEvent extends Event {
+
+    /**
+     * Name of ordered beverage
+     */
+    @Label("Beverage")
+    String beverage;
+
+    /**
+     * Number of outlets of the machine when wait started
+     */
+    @Label("Outlets")
+    int outlets;
+
+    /**
+     * Number of orders already waiting when wait started
+     */
+    @Label("Queued Orders")
+    int queuedOrders;
+
+    /**
+     * True if an outlet was taken else False when order gave up
+     */
+    @Label("Acquired")
+    boolean acquired;
+}
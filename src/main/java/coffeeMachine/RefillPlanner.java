@@ -0,0 +1,221 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import recipe.Recipe;
+import recipe.RecipeConsumer;
+import recipe.RecipeHolder;
+
+/**
+ * Class to plan the fewest refills which bring the most beverages back online
+ * A beverage is offline when stock of any of its ingredients is below its requirement, and it comes back only once
+ * all of those ingredients are refilled, so this is a set cover problem. Exact solving is exponential in the number
+ * of low ingredients, so a greedy approximation is used
+ * 1. Offline beverages are grouped by the set of ingredients they miss, groups are few even for huge catalogs
+ * 2. Every round picks the group whose missing ingredients restore the most beverages per refill, counting every
+ *    group whose missing ingredients are a subset of them
+ * 3. Picked ingredients are refilled in the plan and the loop continues until nothing more can be restored
+ * Every round refills at least one more ingredient, so there are at most as many rounds as low ingredients
+ */
+public class RefillPlanner {
+
+    /**
+     * Names of all the ingredients known to the planner, in order of their ids
+     */
+    private final String[] ingredientNames;
+
+    /**
+     * For every group ids of ingredients its beverages miss
+     */
+    private final BitSet[] missingIngredients;
+
+    /**
+     * For every group names of its beverages in alphabetical order
+     */
+    private final List<List<String>> groupBeverages;
+
+    /**
+     * Names of offline beverages which no refill can restore, for eg they need an ingredient the machine does not have
+     */
+    private final List<String> unrecoverableBeverages = new ArrayList<>();
+
+    /**
+     * Constructs a planner for given recipes and stock
+     * @param recipes recipes of the machine
+     * @param availableQuantities ingredient name -> available quantity
+     * @param maxQuantities ingredient name -> quantity after a refill, available quantity is used when missing
+     */
+    public RefillPlanner(Collection<Recipe> recipes, Map<String, Integer> availableQuantities, Map<String, Integer> maxQuantities) {
+        this(consumer -> {
+            for (Recipe recipe : recipes) {
+                consumer.accept(recipe.getName(), recipe.getIngredientNames(), recipe.getRequiredQuantities());
+            }
+        }, availableQuantities, maxQuantities);
+    }
+
+    /**
+     * Constructs a planner for all the recipes of a holder and given stock
+     * Lazy definitions of the holder are read as they are, no recipe is materialized for planning
+     * @param recipeHolder holder of the recipes of the machine
+     * @param availableQuantities ingredient name -> available quantity
+     * @param maxQuantities ingredient name -> quantity after a refill, available quantity is used when missing
+     */
+    public RefillPlanner(RecipeHolder recipeHolder, Map<String, Integer> availableQuantities, Map<String, Integer> maxQuantities) {
+        this(recipeHolder::forEachRecipe, availableQuantities, maxQuantities);
+    }
+
+    /**
+     * Constructs a planner for recipes given one by one and given stock
+     * @param recipes function giving every recipe of the machine to a consumer
+     * @param availableQuantities ingredient name -> available quantity
+     * @param maxQuantities ingredient name -> quantity after a refill, available quantity is used when missing
+     */
+    private RefillPlanner(Consumer<RecipeConsumer> recipes, Map<String, Integer> availableQuantities, Map<String, Integer> maxQuantities) {
+        Map<String, Integer> ingredientIds = new HashMap<>();
+        this.ingredientNames = new String[availableQuantities.size()];
+        for (String ingredient : availableQuantities.keySet()) {
+            this.ingredientNames[ingredientIds.size()] = ingredient;
+            ingredientIds.put(ingredient, ingredientIds.size());
+        }
+
+        Map<BitSet, List<String>> groups = new HashMap<>();
+        recipes.accept((name, names, required) -> {
+            BitSet missing = new BitSet(this.ingredientNames.length);
+            boolean recoverable = true;
+            for (int i = 0; i < names.length && recoverable; i++) {
+                Integer id = ingredientIds.get(names[i]);
+                Integer available = availableQuantities.get(names[i]);
+                if (id == null || available == null) {
+                    recoverable = false;
+                } else if (available < required[i]) {
+                    recoverable = maxQuantities.getOrDefault(names[i], available) >= required[i];
+                    missing.set(id);
+                }
+            }
+            if (!recoverable) {
+                this.unrecoverableBeverages.add(name);
+            } else if (!missing.isEmpty()) {
+                groups.computeIfAbsent(missing, key -> new ArrayList<>()).add(name);
+            }
+        });
+        Collections.sort(this.unrecoverableBeverages);
+
+        // Groups are ordered by their first beverage so that ties are always broken in the same way
+        List<Map.Entry<BitSet, List<String>>> sortedGroups = new ArrayList<>(groups.entrySet());
+        for (Map.Entry<BitSet, List<String>> group : sortedGroups) {
+            Collections.sort(group.getValue());
+        }
+        sortedGroups.sort((first, second) -> first.getValue().get(0).compareTo(second.getValue().get(0)));
+        this.missingIngredients = new BitSet[sortedGroups.size()];
+        this.groupBeverages = new ArrayList<>(sortedGroups.size());
+        for (int group = 0; group < this.missingIngredients.length; group++) {
+            this.missingIngredients[group] = sortedGroups.get(group).getKey();
+            this.groupBeverages.add(sortedGroups.get(group).getValue());
+        }
+    }
+
+    /**
+     * Function to compute a ranked refill plan without a limit on number of refills
+     * @return steps of the plan, most beverages restored per refill first
+     */
+    public List<RefillStep> plan() {
+        return plan(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Function to compute a ranked refill plan
+     * Stock of the planner is not modified so same planner can be used for multiple budgets
+     * @param maxRefills most ingredients that can be refilled
+     * @return steps of the plan, most beverages restored per refill first, empty when nothing can be restored
+     */
+    public List<RefillStep> plan(int maxRefills) {
+        int groups = this.missingIngredients.length;
+        BitSet[] needs = new BitSet[groups];
+        for (int group = 0; group < groups; group++) {
+            needs[group] = (BitSet) this.missingIngredients[group].clone();
+        }
+        boolean[] restored = new boolean[groups];
+        List<RefillStep> steps = new ArrayList<>();
+        int totalRefills = 0;
+        int totalRestored = 0;
+        while (true) {
+            int best = -1;
+            int bestGain = 0;
+            int bestRefills = 0;
+            for (int candidate = 0; candidate < groups; candidate++) {
+                int refills = needs[candidate].cardinality();
+                if (restored[candidate] || totalRefills + refills > maxRefills) {
+                    continue;
+                }
+                int gain = 0;
+                for (int group = 0; group < groups; group++) {
+                    if (!restored[group] && isSubset(needs[group], needs[candidate])) {
+                        gain += this.groupBeverages.get(group).size();
+                    }
+                }
+                // Compare gain per refill without dividing, then prefer bigger gain
+                long difference = (long) gain * bestRefills - (long) bestGain * refills;
+                if (best < 0 || difference > 0 || (difference == 0 && gain > bestGain)) {
+                    best = candidate;
+                    bestGain = gain;
+                    bestRefills = refills;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            BitSet refilled = (BitSet) needs[best].clone();
+            List<String> ingredients = new ArrayList<>(bestRefills);
+            for (int id = refilled.nextSetBit(0); id >= 0; id = refilled.nextSetBit(id + 1)) {
+                ingredients.add(this.ingredientNames[id]);
+            }
+            Collections.sort(ingredients);
+            List<String> beverages = new ArrayList<>(bestGain);
+            for (int group = 0; group < groups; group++) {
+                if (restored[group]) {
+                    continue;
+                }
+                needs[group].andNot(refilled);
+                if (needs[group].isEmpty()) {
+                    restored[group] = true;
+                    beverages.addAll(this.groupBeverages.get(group));
+                }
+            }
+            Collections.sort(beverages);
+            totalRefills += bestRefills;
+            totalRestored += beverages.size();
+            steps.add(new RefillStep(ingredients, beverages, totalRefills, totalRestored));
+        }
+        return steps;
+    }
+
+    /**
+     * Function to check if every ingredient of one set is also in another
+     * @param subset ingredients which should be contained
+     * @param superset ingredients which should contain them
+     * @return True if subset is contained in superset else False
+     */
+    private static boolean isSubset(BitSet subset, BitSet superset) {
+        for (int id = subset.nextSetBit(0); id >= 0; id = subset.nextSetBit(id + 1)) {
+            if (!superset.get(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Function to get offline beverages which no refill can restore
+     * @return names of the beverages in alphabetical order
+     */
+    public List<String> getUnrecoverableBeverages() {
+        return Collections.unmodifiableList(this.unrecoverableBeverages);
+    }
+}
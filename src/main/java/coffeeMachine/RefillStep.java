@@ -0,0 +1,91 @@
+package coffeeMachine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Class to hold a single step of a refill plan, see RefillPlanner
+ * Refilling all the ingredients of a step, after those of earlier steps, brings its beverages back online
+ */
+public class RefillStep {
+
+    /**
+     * Names of ingredients to refill in this step
+     */
+    private final List<String> ingredients;
+
+    /**
+     * Names of beverages which can be prepared again once this step is done
+     */
+    private final List<String> restoredBeverages;
+
+    /**
+     * Variable to store number of ingredients refilled by this and all the earlier steps
+     */
+    private final int totalRefills;
+
+    /**
+     * Variable to store number of beverages restored by this and all the earlier steps
+     */
+    private final int totalRestored;
+
+    /**
+     * Constructs a step
+     * @param ingredients names of ingredients to refill
+     * @param restoredBeverages names of beverages restored by the step
+     * @param totalRefills ingredients refilled up to and including this step
+     * @param totalRestored beverages restored up to and including this step
+     */
+    RefillStep(List<String> ingredients, List<String> restoredBeverages, int totalRefills, int totalRestored) {
+        this.ingredients = Collections.unmodifiableList(ingredients);
+        this.restoredBeverages = Collections.unmodifiableList(restoredBeverages);
+        this.totalRefills = totalRefills;
+        this.totalRestored = totalRestored;
+    }
+
+    /**
+     * Function to get ingredients to refill in this step
+     * @return names of the ingredients in alphabetical order
+     */
+    public List<String> getIngredients() {
+        return this.ingredients;
+    }
+
+    /**
+     * Function to get beverages which can be prepared again once this step is done
+     * @return names of the beverages in alphabetical order
+     */
+    public List<String> getRestoredBeverages() {
+        return this.restoredBeverages;
+    }
+
+    /**
+     * Function to get number of ingredients refilled by this and all the earlier steps
+     * @return total refills
+     */
+    public int getTotalRefills() {
+        return this.totalRefills;
+    }
+
+    /**
+     * Function to get number of beverages restored by this and all the earlier steps
+     * @return total restored beverages
+     */
+    public int getTotalRestored() {
+        return this.totalRestored;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RefillStep.class.getSimpleName() + "[", "]")
+            .add("ingredients=" + ingredients)
+            .add("restoredBeverages=" + restoredBeverages)
+            .add("totalRefills=" + totalRefills)
+            .add("totalRestored=" + totalRestored)
+            .toString();
+    }
+}
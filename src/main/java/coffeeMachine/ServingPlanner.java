@@ -0,0 +1,217 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import recipe.Recipe;
+import recipe.RecipeConsumer;
+import recipe.RecipeHolder;
+
+/**
+ * Class to plan the mix of servings which fulfils the most orders from a given stock
+ * Exact integer programming is too slow for big catalogs so this uses a greedy pricing approximation
+ * 1. Every ingredient gets a price based on how much it is over demanded compared to its stock
+ * 2. Beverages are served cheapest first, as many as the demand and remaining stock allows
+ * A single pass is enough: every beverage is served until either its demand is met or stock runs out for it,
+ * so pricing the remaining stock again could never serve anything more
+ */
+public class ServingPlanner {
+
+    /**
+     * Names of all the beverages known to the planner
+     */
+    private final String[] beverages;
+
+    /**
+     * For every beverage index of its required ingredients in the stock arrays, -1 when ingredient is not available
+     */
+    private final int[][] ingredientIndexes;
+
+    /**
+     * For every beverage quantities of its required ingredients
+     */
+    private final int[][] requiredQuantities;
+
+    /**
+     * Map to store beverage name -> index mapping
+     */
+    private final Map<String, Integer> beverageIndexes;
+
+    /**
+     * Stock available to the planner, indexed in the same way as ingredientIndexes
+     */
+    private final int[] stock;
+
+    /**
+     * Constructs a planner for given recipes and available stock
+     * @param recipes recipes which can be served
+     * @param availableQuantities ingredient name -> available quantity
+     */
+    public ServingPlanner(Collection<Recipe> recipes, Map<String, Integer> availableQuantities) {
+        this(consumer -> {
+            for (Recipe recipe : recipes) {
+                consumer.accept(recipe.getName(), recipe.getIngredientNames(), recipe.getRequiredQuantities());
+            }
+        }, availableQuantities);
+    }
+
+    /**
+     * Constructs a planner for all the recipes of a holder and available stock
+     * Lazy definitions of the holder are read as they are, no recipe is materialized for planning
+     * @param recipeHolder holder of the recipes which can be served
+     * @param availableQuantities ingredient name -> available quantity
+     */
+    public ServingPlanner(RecipeHolder recipeHolder, Map<String, Integer> availableQuantities) {
+        this(recipeHolder::forEachRecipe, availableQuantities);
+    }
+
+    /**
+     * Constructs a planner for recipes given one by one and available stock
+     * @param recipes function giving every recipe which can be served to a consumer
+     * @param availableQuantities ingredient name -> available quantity
+     */
+    private ServingPlanner(Consumer<RecipeConsumer> recipes, Map<String, Integer> availableQuantities) {
+        Map<String, Integer> ingredientIndex = new HashMap<>();
+        this.stock = new int[availableQuantities.size()];
+        for (Map.Entry<String, Integer> entry : availableQuantities.entrySet()) {
+            this.stock[ingredientIndex.size()] = Math.max(0, entry.getValue());
+            ingredientIndex.put(entry.getKey(), ingredientIndex.size());
+        }
+
+        List<String> beverages = new ArrayList<>();
+        List<int[]> ingredientIndexes = new ArrayList<>();
+        List<int[]> requiredQuantities = new ArrayList<>();
+        this.beverageIndexes = new HashMap<>();
+        recipes.accept((name, ingredientNames, required) -> {
+            int[] indexes = new int[ingredientNames.length];
+            for (int i = 0; i < ingredientNames.length; i++) {
+                Integer index = ingredientIndex.get(ingredientNames[i]);
+                indexes[i] = index == null ? -1 : index;
+            }
+            this.beverageIndexes.put(name, beverages.size());
+            beverages.add(name);
+            ingredientIndexes.add(indexes);
+            requiredQuantities.add(required.clone());
+        });
+        this.beverages = beverages.toArray(new String[0]);
+        this.ingredientIndexes = ingredientIndexes.toArray(new int[0][]);
+        this.requiredQuantities = requiredQuantities.toArray(new int[0][]);
+    }
+
+    /**
+     * Function to compute the serving mix which fulfils the most of the given demand
+     * Available stock of the planner is not modified so same planner can be used for multiple forecasts
+     * @param demandForecast beverage name -> number of expected orders
+     * @return beverage name -> number of servings planned, every beverage of the forecast is present in the result
+     */
+    public Map<String, Integer> plan(Map<String, Integer> demandForecast) {
+        int[] remainingStock = Arrays.copyOf(this.stock, this.stock.length);
+        int[] remainingDemand = new int[this.beverages.length];
+        int[] servings = new int[this.beverages.length];
+        for (Map.Entry<String, Integer> entry : demandForecast.entrySet()) {
+            Integer beverage = this.beverageIndexes.get(entry.getKey());
+            if (beverage != null && entry.getValue() != null) {
+                remainingDemand[beverage] = Math.max(0, entry.getValue());
+            }
+        }
+
+        Integer[] order = new Integer[this.beverages.length];
+        double[] cost = new double[this.beverages.length];
+        double[] prices = getPrices(remainingStock, remainingDemand);
+        int candidates = 0;
+        for (int beverage = 0; beverage < this.beverages.length; beverage++) {
+            if (remainingDemand[beverage] > 0 && getMaxServings(beverage, remainingStock) > 0) {
+                cost[beverage] = getCost(beverage, prices);
+                order[candidates++] = beverage;
+            }
+        }
+        Arrays.sort(order, 0, candidates, (first, second) -> Double.compare(cost[first], cost[second]));
+
+        for (int i = 0; i < candidates; i++) {
+            int beverage = order[i];
+            int count = Math.min(remainingDemand[beverage], getMaxServings(beverage, remainingStock));
+            if (count <= 0) {
+                continue; // Stock was taken by cheaper beverages
+            }
+            for (int j = 0; j < this.ingredientIndexes[beverage].length; j++) {
+                remainingStock[this.ingredientIndexes[beverage][j]] -= count * this.requiredQuantities[beverage][j];
+            }
+            remainingDemand[beverage] -= count;
+            servings[beverage] += count;
+        }
+
+        Map<String, Integer> plan = new LinkedHashMap<>();
+        for (String beverage : demandForecast.keySet()) {
+            Integer index = this.beverageIndexes.get(beverage);
+            plan.put(beverage, index == null ? 0 : servings[index]);
+        }
+        return plan;
+    }
+
+    /**
+     * Function to compute price of every ingredient
+     * Ingredients that are demanded more than their stock get a higher price
+     * @param remainingStock stock left to plan with
+     * @param remainingDemand demand left to plan for
+     * @return price of one unit of every ingredient
+     */
+    private double[] getPrices(int[] remainingStock, int[] remainingDemand) {
+        double[] demandedQuantity = new double[remainingStock.length];
+        for (int beverage = 0; beverage < this.beverages.length; beverage++) {
+            if (remainingDemand[beverage] == 0) {
+                continue;
+            }
+            for (int j = 0; j < this.ingredientIndexes[beverage].length; j++) {
+                int index = this.ingredientIndexes[beverage][j];
+                if (index >= 0) {
+                    demandedQuantity[index] += (double) remainingDemand[beverage] * this.requiredQuantities[beverage][j];
+                }
+            }
+        }
+        double[] prices = new double[remainingStock.length];
+        for (int i = 0; i < remainingStock.length; i++) {
+            double available = Math.max(1.0, remainingStock[i]);
+            prices[i] = Math.max(1.0, demandedQuantity[i] / available) / available;
+        }
+        return prices;
+    }
+
+    /**
+     * Function to compute cost of a single serving of a beverage
+     * @param beverage index of the beverage
+     * @param prices price of one unit of every ingredient
+     * @return cost of one serving
+     */
+    private double getCost(int beverage, double[] prices) {
+        double cost = 0;
+        for (int j = 0; j < this.ingredientIndexes[beverage].length; j++) {
+            cost += this.requiredQuantities[beverage][j] * prices[this.ingredientIndexes[beverage][j]];
+        }
+        return cost;
+    }
+
+    /**
+     * Function to get how many servings of a beverage can be made from given stock
+     * @param beverage index of the beverage
+     * @param remainingStock stock left to plan with
+     * @return number of servings possible, Integer.MAX_VALUE when beverage needs nothing
+     */
+    private int getMaxServings(int beverage, int[] remainingStock) {
+        int maxServings = Integer.MAX_VALUE;
+        for (int j = 0; j < this.ingredientIndexes[beverage].length; j++) {
+            int index = this.ingredientIndexes[beverage][j];
+            if (index < 0) {
+                return 0; // Ingredient is not available in the machine
+            }
+            if (this.requiredQuantities[beverage][j] > 0) {
+                maxServings = Math.min(maxServings, remainingStock[index] / this.requiredQuantities[beverage][j]);
+            }
+        }
+        return maxServings;
+    }
+}
@@ -0,0 +1,120 @@
+package coffeeMachine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to periodically export snapshots of a machine, for eg for monitoring and backups
+ * Taking a snapshot does not block orders, see CoffeeMachine.getSnapshot
+ * If a file is given every snapshot is written to it as json, the file is replaced atomically so readers never see a partial file
+ */
+public class SnapshotExporter {
+
+    /**
+     * Machine whose snapshots are exported
+     */
+    private final CoffeeMachine coffeeMachine;
+
+    /**
+     * File to which snapshots are written, null when snapshots are only kept in memory
+     */
+    private final Path exportFile;
+
+    /**
+     * Last exported snapshot, null until first export
+     */
+    private volatile MachineSnapshot lastSnapshot;
+
+    /**
+     * Error of the last failed export, null when last export succeeded
+     */
+    private volatile Exception lastError;
+
+    /**
+     * Executor running the exporter periodically, null when not started
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs an exporter for given machine
+     * @param coffeeMachine machine whose snapshots are exported
+     * @param exportFile file to which snapshots are written, null to keep them only in memory
+     */
+    public SnapshotExporter(CoffeeMachine coffeeMachine, Path exportFile) {
+        this.coffeeMachine = coffeeMachine;
+        this.exportFile = exportFile == null ? null : exportFile.toAbsolutePath();
+    }
+
+    /**
+     * Function to take and export a single snapshot
+     * @return exported snapshot
+     * @throws Exception when machine is not yet started or file cannot be written
+     */
+    public MachineSnapshot export() throws Exception {
+        MachineSnapshot snapshot = this.coffeeMachine.getSnapshot();
+        if (this.exportFile != null) {
+            Path temporaryFile = this.exportFile.resolveSibling(this.exportFile.getFileName() + ".tmp");
+            Files.write(temporaryFile, snapshot.toJSONObject().toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile, this.exportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        this.lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Function to get last exported snapshot
+     * @return last snapshot, null until first export
+     */
+    public MachineSnapshot getLastSnapshot() {
+        return this.lastSnapshot;
+    }
+
+    /**
+     * Function to get error of the last failed export
+     * @return last error, null when last export succeeded
+     */
+    public Exception getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Function to export snapshots periodically on a background thread
+     * @param periodMillis time between two exports
+     */
+    public synchronized void start(long periodMillis) {
+        if (this.scheduler != null) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(() -> {
+            try {
+                export();
+                this.lastError = null;
+            } catch (Exception e) {
+                this.lastError = e; // Keep exporting, next round can succeed
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to stop the background thread, an export which is in progress is allowed to finish
+     * @throws InterruptedException when interrupted while waiting for the export in progress
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            this.scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            this.scheduler = null;
+        }
+    }
+}
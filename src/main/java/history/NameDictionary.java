@@ -0,0 +1,108 @@
+package history;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary assigning a dense int id to every name, ids start from 0 and never change
+ * Looking up a known name is lock free, only a new name takes the lock of the dictionary
+ */
+public class NameDictionary {
+
+    /**
+     * Map to store name -> id
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Variable to store most names the dictionary can hold
+     */
+    private final int maxSize;
+
+    /**
+     * Names in order of their ids, doubled in size when it is full so adding a name is amortized constant time
+     * Only first size entries are used
+     */
+    private volatile String[] names = new String[8];
+
+    /**
+     * Variable to store number of names, written after the name itself so readers of an id always find its name
+     */
+    private volatile int size = 0;
+
+    /**
+     * Constructs a dictionary without a limit on number of names
+     */
+    public NameDictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a dictionary holding a limited number of names, for eg when ids are stored in fewer bits than an int
+     * @param maxSize most names the dictionary can hold, ids are below it
+     */
+    public NameDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Function to get id of a name, a new id is assigned to a name seen for the first time
+     * @param name name to look up
+     * @return id of the name, -1 when name is new and dictionary is full
+     */
+    public int getId(String name) {
+        Integer id = this.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = this.ids.get(name);
+            if (id == null) {
+                int count = this.size;
+                if (count >= this.maxSize) {
+                    return -1;
+                }
+                String[] currentNames = this.names;
+                if (count == currentNames.length) {
+                    currentNames = Arrays.copyOf(currentNames, (int) Math.min(this.maxSize, 2L * count));
+                    this.names = currentNames;
+                }
+                currentNames[count] = name;
+                this.size = count + 1; // Publish the name before its id so readers of the id always find it
+                id = count;
+                this.ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Function to get id of a name without assigning a new one
+     * @param name name to look up
+     * @return id of the name, -1 when name was never seen
+     */
+    public int findId(String name) {
+        Integer id = this.ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Function to get name of an id
+     * @param id id of the name
+     * @return name with given id
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("%d is not a known id", id));
+        }
+        return this.names[id];
+    }
+
+    /**
+     * Function to get number of names in the dictionary
+     * @return number of names
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,516 @@
+package history;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import recipe.Recipe;
+import recipe.RecipeModifier;
+
+/**
+ * Append only log of all the orders of a machine, stored column by column in primitive arrays
+ * Every order takes 20 bytes: timestamp, latency, failed ingredient and a packed code of beverage, outcome and outlet
+ * Rows live in fixed size chunks which are allocated on demand, so the log grows without ever copying rows
+ * Appends are lock free: a row is claimed with a single atomic increment, and it becomes visible to queries once its packed code is published
+ * Queries scan chunks in parallel on the common fork join pool and aggregate in primitive arrays
+ */
+public class OrderLog {
+
+    /**
+     * Number of bits of row index inside a chunk
+     */
+    private static final int CHUNK_BITS = 16;
+
+    /**
+     * Number of rows of a chunk
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Maximum number of chunks, log holds at most MAX_CHUNKS * CHUNK_SIZE orders
+     */
+    private static final int MAX_CHUNKS = 1 << 15;
+
+    /**
+     * Number of milliseconds in an hour
+     */
+    private static final long HOUR_MILLIS = 3600_000L;
+
+    /**
+     * Beverage id of orders which did not name a valid beverage, highest id which fits in the 16 bits of a packed code
+     * It is never assigned by the dictionary, so invalid names of orders are not kept
+     */
+    private static final int NO_BEVERAGE_ID = 0xFFFF;
+
+    /**
+     * Dictionary of beverage names, ids are below NO_BEVERAGE_ID so they fit in a packed code
+     */
+    private final NameDictionary beverages = new NameDictionary(NO_BEVERAGE_ID);
+
+    /**
+     * Dictionary of ingredient names
+     */
+    private final NameDictionary ingredients = new NameDictionary();
+
+    /**
+     * Chunks of rows, allocated when first row of the chunk is claimed
+     */
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * Variable to store number of claimed rows
+     */
+    private final AtomicLong claimedRows = new AtomicLong();
+
+    /**
+     * Earliest timestamp of an appended order, Long.MAX_VALUE while log is empty
+     */
+    private final AtomicLong firstTimestamp = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * Latest timestamp of an appended order, Long.MIN_VALUE while log is empty
+     */
+    private final AtomicLong lastTimestamp = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Function to append an order
+     * Name of an order which is not a valid beverage is not kept, the order is only counted under its outcome
+     * @param timestampMillis time at which order was placed
+     * @param beverage name of the ordered beverage
+     * @param outcome outcome of the order
+     * @param failedIngredient ingredient which was not available or not sufficient, null otherwise
+     * @param outlet number of the outlet which prepared the order, -1 when no outlet was used or it is not known
+     * @param latencyNanos time taken by the order
+     * @return True if order was appended else False when log is full or already has 65535 beverages
+     */
+    public boolean append(long timestampMillis, String beverage, OrderOutcome outcome, String failedIngredient, int outlet, long latencyNanos) {
+        int beverageId = outcome == OrderOutcome.NOT_A_VALID_BEVERAGE ? NO_BEVERAGE_ID : this.beverages.getId(beverage);
+        if (beverageId < 0) {
+            return false;
+        }
+        return append(timestampMillis, beverageId, outcome,
+            failedIngredient == null ? -1 : this.ingredients.getId(failedIngredient), outlet, latencyNanos);
+    }
+
+    /**
+     * Function to append an order whose names are already converted to ids, see getBeverageId and getIngredientId
+     * @param timestampMillis time at which order was placed
+     * @param beverageId id of the ordered beverage, 65535 for an order which did not name a valid beverage
+     * @param outcome outcome of the order
+     * @param failedIngredientId id of the ingredient which was not available or not sufficient, -1 otherwise
+     * @param outlet number of the outlet which prepared the order, -1 when no outlet was used or it is not known
+     * @param latencyNanos time taken by the order
+     * @return True if order was appended else False when log is full
+     * @throws IllegalArgumentException when beverage id does not fit in 16 bits
+     */
+    public boolean append(long timestampMillis, int beverageId, OrderOutcome outcome, int failedIngredientId, int outlet, long latencyNanos) {
+        if (beverageId < 0 || beverageId > NO_BEVERAGE_ID) {
+            throw new IllegalArgumentException(String.format("Beverage id %d does not fit in 16 bits", beverageId));
+        }
+        long row = this.claimedRows.getAndIncrement();
+        int chunkIndex = (int) (row >>> CHUNK_BITS);
+        if (chunkIndex >= MAX_CHUNKS) {
+            return false;
+        }
+        updateTimeRange(timestampMillis);
+        Chunk chunk = this.chunks.get(chunkIndex);
+        if (chunk == null) {
+            this.chunks.compareAndSet(chunkIndex, null, new Chunk());
+            chunk = this.chunks.get(chunkIndex);
+        }
+        int position = (int) (row & (CHUNK_SIZE - 1));
+        chunk.timestamps[position] = timestampMillis;
+        chunk.latencyMicros[position] = (int) Math.min(Integer.MAX_VALUE, latencyNanos / 1000);
+        chunk.failedIngredients[position] = failedIngredientId;
+        // Written last with release semantics, a reader seeing the code also sees every other column of the row
+        chunk.codes.lazySet(position, pack(beverageId, outcome.getCode(), outlet));
+        return true;
+    }
+
+    /**
+     * Function to widen time range of the log to a new timestamp, atomics are written only when the range grows
+     * @param timestampMillis time at which an order was placed
+     */
+    private void updateTimeRange(long timestampMillis) {
+        long first = this.firstTimestamp.get();
+        while (timestampMillis < first && !this.firstTimestamp.compareAndSet(first, timestampMillis)) {
+            first = this.firstTimestamp.get();
+        }
+        long last = this.lastTimestamp.get();
+        while (timestampMillis > last && !this.lastTimestamp.compareAndSet(last, timestampMillis)) {
+            last = this.lastTimestamp.get();
+        }
+    }
+
+    /**
+     * Function to pack beverage, outcome and outlet of a row in a single int which is never 0
+     * @param beverageId id of the beverage, at most 65535
+     * @param outcomeCode code of the outcome
+     * @param outlet number of the outlet, -1 when not known
+     * @return packed code
+     */
+    private static int pack(int beverageId, int outcomeCode, int outlet) {
+        return (beverageId << 16) | (outcomeCode << 8) | ((outlet + 1) & 0xFF);
+    }
+
+    /**
+     * Function to get id of a beverage, a new id is assigned to a beverage seen for the first time
+     * @param beverage name of the beverage
+     * @return id of the beverage, -1 when beverage is new and log already has 65535 beverages
+     */
+    public int getBeverageId(String beverage) {
+        return this.beverages.getId(beverage);
+    }
+
+    /**
+     * Function to get name of a beverage id
+     * @param beverageId id of the beverage
+     * @return name of the beverage
+     */
+    public String getBeverageName(int beverageId) {
+        return this.beverages.getName(beverageId);
+    }
+
+    /**
+     * Function to get id of an ingredient, a new id is assigned to an ingredient seen for the first time
+     * @param ingredient name of the ingredient
+     * @return id of the ingredient
+     */
+    public int getIngredientId(String ingredient) {
+        return this.ingredients.getId(ingredient);
+    }
+
+    /**
+     * Function to get number of appended orders
+     * @return number of orders, rows which are still being written are counted too
+     */
+    public long size() {
+        return Math.min(this.claimedRows.get(), (long) MAX_CHUNKS * CHUNK_SIZE);
+    }
+
+    /**
+     * Function to count orders of every outcome in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return outcome -> number of orders
+     */
+    public Map<OrderOutcome, Long> getOutcomeCounts(long fromMillis, long toMillis) {
+        int outcomes = OrderOutcome.values().length;
+        long[] counts = aggregate(fromMillis, toMillis, outcomes,
+            (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> totals[outcomeCode - 1]++);
+        Map<OrderOutcome, Long> outcomeCounts = new EnumMap<>(OrderOutcome.class);
+        for (int i = 0; i < outcomes; i++) {
+            outcomeCounts.put(OrderOutcome.fromCode(i + 1), counts[i]);
+        }
+        return outcomeCounts;
+    }
+
+    /**
+     * Function to get most prepared beverages in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param limit maximum number of beverages
+     * @return beverage name -> number of prepared orders, most prepared first
+     */
+    public Map<String, Long> getTopBeverages(long fromMillis, long toMillis, int limit) {
+        int beverageCount = this.beverages.size();
+        // Beverages logged after the count was read are left out, they have no slot in the totals
+        long[] counts = aggregate(fromMillis, toMillis, beverageCount, (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> {
+            if (outcomeCode == OrderOutcome.PREPARED.getCode() && beverage < beverageCount) {
+                totals[beverage]++;
+            }
+        });
+        return getTop(counts, 0, beverageCount, limit);
+    }
+
+    /**
+     * Function to get most prepared beverages of every hour in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param limit maximum number of beverages per hour
+     * @return start of the hour -> (beverage name -> number of prepared orders, most prepared first), hours without orders are left out
+     * @throws IllegalArgumentException when orders of the window span too many hours to be counted in a single array
+     */
+    public Map<Long, Map<String, Long>> getTopBeveragesPerHour(long fromMillis, long toMillis, int limit) {
+        int beverageCount = this.beverages.size();
+        Map<Long, Map<String, Long>> topPerHour = new TreeMap<>();
+        // Window is clamped to timestamps of the log, so an open ended window does not allocate a slot per hour of it
+        long from = Math.max(fromMillis, this.firstTimestamp.get());
+        long last = this.lastTimestamp.get();
+        long to = last == Long.MAX_VALUE ? toMillis : Math.min(toMillis, last + 1);
+        if (from >= to || beverageCount == 0) {
+            return topPerHour;
+        }
+        long firstHour = Math.floorDiv(from, HOUR_MILLIS);
+        long hourCount = Math.floorDiv(to - 1, HOUR_MILLIS) - firstHour + 1;
+        if (hourCount * beverageCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Orders of %d hours of %d beverages cannot be counted at once", hourCount, beverageCount));
+        }
+        int hours = (int) hourCount;
+        long[] counts = aggregate(from, to, hours * beverageCount, (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> {
+            if (outcomeCode == OrderOutcome.PREPARED.getCode() && beverage < beverageCount) {
+                totals[(int) (Math.floorDiv(timestamp, HOUR_MILLIS) - firstHour) * beverageCount + beverage]++;
+            }
+        });
+        for (int hour = 0; hour < hours; hour++) {
+            Map<String, Long> top = getTop(counts, hour * beverageCount, beverageCount, limit);
+            if (!top.isEmpty()) {
+                topPerHour.put((firstHour + hour) * HOUR_MILLIS, top);
+            }
+        }
+        return topPerHour;
+    }
+
+    /**
+     * Function to get share of orders which failed because of every ingredient in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return ingredient name -> failed orders / all the orders of the window, only ingredients which failed an order are present
+     */
+    public Map<String, Double> getFailureRatesByIngredient(long fromMillis, long toMillis) {
+        int ingredientCount = this.ingredients.size();
+        // Last slot counts all the orders of the window
+        long[] counts = aggregate(fromMillis, toMillis, ingredientCount + 1, (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> {
+            if (ingredient >= 0 && ingredient < ingredientCount) {
+                totals[ingredient]++;
+            }
+            totals[ingredientCount]++;
+        });
+        Map<String, Double> failureRates = new TreeMap<>();
+        for (int i = 0; i < ingredientCount; i++) {
+            if (counts[i] > 0) {
+                failureRates.put(this.ingredients.getName(i), (double) counts[i] / counts[ingredientCount]);
+            }
+        }
+        return failureRates;
+    }
+
+    /**
+     * Function to get quantity of every ingredient used by prepared orders in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param recipes recipes of the beverages, orders of other beverages are not counted
+     * @return ingredient name -> used quantity
+     */
+    public Map<String, Long> getConsumption(long fromMillis, long toMillis, Collection<Recipe> recipes) {
+        return getConsumption(fromMillis, toMillis, recipes, Collections.emptyList());
+    }
+
+    /**
+     * Function to get quantity of every ingredient used by prepared orders in a time window, variants included
+     * A variant is logged as name of its modifier followed by name of the beverage, for eg "large hot_coffee"
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param recipes recipes of the beverages, orders of other beverages are not counted
+     * @param modifiers modifiers of the variants, orders of variants of other modifiers are not counted
+     * @return ingredient name -> used quantity
+     */
+    public Map<String, Long> getConsumption(long fromMillis, long toMillis, Collection<Recipe> recipes, Collection<RecipeModifier> modifiers) {
+        int beverageCount = this.beverages.size();
+        long[] counts = aggregate(fromMillis, toMillis, beverageCount, (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> {
+            if (outcomeCode == OrderOutcome.PREPARED.getCode() && beverage < beverageCount) {
+                totals[beverage]++;
+            }
+        });
+        Map<String, Long> consumption = new TreeMap<>();
+        for (Recipe recipe : recipes) {
+            String[] names = recipe.getIngredientNames();
+            long orders = getCount(counts, beverageCount, recipe.getName());
+            if (orders > 0) {
+                addConsumption(consumption, orders, names, recipe.getRequiredQuantities());
+            }
+            for (RecipeModifier modifier : modifiers) {
+                orders = getCount(counts, beverageCount, modifier.getName() + " " + recipe.getName());
+                if (orders > 0) {
+                    addConsumption(consumption, orders, names, modifier.apply(names, recipe.getRequiredQuantities()));
+                }
+            }
+        }
+        return consumption;
+    }
+
+    /**
+     * Function to get count of a beverage from totals of a query
+     * @param counts totals of the query, one per beverage
+     * @param beverageCount number of beverages when the query started
+     * @param beverage name of the beverage
+     * @return count of the beverage, 0 when it was not logged before the query started
+     */
+    private long getCount(long[] counts, int beverageCount, String beverage) {
+        int id = this.beverages.findId(beverage);
+        return id < 0 || id >= beverageCount ? 0 : counts[id];
+    }
+
+    /**
+     * Function to add quantities used by a number of orders to consumption
+     * @param consumption ingredient name -> used quantity
+     * @param orders number of prepared orders
+     * @param names names of the ingredients of the orders
+     * @param quantities quantity of every ingredient used by a single order
+     */
+    private static void addConsumption(Map<String, Long> consumption, long orders, String[] names, int[] quantities) {
+        for (int i = 0; i < names.length; i++) {
+            consumption.merge(names[i], orders * quantities[i], Long::sum);
+        }
+    }
+
+    /**
+     * Function to get a latency percentile of prepared orders in a time window
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the power of two bucket holding the percentile in microseconds, 0 when no order was prepared
+     */
+    public long getLatencyPercentileMicros(long fromMillis, long toMillis, double percentile) {
+        // Histogram with a bucket per power of two keeps the query free of sorting and boxing
+        long[] buckets = aggregate(fromMillis, toMillis, 33, (totals, timestamp, beverage, outcomeCode, outlet, ingredient, latency) -> {
+            if (outcomeCode == OrderOutcome.PREPARED.getCode()) {
+                totals[32 - Integer.numberOfLeadingZeros(latency)]++;
+            }
+        });
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank && seen > 0) {
+                return bucket == 32 ? Integer.MAX_VALUE : (1L << bucket) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Function to pick the largest counts of a range of beverages
+     * @param counts counts of beverages
+     * @param offset position of first beverage in counts
+     * @param beverageCount number of beverages
+     * @param limit maximum number of beverages to pick
+     * @return beverage name -> count, largest count first
+     */
+    private Map<String, Long> getTop(long[] counts, int offset, int beverageCount, int limit) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < beverageCount; i++) {
+            if (counts[offset + i] > 0) {
+                order.add(i);
+            }
+        }
+        order.sort((first, second) -> Long.compare(counts[offset + second], counts[offset + first]));
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(limit, order.size()); i++) {
+            top.put(this.beverages.getName(order.get(i)), counts[offset + order.get(i)]);
+        }
+        return top;
+    }
+
+    /**
+     * Function to fold all the published rows of a time window into an array of totals
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @param width number of totals
+     * @param accumulator function adding a single row to the totals
+     * @return totals of all the rows
+     */
+    private long[] aggregate(long fromMillis, long toMillis, int width, RowAccumulator accumulator) {
+        long rows = size();
+        int chunkCount = (int) ((rows + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        return IntStream.range(0, chunkCount).parallel()
+            .mapToObj(chunkIndex -> {
+                long[] totals = new long[width];
+                Chunk chunk = this.chunks.get(chunkIndex);
+                if (chunk == null) {
+                    return totals;
+                }
+                int end = (int) Math.min(CHUNK_SIZE, rows - ((long) chunkIndex << CHUNK_BITS));
+                for (int position = 0; position < end; position++) {
+                    int code = chunk.codes.get(position);
+                    if (code == 0) {
+                        continue; // Claimed but not yet published
+                    }
+                    long timestamp = chunk.timestamps[position];
+                    if (timestamp < fromMillis || timestamp >= toMillis) {
+                        continue;
+                    }
+                    int beverage = code >>> 16;
+                    int outlet = (code & 0xFF) - 1;
+                    int outcomeCode = (code >>> 8) & 0xFF;
+                    accumulator.accept(totals, timestamp, beverage, outcomeCode, outlet, chunk.failedIngredients[position], chunk.latencyMicros[position]);
+                }
+                return totals;
+            })
+            .reduce(new long[width], (first, second) -> {
+                long[] merged = new long[width];
+                for (int i = 0; i < width; i++) {
+                    merged[i] = first[i] + second[i];
+                }
+                return merged;
+            });
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", OrderLog.class.getSimpleName() + "[", "]")
+            .add("orders=" + size())
+            .add("beverages=" + beverages.size())
+            .toString();
+    }
+
+    /**
+     * Function adding a single row to totals of a query
+     */
+    private interface RowAccumulator {
+
+        /**
+         * Function to add a row to totals
+         * @param totals totals of the query
+         * @param timestamp time at which order was placed
+         * @param beverage id of the beverage
+         * @param outcomeCode code of the outcome
+         * @param outlet number of the outlet, -1 when not known
+         * @param ingredient id of the failed ingredient, -1 when order did not fail because of an ingredient
+         * @param latencyMicros latency of the order
+         */
+        void accept(long[] totals, long timestamp, int beverage, int outcomeCode, int outlet, int ingredient, int latencyMicros);
+    }
+
+    /**
+     * Columns of a fixed number of rows
+     */
+    private static class Chunk {
+
+        /**
+         * Time at which every order was placed
+         */
+        private final long[] timestamps = new long[CHUNK_SIZE];
+
+        /**
+         * Latency of every order in microseconds
+         */
+        private final int[] latencyMicros = new int[CHUNK_SIZE];
+
+        /**
+         * Id of the failed ingredient of every order, -1 when order did not fail because of an ingredient
+         */
+        private final int[] failedIngredients = new int[CHUNK_SIZE];
+
+        /**
+         * Packed beverage, outcome and outlet of every order, 0 until row is published
+         */
+        private final AtomicIntegerArray codes = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,43 @@
+package history;
+
+/**
+ * Outcome of a single order, stored in the order log as its code
+ */
+public enum OrderOutcome {
+    PREPARED,
+    NOT_A_VALID_BEVERAGE,
+    INGREDIENT_NOT_AVAILABLE,
+    INGREDIENT_NOT_SUFFICIENT,
+    MACHINE_BUSY,
+    NO_OUTLET_IN_TIME;
+
+    /**
+     * All the outcomes in order of their codes
+     */
+    private static final OrderOutcome[] OUTCOMES = values();
+
+    /**
+     * Function to get code of the outcome
+     * @return code, never 0 so that 0 can mean a row which is not yet written
+     */
+    public int getCode() {
+        return ordinal() + 1;
+    }
+
+    /**
+     * Function to get outcome of a code
+     * @param code code of the outcome
+     * @return outcome with given code
+     */
+    public static OrderOutcome fromCode(int code) {
+        return OUTCOMES[code - 1];
+    }
+
+    /**
+     * Function to check if the order failed because of an ingredient
+     * @return True if an ingredient was not available or not sufficient else False
+     */
+    public boolean isIngredientFailure() {
+        return this == INGREDIENT_NOT_AVAILABLE || this == INGREDIENT_NOT_SUFFICIENT;
+    }
+}
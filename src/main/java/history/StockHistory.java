@@ -0,0 +1,335 @@
+package history;
+
+import ingredient.StockListener;
+import ingredient.StockSnapshot;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed memory time series of stock of every ingredient
+ * Every sample is rolled up at once into per second, per minute and per hour slots kept in preallocated ring buffers,
+ * so memory of an ingredient never grows however long the machine runs, old slots are overwritten by new ones
+ * It can be fed by a background sampler (see start) and by level crossing events of IngredientsHolder, as it is a StockListener
+ */
+public class StockHistory implements StockListener {
+
+    /**
+     * Resolutions kept by the history
+     */
+    public enum Resolution {
+        SECOND(1000L),
+        MINUTE(60_000L),
+        HOUR(3600_000L);
+
+        /**
+         * Length of a slot in milliseconds
+         */
+        private final long slotMillis;
+
+        /**
+         * Constructs a resolution
+         * @param slotMillis length of a slot
+         */
+        Resolution(long slotMillis) {
+            this.slotMillis = slotMillis;
+        }
+
+        /**
+         * Function to get length of a slot
+         * @return length in milliseconds
+         */
+        public long getSlotMillis() {
+            return this.slotMillis;
+        }
+    }
+
+    /**
+     * Number of slots of every resolution
+     */
+    private final int[] slotCounts;
+
+    /**
+     * Map to store ingredient name -> its series
+     */
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * Executor sampling stock periodically, null when not started
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Error of the last failed sample, null when last sample succeeded
+     */
+    private volatile Exception lastError;
+
+    /**
+     * Constructs a history keeping last hour per second, last day per minute and last 30 days per hour
+     */
+    public StockHistory() {
+        this(3600, 1440, 720);
+    }
+
+    /**
+     * Constructs a history with given number of slots of every resolution
+     * @param secondSlots number of per second slots
+     * @param minuteSlots number of per minute slots
+     * @param hourSlots number of per hour slots
+     */
+    public StockHistory(int secondSlots, int minuteSlots, int hourSlots) {
+        this.slotCounts = new int[] {Math.max(1, secondSlots), Math.max(1, minuteSlots), Math.max(1, hourSlots)};
+    }
+
+    /**
+     * Function to record quantity of an ingredient
+     * @param timestampMillis time of the sample
+     * @param ingredient name of the ingredient
+     * @param quantity quantity of the ingredient
+     */
+    public void record(long timestampMillis, String ingredient, int quantity) {
+        this.series.computeIfAbsent(ingredient, key -> new Series(this.slotCounts)).record(timestampMillis, quantity);
+    }
+
+    /**
+     * Function to record quantity of every ingredient of a snapshot
+     * @param stockSnapshot snapshot of the stock
+     */
+    public void record(StockSnapshot stockSnapshot) {
+        for (Map.Entry<String, Integer> quantity : stockSnapshot.getQuantities().entrySet()) {
+            record(stockSnapshot.getTimestampMillis(), quantity.getKey(), quantity.getValue());
+        }
+    }
+
+    /**
+     * Function called when stock of an ingredient crosses a level
+     * @param ingredient name of the ingredient
+     * @param quantity quantity after the change
+     * @param maxQuantity max quantity of the ingredient
+     * @param timestampMillis time of the change
+     */
+    @Override
+    public void onLevelCrossed(String ingredient, int quantity, int maxQuantity, long timestampMillis) {
+        record(timestampMillis, ingredient, quantity);
+    }
+
+    /**
+     * Function to get rolled up stock of an ingredient in a time window
+     * Slots without any sample and slots which were already overwritten are left out
+     * @param ingredient name of the ingredient
+     * @param resolution resolution of the slots
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, exclusive
+     * @return points in order of time
+     */
+    public List<StockPoint> getSeries(String ingredient, Resolution resolution, long fromMillis, long toMillis) {
+        Series ingredientSeries = this.series.get(ingredient);
+        if (ingredientSeries == null) {
+            return new ArrayList<>();
+        }
+        return ingredientSeries.getPoints(resolution.ordinal(), resolution.getSlotMillis(), fromMillis, toMillis);
+    }
+
+    /**
+     * Function to get all the ingredients which have history
+     * @return read only view of ingredient names
+     */
+    public Set<String> getIngredients() {
+        return this.series.keySet();
+    }
+
+    /**
+     * Function to sample stock periodically on a background thread
+     * @param stockSource source of stock snapshots, for eg CoffeeMachine.getSnapshot().getStockSnapshot()
+     * @param periodMillis time between two samples
+     */
+    public synchronized void start(Callable<StockSnapshot> stockSource, long periodMillis) {
+        if (this.scheduler != null) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(() -> {
+            try {
+                record(stockSource.call());
+                this.lastError = null;
+            } catch (Exception e) {
+                this.lastError = e; // Keep sampling, next round can succeed
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to stop the background sampler
+     */
+    public synchronized void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Function to get error of the last failed sample
+     * @return last error, null when last sample succeeded
+     */
+    public Exception getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockHistory.class.getSimpleName() + "[", "]")
+            .add("ingredients=" + series.keySet())
+            .toString();
+    }
+
+    /**
+     * Ring buffers of a single ingredient, one group of columns per resolution
+     */
+    private static class Series {
+
+        /**
+         * Lock to handle samples from multiple threads
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Index of time slot stored at every position, slot index is time / slot length, -1 for an empty position
+         */
+        private final long[][] slotIndexes;
+
+        /**
+         * Lowest quantity of every slot
+         */
+        private final int[][] minQuantities;
+
+        /**
+         * Highest quantity of every slot
+         */
+        private final int[][] maxQuantities;
+
+        /**
+         * Last quantity of every slot
+         */
+        private final int[][] lastQuantities;
+
+        /**
+         * Sum of quantities of every slot
+         */
+        private final long[][] sums;
+
+        /**
+         * Number of samples of every slot
+         */
+        private final int[][] counts;
+
+        /**
+         * Newest slot index recorded of every resolution, -1 before first sample
+         */
+        private final long[] newestSlots;
+
+        /**
+         * Constructs empty ring buffers
+         * @param slotCounts number of slots of every resolution
+         */
+        Series(int[] slotCounts) {
+            int resolutions = slotCounts.length;
+            this.slotIndexes = new long[resolutions][];
+            this.minQuantities = new int[resolutions][];
+            this.maxQuantities = new int[resolutions][];
+            this.lastQuantities = new int[resolutions][];
+            this.sums = new long[resolutions][];
+            this.counts = new int[resolutions][];
+            this.newestSlots = new long[resolutions];
+            Arrays.fill(this.newestSlots, -1);
+            for (int resolution = 0; resolution < resolutions; resolution++) {
+                this.slotIndexes[resolution] = new long[slotCounts[resolution]];
+                Arrays.fill(this.slotIndexes[resolution], -1);
+                this.minQuantities[resolution] = new int[slotCounts[resolution]];
+                this.maxQuantities[resolution] = new int[slotCounts[resolution]];
+                this.lastQuantities[resolution] = new int[slotCounts[resolution]];
+                this.sums[resolution] = new long[slotCounts[resolution]];
+                this.counts[resolution] = new int[slotCounts[resolution]];
+            }
+        }
+
+        /**
+         * Function to roll a sample into slots of every resolution
+         * @param timestampMillis time of the sample
+         * @param quantity quantity of the ingredient
+         */
+        void record(long timestampMillis, int quantity) {
+            try {
+                lock.lock();
+                Resolution[] resolutions = Resolution.values();
+                for (int resolution = 0; resolution < resolutions.length; resolution++) {
+                    long slotIndex = timestampMillis / resolutions[resolution].getSlotMillis();
+                    int position = (int) (slotIndex % this.slotIndexes[resolution].length);
+                    if (this.slotIndexes[resolution][position] != slotIndex) {
+                        if (this.slotIndexes[resolution][position] > slotIndex) {
+                            continue; // Sample older than what the ring keeps
+                        }
+                        this.slotIndexes[resolution][position] = slotIndex;
+                        this.minQuantities[resolution][position] = quantity;
+                        this.maxQuantities[resolution][position] = quantity;
+                        this.sums[resolution][position] = 0;
+                        this.counts[resolution][position] = 0;
+                        this.newestSlots[resolution] = Math.max(this.newestSlots[resolution], slotIndex);
+                    }
+                    this.minQuantities[resolution][position] = Math.min(this.minQuantities[resolution][position], quantity);
+                    this.maxQuantities[resolution][position] = Math.max(this.maxQuantities[resolution][position], quantity);
+                    this.lastQuantities[resolution][position] = quantity;
+                    this.sums[resolution][position] += quantity;
+                    this.counts[resolution][position]++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Function to read slots of a resolution in a time window
+         * @param resolution index of the resolution
+         * @param slotMillis length of a slot
+         * @param fromMillis start of the window, inclusive
+         * @param toMillis end of the window, exclusive
+         * @return points in order of time
+         */
+        List<StockPoint> getPoints(int resolution, long slotMillis, long fromMillis, long toMillis) {
+            List<StockPoint> points = new ArrayList<>();
+            try {
+                lock.lock();
+                long[] slots = this.slotIndexes[resolution];
+                long lastSlot = Math.min((toMillis - 1) / slotMillis, this.newestSlots[resolution]);
+                // Only last slots.length slots can still be in the ring
+                long firstSlot = Math.max(fromMillis / slotMillis, lastSlot - slots.length + 1);
+                for (long slotIndex = Math.max(0, firstSlot); slotIndex <= lastSlot; slotIndex++) {
+                    int position = (int) (slotIndex % slots.length);
+                    if (slots[position] == slotIndex) {
+                        points.add(new StockPoint(slotIndex * slotMillis, this.minQuantities[resolution][position], this.maxQuantities[resolution][position],
+                            this.lastQuantities[resolution][position], (double) this.sums[resolution][position] / this.counts[resolution][position]));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return points;
+        }
+    }
+}
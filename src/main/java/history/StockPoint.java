@@ -0,0 +1,104 @@
+package history;
+
+import java.util.StringJoiner;
+
+/**
+ * Rolled up stock of an ingredient over a single slot of time, see StockHistory
+ */
+public class StockPoint {
+
+    /**
+     * Variable to store start of the slot in milliseconds
+     */
+    private final long timestampMillis;
+
+    /**
+     * Variable to store lowest sampled quantity of the slot
+     */
+    private final int minQuantity;
+
+    /**
+     * Variable to store highest sampled quantity of the slot
+     */
+    private final int maxQuantity;
+
+    /**
+     * Variable to store last sampled quantity of the slot
+     */
+    private final int lastQuantity;
+
+    /**
+     * Variable to store average of all the sampled quantities of the slot
+     */
+    private final double averageQuantity;
+
+    /**
+     * Constructs a point
+     * @param timestampMillis start of the slot
+     * @param minQuantity lowest sampled quantity
+     * @param maxQuantity highest sampled quantity
+     * @param lastQuantity last sampled quantity
+     * @param averageQuantity average of all the sampled quantities
+     */
+    public StockPoint(long timestampMillis, int minQuantity, int maxQuantity, int lastQuantity, double averageQuantity) {
+        this.timestampMillis = timestampMillis;
+        this.minQuantity = minQuantity;
+        this.maxQuantity = maxQuantity;
+        this.lastQuantity = lastQuantity;
+        this.averageQuantity = averageQuantity;
+    }
+
+    /**
+     * Function to get start of the slot
+     * @return time in milliseconds
+     */
+    public long getTimestampMillis() {
+        return this.timestampMillis;
+    }
+
+    /**
+     * Function to get lowest sampled quantity of the slot
+     * @return lowest quantity
+     */
+    public int getMinQuantity() {
+        return this.minQuantity;
+    }
+
+    /**
+     * Function to get highest sampled quantity of the slot
+     * @return highest quantity
+     */
+    public int getMaxQuantity() {
+        return this.maxQuantity;
+    }
+
+    /**
+     * Function to get last sampled quantity of the slot
+     * @return last quantity
+     */
+    public int getLastQuantity() {
+        return this.lastQuantity;
+    }
+
+    /**
+     * Function to get average of all the sampled quantities of the slot
+     * @return average quantity
+     */
+    public double getAverageQuantity() {
+        return this.averageQuantity;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockPoint.class.getSimpleName() + "[", "]")
+            .add("timestampMillis=" + timestampMillis)
+            .add("minQuantity=" + minQuantity)
+            .add("maxQuantity=" + maxQuantity)
+            .add("lastQuantity=" + lastQuantity)
+            .add("averageQuantity=" + averageQuantity)
+            .toString();
+    }
+}
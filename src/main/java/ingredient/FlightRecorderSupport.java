@@ -0,0 +1,42 @@
+package ingredient;
+
+/**
+ * Holder of a one time check if flight recorder events can be used on this runtime
+ * Events extend jdk.jfr.Event, which is missing on Java 8 runtimes before 8u262, so loading an event class there fails
+ * with NoClassDefFoundError. Code creating events checks isAvailable first and does nothing when it is False,
+ * so event classes are never loaded on such a runtime.
+ */
+public final class FlightRecorderSupport {
+
+    /**
+     * Variable to store if jdk.jfr.Event can be loaded, checked once when this class is initialized
+     */
+    private static final boolean AVAILABLE = isEventClassPresent();
+
+    /**
+     * Constructor is private because this class only has static functions
+     */
+    private FlightRecorderSupport() {
+    }
+
+    /**
+     * Function to check if flight recorder events can be created
+     * @return True if jdk.jfr is present on this runtime else False
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Function to try loading the base class of flight recorder events without initializing it
+     * @return True if it could be loaded else False
+     */
+    private static boolean isEventClassPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
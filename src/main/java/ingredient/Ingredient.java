@@ -1,6 +1,7 @@
 package ingredient;
 
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -16,8 +17,9 @@ public class Ingredient {
 
     /**
      * Variable to store current quantity of the ingredient
+     * Updates are done under lock, it is volatile so that it can be peeked without lock
      */
-    private int quantity;
+    private volatile int quantity;
 
     /**
      * Variable to store max allowed quantity of the ingredient
@@ -29,6 +31,11 @@ public class Ingredient {
      */
     private final ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * Level of max quantity at which stock was last reported to a StockListener, -1 until first report
+     */
+    private final AtomicInteger reportedLevel = new AtomicInteger(-1);
+
     /**
      * Constructs a new Ingredient with given name, initialQuantity and maxQuantity
      * @param name ingredients name.
@@ -51,29 +58,57 @@ public class Ingredient {
 
     /**
      * Refill current ingredient to its maxQuantity
+     * @return quantity added by the refill
      */
-    public void refillIngredient() {
+    public int refillIngredient() {
         try {
-            lock.lock();
+            acquireLock();
+            int added = Math.max(0, this.maxQuantity - this.quantity);
             this.quantity = this.maxQuantity; // Fill till max quantity
+            return added;
         } finally {
             lock.unlock();;
         }
     }
 
+    /**
+     * Add part of a refill to current ingredient, quantity never goes above maxQuantity
+     * @param amount quantity poured in
+     * @return quantity actually added, 0 when ingredient is already full
+     */
+    public int fillIngredient(int amount) {
+        try {
+            acquireLock();
+            int added = Math.max(0, Math.min(amount, this.maxQuantity - this.quantity));
+            this.quantity += added;
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Get current available quantity of the ingredient
      * @return current available quantity
      */
     public int getQuantity() {
         try {
-            lock.lock();
+            acquireLock();
             return this.quantity;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Get current quantity without taking the lock
+     * Value can be stale by the time it is used so it is only a hint
+     * @return last written quantity
+     */
+    int peekQuantity() {
+        return this.quantity;
+    }
+
     /**
      * Get max quantity that ingredient can store
      * @return return max quantity
@@ -82,6 +117,18 @@ public class Ingredient {
         return this.maxQuantity; // It will be same for every thread so no locking in this case
     }
 
+    /**
+     * Function to check if stock moved to another level since it was last reported
+     * @param quantity quantity right after the change being reported
+     * @param levels number of evenly spaced levels of max quantity
+     * @return True if a new level should be reported else False
+     */
+    boolean updateReportedLevel(int quantity, int levels) {
+        int level = this.maxQuantity <= 0 ? 0 : (int) ((long) Math.max(0, quantity) * levels / this.maxQuantity);
+        int reported = this.reportedLevel.get();
+        return level != reported && this.reportedLevel.compareAndSet(reported, level);
+    }
+
     /**
      * Function to check if the ingredient is running low
      * @return True if current available quantity is less than 50% of the max allowed quantity else False
@@ -89,7 +136,7 @@ public class Ingredient {
     public boolean isRunningLow() {
         // Low quantity is considered when quantity is less than 20% of max quantity
         try {
-            lock.lock();
+            acquireLock();
             return ((this.quantity * 1.0) / (Math.max(1.0, this.maxQuantity))) <= 0.5;
         } finally {
             lock.unlock();
@@ -103,7 +150,7 @@ public class Ingredient {
      */
     public boolean useIngredient(int requiredQuantity) {
         try {
-            lock.lock();
+            acquireLock();
             if (this.quantity < requiredQuantity) {
                 return false;
             }
@@ -114,11 +161,76 @@ public class Ingredient {
         }
     }
 
+    /**
+     * Function to put back quantity which was taken by useIngredient
+     * Quantity never goes above maxQuantity, so a refill done in between is not counted twice
+     * @param returnedQuantity quantity to put back
+     * @return quantity actually put back
+     */
+    int restoreIngredient(int returnedQuantity) {
+        try {
+            acquireLock();
+            int restored = Math.max(0, Math.min(returnedQuantity, this.maxQuantity - this.quantity));
+            this.quantity += restored;
+            return restored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function to take the lock of this ingredient
+     * Waits for a lock held by another thread are reported as IngredientContentionEvent when flight recorder is present
+     */
+    private void acquireLock() {
+        if (lock.tryLock()) {
+            return;
+        }
+        if (!FlightRecorderSupport.isAvailable()) {
+            lock.lock();
+            return;
+        }
+        IngredientContentionEvent event = new IngredientContentionEvent();
+        event.begin();
+        int queueLength = lock.getQueueLength();
+        lock.lock();
+        event.end();
+        if (event.shouldCommit()) {
+            event.ingredient = this.name;
+            event.queueLength = queueLength;
+            event.commit();
+        }
+    }
+
+    /**
+     * Function to hold the lock of this ingredient for a multi ingredient operation of IngredientsHolder
+     * Every call should be followed by unlockIngredient
+     */
+    void lockIngredient() {
+        acquireLock();
+    }
+
+    /**
+     * Function to release the lock taken by lockIngredient
+     */
+    void unlockIngredient() {
+        lock.unlock();
+    }
+
     /**
      * @return Returns a string representation of this class
      */
     @Override
     public String toString() {
+        return toString(this.quantity);
+    }
+
+    /**
+     * Function to get string representation of this class with a quantity read elsewhere, for eg from a StockSnapshot
+     * @param quantity quantity to show
+     * @return string representation of this class
+     */
+    String toString(int quantity) {
         return new StringJoiner(", ", Ingredient.class.getSimpleName() + "[", "]")
             .add("name='" + name + "'")
             .add("quantity=" + quantity)
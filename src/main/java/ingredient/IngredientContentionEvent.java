@@ -0,0 +1,33 @@
+package ingredient;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a thread which had to wait for the lock of an ingredient
+ * Only contended acquisitions are recorded, uncontended ones never create the event
+ * Disabled by default, enable ingredient.Contention in a recording settings file to collect it
+ */
+@Name("ingredient.Contention")
+@Label("Ingredient Lock Contention")
+@Category({"Coffee Machine", "Ingredients"})
+@Description("Wait for the lock of an ingredient held by another thread")
+@Enabled(false)
+class IngredientContentionEvent extends Event {
+
+    /**
+     * Name of the ingredient
+     */
+    @Label("Ingredient")
+    String ingredient;
+
+    /**
+     * Number of threads waiting for the lock when wait started
+     */
+    @Label("Queue Length")
+    int queueLength;
+}
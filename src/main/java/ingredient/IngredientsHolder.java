@@ -1,10 +1,14 @@
 package ingredient;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javafx.util.Pair;
 
 /**
@@ -17,6 +21,36 @@ public class IngredientsHolder {
      */
     private final ConcurrentHashMap<String, Ingredient> ingredients; // Ingredients storage compartment
 
+    /**
+     * Number of stock changes which are in progress, a snapshot taken while it is not 0 can be inconsistent
+     */
+    private final AtomicInteger activeWriters = new AtomicInteger();
+
+    /**
+     * Version of the stock, increased after every finished stock change
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Listener notified when stock crosses a level, null when nobody listens
+     */
+    private volatile StockListener stockListener;
+
+    /**
+     * Variable to store number of levels reported to stockListener
+     */
+    private volatile int stockLevels = 10;
+
+    /**
+     * Bus every stock change is published to, null when changes are not published
+     */
+    private volatile StockEventBus stockEventBus;
+
+    /**
+     * Number of optimistic reads a snapshot tries before locking all the ingredients
+     */
+    private static final int SNAPSHOT_ATTEMPTS = 16;
+
     /**
      * Constructs a new empty IngredientsHolder object
      */
@@ -35,35 +69,108 @@ public class IngredientsHolder {
         }
     }
 
+    /**
+     * Constructs a new IngredientsHolder object with given ingredients stored in parallel arrays
+     * @param names names of initial ingredients
+     * @param quantities initial quantity of every ingredient, also used as its max quantity
+     * @param count number of ingredients, only first count entries of the arrays are used
+     */
+    public IngredientsHolder(String[] names, int[] quantities, int count) {
+        this.ingredients = new ConcurrentHashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            this.ingredients.put(names[i], new Ingredient(names[i], quantities[i], quantities[i]));
+        }
+    }
+
     /**
      * Function to add a new Ingredient to the holder
      * This function will only add this ingredient if it doesn't exist beforehand
      * @param name name of the new ingredient
      * @param quantity quantity to initialise ingredient
      */
-    public void addNewIngredient(String name, Integer quantity) {
+    public void addNewIngredient(String name, int quantity) {
         // Put only if not present
-        this.ingredients.putIfAbsent(name, new Ingredient(name, quantity, quantity)); // Considering that at initialisation we will provider max quantity
+        try {
+            beginWrite();
+            this.ingredients.putIfAbsent(name, new Ingredient(name, quantity, quantity)); // Considering that at initialisation we will provider max quantity
+        } finally {
+            endWrite();
+        }
     }
 
     /**
      * Function to refill a particular ingredient only if it is present in the holder
      * @param ingredient ingredient name to refill
+     * @return quantity added by the refill, 0 when ingredient is not present
+     */
+    public int refillIngredient(String ingredient) {
+        Ingredient refilledIngredient = this.ingredients.get(ingredient);
+        if (refilledIngredient == null) {
+            return 0;
+        }
+        int added;
+        int quantity;
+        try {
+            refilledIngredient.lockIngredient();
+            beginWrite();
+            added = refilledIngredient.refillIngredient(); // refill ingredient
+            quantity = refilledIngredient.peekQuantity();
+        } finally {
+            endWrite();
+            refilledIngredient.unlockIngredient();
+        }
+        onStockChanged(refilledIngredient, added, quantity);
+        return added;
+    }
+
+    /**
+     * Function to add part of a refill to a particular ingredient only if it is present in the holder
+     * Only the ingredient's own lock is held, so orders using the ingredient keep running in between
+     * @param ingredient ingredient name to fill
+     * @param amount quantity poured in
+     * @return quantity actually added, 0 when ingredient is full or not present
      */
-    public void refillIngredient(String ingredient) {
-        this.ingredients.computeIfPresent(ingredient, (key, value) -> {
-            value.refillIngredient(); // refill ingredient
-            return value;
-        });
+    public int fillIngredient(String ingredient, int amount) {
+        Ingredient filledIngredient = this.ingredients.get(ingredient);
+        if (filledIngredient == null) {
+            return 0;
+        }
+        int added;
+        int quantity;
+        try {
+            filledIngredient.lockIngredient();
+            beginWrite();
+            added = filledIngredient.fillIngredient(amount);
+            quantity = filledIngredient.peekQuantity();
+        } finally {
+            endWrite();
+            filledIngredient.unlockIngredient();
+        }
+        onStockChanged(filledIngredient, added, quantity);
+        return added;
     }
 
     /**
      * Function to refill all the available ingredients in the holder
      */
     public void refillAllIngredients() {
-        this.ingredients.forEach((key, ingredient) -> {
-            ingredient.refillIngredient();
-        });
+        Map<Ingredient, int[]> added = new HashMap<>(); // ingredient -> {quantity added, quantity after the refill}
+        try {
+            beginWrite();
+            this.ingredients.forEach((key, ingredient) -> {
+                try {
+                    ingredient.lockIngredient();
+                    added.put(ingredient, new int[] {ingredient.refillIngredient(), ingredient.peekQuantity()});
+                } finally {
+                    ingredient.unlockIngredient();
+                }
+            });
+        } finally {
+            endWrite();
+        }
+        for (Map.Entry<Ingredient, int[]> refilled : added.entrySet()) {
+            onStockChanged(refilled.getKey(), refilled.getValue()[0], refilled.getValue()[1]);
+        }
     }
 
     /**
@@ -83,7 +190,210 @@ public class IngredientsHolder {
      */
     public boolean useIngredient(String ingredient, int quantity) {
         if (!this.ingredients.containsKey(ingredient)) return false;
-        return this.ingredients.get(ingredient).useIngredient(quantity);
+        Ingredient usedIngredient = this.ingredients.get(ingredient);
+        boolean used;
+        int quantityLeft;
+        try {
+            usedIngredient.lockIngredient();
+            beginWrite();
+            used = usedIngredient.useIngredient(quantity);
+            quantityLeft = usedIngredient.peekQuantity();
+        } finally {
+            endWrite();
+            usedIngredient.unlockIngredient();
+        }
+        onStockChanged(usedIngredient, used ? -quantity : 0, quantityLeft);
+        return used;
+    }
+
+    /**
+     * Function to cheaply check if given amounts of multiple ingredients look available
+     * No lock is taken so the answer can be stale, useIngredients is still the final decision
+     * @param names names of the ingredients to check
+     * @param quantities required quantity of every ingredient
+     * @return -1 when all the ingredients look sufficient else index of the first ingredient which is not present or not sufficient
+     */
+    public int checkIngredients(String[] names, int[] quantities) {
+        return checkIngredients(names, quantities, null);
+    }
+
+    /**
+     * Function to cheaply check if given amounts of multiple ingredients look available, probing them in given order
+     * Probing the ingredient most likely to fail first lets a failing order stop after a single probe
+     * @param names names of the ingredients to check
+     * @param quantities required quantity of every ingredient
+     * @param checkOrder indexes of ingredients in order to probe them, null means order of names
+     * @return -1 when all the ingredients look sufficient else index of the first probed ingredient which is not present or not sufficient
+     */
+    public int checkIngredients(String[] names, int[] quantities, int[] checkOrder) {
+        int[] totals = getTotalQuantities(names, quantities);
+        for (int probe = 0; probe < names.length; probe++) {
+            int i = checkOrder == null ? probe : checkOrder[probe];
+            Ingredient ingredient = this.ingredients.get(names[i]);
+            if (ingredient == null || ingredient.peekQuantity() < totals[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Function to get quantity needed of the ingredient of every entry, summed over entries naming the same ingredient
+     * A recipe can list an ingredient more than once, for eg after its components are flattened, so every entry is
+     * checked against all the quantity taken of its ingredient
+     * @param names names of the ingredients
+     * @param quantities required quantity of every entry
+     * @return given quantities when every ingredient is listed once, else total quantity of the ingredient of every entry
+     */
+    private static int[] getTotalQuantities(String[] names, int[] quantities) {
+        int[] totals = quantities;
+        for (int i = 0; i < names.length; i++) {
+            long total = quantities[i];
+            boolean repeated = false;
+            for (int j = 0; j < names.length; j++) {
+                if (j != i && names[j].equals(names[i])) {
+                    total += quantities[j];
+                    repeated = true;
+                }
+            }
+            if (repeated) {
+                if (totals == quantities) {
+                    totals = quantities.clone(); // Copied only when needed, recipes rarely repeat an ingredient
+                }
+                totals[i] = (int) Math.min(Integer.MAX_VALUE, total);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Function to use given amounts of multiple ingredients as a single operation
+     * Either all the ingredients are used or none of them is, so a failed order never leaks stock
+     * Locks of all the ingredients are held together, they are taken in order of ingredient name to avoid deadlocks
+     * @param names names of the ingredients to use
+     * @param quantities required quantity of every ingredient
+     * @return -1 when all the ingredients are used else index of the first ingredient which is not present or not sufficient
+     */
+    public int useIngredients(String[] names, int[] quantities) {
+        return useIngredients(names, quantities, null);
+    }
+
+    /**
+     * Function to use given amounts of multiple ingredients as a single operation, see useIngredients
+     * Once all the locks are held ingredients are validated in given order before anything is taken,
+     * so a failing order releases its locks after the first failing probe and never needs a roll back
+     * @param names names of the ingredients to use
+     * @param quantities required quantity of every ingredient
+     * @param checkOrder indexes of ingredients in order to validate them, null means order of names
+     * @return -1 when all the ingredients are used else index of the first validated ingredient which is not present or not sufficient
+     */
+    public int useIngredients(String[] names, int[] quantities, int[] checkOrder) {
+        Ingredient[] required = new Ingredient[names.length];
+        for (int i = 0; i < names.length; i++) {
+            required[i] = this.ingredients.get(names[i]);
+        }
+
+        // Sort positions by ingredient name to get same locking order in every thread
+        int[] lockOrder = new int[names.length];
+        int locked = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (required[i] == null) {
+                continue;
+            }
+            int position = locked++;
+            while (position > 0 && names[lockOrder[position - 1]].compareTo(names[i]) > 0) {
+                lockOrder[position] = lockOrder[position - 1];
+                position--;
+            }
+            lockOrder[position] = i;
+        }
+
+        int held = 0;
+        int[] quantitiesLeft = new int[names.length];
+        int[] totals = getTotalQuantities(names, quantities);
+        try {
+            for (; held < locked; held++) {
+                required[lockOrder[held]].lockIngredient();
+            }
+            for (int probe = 0; probe < names.length; probe++) {
+                int i = checkOrder == null ? probe : checkOrder[probe];
+                if (required[i] == null || required[i].peekQuantity() < totals[i]) {
+                    return i;
+                }
+            }
+            try {
+                beginWrite();
+                for (int i = 0; i < names.length; i++) {
+                    if (!required[i].useIngredient(quantities[i])) {
+                        // Not expected as totals were validated under the same locks, put back what was taken so far
+                        for (int j = i - 1; j >= 0; j--) {
+                            required[j].restoreIngredient(quantities[j]);
+                        }
+                        return i;
+                    }
+                    quantitiesLeft[i] = required[i].peekQuantity();
+                }
+            } finally {
+                endWrite();
+            }
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                required[lockOrder[i]].unlockIngredient();
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            onStockChanged(required[i], -quantities[i], quantitiesLeft[i]);
+        }
+        return -1;
+    }
+
+    /**
+     * Function to put back given amounts of multiple ingredients which were taken by useIngredients
+     * For eg stock held by a reservation which was released or expired
+     * @param names names of the ingredients to put back
+     * @param quantities quantity of every ingredient to put back
+     */
+    public void releaseIngredients(String[] names, int[] quantities) {
+        Ingredient[] released = new Ingredient[names.length];
+        int[] restored = new int[names.length];
+        int[] restoredQuantities = new int[names.length];
+        try {
+            beginWrite();
+            for (int i = 0; i < names.length; i++) {
+                released[i] = this.ingredients.get(names[i]);
+                if (released[i] != null) {
+                    try {
+                        released[i].lockIngredient();
+                        restored[i] = released[i].restoreIngredient(quantities[i]);
+                        restoredQuantities[i] = released[i].peekQuantity();
+                    } finally {
+                        released[i].unlockIngredient();
+                    }
+                }
+            }
+        } finally {
+            endWrite();
+        }
+        for (int i = 0; i < names.length; i++) {
+            onStockChanged(released[i], restored[i], restoredQuantities[i]);
+        }
+    }
+
+    /**
+     * Function to get how many more times every ingredient can be used in given amount
+     * No lock is taken so the answer can be stale
+     * @param names names of the ingredients
+     * @param quantities required quantity of every ingredient
+     * @return servings left of every ingredient, 0 for an ingredient which is not present
+     */
+    public int[] getServingsLeft(String[] names, int[] quantities) {
+        int[] servingsLeft = new int[names.length];
+        int[] totals = getTotalQuantities(names, quantities);
+        for (int i = 0; i < names.length; i++) {
+            Ingredient ingredient = this.ingredients.get(names[i]);
+            servingsLeft[i] = ingredient == null ? 0 : totals[i] <= 0 ? Integer.MAX_VALUE : ingredient.peekQuantity() / totals[i];
+        }
+        return servingsLeft;
     }
 
     /**
@@ -101,6 +411,119 @@ public class IngredientsHolder {
         return runningLow;
     }
 
+    /**
+     * Function to get current available quantity of every ingredient in the holder
+     * @return map of ingredient name -> available quantity
+     */
+    public Map<String, Integer> getAvailableQuantities() {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (Map.Entry<String, Ingredient> ingredientEntry : this.ingredients.entrySet()) {
+            quantities.put(ingredientEntry.getKey(), ingredientEntry.getValue().getQuantity());
+        }
+        return quantities;
+    }
+
+    /**
+     * Function to set listener notified when stock of an ingredient crosses a level of its max quantity
+     * @param stockListener listener to notify, null to stop notifying
+     * @param levels number of evenly spaced levels, for eg 10 to be notified at every 10% of max quantity
+     */
+    public void setStockListener(StockListener stockListener, int levels) {
+        this.stockLevels = Math.max(1, levels);
+        this.stockListener = stockListener;
+    }
+
+    /**
+     * Function to publish every stock change to given bus
+     * Changing thread only enqueues the change, bus delivers it to its subscribers on its own thread
+     * @param stockEventBus started bus, null to stop publishing
+     */
+    public void setStockEventBus(StockEventBus stockEventBus) {
+        this.stockEventBus = stockEventBus;
+    }
+
+    /**
+     * Function to let stock listener and event bus know about a change, called after all the ingredient locks are released
+     * Quantity is read while the lock of the change is still held, so a later change of another thread is not reported with this one
+     * @param ingredient changed ingredient, can be null
+     * @param delta change of quantity, 0 when nothing changed
+     * @param quantity quantity of the ingredient right after the change
+     */
+    private void onStockChanged(Ingredient ingredient, int delta, int quantity) {
+        if (ingredient == null) {
+            return;
+        }
+        StockEventBus eventBus = this.stockEventBus;
+        if (eventBus != null && delta != 0) {
+            eventBus.publish(new StockEvent(ingredient.getName(), delta, quantity, System.currentTimeMillis()));
+        }
+        StockListener listener = this.stockListener;
+        if (listener != null && ingredient.updateReportedLevel(quantity, this.stockLevels)) {
+            listener.onLevelCrossed(ingredient.getName(), quantity, ingredient.getMaxQuantity(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Function to mark start of a stock change, every call should be followed by endWrite
+     */
+    private void beginWrite() {
+        this.activeWriters.incrementAndGet();
+    }
+
+    /**
+     * Function to mark end of a stock change
+     */
+    private void endWrite() {
+        this.version.incrementAndGet();
+        this.activeWriters.decrementAndGet();
+    }
+
+    /**
+     * Function to get quantity of every ingredient as of a single instant
+     * Stock is first read optimistically without any lock, like a seqlock: the read is kept only if no change was
+     * in progress before or after it and version did not move. Orders never wait for such a read.
+     * If stock keeps changing for all the attempts, locks of all the ingredients are taken in name order for a single read,
+     * which makes orders wait only for the duration of that read
+     * @return consistent snapshot of the stock
+     */
+    public StockSnapshot getSnapshot() {
+        for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            long startVersion = this.version.get();
+            if (this.activeWriters.get() != 0) {
+                Thread.yield();
+                continue;
+            }
+            Map<String, Integer> quantities = new TreeMap<>();
+            Map<String, Integer> maxQuantities = new TreeMap<>();
+            for (Ingredient ingredient : this.ingredients.values()) {
+                quantities.put(ingredient.getName(), ingredient.peekQuantity());
+                maxQuantities.put(ingredient.getName(), ingredient.getMaxQuantity());
+            }
+            if (this.activeWriters.get() == 0 && this.version.get() == startVersion) {
+                return new StockSnapshot(startVersion, System.currentTimeMillis(), quantities, maxQuantities);
+            }
+        }
+
+        List<Ingredient> lockOrder = new ArrayList<>(new TreeMap<>(this.ingredients).values());
+        int held = 0;
+        try {
+            for (; held < lockOrder.size(); held++) {
+                lockOrder.get(held).lockIngredient();
+            }
+            Map<String, Integer> quantities = new TreeMap<>();
+            Map<String, Integer> maxQuantities = new TreeMap<>();
+            for (Ingredient ingredient : lockOrder) {
+                quantities.put(ingredient.getName(), ingredient.peekQuantity());
+                maxQuantities.put(ingredient.getName(), ingredient.getMaxQuantity());
+            }
+            return new StockSnapshot(this.version.get(), System.currentTimeMillis(), quantities, maxQuantities);
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                lockOrder.get(i).unlockIngredient();
+            }
+        }
+    }
+
     /**
      * Function to get total number of ingredients present in the holder
      * @return number of ingredients present in the map
@@ -110,12 +533,21 @@ public class IngredientsHolder {
     }
 
     /**
+     * Quantities are taken from a single snapshot so the string never mixes stock of different instants
      * @return Returns a string representation of this class
      */
     @Override
     public String toString() {
+        Map<String, Integer> quantities = getSnapshot().getQuantities();
+        StringJoiner ingredientsJoiner = new StringJoiner(", ", "{", "}");
+        for (Map.Entry<String, Ingredient> ingredientEntry : this.ingredients.entrySet()) {
+            Integer quantity = quantities.get(ingredientEntry.getKey());
+            if (quantity != null) { // Added after the snapshot
+                ingredientsJoiner.add(ingredientEntry.getKey() + "=" + ingredientEntry.getValue().toString(quantity));
+            }
+        }
         return new StringJoiner(", ", IngredientsHolder.class.getSimpleName() + "[", "]")
-            .add("ingredients=" + ingredients)
+            .add("ingredients=" + ingredientsJoiner)
             .toString();
     }
 }
@@ -0,0 +1,322 @@
+package ingredient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduler of refills which take time, modelled as a flow of quantity into the container
+ * Every running refill pours flowRate * elapsed time into its ingredient on every tick until the container is full,
+ * so stock rises gradually while orders keep using it, and no outlet or machine level lock is held in between
+ * Only workers refills run at the same time, others wait in order of request, for eg a single technician
+ */
+public class RefillScheduler {
+
+    /**
+     * Default time between two pours of a refill in milliseconds
+     */
+    private static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * Most time stop waits for a pour which is in progress in milliseconds
+     */
+    private static final long STOP_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Holder whose ingredients are refilled
+     */
+    private final IngredientsHolder ingredientsHolder;
+
+    /**
+     * Variable to store number of refills which can run at the same time
+     */
+    private final int workers;
+
+    /**
+     * Variable to store time between two pours of a refill in milliseconds
+     */
+    private final long tickMillis;
+
+    /**
+     * Executor running pours of all the refills
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Lock to guard refills, waiting, running and stopped
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Map to store ingredient name -> its running or waiting refill
+     */
+    private final Map<String, Refill> refills = new LinkedHashMap<>();
+
+    /**
+     * Refills waiting for a worker in order of request
+     */
+    private final ArrayDeque<Refill> waiting = new ArrayDeque<>();
+
+    /**
+     * Variable to store number of running refills
+     */
+    private int running = 0;
+
+    /**
+     * Variable to store if scheduler was stopped
+     */
+    private boolean stopped = false;
+
+    /**
+     * A single refill of an ingredient, run periodically by the scheduler while it has a worker
+     */
+    private class Refill implements Runnable {
+
+        /**
+         * Name of the ingredient to refill
+         */
+        final String ingredient;
+
+        /**
+         * Quantity poured per second
+         */
+        final double flowRate;
+
+        /**
+         * Completed with total quantity added once the container is full or the scheduler is stopped
+         */
+        final CompletableFuture<Integer> completion = new CompletableFuture<>();
+
+        /**
+         * Periodic pours of the refill, null while it waits for a worker
+         */
+        ScheduledFuture<?> pours;
+
+        /**
+         * Time of the last pour
+         */
+        long lastPourNanos;
+
+        /**
+         * Fraction of quantity which was due but not poured yet, poured once it adds up to a whole unit
+         */
+        double pendingQuantity = 0;
+
+        /**
+         * Total quantity added so far
+         */
+        volatile int addedQuantity = 0;
+
+        /**
+         * Constructs a refill
+         * @param ingredient name of the ingredient to refill
+         * @param flowRate quantity poured per second
+         */
+        Refill(String ingredient, double flowRate) {
+            this.ingredient = ingredient;
+            this.flowRate = flowRate;
+        }
+
+        /**
+         * Function to pour quantity due since the last pour, refill ends when container cannot take all of it
+         */
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            this.pendingQuantity += this.flowRate * (now - this.lastPourNanos) / 1e9;
+            this.lastPourNanos = now;
+            int amount = (int) Math.min(Integer.MAX_VALUE, this.pendingQuantity);
+            if (amount == 0) {
+                return;
+            }
+            this.pendingQuantity -= amount;
+            try {
+                int added = ingredientsHolder.fillIngredient(this.ingredient, amount);
+                this.addedQuantity += added;
+                if (added < amount) {
+                    finish(this);
+                }
+            } catch (RuntimeException e) {
+                this.completion.completeExceptionally(e); // Before finish, which completes it with quantity added
+                finish(this);
+            }
+        }
+    }
+
+    /**
+     * Constructs a scheduler pouring every 10 milliseconds
+     * @param ingredientsHolder holder whose ingredients are refilled
+     * @param workers number of refills which can run at the same time
+     */
+    public RefillScheduler(IngredientsHolder ingredientsHolder, int workers) {
+        this(ingredientsHolder, workers, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * Constructs a scheduler
+     * @param ingredientsHolder holder whose ingredients are refilled
+     * @param workers number of refills which can run at the same time
+     * @param tickMillis time between two pours of a refill, a refill ends up to one tick after its container is full
+     */
+    public RefillScheduler(IngredientsHolder ingredientsHolder, int workers, long tickMillis) {
+        this.ingredientsHolder = ingredientsHolder;
+        this.workers = Math.max(1, workers);
+        this.tickMillis = Math.max(1, tickMillis);
+        this.scheduler = Executors.newScheduledThreadPool(Math.min(this.workers, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "refill-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Function to request a refill of an ingredient
+     * Requesting an ingredient which is already being refilled returns the running refill, its flow rate is kept
+     * @param ingredient name of the ingredient to refill
+     * @param flowRate quantity poured per second
+     * @return completed with total quantity added once the container is full, 0 when ingredient is not present
+     */
+    public CompletableFuture<Integer> startRefill(String ingredient, double flowRate) {
+        if (!(flowRate > 0)) {
+            throw new IllegalArgumentException("flow rate of a refill should be positive");
+        }
+        if (!this.ingredientsHolder.isIngredientPresent(ingredient)) {
+            return CompletableFuture.completedFuture(0);
+        }
+        try {
+            lock.lock();
+            if (this.stopped) {
+                throw new IllegalStateException("Refill scheduler is stopped");
+            }
+            Refill refill = this.refills.get(ingredient);
+            if (refill == null) {
+                refill = new Refill(ingredient, flowRate);
+                this.refills.put(ingredient, refill);
+                if (this.running < this.workers) {
+                    run(refill);
+                } else {
+                    this.waiting.addLast(refill);
+                }
+            }
+            return refill.completion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function to give a worker to a refill, caller should hold the lock
+     * @param refill refill to run
+     */
+    private void run(Refill refill) {
+        this.running++;
+        refill.lastPourNanos = System.nanoTime();
+        refill.pours = this.scheduler.scheduleAtFixedRate(refill, this.tickMillis, this.tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to end a running refill and give its worker to the next waiting one
+     * @param refill refill whose container is full
+     */
+    private void finish(Refill refill) {
+        try {
+            lock.lock();
+            if (!this.refills.remove(refill.ingredient, refill)) {
+                return; // Already ended by stop
+            }
+            refill.pours.cancel(false);
+            this.running--;
+            Refill next = this.waiting.pollFirst();
+            if (next != null) {
+                run(next);
+            }
+        } finally {
+            lock.unlock();
+        }
+        refill.completion.complete(refill.addedQuantity);
+    }
+
+    /**
+     * Function to get ingredients being refilled right now
+     * @return names of the ingredients in order of request
+     */
+    public List<String> getRunningRefills() {
+        try {
+            lock.lock();
+            List<String> ingredients = new ArrayList<>(this.refills.keySet());
+            for (Refill refill : this.waiting) {
+                ingredients.remove(refill.ingredient);
+            }
+            return ingredients;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function to get ingredients whose refill waits for a worker
+     * @return names of the ingredients in order of request
+     */
+    public List<String> getWaitingRefills() {
+        try {
+            lock.lock();
+            List<String> ingredients = new ArrayList<>(this.waiting.size());
+            for (Refill refill : this.waiting) {
+                ingredients.add(refill.ingredient);
+            }
+            return ingredients;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Function to stop all the refills and the workers
+     * Running refills are completed with quantity added so far, waiting ones with 0
+     * A pour which is in progress is waited for, so the quantity of a completed refill is final
+     */
+    public void stop() {
+        List<Refill> ended;
+        try {
+            lock.lock();
+            this.stopped = true;
+            ended = new ArrayList<>(this.refills.values());
+            this.refills.clear();
+            this.waiting.clear();
+            this.running = 0;
+        } finally {
+            lock.unlock();
+        }
+        this.scheduler.shutdownNow();
+        try {
+            this.scheduler.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Refill refill : ended) {
+            refill.completion.complete(refill.addedQuantity);
+        }
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RefillScheduler.class.getSimpleName() + "[", "]")
+            .add("workers=" + workers)
+            .add("tickMillis=" + tickMillis)
+            .add("running=" + getRunningRefills())
+            .add("waiting=" + getWaitingRefills())
+            .toString();
+    }
+}
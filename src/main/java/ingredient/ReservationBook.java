@@ -0,0 +1,318 @@
+package ingredient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Class to hold ingredients of orders placed ahead of pickup
+ * A reservation takes its ingredients from the holder right away, so nobody else can use them,
+ * and it is later either confirmed (ingredients stay used) or released (ingredients are put back)
+ * Reservations which are not confirmed in time are released automatically by a hashed timing wheel,
+ * the wheel is advanced on every call of the book and optionally by a background thread, see start
+ */
+public class ReservationBook {
+
+    /**
+     * Holder from which ingredients are reserved
+     */
+    private final IngredientsHolder ingredientsHolder;
+
+    /**
+     * Map to store order id -> its outstanding reservation
+     */
+    private final ConcurrentHashMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * Wheel expiring reservations which are not confirmed in time
+     */
+    private final TimingWheel<Reservation> timingWheel;
+
+    /**
+     * Lock guarding the timing wheel
+     */
+    private final ReentrantLock wheelLock = new ReentrantLock();
+
+    /**
+     * Clock giving current time in milliseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Executor advancing the wheel periodically, null when not started
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a book expiring reservations with a precision of 100 milliseconds
+     * @param ingredientsHolder holder from which ingredients are reserved
+     */
+    public ReservationBook(IngredientsHolder ingredientsHolder) {
+        this(ingredientsHolder, 100, 1024, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a book with given wheel and clock
+     * @param ingredientsHolder holder from which ingredients are reserved
+     * @param tickMillis precision of expiry
+     * @param wheelSize number of slots of the timing wheel
+     * @param clock clock giving current time in milliseconds
+     */
+    public ReservationBook(IngredientsHolder ingredientsHolder, long tickMillis, int wheelSize, LongSupplier clock) {
+        this.ingredientsHolder = ingredientsHolder;
+        this.clock = clock;
+        this.timingWheel = new TimingWheel<>(tickMillis, wheelSize, clock.getAsLong());
+    }
+
+    /**
+     * Function to reserve ingredients for an order
+     * Either all the ingredients are reserved or none of them is
+     * @param orderId id of the order
+     * @param label what is reserved, for eg name of the beverage
+     * @param names names of the ingredients to reserve
+     * @param quantities required quantity of every ingredient
+     * @param holdMillis time for which ingredients are held if reservation is not confirmed, a hold past the end of time is cut there
+     * @return -1 when ingredients are reserved else index of the first ingredient which is not present or not sufficient
+     * @throws Exception when order already has a reservation
+     */
+    public int reserve(String orderId, String label, String[] names, int[] quantities, long holdMillis) throws Exception {
+        return reserve(orderId, label, null, names, quantities, holdMillis);
+    }
+
+    /**
+     * Function to reserve ingredients for an order of a variant of a beverage, see reserve
+     * Beverage and modifier are kept apart, label of the reservation is name of the modifier followed by the beverage
+     * @param orderId id of the order
+     * @param beverage name of the beverage
+     * @param modifier name of the modifier, null for the base beverage
+     * @param names names of the ingredients to reserve
+     * @param quantities required quantity of every ingredient
+     * @param holdMillis time for which ingredients are held if reservation is not confirmed, a hold past the end of time is cut there
+     * @return -1 when ingredients are reserved else index of the first ingredient which is not present or not sufficient
+     * @throws Exception when order already has a reservation
+     */
+    public int reserve(String orderId, String beverage, String modifier, String[] names, int[] quantities, long holdMillis) throws Exception {
+        expireReservations();
+        Reservation reservation = new Reservation(orderId, beverage, modifier, names, quantities);
+        if (this.reservations.putIfAbsent(orderId, reservation) != null) {
+            throw new Exception(String.format("Order %s is already reserved", orderId));
+        }
+        int failedIngredient = this.ingredientsHolder.useIngredients(names, quantities);
+        if (failedIngredient >= 0) {
+            this.reservations.remove(orderId, reservation);
+            return failedIngredient;
+        }
+        try {
+            wheelLock.lock();
+            long nowMillis = this.clock.getAsLong();
+            long deadlineMillis = holdMillis > Long.MAX_VALUE - nowMillis ? Long.MAX_VALUE : nowMillis + holdMillis; // Saturate instead of overflowing into the past
+            reservation.timeout = this.timingWheel.schedule(reservation, deadlineMillis);
+        } finally {
+            wheelLock.unlock();
+        }
+        return -1;
+    }
+
+    /**
+     * Function to confirm a reservation, its ingredients stay used
+     * @param orderId id of the order
+     * @return label of the confirmed reservation, null when order has no reservation or it expired
+     */
+    public String confirm(String orderId) {
+        expireReservations();
+        Reservation reservation = remove(orderId);
+        return reservation == null ? null : reservation.getLabel();
+    }
+
+    /**
+     * Function to release a reservation, its ingredients are put back
+     * @param orderId id of the order
+     * @return True if reservation was released else False when order has no reservation or it expired
+     */
+    public boolean release(String orderId) {
+        expireReservations();
+        Reservation reservation = remove(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        this.ingredientsHolder.releaseIngredients(reservation.names, reservation.quantities);
+        return true;
+    }
+
+    /**
+     * Function to check if an order has an outstanding reservation
+     * @param orderId id of the order
+     * @return label of the reservation, null when order has no reservation
+     */
+    public String getReservation(String orderId) {
+        Reservation reservation = this.reservations.get(orderId);
+        return reservation == null ? null : reservation.getLabel();
+    }
+
+    /**
+     * Function to get an outstanding reservation with its beverage and modifier
+     * @param orderId id of the order
+     * @return Reservation, null when order has no reservation
+     */
+    public Reservation findReservation(String orderId) {
+        return this.reservations.get(orderId);
+    }
+
+    /**
+     * Function to remove a reservation from the book and the wheel
+     * @param orderId id of the order
+     * @return removed reservation, null when order has no reservation
+     */
+    private Reservation remove(String orderId) {
+        try {
+            wheelLock.lock();
+            Reservation reservation = this.reservations.get(orderId);
+            if (reservation == null || reservation.timeout == null) {
+                return null; // Not reserved or still being reserved
+            }
+            this.reservations.remove(orderId);
+            this.timingWheel.cancel(reservation.timeout);
+            return reservation;
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Function to release all the reservations whose hold time is over
+     * @return number of released reservations
+     */
+    public int expireReservations() {
+        try {
+            wheelLock.lock();
+            return this.timingWheel.advance(this.clock.getAsLong(), reservation -> {
+                this.reservations.remove(reservation.orderId);
+                this.ingredientsHolder.releaseIngredients(reservation.names, reservation.quantities);
+            });
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Function to get number of outstanding reservations
+     * @return number of reservations which are neither confirmed, released nor expired
+     */
+    public int getOutstandingReservations() {
+        return this.reservations.size();
+    }
+
+    /**
+     * Function to expire reservations periodically on a background thread
+     * Without it reservations expire only when the book is used
+     * @param periodMillis time between two rounds
+     */
+    public synchronized void start(long periodMillis) {
+        if (this.scheduler != null) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::expireReservations, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to stop the background thread
+     */
+    public synchronized void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Ingredients held for a single order
+     */
+    public static class Reservation {
+
+        /**
+         * Id of the order
+         */
+        private final String orderId;
+
+        /**
+         * What is reserved, for eg name of the beverage
+         */
+        private final String beverage;
+
+        /**
+         * Name of the modifier of the reserved variant, null for the base beverage
+         */
+        private final String modifier;
+
+        /**
+         * Names of the held ingredients
+         */
+        private final String[] names;
+
+        /**
+         * Held quantity of every ingredient
+         */
+        private final int[] quantities;
+
+        /**
+         * Timeout of the reservation in the wheel, null while ingredients are still being taken
+         */
+        private TimingWheel.Timeout<Reservation> timeout;
+
+        /**
+         * Constructs a reservation
+         * @param orderId id of the order
+         * @param beverage what is reserved
+         * @param modifier name of the modifier, null for the base beverage
+         * @param names names of the held ingredients
+         * @param quantities held quantity of every ingredient
+         */
+        Reservation(String orderId, String beverage, String modifier, String[] names, int[] quantities) {
+            this.orderId = orderId;
+            this.beverage = beverage;
+            this.modifier = modifier;
+            this.names = names;
+            this.quantities = quantities;
+        }
+
+        /**
+         * Function to get id of the order
+         * @return id of the order
+         */
+        public String getOrderId() {
+            return this.orderId;
+        }
+
+        /**
+         * Function to get what is reserved
+         * @return name of the beverage
+         */
+        public String getBeverage() {
+            return this.beverage;
+        }
+
+        /**
+         * Function to get modifier of the reserved variant
+         * @return name of the modifier, null for the base beverage
+         */
+        public String getModifier() {
+            return this.modifier;
+        }
+
+        /**
+         * Function to get display name of what is reserved
+         * @return name of the modifier followed by the beverage, only the beverage when there is no modifier
+         */
+        public String getLabel() {
+            return this.modifier == null ? this.beverage : this.modifier + " " + this.beverage;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ingredient;
+
+import java.util.StringJoiner;
+
+/**
+ * Change of stock of a single ingredient, published through StockEventBus
+ */
+public class StockEvent {
+
+    /**
+     * Variable to store name of the changed ingredient
+     */
+    private final String ingredient;
+
+    /**
+     * Variable to store change of quantity, negative when ingredient was used and positive when it was refilled or put back
+     */
+    private final int delta;
+
+    /**
+     * Variable to store quantity after the change
+     */
+    private final int quantity;
+
+    /**
+     * Variable to store time of the change in milliseconds
+     */
+    private final long timestampMillis;
+
+    /**
+     * Constructs an event
+     * @param ingredient name of the changed ingredient
+     * @param delta change of quantity
+     * @param quantity quantity after the change
+     * @param timestampMillis time of the change
+     */
+    public StockEvent(String ingredient, int delta, int quantity, long timestampMillis) {
+        this.ingredient = ingredient;
+        this.delta = delta;
+        this.quantity = quantity;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * Function to get name of the changed ingredient
+     * @return ingredient name
+     */
+    public String getIngredient() {
+        return this.ingredient;
+    }
+
+    /**
+     * Function to get change of quantity
+     * @return negative when ingredient was used, positive when it was refilled or put back
+     */
+    public int getDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Function to get quantity after the change
+     * As quantity is read after ingredient locks are released, a parallel change can already be included in it
+     * @return quantity after the change
+     */
+    public int getQuantity() {
+        return this.quantity;
+    }
+
+    /**
+     * Function to get time of the change
+     * @return time in milliseconds
+     */
+    public long getTimestampMillis() {
+        return this.timestampMillis;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockEvent.class.getSimpleName() + "[", "]")
+            .add("ingredient='" + ingredient + "'")
+            .add("delta=" + delta)
+            .add("quantity=" + quantity)
+            .add("timestampMillis=" + timestampMillis)
+            .toString();
+    }
+}
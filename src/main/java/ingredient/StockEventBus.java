@@ -0,0 +1,367 @@
+package ingredient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publish / subscribe stream of stock changes
+ * Threads changing stock only put an event into a bounded ring and return, a single delivery thread drains the ring
+ * and hands events to every subscriber in batches. The ring is a multi producer single consumer queue: producers claim
+ * a slot with a CAS on the tail and publish it by advancing the sequence of the slot, the consumer never takes a lock.
+ * When the ring is full the OverflowPolicy decides if the event is dropped or the producer waits for room
+ */
+public class StockEventBus {
+
+    /**
+     * What a producer does when the ring is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Event is dropped and counted, stock changes are never slowed down
+         */
+        DROP_NEWEST,
+        /**
+         * Producer waits until delivery thread makes room, no event is lost while the bus runs
+         */
+        BLOCK
+    }
+
+    /**
+     * Time the delivery thread sleeps when the ring is empty, it is woken up earlier by producers
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Time a blocked producer sleeps before looking for room again
+     */
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Events of the ring, slot of a position is index & mask
+     */
+    private final AtomicReferenceArray<StockEvent> events;
+
+    /**
+     * Sequence of every slot, equal to index when slot is free for that index and index + 1 when it holds its event
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Variable to store capacity - 1, capacity is a power of 2
+     */
+    private final int mask;
+
+    /**
+     * Next index to be claimed by a producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next index to be read by the delivery thread, only written by that thread
+     */
+    private volatile long head = 0;
+
+    /**
+     * Policy used when the ring is full
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Most events handed to subscribers in a single batch
+     */
+    private final int batchSize;
+
+    /**
+     * Subscribers receiving every batch
+     */
+    private final CopyOnWriteArrayList<StockEventSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Number of events dropped because the ring was full
+     */
+    private final LongAdder droppedEvents = new LongAdder();
+
+    /**
+     * Number of events handed to subscribers
+     */
+    private final AtomicLong deliveredEvents = new AtomicLong();
+
+    /**
+     * Number of batches on which a subscriber threw
+     */
+    private final AtomicLong subscriberErrors = new AtomicLong();
+
+    /**
+     * Thread delivering events, null when not started
+     */
+    private volatile Thread deliveryThread;
+
+    /**
+     * Variable to store if delivery thread is parked because the ring was empty
+     */
+    private volatile boolean idle = false;
+
+    /**
+     * Variable to store if the bus accepts and delivers events
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a bus with room for 8192 events which drops events when full
+     */
+    public StockEventBus() {
+        this(8192, 256, OverflowPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * Constructs a bus
+     * @param capacity room of the ring, rounded up to a power of 2
+     * @param batchSize most events handed to subscribers in a single batch
+     * @param overflowPolicy policy used when the ring is full
+     */
+    public StockEventBus(int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.batchSize = Math.max(1, batchSize);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Function to add a subscriber
+     * @param subscriber subscriber receiving every batch published from now on
+     */
+    public void subscribe(StockEventSubscriber subscriber) {
+        this.subscribers.add(subscriber);
+    }
+
+    /**
+     * Function to remove a subscriber
+     * @param subscriber subscriber to remove
+     * @return True if it was subscribed else False
+     */
+    public boolean unsubscribe(StockEventSubscriber subscriber) {
+        return this.subscribers.remove(subscriber);
+    }
+
+    /**
+     * Function to publish a stock change, called by threads changing stock
+     * It only enqueues the event, subscribers are called later on the delivery thread
+     * With BLOCK policy it should not be called by a subscriber, as delivery thread would wait for itself
+     * @param event change to publish
+     * @return True if event was enqueued else False when it was dropped or the bus is not running
+     */
+    public boolean publish(StockEvent event) {
+        if (!this.running) {
+            return false;
+        }
+        while (!offer(event)) {
+            if (this.overflowPolicy == OverflowPolicy.DROP_NEWEST || !this.running) {
+                this.droppedEvents.increment();
+                return false;
+            }
+            wakeDeliveryThread();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        if (this.idle) {
+            wakeDeliveryThread();
+        }
+        return true;
+    }
+
+    /**
+     * Function to put an event into the ring
+     * @param event event to enqueue
+     * @return True if enqueued else False when the ring is full
+     */
+    private boolean offer(StockEvent event) {
+        while (true) {
+            long index = this.tail.get();
+            int slot = (int) (index & this.mask);
+            long sequence = this.sequences.get(slot);
+            if (sequence == index) {
+                if (this.tail.compareAndSet(index, index + 1)) {
+                    this.events.lazySet(slot, event);
+                    this.sequences.set(slot, index + 1); // Publishes the event to the delivery thread
+                    return true;
+                }
+            } else if (sequence < index) {
+                return false; // Slot still holds an event of previous lap
+            }
+            // Else another producer claimed the index, try next one
+        }
+    }
+
+    /**
+     * Function to move up to batchSize events from the ring into given batch, called only by the delivery thread
+     * @param batch list to fill
+     * @return number of events moved
+     */
+    private int drain(List<StockEvent> batch) {
+        long index = this.head;
+        int drained = 0;
+        while (drained < this.batchSize) {
+            int slot = (int) (index & this.mask);
+            if (this.sequences.get(slot) != index + 1) {
+                break; // Slot is not yet published
+            }
+            batch.add(this.events.get(slot));
+            this.events.lazySet(slot, null);
+            this.sequences.set(slot, index + this.mask + 1); // Frees the slot for next lap
+            index++;
+            drained++;
+        }
+        this.head = index;
+        return drained;
+    }
+
+    /**
+     * Function to hand a batch to every subscriber
+     * A subscriber which throws does not stop the batch from reaching other subscribers
+     * @param batch events to hand over
+     */
+    private void deliver(List<StockEvent> batch) {
+        List<StockEvent> readOnly = Collections.unmodifiableList(batch);
+        for (StockEventSubscriber subscriber : this.subscribers) {
+            try {
+                subscriber.onStockEvents(readOnly);
+            } catch (RuntimeException e) {
+                this.subscriberErrors.incrementAndGet();
+            }
+        }
+        this.deliveredEvents.addAndGet(batch.size());
+    }
+
+    /**
+     * Function run by the delivery thread until the bus is stopped, events left in the ring are delivered before it ends
+     */
+    private void deliverEvents() {
+        List<StockEvent> batch = new ArrayList<>(this.batchSize);
+        while (true) {
+            batch.clear();
+            if (drain(batch) > 0) {
+                deliver(batch);
+                continue;
+            }
+            if (!this.running) {
+                return;
+            }
+            this.idle = true;
+            if (this.tail.get() == this.head && this.running) { // Check again so that a producer which missed idle is not left waiting
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            this.idle = false;
+        }
+    }
+
+    /**
+     * Function to wake the delivery thread up
+     */
+    private void wakeDeliveryThread() {
+        Thread thread = this.deliveryThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Function to start accepting and delivering events
+     */
+    public synchronized void start() {
+        if (this.deliveryThread != null) {
+            return;
+        }
+        this.running = true;
+        Thread thread = new Thread(this::deliverEvents, "stock-events");
+        thread.setDaemon(true);
+        this.deliveryThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Function to stop accepting events, events already accepted are delivered before it returns
+     * @throws InterruptedException when interrupted while waiting for delivery
+     */
+    public synchronized void stop() throws InterruptedException {
+        Thread thread = this.deliveryThread;
+        if (thread == null) {
+            return;
+        }
+        this.running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        this.deliveryThread = null;
+        // A producer which saw the bus running just before it stopped can enqueue after the last drain
+        List<StockEvent> batch = new ArrayList<>(this.batchSize);
+        while (drain(batch) > 0) {
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Function to get number of events waiting for delivery
+     * @return number of events in the ring
+     */
+    public int getPendingEvents() {
+        return (int) Math.max(0, this.tail.get() - this.head);
+    }
+
+    /**
+     * Function to get number of events dropped because the ring was full
+     * @return dropped events
+     */
+    public long getDroppedEvents() {
+        return this.droppedEvents.sum();
+    }
+
+    /**
+     * Function to get number of events handed to subscribers
+     * @return delivered events
+     */
+    public long getDeliveredEvents() {
+        return this.deliveredEvents.get();
+    }
+
+    /**
+     * Function to get number of batches on which a subscriber threw
+     * @return subscriber errors
+     */
+    public long getSubscriberErrors() {
+        return this.subscriberErrors.get();
+    }
+
+    /**
+     * Function to get capacity of the ring
+     * @return room for this many events
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockEventBus.class.getSimpleName() + "[", "]")
+            .add("capacity=" + getCapacity())
+            .add("overflowPolicy=" + overflowPolicy)
+            .add("pendingEvents=" + getPendingEvents())
+            .add("droppedEvents=" + getDroppedEvents())
+            .toString();
+    }
+}
@@ -0,0 +1,16 @@
+package ingredient;
+
+import java.util.List;
+
+/**
+ * Subscriber of StockEventBus, for eg inventory, billing or refill systems
+ * It is called on the delivery thread of the bus, never on the thread which changed the stock
+ */
+public interface StockEventSubscriber {
+
+    /**
+     * Function called with a batch of stock changes in order in which they were published
+     * @param events read only batch of events
+     */
+    void onStockEvents(List<StockEvent> events);
+}
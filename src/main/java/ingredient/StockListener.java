@@ -0,0 +1,18 @@
+package ingredient;
+
+/**
+ * Listener notified when stock of an ingredient crosses one of the evenly spaced levels of its max quantity
+ * For eg with 10 levels it is notified when an ingredient goes from 61% to 59% or is refilled from 5% to 100%
+ * It is called on the thread which changed the stock, after all the ingredient locks are released, so it should return quickly
+ */
+public interface StockListener {
+
+    /**
+     * Function called when stock of an ingredient crosses a level
+     * @param ingredient name of the ingredient
+     * @param quantity quantity after the change
+     * @param maxQuantity max quantity of the ingredient
+     * @param timestampMillis time of the change
+     */
+    void onLevelCrossed(String ingredient, int quantity, int maxQuantity, long timestampMillis);
+}
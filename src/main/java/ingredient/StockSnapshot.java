@@ -0,0 +1,91 @@
+package ingredient;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Quantity of every ingredient of a holder as of a single instant, see IngredientsHolder.getSnapshot
+ * Snapshot never changes after it is taken
+ */
+public class StockSnapshot {
+
+    /**
+     * Version of the stock at which snapshot was taken
+     */
+    private final long version;
+
+    /**
+     * Time at which snapshot was taken in milliseconds
+     */
+    private final long timestampMillis;
+
+    /**
+     * Map to store ingredient name -> available quantity
+     */
+    private final Map<String, Integer> quantities;
+
+    /**
+     * Map to store ingredient name -> max quantity
+     */
+    private final Map<String, Integer> maxQuantities;
+
+    /**
+     * Constructs a snapshot
+     * @param version version of the stock
+     * @param timestampMillis time at which snapshot was taken
+     * @param quantities ingredient name -> available quantity
+     * @param maxQuantities ingredient name -> max quantity
+     */
+    public StockSnapshot(long version, long timestampMillis, Map<String, Integer> quantities, Map<String, Integer> maxQuantities) {
+        this.version = version;
+        this.timestampMillis = timestampMillis;
+        this.quantities = Collections.unmodifiableMap(new TreeMap<>(quantities));
+        this.maxQuantities = Collections.unmodifiableMap(new TreeMap<>(maxQuantities));
+    }
+
+    /**
+     * Function to get version of the stock, two snapshots with same version have same quantities
+     * @return version of the stock
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Function to get time at which snapshot was taken
+     * @return time in milliseconds
+     */
+    public long getTimestampMillis() {
+        return this.timestampMillis;
+    }
+
+    /**
+     * Function to get available quantity of every ingredient
+     * @return read only map of ingredient name -> available quantity, sorted by name
+     */
+    public Map<String, Integer> getQuantities() {
+        return this.quantities;
+    }
+
+    /**
+     * Function to get max quantity of every ingredient
+     * @return read only map of ingredient name -> max quantity, sorted by name
+     */
+    public Map<String, Integer> getMaxQuantities() {
+        return this.maxQuantities;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", StockSnapshot.class.getSimpleName() + "[", "]")
+            .add("version=" + version)
+            .add("timestampMillis=" + timestampMillis)
+            .add("quantities=" + quantities)
+            .toString();
+    }
+}
@@ -0,0 +1,194 @@
+package ingredient;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel to expire a large number of timeouts
+ * Time is split in ticks and every timeout is put in the slot of its deadline tick, so scheduling and cancelling are O(1)
+ * Advancing the wheel only visits slots of elapsed ticks, timeouts which are due in a later round of the wheel stay in their slot
+ * This class is not thread safe, callers should guard it with their own lock
+ * @param <T> type of item attached to every timeout
+ */
+public class TimingWheel<T> {
+
+    /**
+     * Variable to store length of a tick in milliseconds
+     */
+    private final long tickMillis;
+
+    /**
+     * Sentinel node of every slot, slots are circular doubly linked lists
+     */
+    private final Timeout<T>[] slots;
+
+    /**
+     * Variable to store mask to get slot of a tick, number of slots is a power of two
+     */
+    private final int mask;
+
+    /**
+     * Variable to store time at which tick 0 starts
+     */
+    private final long startMillis;
+
+    /**
+     * Variable to store last tick which was advanced over
+     */
+    private long currentTick;
+
+    /**
+     * Variable to store number of scheduled timeouts
+     */
+    private int size = 0;
+
+    /**
+     * Constructs an empty wheel
+     * @param tickMillis length of a tick, timeouts expire up to one tick late
+     * @param wheelSize number of slots, rounded up to a power of two
+     * @param startMillis current time
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        int slotCount = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.slots = (Timeout<T>[]) new Timeout<?>[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            this.slots[i] = new Timeout<>(null, 0);
+        }
+        this.mask = slotCount - 1;
+        this.startMillis = startMillis;
+        this.currentTick = 0;
+    }
+
+    /**
+     * Function to schedule an item to expire at given time
+     * @param item item to expire
+     * @param deadlineMillis time at which item expires, Long.MAX_VALUE for an item which never expires in practice
+     * @return timeout which can be given to cancel
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        // Round up so an item never expires before its deadline, and never in a tick which is already advanced over
+        // Remainder is used instead of adding tickMillis - 1 so a far deadline does not overflow
+        long elapsedMillis = deadlineMillis - this.startMillis;
+        long deadlineTick = Math.max(this.currentTick + 1, elapsedMillis / this.tickMillis + (elapsedMillis % this.tickMillis > 0 ? 1 : 0));
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        Timeout<T> sentinel = this.slots[(int) (deadlineTick & this.mask)];
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+        this.size++;
+        return timeout;
+    }
+
+    /**
+     * Function to cancel a scheduled timeout
+     * @param timeout timeout returned by schedule
+     * @return True if timeout was cancelled else False when it already expired or was cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Function to advance the wheel to given time and expire all the due timeouts
+     * @param nowMillis current time
+     * @param expired callback receiving item of every expired timeout
+     * @return number of expired timeouts
+     */
+    public int advance(long nowMillis, Consumer<T> expired) {
+        long nowTick = (nowMillis - this.startMillis) / this.tickMillis;
+        if (nowTick <= this.currentTick) {
+            return 0;
+        }
+        // Once a whole round elapsed every slot is visited once, later ticks would visit the same slots again
+        long firstTick = Math.max(this.currentTick + 1, nowTick - this.mask);
+        int expiredCount = 0;
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            Timeout<T> sentinel = this.slots[(int) (tick & this.mask)];
+            Timeout<T> timeout = sentinel.next;
+            while (timeout != sentinel) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= nowTick) {
+                    unlink(timeout);
+                    expired.accept(timeout.item);
+                    expiredCount++;
+                }
+                timeout = next;
+            }
+        }
+        this.currentTick = nowTick;
+        return expiredCount;
+    }
+
+    /**
+     * Function to remove a timeout from its slot
+     * @param timeout timeout to remove
+     */
+    private void unlink(Timeout<T> timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        this.size--;
+    }
+
+    /**
+     * Function to get number of scheduled timeouts
+     * @return number of timeouts which are neither expired nor cancelled
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * A single scheduled item of the wheel
+     * @param <T> type of the item
+     */
+    public static final class Timeout<T> {
+
+        /**
+         * Item which expires
+         */
+        private final T item;
+
+        /**
+         * Tick at which item expires
+         */
+        private final long deadlineTick;
+
+        /**
+         * Previous timeout in the slot, null once timeout is removed
+         */
+        private Timeout<T> previous;
+
+        /**
+         * Next timeout in the slot, null once timeout is removed
+         */
+        private Timeout<T> next;
+
+        /**
+         * Constructs a timeout, a timeout with null item is the sentinel of a slot
+         * @param item item which expires
+         * @param deadlineTick tick at which item expires
+         */
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+            this.previous = this;
+            this.next = this;
+        }
+
+        /**
+         * Function to get item of the timeout
+         * @return item which expires
+         */
+        public T getItem() {
+            return this.item;
+        }
+    }
+}
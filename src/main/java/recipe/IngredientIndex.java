@@ -0,0 +1,104 @@
+package recipe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from an ingredient to the names of all the recipes which need it
+ * Index is only ever added to, same as recipes of a holder are never changed or removed
+ */
+public class IngredientIndex {
+
+    /**
+     * Map to store ingredient name -> names of recipes needing it
+     */
+    private final ConcurrentHashMap<String, Set<String>> recipesByIngredient = new ConcurrentHashMap<>();
+
+    /**
+     * Function to index every ingredient of a recipe
+     * @param recipe recipe to index
+     */
+    public void addRecipe(Recipe recipe) {
+        addRecipe(recipe.getName(), recipe.getIngredientNames());
+    }
+
+    /**
+     * Function to index every ingredient of a recipe which is not materialized
+     * @param recipe name of the recipe
+     * @param ingredients names of its ingredients
+     */
+    void addRecipe(String recipe, String[] ingredients) {
+        for (String ingredient : ingredients) {
+            this.recipesByIngredient.computeIfAbsent(ingredient, key -> ConcurrentHashMap.newKeySet()).add(recipe);
+        }
+    }
+
+    /**
+     * Function to get names of all the recipes needing an ingredient
+     * @param ingredient name of the ingredient
+     * @return read only view of recipe names, empty when no recipe needs the ingredient
+     */
+    public Set<String> getRecipesUsing(String ingredient) {
+        Set<String> recipes = this.recipesByIngredient.get(ingredient);
+        return recipes == null ? Collections.emptySet() : Collections.unmodifiableSet(recipes);
+    }
+
+    /**
+     * Function to get number of recipes needing an ingredient
+     * @param ingredient name of the ingredient
+     * @return number of recipes
+     */
+    public int getUsageCount(String ingredient) {
+        Set<String> recipes = this.recipesByIngredient.get(ingredient);
+        return recipes == null ? 0 : recipes.size();
+    }
+
+    /**
+     * Function to get every indexed ingredient
+     * @return read only view of ingredient names
+     */
+    public Set<String> getIngredients() {
+        return Collections.unmodifiableSet(this.recipesByIngredient.keySet());
+    }
+
+    /**
+     * Function to sort ingredients by number of recipes needing them
+     * @param usageCounts ingredient name -> number of recipes needing it
+     * @return ingredient names, most used first and same usage in alphabetical order
+     */
+    static List<String> sortByUsage(Map<String, Integer> usageCounts) {
+        List<String> ingredients = new ArrayList<>(usageCounts.keySet());
+        ingredients.sort((first, second) -> {
+            int compare = Integer.compare(usageCounts.get(second), usageCounts.get(first));
+            return compare != 0 ? compare : first.compareTo(second);
+        });
+        return ingredients;
+    }
+
+    /**
+     * Function to collect names of recipes needing any of given ingredients
+     * @param ingredients names of the ingredients
+     * @param recipes collection to add recipe names to
+     */
+    void collectRecipesUsing(Collection<String> ingredients, Collection<String> recipes) {
+        for (String ingredient : ingredients) {
+            recipes.addAll(getRecipesUsing(ingredient));
+        }
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", IngredientIndex.class.getSimpleName() + "[", "]")
+            .add("recipesByIngredient=" + recipesByIngredient)
+            .toString();
+    }
+}
@@ -0,0 +1,316 @@
+package recipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Preparation steps of a recipe with dependencies between them, forming a directed acyclic graph
+ * For eg heating water and frothing milk do not depend on each other and run in parallel, mixing waits for both
+ * Time to prepare an order is the critical path, longest chain of dependent steps, instead of sum of all the steps
+ */
+public class PreparationPlan {
+
+    /**
+     * Steps in topological order, every step comes after all the steps it depends on
+     */
+    private final PreparationStep[] steps;
+
+    /**
+     * Indexes in steps of dependencies of every step
+     */
+    private final int[][] dependencyIndexes;
+
+    /**
+     * Variable to store time of the longest chain of dependent steps in milliseconds
+     */
+    private final long criticalPathMillis;
+
+    /**
+     * Names of steps of the longest chain, in order they are done
+     */
+    private final List<String> criticalPath;
+
+    /**
+     * Variable to store time to do all the steps one after another in milliseconds
+     */
+    private final long sequentialMillis;
+
+    /**
+     * Constructs a plan of given steps
+     * @param steps steps of the plan in any order
+     * @throws Exception when names are repeated, a dependency is not a step of the plan or dependencies form a cycle
+     */
+    public PreparationPlan(List<PreparationStep> steps) throws Exception {
+        Map<String, PreparationStep> stepsByName = new HashMap<>();
+        long sequential = 0;
+        for (PreparationStep step : steps) {
+            if (stepsByName.put(step.getName(), step) != null) {
+                throw new Exception(String.format("Step %s is declared twice", step.getName()));
+            }
+            if (step.getDurationMillis() < 0) {
+                throw new Exception(String.format("Step %s should not take negative time", step.getName()));
+            }
+            sequential += step.getDurationMillis();
+        }
+
+        Map<String, Integer> order = new HashMap<>();
+        List<PreparationStep> sorted = new ArrayList<>(steps.size());
+        for (PreparationStep step : steps) {
+            sort(step, stepsByName, order, sorted, new LinkedHashSet<>());
+        }
+        this.steps = sorted.toArray(new PreparationStep[0]);
+        this.dependencyIndexes = new int[this.steps.length][];
+
+        // Earliest finish of every step, dependencies are always finished earlier in topological order
+        long[] finishMillis = new long[this.steps.length];
+        int[] slowestDependency = new int[this.steps.length];
+        int last = -1;
+        for (int i = 0; i < this.steps.length; i++) {
+            List<String> dependencies = this.steps[i].getDependencies();
+            this.dependencyIndexes[i] = new int[dependencies.size()];
+            slowestDependency[i] = -1;
+            long startMillis = 0;
+            for (int d = 0; d < dependencies.size(); d++) {
+                int dependency = order.get(dependencies.get(d));
+                this.dependencyIndexes[i][d] = dependency;
+                if (slowestDependency[i] < 0 || finishMillis[dependency] > startMillis) {
+                    startMillis = finishMillis[dependency];
+                    slowestDependency[i] = dependency;
+                }
+            }
+            finishMillis[i] = startMillis + this.steps[i].getDurationMillis();
+            if (last < 0 || finishMillis[i] > finishMillis[last]) {
+                last = i;
+            }
+        }
+        List<String> path = new ArrayList<>();
+        for (int i = last; i >= 0; i = slowestDependency[i]) {
+            path.add(this.steps[i].getName());
+        }
+        Collections.reverse(path);
+        this.criticalPath = Collections.unmodifiableList(path);
+        this.criticalPathMillis = last < 0 ? 0 : finishMillis[last];
+        this.sequentialMillis = sequential;
+    }
+
+    /**
+     * Function to put a step in topological order after all of its dependencies, depth first
+     * @param step step to sort
+     * @param stepsByName map of step name -> step
+     * @param order map of step name -> index of already sorted steps
+     * @param sorted steps sorted so far
+     * @param path steps being sorted on the way to this one, used to find cycles
+     * @throws Exception when a dependency is not a step of the plan or dependencies form a cycle
+     */
+    private static void sort(PreparationStep step, Map<String, PreparationStep> stepsByName, Map<String, Integer> order,
+                             List<PreparationStep> sorted, LinkedHashSet<String> path) throws Exception {
+        if (order.containsKey(step.getName())) {
+            return;
+        }
+        if (!path.add(step.getName())) {
+            StringJoiner cycle = new StringJoiner(" -> ");
+            boolean inCycle = false;
+            for (String name : path) {
+                inCycle = inCycle || name.equals(step.getName());
+                if (inCycle) {
+                    cycle.add(name);
+                }
+            }
+            throw new Exception(String.format("Step %s has a cycle of dependencies %s", step.getName(), cycle.add(step.getName())));
+        }
+        for (String dependency : step.getDependencies()) {
+            PreparationStep dependencyStep = stepsByName.get(dependency);
+            if (dependencyStep == null) {
+                throw new Exception(String.format("Step %s depends on %s which is not a known step", step.getName(), dependency));
+            }
+            sort(dependencyStep, stepsByName, order, sorted, path);
+        }
+        path.remove(step.getName());
+        order.put(step.getName(), sorted.size());
+        sorted.add(step);
+    }
+
+    /**
+     * Function to do all the steps, every step starts as soon as its dependencies are finished
+     * Independent steps run in parallel on given executor, a plan which is a single chain runs on the calling thread
+     * When a step fails or the caller is interrupted, steps which did not start are cancelled and running ones are
+     * interrupted before the failure is thrown, so no step of the order keeps running afterwards
+     * @param executor executor running steps in parallel
+     * @return time taken by all the steps in nanoseconds, close to the critical path
+     * @throws InterruptedException when interrupted while doing a step
+     */
+    public long execute(Executor executor) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        if (this.criticalPathMillis == this.sequentialMillis) {
+            for (PreparationStep step : this.steps) {
+                step.perform(); // Nothing can overlap, no need to hand steps over to other threads
+            }
+            return System.nanoTime() - startNanos;
+        }
+        Execution execution = new Execution(this.steps.length);
+        CompletableFuture<?>[] done = new CompletableFuture<?>[this.steps.length];
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        for (int i = 0; i < this.steps.length; i++) {
+            int index = i;
+            PreparationStep step = this.steps[i];
+            Runnable action = () -> execution.perform(index, step);
+            int[] dependencies = this.dependencyIndexes[i];
+            if (dependencies.length == 0) {
+                done[i] = CompletableFuture.runAsync(action, executor);
+            } else {
+                CompletableFuture<?>[] waitFor = new CompletableFuture<?>[dependencies.length];
+                for (int d = 0; d < dependencies.length; d++) {
+                    waitFor[d] = done[dependencies[d]];
+                }
+                done[i] = CompletableFuture.allOf(waitFor).thenRunAsync(action, executor);
+            }
+            done[i].whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    failure.completeExceptionally(throwable); // First failure ends the wait without waiting for siblings
+                }
+            });
+        }
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(done), failure).get();
+        } catch (InterruptedException e) {
+            execution.abort(done);
+            throw e;
+        } catch (ExecutionException e) {
+            execution.abort(done);
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Threads doing steps of a single execution of the plan, used to stop them once the execution is aborted
+     */
+    private static class Execution {
+
+        /**
+         * Thread doing every step, null while the step is not running
+         */
+        private final Thread[] workers;
+
+        /**
+         * Variable to store if execution was aborted, steps starting afterwards are not done
+         */
+        private boolean aborted = false;
+
+        /**
+         * Constructs an execution
+         * @param stepCount number of steps of the plan
+         */
+        Execution(int stepCount) {
+            this.workers = new Thread[stepCount];
+        }
+
+        /**
+         * Function to do a step on the current thread unless execution was aborted
+         * @param index index of the step
+         * @param step step to do
+         */
+        void perform(int index, PreparationStep step) {
+            synchronized (this) {
+                if (this.aborted) {
+                    throw new CancellationException("Preparation was aborted");
+                }
+                this.workers[index] = Thread.currentThread();
+            }
+            try {
+                step.perform();
+            } catch (InterruptedException e) {
+                throw new CompletionException(e);
+            } finally {
+                synchronized (this) {
+                    this.workers[index] = null;
+                    Thread.interrupted(); // Interrupts are sent only under this lock, so none is left for the next task
+                }
+            }
+        }
+
+        /**
+         * Function to cancel steps which did not start and interrupt steps which are running
+         * @param done futures of all the steps
+         */
+        void abort(CompletableFuture<?>[] done) {
+            synchronized (this) {
+                this.aborted = true;
+                for (Thread worker : this.workers) {
+                    if (worker != null) {
+                        worker.interrupt();
+                    }
+                }
+            }
+            for (CompletableFuture<?> future : done) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Function to get steps of the plan
+     * @return steps in topological order
+     */
+    public List<PreparationStep> getSteps() {
+        List<PreparationStep> stepList = new ArrayList<>(this.steps.length);
+        Collections.addAll(stepList, this.steps);
+        return stepList;
+    }
+
+    /**
+     * Function to get time of the longest chain of dependent steps, least time an order of the recipe takes
+     * @return critical path in milliseconds
+     */
+    public long getCriticalPathMillis() {
+        return this.criticalPathMillis;
+    }
+
+    /**
+     * Function to get steps of the longest chain of dependent steps
+     * @return names of the steps in order they are done
+     */
+    public List<String> getCriticalPath() {
+        return this.criticalPath;
+    }
+
+    /**
+     * Function to get time to do all the steps one after another, as a single synchronous step would
+     * @return sum of durations of all the steps in milliseconds
+     */
+    public long getSequentialMillis() {
+        return this.sequentialMillis;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", PreparationPlan.class.getSimpleName() + "[", "]")
+            .add("criticalPath=" + criticalPath)
+            .add("criticalPathMillis=" + criticalPathMillis)
+            .add("sequentialMillis=" + sequentialMillis)
+            .toString();
+    }
+}
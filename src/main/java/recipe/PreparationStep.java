@@ -0,0 +1,85 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single step of preparing a recipe, for eg heating water or frothing milk
+ * A step can start only after all the steps it depends on are finished, see PreparationPlan
+ */
+public class PreparationStep {
+
+    /**
+     * Variable to hold name of the step
+     */
+    private final String name;
+
+    /**
+     * Variable to store how long the step takes in milliseconds
+     */
+    private final long durationMillis;
+
+    /**
+     * Names of steps which should be finished before this step starts
+     */
+    private final List<String> dependencies;
+
+    /**
+     * Constructs a new step
+     * @param name step's name, unique within a recipe
+     * @param durationMillis how long the step takes
+     * @param dependencies names of steps which should be finished before this step starts
+     */
+    public PreparationStep(String name, long durationMillis, String... dependencies) {
+        this.name = name;
+        this.durationMillis = durationMillis;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies.clone()));
+    }
+
+    /**
+     * Function to get name of the step
+     * @return name of the step
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Function to get how long the step takes
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return this.durationMillis;
+    }
+
+    /**
+     * Function to get steps which should be finished before this step starts
+     * @return names of the steps
+     */
+    public List<String> getDependencies() {
+        return this.dependencies;
+    }
+
+    /**
+     * Function to do the step, the outlet resource doing it is busy for its duration
+     * @throws InterruptedException when interrupted while doing the step
+     */
+    void perform() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(this.durationMillis);
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", PreparationStep.class.getSimpleName() + "[", "]")
+            .add("name='" + name + "'")
+            .add("durationMillis=" + durationMillis)
+            .add("dependencies=" + dependencies)
+            .toString();
+    }
+}
@@ -1,7 +1,12 @@
 package recipe;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
 import javafx.util.Pair;
 
@@ -18,20 +23,109 @@ public class Recipe {
 
     /**
      * List to hold required ingredients
+     * It is built from the arrays on first use, so recipes which are only brewed never pay for it
      */
-    private final List<RecipeIngredient> ingredients;
+    private volatile List<RecipeIngredient> ingredients;
+
+    /**
+     * Names of required ingredients, in same order as ingredients
+     */
+    private final String[] ingredientNames;
+
+    /**
+     * Required quantities of ingredients, in same order as ingredients
+     */
+    private final int[] requiredQuantities;
+
+    /**
+     * Steps to prepare the recipe with dependencies between them, null when it is prepared as one instant step
+     */
+    private final PreparationPlan preparationPlan;
+
+    /**
+     * Map to store name of another recipe used as component -> portions of it, empty for a flat recipe
+     * A machine flattens components into raw ingredients when the recipe is added, see RecipeComposer
+     */
+    private final Map<String, Integer> components;
 
     /**
      * Construct a new Recipe with a given name and ingredients
+     * Adapter over the primitive constructor, kept for callers building Pair lists
      * @param name recipe's name
      * @param ingredients required ingredients
      */
     public Recipe(String name, List<Pair<String, Integer>> ingredients) {
+        this(name, getNames(ingredients), getQuantities(ingredients), ingredients.size());
+    }
+
+    /**
+     * Construct a new Recipe with a given name and ingredients stored in parallel arrays
+     * Only first count entries of the arrays are used and they are copied so caller can reuse them
+     * @param name recipe's name
+     * @param ingredientNames names of required ingredients
+     * @param requiredQuantities required quantity of every ingredient
+     * @param count number of ingredients
+     */
+    public Recipe(String name, String[] ingredientNames, int[] requiredQuantities, int count) {
+        this(name, ingredientNames, requiredQuantities, count, null);
+    }
+
+    /**
+     * Construct a new Recipe with a given name, ingredients stored in parallel arrays and steps to prepare it
+     * Only first count entries of the arrays are used and they are copied so caller can reuse them
+     * @param name recipe's name
+     * @param ingredientNames names of required ingredients
+     * @param requiredQuantities required quantity of every ingredient
+     * @param count number of ingredients
+     * @param preparationPlan preparation plan, null to prepare recipe as one instant step
+     */
+    public Recipe(String name, String[] ingredientNames, int[] requiredQuantities, int count, PreparationPlan preparationPlan) {
+        this(name, ingredientNames, requiredQuantities, count, preparationPlan, Collections.emptyMap());
+    }
+
+    /**
+     * Construct a new composite Recipe which also uses portions of other recipes
+     * Only first count entries of the arrays are used, arrays and components are copied so caller can reuse them
+     * @param name recipe's name
+     * @param ingredientNames names of own required ingredients
+     * @param requiredQuantities required quantity of every own ingredient
+     * @param count number of own ingredients
+     * @param preparationPlan preparation plan, null to prepare recipe as one instant step
+     * @param components name of another recipe -> portions of it, empty for a flat recipe
+     */
+    public Recipe(String name, String[] ingredientNames, int[] requiredQuantities, int count, PreparationPlan preparationPlan,
+                  Map<String, Integer> components) {
         this.name = name;
-        this.ingredients = new ArrayList<>();
-        for (Pair<String, Integer> ingredient : ingredients) {
-            this.ingredients.add(new RecipeIngredient(ingredient.getKey(), ingredient.getValue()));
+        this.ingredientNames = Arrays.copyOf(ingredientNames, count);
+        this.requiredQuantities = Arrays.copyOf(requiredQuantities, count);
+        this.preparationPlan = preparationPlan;
+        this.components = components.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(components));
+    }
+
+    /**
+     * Function to get ingredient names from Pair list
+     * @param ingredients required ingredients
+     * @return names of the ingredients
+     */
+    private static String[] getNames(List<Pair<String, Integer>> ingredients) {
+        String[] names = new String[ingredients.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = ingredients.get(i).getKey();
         }
+        return names;
+    }
+
+    /**
+     * Function to get required quantities from Pair list
+     * @param ingredients required ingredients
+     * @return quantities of the ingredients
+     */
+    private static int[] getQuantities(List<Pair<String, Integer>> ingredients) {
+        int[] quantities = new int[ingredients.size()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = ingredients.get(i).getValue();
+        }
+        return quantities;
     }
 
     /**
@@ -39,7 +133,94 @@ public class Recipe {
      * @return list of ingredients
      */
     public List<RecipeIngredient> getIngredients() {
-        return this.ingredients;
+        List<RecipeIngredient> ingredients = this.ingredients;
+        if (ingredients == null) {
+            // Parallel callers can build it twice which is harmless because both lists are equal
+            List<RecipeIngredient> built = new ArrayList<>(this.ingredientNames.length);
+            for (int i = 0; i < this.ingredientNames.length; i++) {
+                built.add(new RecipeIngredient(this.ingredientNames[i], this.requiredQuantities[i]));
+            }
+            ingredients = Collections.unmodifiableList(built);
+            this.ingredients = ingredients;
+        }
+        return ingredients;
+    }
+
+    /**
+     * Function to get names of all the required ingredients
+     * Returned array is shared and should not be modified
+     * @return ingredient names in same order as getIngredients
+     */
+    public String[] getIngredientNames() {
+        return this.ingredientNames;
+    }
+
+    /**
+     * Function to get required quantities of all the ingredients
+     * Returned array is shared and should not be modified
+     * @return required quantities in same order as getIngredients
+     */
+    public int[] getRequiredQuantities() {
+        return this.requiredQuantities;
+    }
+
+    /**
+     * Function to get steps to prepare the recipe
+     * @return preparation plan, null when recipe is prepared as one instant step
+     */
+    public PreparationPlan getPreparationPlan() {
+        return this.preparationPlan;
+    }
+
+    /**
+     * Function to get other recipes used as components, they are not part of getIngredients until recipe is flattened
+     * @return unmodifiable map of recipe name -> portions in order they were added, empty for a flat recipe
+     */
+    public Map<String, Integer> getComponents() {
+        return this.components;
+    }
+
+    /**
+     * Function to check if recipe uses other recipes and has to be flattened before it can be brewed
+     * @return True if recipe has components else False
+     */
+    public boolean isComposite() {
+        return !this.components.isEmpty();
+    }
+
+    /**
+     * Function to get a copy of the recipe with other steps to prepare it, recipe itself is never changed because it
+     * can be shared by many machines through a RecipeCatalog
+     * @param preparationPlan preparation plan, null to prepare recipe as one instant step
+     * @return new Recipe with same name, ingredients and components
+     */
+    public Recipe withPreparationPlan(PreparationPlan preparationPlan) {
+        return new Recipe(this.name, this.ingredientNames, this.requiredQuantities, this.ingredientNames.length, preparationPlan, this.components);
+    }
+
+    /**
+     * Function to check if other recipe requires exactly same ingredients in same quantities
+     * Order in which ingredients are listed does not matter
+     * @param other recipe to compare with
+     * @return True if both recipes require same ingredients else False
+     */
+    public boolean hasSameIngredients(Recipe other) {
+        if (other.ingredientNames.length != this.ingredientNames.length) {
+            return false;
+        }
+        Map<String, Integer> required = new HashMap<>();
+        for (int i = 0; i < this.ingredientNames.length; i++) {
+            required.merge(this.ingredientNames[i], this.requiredQuantities[i], Integer::sum);
+        }
+        for (int i = 0; i < other.ingredientNames.length; i++) {
+            required.merge(other.ingredientNames[i], -other.requiredQuantities[i], Integer::sum);
+        }
+        for (int difference : required.values()) {
+            if (difference != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -57,7 +238,7 @@ public class Recipe {
     public String toString() {
         return new StringJoiner(", ", Recipe.class.getSimpleName() + "[", "]")
             .add("name='" + name + "'")
-            .add("ingredients=" + ingredients)
+            .add("ingredients=" + getIngredients())
             .toString();
     }
 
@@ -0,0 +1,108 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fluent builder to create a Recipe without boxing quantities or allocating a Pair per ingredient
+ * For eg new RecipeBuilder("hot_tea", 2).addIngredient("hot_water", 200).addIngredient("tea_leaves_syrup", 30).build()
+ * Portions of other recipes can be added with addComponent, the machine flattens them when the recipe is added
+ */
+public class RecipeBuilder {
+
+    /**
+     * Variable to hold name of the recipe
+     */
+    private final String name;
+
+    /**
+     * Names of ingredients added so far
+     */
+    private String[] ingredientNames;
+
+    /**
+     * Quantities of ingredients added so far
+     */
+    private int[] requiredQuantities;
+
+    /**
+     * Variable to store number of ingredients added so far
+     */
+    private int count = 0;
+
+    /**
+     * Steps to prepare the recipe, null when it is prepared as one instant step
+     */
+    private PreparationPlan preparationPlan;
+
+    /**
+     * Map to store name of another recipe used as component -> portions of it
+     */
+    private final Map<String, Integer> components = new LinkedHashMap<>();
+
+    /**
+     * Constructs a builder for a recipe with given name
+     * @param name recipe's name
+     */
+    public RecipeBuilder(String name) {
+        this(name, 8);
+    }
+
+    /**
+     * Constructs a builder presized for given number of ingredients
+     * @param name recipe's name
+     * @param expectedIngredients number of ingredients the recipe is expected to have
+     */
+    public RecipeBuilder(String name, int expectedIngredients) {
+        this.name = name;
+        this.ingredientNames = new String[Math.max(1, expectedIngredients)];
+        this.requiredQuantities = new int[this.ingredientNames.length];
+    }
+
+    /**
+     * Function to add a required ingredient
+     * @param ingredient name of the ingredient
+     * @param quantity required quantity of the ingredient
+     * @return this builder
+     */
+    public RecipeBuilder addIngredient(String ingredient, int quantity) {
+        if (this.count == this.ingredientNames.length) {
+            this.ingredientNames = Arrays.copyOf(this.ingredientNames, this.count * 2);
+            this.requiredQuantities = Arrays.copyOf(this.requiredQuantities, this.count * 2);
+        }
+        this.ingredientNames[this.count] = ingredient;
+        this.requiredQuantities[this.count] = quantity;
+        this.count++;
+        return this;
+    }
+
+    /**
+     * Function to make the recipe use portions of another recipe, for eg a base which cannot be ordered on its own
+     * @param component name of the recipe used as component
+     * @param portions how many times quantities of the component are needed
+     * @return this builder
+     */
+    public RecipeBuilder addComponent(String component, int portions) {
+        this.components.merge(component, portions, Integer::sum);
+        return this;
+    }
+
+    /**
+     * Function to set steps to prepare the recipe
+     * @param preparationPlan preparation plan, null to prepare recipe as one instant step
+     * @return this builder
+     */
+    public RecipeBuilder setPreparationPlan(PreparationPlan preparationPlan) {
+        this.preparationPlan = preparationPlan;
+        return this;
+    }
+
+    /**
+     * Function to create the recipe, builder can be used again afterwards
+     * @return new Recipe with all the added ingredients and components
+     */
+    public Recipe build() {
+        return new Recipe(this.name, this.ingredientNames, this.requiredQuantities, this.count, this.preparationPlan, this.components);
+    }
+}
@@ -0,0 +1,187 @@
+package recipe;
+
+import java.util.Iterator;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size bounded cache of materialized recipes of a lazy RecipeHolder, every recipe is kept with its state on the machine
+ * It approximates least recently used eviction with the clock algorithm: a hit only sets a flag of the entry, so
+ * lookups never take a lock or reorder anything, and when the cache grows too big a hand sweeps over entries,
+ * clearing flags and evicting the first entry whose flag is already clear
+ */
+class RecipeCache {
+
+    /**
+     * Most recipes kept, 0 or less keeps every materialized recipe
+     */
+    private final int maxRecipes;
+
+    /**
+     * Map to store recipe name -> cached entry
+     */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Lock to let a single thread evict at a time
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Clock hand, position of the sweep over entries, guarded by evictionLock
+     */
+    private Iterator<Entry> hand;
+
+    /**
+     * Number of lookups which found a recipe
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of lookups which did not find a recipe
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Cached recipe state with its reference flag
+     */
+    private static class Entry {
+
+        /**
+         * Cached recipe state
+         */
+        final RecipeState state;
+
+        /**
+         * Variable to store if recipe was used since the hand last passed it
+         */
+        volatile boolean referenced = true;
+
+        /**
+         * Constructs an entry
+         * @param state recipe state to cache
+         */
+        Entry(RecipeState state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * Constructs a cache
+     * @param maxRecipes most recipes kept, 0 or less keeps every materialized recipe
+     */
+    RecipeCache(int maxRecipes) {
+        this.maxRecipes = maxRecipes;
+    }
+
+    /**
+     * Function to get a cached recipe
+     * @param name name of the recipe
+     * @return cached recipe state, null when it is not cached
+     */
+    RecipeState get(String name) {
+        Entry entry = this.entries.get(name);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        if (!entry.referenced) {
+            entry.referenced = true; // Skip the write when flag is already set, so hot entries stay in shared cache lines
+        }
+        return entry.state;
+    }
+
+    /**
+     * Function to cache a recipe unless another thread cached one with same name first
+     * @param state recipe state to cache
+     * @return recipe state which is cached now, callers should use it instead of the given one
+     */
+    RecipeState putIfAbsent(RecipeState state) {
+        Entry existing = this.entries.putIfAbsent(state.getRecipe().getName(), new Entry(state));
+        if (existing != null) {
+            existing.referenced = true;
+            return existing.state;
+        }
+        if (this.maxRecipes > 0 && this.entries.size() > this.maxRecipes) {
+            evict();
+        }
+        return state;
+    }
+
+    /**
+     * Function to evict entries until cache is within its bound
+     * A thread which finds another thread evicting leaves the work to it
+     */
+    private void evict() {
+        if (!this.evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (this.entries.size() > this.maxRecipes) {
+                if (this.hand == null || !this.hand.hasNext()) {
+                    this.hand = this.entries.values().iterator(); // Wrap around
+                    if (!this.hand.hasNext()) {
+                        return;
+                    }
+                }
+                Entry entry = this.hand.next();
+                if (entry.referenced) {
+                    entry.referenced = false; // Second chance
+                } else {
+                    this.entries.remove(entry.state.getRecipe().getName(), entry);
+                }
+            }
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Function to check if a recipe is cached, unlike get it does not count as a use of the recipe
+     * @param name name of the recipe
+     * @return True if recipe is cached else False
+     */
+    boolean contains(String name) {
+        return this.entries.containsKey(name);
+    }
+
+    /**
+     * Function to get number of cached recipes
+     * @return cached recipes
+     */
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Function to get number of lookups which found a recipe
+     * @return hits
+     */
+    long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Function to get number of lookups which did not find a recipe
+     * @return misses
+     */
+    long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeCache.class.getSimpleName() + "[", "]")
+            .add("maxRecipes=" + maxRecipes)
+            .add("size=" + size())
+            .add("hits=" + getHits())
+            .add("misses=" + getMisses())
+            .toString();
+    }
+}
@@ -0,0 +1,153 @@
+package recipe;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Immutable collection of recipes which can be shared by any number of machines in one JVM
+ * Recipe and ingredient names are interned within the catalog so that every machine refers to the same String objects
+ * Machines keep only their stock, recipes referenced from a catalog are never copied per machine
+ */
+public class RecipeCatalog {
+
+    /**
+     * Map to store canonical instance of every recipe and ingredient name of this catalog
+     * Built once with the catalog and never grown, so names go away together with the catalog
+     */
+    private final Map<String, String> names = new HashMap<>();
+
+    /**
+     * Map to store all the recipes in form of (name -> Recipe)
+     */
+    private final Map<String, Recipe> recipes;
+
+    /**
+     * Index of ingredient -> recipes needing it, built once with the catalog
+     */
+    private final IngredientIndex ingredientIndex = new IngredientIndex();
+
+    /**
+     * Constructs a catalog with given recipes
+     * Recipes are copied with interned names, if same name is given twice the first recipe is kept
+     * Composite recipes are flattened, their components can be other recipes of the catalog
+     * @param recipes recipes of the catalog
+     * @throws IllegalArgumentException when a composite recipe cannot be flattened
+     */
+    public RecipeCatalog(Collection<Recipe> recipes) {
+        Map<String, Recipe> catalog = new HashMap<>(Math.max(16, recipes.size() * 2));
+        RecipeComposer recipeComposer = null;
+        for (Recipe recipe : recipes) {
+            if (recipe.isComposite()) {
+                recipeComposer = getComposer(recipes);
+                break;
+            }
+        }
+        for (Recipe given : recipes) {
+            if (catalog.containsKey(given.getName())) {
+                continue;
+            }
+            Recipe recipe = given;
+            if (recipe.isComposite()) {
+                try {
+                    recipe = recipeComposer.compose(recipe.getName());
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+            }
+            String[] ingredientNames = recipe.getIngredientNames().clone();
+            for (int i = 0; i < ingredientNames.length; i++) {
+                ingredientNames[i] = add(ingredientNames[i]);
+            }
+            Recipe canonical = new Recipe(add(recipe.getName()), ingredientNames, recipe.getRequiredQuantities(), ingredientNames.length,
+                recipe.getPreparationPlan());
+            catalog.putIfAbsent(canonical.getName(), canonical);
+        }
+        this.recipes = Collections.unmodifiableMap(catalog);
+        for (Recipe recipe : this.recipes.values()) {
+            this.ingredientIndex.addRecipe(recipe);
+        }
+    }
+
+    /**
+     * Function to get a composer of given recipes, if same name is given twice the first recipe is kept
+     * @param recipes recipes of the catalog
+     * @return RecipeComposer with all the recipes
+     */
+    private static RecipeComposer getComposer(Collection<Recipe> recipes) {
+        RecipeComposer recipeComposer = new RecipeComposer();
+        Map<String, Recipe> first = new HashMap<>();
+        for (Recipe recipe : recipes) {
+            if (first.putIfAbsent(recipe.getName(), recipe) == null) {
+                recipeComposer.addRecipe(recipe);
+            }
+        }
+        return recipeComposer;
+    }
+
+    /**
+     * Function to get canonical instance of a recipe or ingredient name of the catalog
+     * Names the catalog does not know are not remembered, so interning never grows the catalog
+     * @param name name to intern
+     * @return shared String equal to name, name itself when catalog does not have it
+     */
+    public String intern(String name) {
+        String canonical = this.names.get(name);
+        return canonical == null ? name : canonical;
+    }
+
+    /**
+     * Function to get canonical instance of a name while the catalog is built, remembering names seen first time
+     * @param name name to intern
+     * @return shared String equal to name
+     */
+    private String add(String name) {
+        String canonical = this.names.putIfAbsent(name, name);
+        return canonical == null ? name : canonical;
+    }
+
+    /**
+     * Function to get a particular recipe
+     * @param name name of the recipe to fetch
+     * @return Recipe object, null when catalog does not have it
+     */
+    public Recipe getRecipe(String name) {
+        return this.recipes.get(name);
+    }
+
+    /**
+     * Function to get all the recipes of the catalog
+     * @return read only view of all the recipes
+     */
+    public Collection<Recipe> getRecipes() {
+        return this.recipes.values();
+    }
+
+    /**
+     * Function to get index of ingredient -> recipes needing it
+     * @return index of all the recipes of the catalog
+     */
+    public IngredientIndex getIngredientIndex() {
+        return this.ingredientIndex;
+    }
+
+    /**
+     * Function to get total recipes available in the catalog
+     * @return total number of recipes
+     */
+    public int getTotalRecipes() {
+        return this.recipes.size();
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeCatalog.class.getSimpleName() + "[", "]")
+            .add("recipes=" + recipes)
+            .toString();
+    }
+}
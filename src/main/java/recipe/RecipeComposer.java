@@ -0,0 +1,207 @@
+package recipe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * Class to flatten composite recipes into plain recipes before they reach a machine
+ * A recipe can use portions of other recipes as components, for eg a masala_tea made of a tea_base and ginger_syrup.
+ * Components are resolved once, when recipes are composed, into a single merged list of raw ingredients,
+ * so brewing a composite recipe costs exactly the same as brewing a plain one
+ * Components can be nested, a cycle of components is reported as an error
+ * A machine composes every recipe it is given, components which were not added are looked up in its flat recipes
+ */
+public class RecipeComposer {
+
+    /**
+     * Function to look up a flat recipe by name when it was not added to the composer, returns null when not known
+     */
+    private final Function<String, Recipe> knownRecipes;
+
+    /**
+     * Map to store recipe name -> recipe with its own raw ingredients
+     */
+    private final Map<String, Recipe> recipes = new LinkedHashMap<>();
+
+    /**
+     * Map to store recipe name -> (component name -> portions)
+     */
+    private final Map<String, LinkedHashMap<String, Integer>> components = new HashMap<>();
+
+    /**
+     * Map to store recipe name -> already flattened recipe
+     */
+    private final Map<String, Recipe> flattened = new HashMap<>();
+
+    /**
+     * Constructs a composer which knows only recipes added to it
+     */
+    public RecipeComposer() {
+        this(name -> null);
+    }
+
+    /**
+     * Constructs a composer which can also use already flat recipes as components, for eg recipes of a machine
+     * @param knownRecipes function to get a flat recipe by name, returning null when recipe is not known
+     */
+    public RecipeComposer(Function<String, Recipe> knownRecipes) {
+        this.knownRecipes = knownRecipes;
+    }
+
+    /**
+     * Function to add a recipe with its own raw ingredients, components can be added to it afterwards
+     * Components of a composite recipe are added along with it
+     * @param recipe recipe to add, a recipe with same name is replaced
+     * @return this composer
+     */
+    public RecipeComposer addRecipe(Recipe recipe) {
+        this.recipes.put(recipe.getName(), recipe);
+        if (recipe.isComposite()) {
+            this.components.put(recipe.getName(), new LinkedHashMap<>(recipe.getComponents()));
+        }
+        this.flattened.clear();
+        return this;
+    }
+
+    /**
+     * Function to add a recipe whose name should not be taken yet, for eg to keep a base and a beverage apart
+     * @param recipe recipe to add
+     * @return this composer
+     * @throws Exception when a recipe with same name was already added
+     */
+    public RecipeComposer addUniqueRecipe(Recipe recipe) throws Exception {
+        if (this.recipes.containsKey(recipe.getName())) {
+            throw new Exception(String.format("Recipe %s is declared twice", recipe.getName()));
+        }
+        return addRecipe(recipe);
+    }
+
+    /**
+     * Function to make a recipe use portions of another recipe
+     * A recipe which was not added gets no raw ingredients of its own, for eg a beverage made only of bases
+     * @param recipe name of the composite recipe
+     * @param component name of the recipe used as component
+     * @param portions how many times quantities of the component are needed
+     * @return this composer
+     */
+    public RecipeComposer addComponent(String recipe, String component, int portions) {
+        if (!this.recipes.containsKey(recipe)) {
+            this.recipes.put(recipe, new RecipeBuilder(recipe, 1).build());
+        }
+        this.components.computeIfAbsent(recipe, key -> new LinkedHashMap<>()).merge(component, portions, Integer::sum);
+        this.flattened.clear();
+        return this;
+    }
+
+    /**
+     * Function to get a recipe with all of its components replaced by their raw ingredients
+     * Quantities of an ingredient needed by the recipe and by its components are merged into one entry,
+     * own ingredients come first followed by new ingredients of components in order of components
+     * @param name name of the recipe
+     * @return flat Recipe, same object as added when the recipe has no components
+     * @throws Exception when a recipe is not known, components form a cycle or a quantity is not valid
+     */
+    public Recipe compose(String name) throws Exception {
+        return flatten(name, new LinkedHashSet<>());
+    }
+
+    /**
+     * Function to flatten every added recipe
+     * @return flat recipes in order in which they were added
+     * @throws Exception when a recipe is not known, components form a cycle or a quantity is not valid
+     */
+    public List<Recipe> composeAll() throws Exception {
+        List<Recipe> composed = new ArrayList<>(this.recipes.size());
+        for (String name : this.recipes.keySet()) {
+            composed.add(compose(name));
+        }
+        return composed;
+    }
+
+    /**
+     * Function to flatten a recipe, depth first through its components
+     * @param name name of the recipe
+     * @param path recipes being flattened on the way to this one, used to find cycles
+     * @return flat Recipe
+     * @throws Exception when a recipe is not known, components form a cycle or a quantity is not valid
+     */
+    private Recipe flatten(String name, LinkedHashSet<String> path) throws Exception {
+        Recipe done = this.flattened.get(name);
+        if (done != null) {
+            return done;
+        }
+        Recipe recipe = this.recipes.get(name);
+        if (recipe == null) {
+            recipe = this.knownRecipes.apply(name);
+        }
+        if (recipe == null) {
+            throw new Exception(String.format("%s is not a known recipe", name));
+        }
+        if (!path.add(name)) {
+            StringJoiner cycle = new StringJoiner(" -> ");
+            boolean inCycle = false;
+            for (String step : path) {
+                inCycle = inCycle || step.equals(name);
+                if (inCycle) {
+                    cycle.add(step);
+                }
+            }
+            throw new Exception(String.format("Recipe %s has a cycle of components %s", name, cycle.add(name)));
+        }
+
+        Map<String, Integer> recipeComponents = this.components.get(name);
+        Recipe flat = recipe;
+        if (recipeComponents != null) {
+            Map<String, Long> quantities = new LinkedHashMap<>();
+            addQuantities(quantities, recipe, 1);
+            for (Map.Entry<String, Integer> component : recipeComponents.entrySet()) {
+                if (component.getValue() <= 0) {
+                    throw new Exception(String.format("Recipe %s needs a positive number of portions of %s", name, component.getKey()));
+                }
+                addQuantities(quantities, flatten(component.getKey(), path), component.getValue());
+            }
+            RecipeBuilder recipeBuilder = new RecipeBuilder(name, quantities.size()).setPreparationPlan(recipe.getPreparationPlan());
+            for (Map.Entry<String, Long> quantity : quantities.entrySet()) {
+                if (quantity.getValue() > Integer.MAX_VALUE) {
+                    throw new Exception(String.format("Recipe %s needs too much %s", name, quantity.getKey()));
+                }
+                recipeBuilder.addIngredient(quantity.getKey(), quantity.getValue().intValue());
+            }
+            flat = recipeBuilder.build();
+        }
+        path.remove(name);
+        this.flattened.put(name, flat);
+        return flat;
+    }
+
+    /**
+     * Function to add portions of quantities of a flat recipe to merged quantities
+     * @param quantities merged quantities of ingredient name -> quantity
+     * @param recipe flat recipe
+     * @param portions how many times quantities of the recipe are needed
+     */
+    private static void addQuantities(Map<String, Long> quantities, Recipe recipe, int portions) {
+        String[] names = recipe.getIngredientNames();
+        int[] required = recipe.getRequiredQuantities();
+        for (int i = 0; i < names.length; i++) {
+            quantities.merge(names[i], (long) required[i] * portions, Long::sum);
+        }
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeComposer.class.getSimpleName() + "[", "]")
+            .add("recipes=" + recipes.keySet())
+            .add("components=" + components)
+            .toString();
+    }
+}
@@ -0,0 +1,16 @@
+package recipe;
+
+/**
+ * Function receiving a recipe as its raw parts, see RecipeHolder.forEachRecipe
+ * Lets callers walk a huge catalog without a Recipe object being created for every definition
+ */
+public interface RecipeConsumer {
+
+    /**
+     * Function to receive a single recipe, arrays can be shared and should not be modified or kept
+     * @param name recipe's name
+     * @param ingredientNames names of required ingredients
+     * @param requiredQuantities required quantity of every ingredient
+     */
+    void accept(String name, String[] ingredientNames, int[] requiredQuantities);
+}
@@ -0,0 +1,201 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.StringJoiner;
+import javafx.util.Pair;
+
+/**
+ * Compact store of raw recipe definitions for huge catalogs, see lazy RecipeHolder
+ * Instead of a Recipe object per definition, all the definitions share a few flat arrays: ingredient names are stored
+ * once in a dictionary and every definition is a range of (ingredient id, quantity) entries
+ * A Recipe is only created when a definition is materialized, for eg on its first order
+ * Definitions are only added, it should be filled before it is given to a RecipeHolder
+ */
+public class RecipeDefinitions {
+
+    /**
+     * Names of all the definitions, in order of their ids
+     */
+    private String[] recipeNames = new String[16];
+
+    /**
+     * Start of entries of every definition, entries of definition i end where entries of i + 1 start
+     */
+    private int[] offsets = new int[17];
+
+    /**
+     * Ingredient id of every entry
+     */
+    private int[] entryIngredients = new int[64];
+
+    /**
+     * Quantity of every entry
+     */
+    private int[] entryQuantities = new int[64];
+
+    /**
+     * Variable to store number of definitions
+     */
+    private int count = 0;
+
+    /**
+     * Map to store recipe name -> id of its definition
+     */
+    private final HashMap<String, Integer> recipeIds = new HashMap<>();
+
+    /**
+     * Names of all the ingredients, in order of their ids
+     */
+    private String[] ingredientNames = new String[16];
+
+    /**
+     * Variable to store number of ingredients
+     */
+    private int ingredientCount = 0;
+
+    /**
+     * Map to store ingredient name -> id
+     */
+    private final HashMap<String, Integer> ingredientIds = new HashMap<>();
+
+    /**
+     * Function to add a definition with ingredients stored in parallel arrays
+     * @param name recipe's name
+     * @param names names of required ingredients
+     * @param quantities required quantity of every ingredient
+     * @param ingredients number of ingredients, only first entries of the arrays are used
+     * @return True if definition was added else False when a definition with same name is already present
+     */
+    public boolean addDefinition(String name, String[] names, int[] quantities, int ingredients) {
+        if (this.recipeIds.containsKey(name)) {
+            return false;
+        }
+        if (this.count == this.recipeNames.length) {
+            this.recipeNames = Arrays.copyOf(this.recipeNames, this.count * 2);
+            this.offsets = Arrays.copyOf(this.offsets, this.count * 2 + 1);
+        }
+        int start = this.offsets[this.count];
+        if (start + ingredients > this.entryIngredients.length) {
+            int capacity = Math.max(this.entryIngredients.length * 2, start + ingredients);
+            this.entryIngredients = Arrays.copyOf(this.entryIngredients, capacity);
+            this.entryQuantities = Arrays.copyOf(this.entryQuantities, capacity);
+        }
+        for (int i = 0; i < ingredients; i++) {
+            this.entryIngredients[start + i] = getIngredientId(names[i]);
+            this.entryQuantities[start + i] = quantities[i];
+        }
+        this.recipeNames[this.count] = name;
+        this.offsets[this.count + 1] = start + ingredients;
+        this.recipeIds.put(name, this.count);
+        this.count++;
+        return true;
+    }
+
+    /**
+     * Function to add a definition from Pair list
+     * @param name recipe's name
+     * @param ingredients required ingredients
+     * @return True if definition was added else False when a definition with same name is already present
+     */
+    public boolean addDefinition(String name, List<Pair<String, Integer>> ingredients) {
+        String[] names = new String[ingredients.size()];
+        int[] quantities = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = ingredients.get(i).getKey();
+            quantities[i] = ingredients.get(i).getValue();
+        }
+        return addDefinition(name, names, quantities, names.length);
+    }
+
+    /**
+     * Function to get id of an ingredient, a new id is assigned to an ingredient seen for the first time
+     * @param name name of the ingredient
+     * @return id of the ingredient
+     */
+    private int getIngredientId(String name) {
+        Integer id = this.ingredientIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (this.ingredientCount == this.ingredientNames.length) {
+            this.ingredientNames = Arrays.copyOf(this.ingredientNames, this.ingredientCount * 2);
+        }
+        this.ingredientNames[this.ingredientCount] = name;
+        this.ingredientIds.put(name, this.ingredientCount);
+        return this.ingredientCount++;
+    }
+
+    /**
+     * Function to find id of a definition
+     * @param name recipe's name
+     * @return id of the definition, -1 when there is no definition with the name
+     */
+    public int findDefinition(String name) {
+        Integer id = this.recipeIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Function to get name of a definition
+     * @param id id of the definition
+     * @return recipe's name
+     */
+    public String getName(int id) {
+        return this.recipeNames[id];
+    }
+
+    /**
+     * Function to get names of ingredients of a definition
+     * Names are shared with every other definition using them
+     * @param id id of the definition
+     * @return new array of ingredient names
+     */
+    public String[] getIngredientNames(int id) {
+        String[] names = new String[this.offsets[id + 1] - this.offsets[id]];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = this.ingredientNames[this.entryIngredients[this.offsets[id] + i]];
+        }
+        return names;
+    }
+
+    /**
+     * Function to get required quantities of a definition
+     * @param id id of the definition
+     * @return new array of quantities, in same order as getIngredientNames
+     */
+    public int[] getRequiredQuantities(int id) {
+        return Arrays.copyOfRange(this.entryQuantities, this.offsets[id], this.offsets[id + 1]);
+    }
+
+    /**
+     * Function to create a Recipe from a definition
+     * Every call creates a new Recipe, callers keep it as long as they need
+     * @param id id of the definition
+     * @return new Recipe
+     */
+    public Recipe materialize(int id) {
+        return new Recipe(this.recipeNames[id], getIngredientNames(id), getRequiredQuantities(id), this.offsets[id + 1] - this.offsets[id]);
+    }
+
+    /**
+     * Function to get number of definitions
+     * @return number of definitions
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeDefinitions.class.getSimpleName() + "[", "]")
+            .add("definitions=" + count)
+            .add("ingredients=" + ingredientCount)
+            .add("entries=" + offsets[count])
+            .toString();
+    }
+}
@@ -1,7 +1,15 @@
 package recipe;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import javafx.util.Pair;
 
@@ -15,11 +23,103 @@ public class RecipeHolder {
      */
     private final ConcurrentHashMap<String, Recipe> recipes;
 
+    /**
+     * Map to store recipe name -> state of the recipe on this machine, for recipes of this holder and of shared catalog
+     * A state is created on first order of its recipe, states of lazy definitions are kept in recipeCache instead
+     */
+    private final ConcurrentHashMap<String, RecipeState> recipeStates = new ConcurrentHashMap<>();
+
+    /**
+     * Index of ingredient -> recipes of this holder needing it, maintained along with recipes
+     */
+    private final IngredientIndex ingredientIndex = new IngredientIndex();
+
+    /**
+     * Catalog shared with other machines, recipes found there are never copied into this holder
+     * Null when holder owns all of its recipes
+     */
+    private final RecipeCatalog sharedCatalog;
+
+    /**
+     * Raw definitions materialized into recipes on first use, null when holder is not lazy
+     */
+    private final RecipeDefinitions definitions;
+
+    /**
+     * Cache of materialized definitions, null when holder is not lazy
+     */
+    private final RecipeCache recipeCache;
+
+    /**
+     * Variable to store if definitions were added to the ingredient index
+     */
+    private volatile boolean definitionsIndexed = true;
+
     /**
      * Constructs an empty holder
      */
     public RecipeHolder() {
         this.recipes = new ConcurrentHashMap<>();
+        this.sharedCatalog = null;
+        this.definitions = null;
+        this.recipeCache = null;
+    }
+
+    /**
+     * Constructs a lazy holder for a huge catalog
+     * Nothing is built for a definition until it is asked for with getRecipe, then the materialized recipe is cached.
+     * With a bound on the cache rarely ordered recipes are evicted again and materialized on their next order,
+     * which also resets their adaptive state
+     * Recipes added later are kept only in this holder, recipe with a name already defined is ignored
+     * @param definitions raw definitions, should not be changed afterwards
+     * @param maxCachedRecipes most materialized recipes kept, 0 or less keeps every materialized recipe
+     */
+    public RecipeHolder(RecipeDefinitions definitions, int maxCachedRecipes) {
+        this(null, definitions, new RecipeCache(maxCachedRecipes));
+    }
+
+    /**
+     * Constructs a holder on top of a shared catalog
+     * Recipes added later are kept only in this holder, recipe with a name already in the catalog is ignored
+     * @param sharedCatalog catalog shared with other machines
+     */
+    public RecipeHolder(RecipeCatalog sharedCatalog) {
+        this(sharedCatalog, null, null);
+    }
+
+    /**
+     * Constructs a holder whose own recipes are added later, on top of a shared catalog or lazy definitions
+     * @param sharedCatalog catalog shared with other machines, null when there is none
+     * @param definitions raw definitions, null when holder is not lazy
+     * @param recipeCache cache of materialized definitions, null when holder is not lazy
+     */
+    private RecipeHolder(RecipeCatalog sharedCatalog, RecipeDefinitions definitions, RecipeCache recipeCache) {
+        this.recipes = new ConcurrentHashMap<>(1);
+        this.sharedCatalog = sharedCatalog;
+        this.definitions = definitions;
+        this.recipeCache = recipeCache;
+        this.definitionsIndexed = definitions == null;
+    }
+
+    /**
+     * Function to build a holder which replaces this one with other recipes of its own
+     * Shared catalog or lazy definitions are kept as they are, cache of materialized definitions is handed over so
+     * recipes ordered before keep their state, and recipes of the new holder with a predefined name are ignored
+     * @param recipes recipes of the new holder which are not predefined
+     * @return new holder in same mode as this one
+     */
+    public RecipeHolder withRecipes(Collection<Recipe> recipes) {
+        RecipeHolder recipeHolder;
+        if (this.sharedCatalog == null && this.definitions == null) {
+            recipeHolder = new RecipeHolder(recipes);
+        } else {
+            recipeHolder = new RecipeHolder(this.sharedCatalog, this.definitions, this.recipeCache);
+            for (Recipe recipe : recipes) {
+                recipeHolder.addNewRecipe(recipe);
+            }
+        }
+        recipeHolder.keepRecipeStates(this);
+        return recipeHolder;
     }
 
     /**
@@ -30,8 +130,29 @@ public class RecipeHolder {
         this.recipes = new ConcurrentHashMap<>();
         for (Pair<String, List<Pair<String, Integer>>> recipeObject : recipes) {
             Recipe recipe = new Recipe(recipeObject.getKey(), recipeObject.getValue());
-            this.recipes.putIfAbsent(recipe.getName(), recipe); // WIll handle duplicate recipes
+            if (this.recipes.putIfAbsent(recipe.getName(), recipe) == null) { // WIll handle duplicate recipes
+                this.ingredientIndex.addRecipe(recipe);
+            }
         }
+        this.sharedCatalog = null;
+        this.definitions = null;
+        this.recipeCache = null;
+    }
+
+    /**
+     * Constructs a holder with given recipe objects
+     * @param recipes recipes to add in the holder
+     */
+    public RecipeHolder(Collection<Recipe> recipes) {
+        this.recipes = new ConcurrentHashMap<>();
+        for (Recipe recipe : recipes) {
+            if (this.recipes.putIfAbsent(recipe.getName(), recipe) == null) {
+                this.ingredientIndex.addRecipe(recipe);
+            }
+        }
+        this.sharedCatalog = null;
+        this.definitions = null;
+        this.recipeCache = null;
     }
 
     /**
@@ -41,18 +162,56 @@ public class RecipeHolder {
      * @param ingredients ingredients of the recipe to add
      */
     public void addNewRecipe(String name, List<Pair<String, Integer>> ingredients) {
+        if (isPredefined(name)) {
+            return;
+        }
         this.recipes.computeIfAbsent(name, key -> {
             Recipe recipe = new Recipe(name, ingredients);
+            this.ingredientIndex.addRecipe(recipe); // Runs only once per name
             return recipe;
         });
     }
 
+    /**
+     * Function to add an already built recipe to the holder
+     * This function only adds the recipe if a recipe with same name is not present previously
+     * @param recipe recipe to add
+     */
+    public void addNewRecipe(Recipe recipe) {
+        if (isPredefined(recipe.getName())) {
+            return;
+        }
+        if (this.recipes.putIfAbsent(recipe.getName(), recipe) == null) {
+            this.ingredientIndex.addRecipe(recipe);
+        }
+    }
+
+    /**
+     * Function to check if a recipe comes from shared catalog or lazy definitions, such a recipe cannot be added again
+     * @param name name of the recipe
+     * @return True if recipe is already defined outside of this holder else False
+     */
+    public boolean isPredefined(String name) {
+        return (this.sharedCatalog != null && this.sharedCatalog.getRecipe(name) != null)
+            || (this.definitions != null && this.definitions.findDefinition(name) >= 0);
+    }
+
+    /**
+     * Function to check if holder has a recipe without materializing lazy definitions
+     * @param name name of the recipe
+     * @return True if recipe is present else False
+     */
+    public boolean hasRecipe(String name) {
+        return this.recipes.containsKey(name) || isPredefined(name);
+    }
+
     /**
      * Function to get total recipes available in the holder
      * @return total number of recipes present in the map
      */
     public int getTotalRecipes() {
-        return this.recipes.size();
+        return this.recipes.size() + (this.sharedCatalog == null ? 0 : this.sharedCatalog.getTotalRecipes())
+            + (this.definitions == null ? 0 : this.definitions.size());
     }
 
     /**
@@ -61,7 +220,227 @@ public class RecipeHolder {
      * @return Recipe object from the map
      */
     public Recipe getRecipe(String name) {
-        return this.recipes.get(name);
+        Recipe recipe = this.recipes.get(name);
+        if (recipe == null && this.sharedCatalog != null) {
+            return this.sharedCatalog.getRecipe(name);
+        }
+        if (recipe == null && this.definitions != null) {
+            RecipeState recipeState = getDefinedRecipeState(name);
+            return recipeState == null ? null : recipeState.getRecipe();
+        }
+        return recipe;
+    }
+
+    /**
+     * Function to get a particular recipe with its adaptive state on this machine
+     * State is created on first call for a recipe, so recipes which are never ordered do not pay for it
+     * @param name name of the recipe to fetch
+     * @return state of the recipe, null when there is no recipe with the name
+     */
+    public RecipeState getRecipeState(String name) {
+        RecipeState recipeState = this.recipeStates.get(name);
+        if (recipeState != null) {
+            return recipeState;
+        }
+        Recipe recipe = this.recipes.get(name);
+        if (recipe == null && this.sharedCatalog != null) {
+            recipe = this.sharedCatalog.getRecipe(name);
+        }
+        if (recipe == null) {
+            return this.definitions == null ? null : getDefinedRecipeState(name);
+        }
+        Recipe stateRecipe = recipe;
+        return this.recipeStates.computeIfAbsent(name, key -> new RecipeState(stateRecipe));
+    }
+
+    /**
+     * Function to get a recipe of lazy definitions with its state, materializing it on a cache miss
+     * Parallel misses of one recipe can materialize it twice but all of them get the one which was cached
+     * @param name name of the recipe to fetch
+     * @return state of the recipe, null when there is no definition with the name
+     */
+    private RecipeState getDefinedRecipeState(String name) {
+        RecipeState recipeState = this.recipeCache.get(name);
+        if (recipeState != null) {
+            return recipeState;
+        }
+        int id = this.definitions.findDefinition(name);
+        if (id < 0) {
+            return null;
+        }
+        return this.recipeCache.putIfAbsent(new RecipeState(this.definitions.materialize(id)));
+    }
+
+    /**
+     * Function to carry adaptive states over from a holder this one replaces
+     * Only states of recipes which are the very same objects in this holder are kept, a changed recipe starts afresh
+     * @param previous holder replaced by this one
+     */
+    public void keepRecipeStates(RecipeHolder previous) {
+        for (RecipeState recipeState : previous.recipeStates.values()) {
+            String name = recipeState.getRecipe().getName();
+            if (this.recipes.get(name) == recipeState.getRecipe()
+                || (this.sharedCatalog != null && this.sharedCatalog.getRecipe(name) == recipeState.getRecipe())) {
+                this.recipeStates.putIfAbsent(name, recipeState);
+            }
+        }
+    }
+
+    /**
+     * Function to get names of all the recipes without materializing lazy definitions
+     * @return names of the recipes
+     */
+    public List<String> getRecipeNames() {
+        List<String> names = new ArrayList<>(getTotalRecipes());
+        names.addAll(this.recipes.keySet());
+        if (this.sharedCatalog != null) {
+            for (Recipe recipe : this.sharedCatalog.getRecipes()) {
+                names.add(recipe.getName());
+            }
+        }
+        if (this.definitions != null) {
+            for (int id = 0; id < this.definitions.size(); id++) {
+                names.add(this.definitions.getName(id));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Function to get number of materialized recipes kept by a lazy holder
+     * @return cached recipes, 0 when holder is not lazy
+     */
+    public int getCachedRecipes() {
+        return this.recipeCache == null ? 0 : this.recipeCache.size();
+    }
+
+    /**
+     * Function to get all the recipes available in the holder
+     * A lazy holder materializes every definition which is not cached, without caching it
+     * @return read only view of all the recipes
+     */
+    public Collection<Recipe> getRecipes() {
+        if (this.definitions != null) {
+            List<Recipe> allRecipes = new ArrayList<>(this.recipes.values());
+            for (int id = 0; id < this.definitions.size(); id++) {
+                RecipeState cached = this.recipeCache.get(this.definitions.getName(id));
+                allRecipes.add(cached != null ? cached.getRecipe() : this.definitions.materialize(id));
+            }
+            return Collections.unmodifiableList(allRecipes);
+        }
+        if (this.sharedCatalog == null) {
+            return Collections.unmodifiableCollection(this.recipes.values());
+        }
+        if (this.recipes.isEmpty()) {
+            return this.sharedCatalog.getRecipes();
+        }
+        List<Recipe> allRecipes = new ArrayList<>(this.sharedCatalog.getRecipes());
+        allRecipes.addAll(this.recipes.values());
+        return Collections.unmodifiableList(allRecipes);
+    }
+
+    /**
+     * Function to walk over all the recipes of the holder without materializing lazy definitions
+     * Cached recipes are not touched either, so walking a huge catalog does not evict the recipes being ordered
+     * @param consumer function receiving every recipe
+     */
+    public void forEachRecipe(RecipeConsumer consumer) {
+        for (Recipe recipe : this.recipes.values()) {
+            consumer.accept(recipe.getName(), recipe.getIngredientNames(), recipe.getRequiredQuantities());
+        }
+        if (this.sharedCatalog != null) {
+            for (Recipe recipe : this.sharedCatalog.getRecipes()) {
+                consumer.accept(recipe.getName(), recipe.getIngredientNames(), recipe.getRequiredQuantities());
+            }
+        }
+        if (this.definitions != null) {
+            for (int id = 0; id < this.definitions.size(); id++) {
+                consumer.accept(this.definitions.getName(id), this.definitions.getIngredientNames(id), this.definitions.getRequiredQuantities(id));
+            }
+        }
+    }
+
+    /**
+     * Function to get names of all the recipes needing an ingredient
+     * @param ingredient name of the ingredient
+     * @return names of the recipes, empty when no recipe needs the ingredient
+     */
+    public Set<String> getRecipesUsing(String ingredient) {
+        if (this.sharedCatalog == null) {
+            return getIngredientIndex().getRecipesUsing(ingredient);
+        }
+        Set<String> recipes = new HashSet<>(this.sharedCatalog.getIngredientIndex().getRecipesUsing(ingredient));
+        recipes.addAll(this.ingredientIndex.getRecipesUsing(ingredient));
+        return Collections.unmodifiableSet(recipes);
+    }
+
+    /**
+     * Function to get names of all the recipes needing any of given ingredients
+     * For eg recipes which cannot be prepared once given ingredients run out
+     * @param ingredients names of the ingredients
+     * @return names of the recipes in alphabetical order
+     */
+    public List<String> getRecipesUsing(Collection<String> ingredients) {
+        Set<String> recipes = new TreeSet<>();
+        if (this.sharedCatalog != null) {
+            this.sharedCatalog.getIngredientIndex().collectRecipesUsing(ingredients, recipes);
+        }
+        getIngredientIndex().collectRecipesUsing(ingredients, recipes);
+        return new ArrayList<>(recipes);
+    }
+
+    /**
+     * Function to get number of recipes needing every ingredient
+     * @return map of ingredient name -> number of recipes needing it
+     */
+    public Map<String, Integer> getIngredientUsage() {
+        Map<String, Integer> usageCounts = new HashMap<>();
+        IngredientIndex index = getIngredientIndex();
+        for (String ingredient : index.getIngredients()) {
+            usageCounts.put(ingredient, index.getUsageCount(ingredient));
+        }
+        if (this.sharedCatalog != null) {
+            IngredientIndex catalogIndex = this.sharedCatalog.getIngredientIndex();
+            for (String ingredient : catalogIndex.getIngredients()) {
+                usageCounts.merge(ingredient, catalogIndex.getUsageCount(ingredient), Integer::sum);
+            }
+        }
+        return usageCounts;
+    }
+
+    /**
+     * Function to get ingredients ordered by how many recipes need them
+     * @return ingredient names, most used first
+     */
+    public List<String> getIngredientsByUsage() {
+        return IngredientIndex.sortByUsage(getIngredientUsage());
+    }
+
+    /**
+     * Function to get index of recipes of this holder, lazy definitions are indexed on first call
+     * Only ingredient names of definitions are read, no recipe is materialized
+     * @return ingredient index
+     */
+    private IngredientIndex getIngredientIndex() {
+        if (!this.definitionsIndexed) {
+            synchronized (this.ingredientIndex) {
+                if (!this.definitionsIndexed) {
+                    for (int id = 0; id < this.definitions.size(); id++) {
+                        this.ingredientIndex.addRecipe(this.definitions.getName(id), this.definitions.getIngredientNames(id));
+                    }
+                    this.definitionsIndexed = true;
+                }
+            }
+        }
+        return this.ingredientIndex;
+    }
+
+    /**
+     * Function to get catalog shared with other machines
+     * @return shared catalog, null when holder owns all of its recipes
+     */
+    public RecipeCatalog getSharedCatalog() {
+        return this.sharedCatalog;
     }
 
     /**
@@ -69,8 +448,14 @@ public class RecipeHolder {
      */
     @Override
     public String toString() {
-        return new StringJoiner(", ", RecipeHolder.class.getSimpleName() + "[", "]")
-            .add("recipes=" + recipes)
-            .toString();
+        StringJoiner stringJoiner = new StringJoiner(", ", RecipeHolder.class.getSimpleName() + "[", "]")
+            .add("recipes=" + recipes);
+        if (sharedCatalog != null) {
+            stringJoiner.add("sharedCatalogRecipes=" + sharedCatalog.getTotalRecipes());
+        }
+        if (definitions != null) {
+            stringJoiner.add("definitions=" + definitions.size()).add("cache=" + recipeCache);
+        }
+        return stringJoiner.toString();
     }
 }
@@ -0,0 +1,103 @@
+package recipe;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Order time variant of any recipe, for eg a size or an extra shot
+ * Quantities of the base recipe are scaled and then adjusted per ingredient, so a menu of N recipes and M variants
+ * keeps N recipes instead of N * M. Adjustments of ingredients a recipe does not use are ignored for that recipe,
+ * for eg an extra shot of coffee does nothing to a tea.
+ * For eg new RecipeModifier("large", 1.5, Collections.emptyMap()) or new RecipeModifier("extra_shot", 1, singletonMap("coffee_syrup", 30))
+ */
+public class RecipeModifier {
+
+    /**
+     * Variable to hold name of the modifier
+     */
+    private final String name;
+
+    /**
+     * Factor every quantity of the base recipe is multiplied with
+     */
+    private final double scale;
+
+    /**
+     * Map to store ingredient name -> quantity added after scaling, negative to take away
+     */
+    private final Map<String, Integer> adjustments;
+
+    /**
+     * Constructs a modifier
+     * @param name name of the modifier
+     * @param scale factor every quantity is multiplied with, 1 to keep quantities
+     * @param adjustments ingredient name -> quantity added after scaling, copied
+     * @throws IllegalArgumentException when scale is negative
+     */
+    public RecipeModifier(String name, double scale, Map<String, Integer> adjustments) {
+        if (!(scale >= 0)) {
+            throw new IllegalArgumentException("Scale of " + name + " should not be negative");
+        }
+        this.name = name;
+        this.scale = scale;
+        this.adjustments = Collections.unmodifiableMap(new HashMap<>(adjustments));
+    }
+
+    /**
+     * Function to get quantities of a recipe changed by this modifier
+     * Scaled quantities are rounded and no quantity goes below 0
+     * @param ingredientNames names of the ingredients of the recipe
+     * @param requiredQuantities quantities of the base recipe, in same order as names
+     * @return new array of changed quantities
+     */
+    public int[] apply(String[] ingredientNames, int[] requiredQuantities) {
+        int[] quantities = new int[requiredQuantities.length];
+        for (int i = 0; i < quantities.length; i++) {
+            long scaled = Math.round(requiredQuantities[i] * this.scale);
+            Integer adjustment = this.adjustments.get(ingredientNames[i]);
+            if (adjustment != null) {
+                scaled += adjustment;
+            }
+            quantities[i] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, scaled));
+        }
+        return quantities;
+    }
+
+    /**
+     * Function to get name of the modifier
+     * @return name of the modifier
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Function to get scale factor
+     * @return factor every quantity is multiplied with
+     */
+    public double getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Function to get per ingredient adjustments
+     * @return read only map of ingredient name -> quantity added after scaling
+     */
+    public Map<String, Integer> getAdjustments() {
+        return this.adjustments;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeModifier.class.getSimpleName() + "[", "]")
+            .add("name='" + name + "'")
+            .add("scale=" + scale)
+            .add("adjustments=" + adjustments)
+            .toString();
+    }
+}
@@ -0,0 +1,218 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Adaptive state of a recipe on a single machine
+ * Recipes are shared between machines through RecipeCatalog, while failures and stock which decide the order in which
+ * ingredients are checked belong to one machine, so every RecipeHolder keeps its own state for every recipe it serves
+ */
+public class RecipeState {
+
+    /**
+     * Failure count of an ingredient at which all the failure counts are halved
+     */
+    private static final int FAILURE_COUNT_LIMIT = 1024;
+
+    /**
+     * Stock is sampled once in this many prepared orders
+     */
+    private static final int STOCK_SAMPLE_INTERVAL = 16;
+
+    /**
+     * Most modifiers whose quantities are kept, quantities of others are computed on every order
+     */
+    private static final int MAX_CACHED_VARIANTS = 16;
+
+    /**
+     * Empty variant cache
+     */
+    private static final Object[] NO_VARIANTS = new Object[0];
+
+    /**
+     * Recipe whose state this is
+     */
+    private final Recipe recipe;
+
+    /**
+     * Order in which ingredients are checked while brewing, most likely failing ingredient first
+     * Replaced as a whole whenever statistics change the order, so readers never need a lock
+     */
+    private volatile int[] checkOrder;
+
+    /**
+     * Number of recent failures caused by every ingredient, halved from time to time so old failures fade away
+     */
+    private final AtomicIntegerArray failureCounts;
+
+    /**
+     * Servings left of every ingredient when stock was last sampled, null until first sample
+     */
+    private volatile int[] servingsLeft;
+
+    /**
+     * Number of orders of the recipe which were prepared, used to decide when stock should be sampled
+     */
+    private final AtomicInteger servedOrders = new AtomicInteger();
+
+    /**
+     * Quantities of variants ordered so far, stored as modifier, int[] pairs with at most one pair per modifier name
+     * Replaced as a whole when a variant is added or its modifier is replaced, so readers never need a lock
+     */
+    private volatile Object[] variants = NO_VARIANTS;
+
+    /**
+     * Constructs a state in which ingredients are checked in declared order
+     * @param recipe recipe whose state this is
+     */
+    public RecipeState(Recipe recipe) {
+        this.recipe = recipe;
+        int count = recipe.getIngredientNames().length;
+        this.failureCounts = new AtomicIntegerArray(count);
+        this.checkOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.checkOrder[i] = i;
+        }
+    }
+
+    /**
+     * Function to get recipe whose state this is
+     * @return recipe
+     */
+    public Recipe getRecipe() {
+        return this.recipe;
+    }
+
+    /**
+     * Function to get required quantities of a variant of the recipe
+     * Quantities of a modifier are computed on its first order and kept, so later orders of the variant only scan
+     * a handful of references, no derived recipe is ever created
+     * Variants are kept by modifier name, so a modifier replaced on the machine replaces quantities of its old version
+     * Returned array is shared and should not be modified
+     * @param modifier modifier of the variant, null for the base recipe
+     * @return required quantities in same order as ingredients of the recipe
+     */
+    public int[] getRequiredQuantities(RecipeModifier modifier) {
+        if (modifier == null) {
+            return this.recipe.getRequiredQuantities();
+        }
+        Object[] cached = this.variants;
+        int slot = cached.length;
+        for (int i = 0; i < cached.length; i += 2) {
+            if (cached[i] == modifier) {
+                return (int[]) cached[i + 1];
+            }
+            if (((RecipeModifier) cached[i]).getName().equals(modifier.getName())) {
+                slot = i; // Older version of the modifier
+            }
+        }
+        int[] quantities = modifier.apply(this.recipe.getIngredientNames(), this.recipe.getRequiredQuantities());
+        if (slot < cached.length || cached.length < 2 * MAX_CACHED_VARIANTS) {
+            // Parallel callers can drop each other's variant which is harmless because it is computed again
+            Object[] updated = Arrays.copyOf(cached, Math.max(cached.length, slot + 2));
+            updated[slot] = modifier;
+            updated[slot + 1] = quantities;
+            this.variants = updated;
+        }
+        return quantities;
+    }
+
+    /**
+     * Function to get order in which ingredients should be checked while brewing
+     * It starts in declared order and adapts to failures and stock, see recordFailure and recordServingsLeft
+     * Returned array is shared and should not be modified
+     * @return indexes of ingredients, most likely failing ingredient first
+     */
+    public int[] getCheckOrder() {
+        return this.checkOrder;
+    }
+
+    /**
+     * Function to record that an order of the recipe failed because of an ingredient
+     * Counts go up by one at a time, so exactly one caller sees the limit and halves every count, each count is halved
+     * with its own atomic update so failures recorded in the meantime are never lost
+     * @param ingredientIndex index of the ingredient which was not present or not sufficient
+     */
+    public void recordFailure(int ingredientIndex) {
+        if (this.failureCounts.incrementAndGet(ingredientIndex) == FAILURE_COUNT_LIMIT) {
+            for (int i = 0; i < this.failureCounts.length(); i++) {
+                this.failureCounts.getAndUpdate(i, count -> count / 2);
+            }
+        }
+        int[] order = this.checkOrder;
+        if (order[0] != ingredientIndex) {
+            reorder();
+        }
+    }
+
+    /**
+     * Function to record that an order of the recipe was prepared
+     * @return True when live stock should be sampled and given to recordServingsLeft else False
+     */
+    public boolean recordServed() {
+        return this.servedOrders.incrementAndGet() % STOCK_SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Function to record how many more times every ingredient can be used, scarcest ingredient is checked earlier
+     * @param servingsLeft servings left of every ingredient, in same order as ingredients of the recipe
+     */
+    public void recordServingsLeft(int[] servingsLeft) {
+        this.servingsLeft = servingsLeft;
+        reorder();
+    }
+
+    /**
+     * Function to rebuild check order
+     * Ingredients with more failures come first, then ingredients with fewer servings left, then declared order
+     * Parallel callers can rebuild it together which is harmless because order is only a hint
+     */
+    private void reorder() {
+        int[] servingsLeft = this.servingsLeft;
+        int[] failures = new int[this.failureCounts.length()];
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = this.failureCounts.get(i);
+        }
+        int[] order = new int[failures.length];
+        for (int i = 0; i < order.length; i++) {
+            // Insertion sort is stable and recipes have only a handful of ingredients
+            int position = i;
+            while (position > 0 && comesBefore(i, order[position - 1], failures, servingsLeft)) {
+                order[position] = order[position - 1];
+                position--;
+            }
+            order[position] = i;
+        }
+        this.checkOrder = order;
+    }
+
+    /**
+     * Function to compare two ingredients for check order
+     * @param first index of first ingredient
+     * @param second index of second ingredient
+     * @param failures failure count of every ingredient
+     * @param servingsLeft servings left of every ingredient, can be null
+     * @return True if first ingredient should be checked strictly before second one else False
+     */
+    private static boolean comesBefore(int first, int second, int[] failures, int[] servingsLeft) {
+        if (failures[first] != failures[second]) {
+            return failures[first] > failures[second];
+        }
+        return servingsLeft != null && servingsLeft[first] < servingsLeft[second];
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", RecipeState.class.getSimpleName() + "[", "]")
+            .add("recipe='" + recipe.getName() + "'")
+            .add("servedOrders=" + servedOrders)
+            .add("failureCounts=" + failureCounts)
+            .toString();
+    }
+}
@@ -0,0 +1,119 @@
+package server;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import history.OrderOutcome;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import recipe.RecipeBuilder;
+
+/**
+ * Loopback benchmark of BinaryOrderServer
+ * Every client owns a connection and keeps up to a given number of orders in flight on it
+ * Run main to load a machine on a free local port and print requests per second and latency percentiles
+ */
+public class BinaryBenchmark {
+
+    /**
+     * Function to send orders to a running server
+     * @param address address of the server
+     * @param beverages beverages to order, clients cycle through them
+     * @param clients number of parallel connections
+     * @param requestsPerClient number of orders every client sends
+     * @param pipelineDepth most orders in flight on a connection
+     * @return report of the run
+     * @throws Exception when a client cannot connect
+     */
+    public static LoadTestReport run(InetSocketAddress address, String[] beverages, int clients, int requestsPerClient, int pipelineDepth) throws Exception {
+        BinaryOrderClient[] connections = new BinaryOrderClient[clients];
+        for (int c = 0; c < clients; c++) {
+            connections[c] = new BinaryOrderClient(address);
+        }
+        long[][] latencies = new long[clients][requestsPerClient];
+        AtomicInteger[] succeeded = new AtomicInteger[clients];
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            succeeded[c] = new AtomicInteger();
+            threads[c] = new Thread(() -> {
+                Semaphore inFlight = new Semaphore(Math.max(1, pipelineDepth));
+                CompletableFuture<?>[] futures = new CompletableFuture<?>[requestsPerClient];
+                for (int i = 0; i < requestsPerClient; i++) {
+                    inFlight.acquireUninterruptibly();
+                    long startNanos = System.nanoTime();
+                    futures[i] = connections[client].orderAsync(beverages[(client + i) % beverages.length]).whenComplete((outcome, error) -> {
+                        if (error == null) {
+                            latencies[client][succeeded[client].getAndIncrement()] = System.nanoTime() - startNanos;
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+                }
+                CompletableFuture.allOf(futures).exceptionally(error -> null).join();
+            }, "binary-benchmark-" + c);
+        }
+        long startNanos = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        for (BinaryOrderClient connection : connections) {
+            connection.close();
+        }
+
+        int total = 0;
+        for (AtomicInteger count : succeeded) {
+            total += count.get();
+        }
+        long[] merged = new long[total];
+        int position = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, merged, position, succeeded[c].get());
+            position += succeeded[c].get();
+        }
+        return new LoadTestReport(errors.get(), elapsedNanos, merged);
+    }
+
+    // Usage: BinaryBenchmark [clients] [requestsPerClient] [pipelineDepth] [outlets]
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int pipelineDepth = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int outlets = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        // Stock large enough that every order is brewed, so the run measures the full order path
+        long orders = (long) clients * requestsPerClient * 11 / 10;
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(outlets)
+            .addIngredient("hot_water", (int) Math.min(Integer.MAX_VALUE, orders * 200))
+            .addIngredient("hot_milk", (int) Math.min(Integer.MAX_VALUE, orders * 100))
+            .addIngredient("tea_leaves_syrup", (int) Math.min(Integer.MAX_VALUE, orders * 30))
+            .addRecipe(new RecipeBuilder("hot_tea", 3).addIngredient("hot_water", 200).addIngredient("hot_milk", 100).addIngredient("tea_leaves_syrup", 30).build())
+            .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 100).build())
+            .build();
+        BinaryOrderServer binaryOrderServer = new BinaryOrderServer(coffeeMachine, new InetSocketAddress("127.0.0.1", 0));
+        binaryOrderServer.start();
+        try {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", binaryOrderServer.getPort());
+            String[] beverages = {"hot_tea", "hot_water"};
+            try (BinaryOrderClient client = new BinaryOrderClient(address)) {
+                if (client.order("hot_tea") != OrderOutcome.PREPARED) {
+                    throw new Exception("Machine cannot prepare hot_tea");
+                }
+            }
+            run(address, beverages, clients, Math.max(1, requestsPerClient / 10), pipelineDepth); // Warm up
+            LoadTestReport report = run(address, beverages, clients, requestsPerClient, pipelineDepth);
+            System.out.println(binaryOrderServer + " " + Arrays.toString(args));
+            System.out.println(report);
+        } finally {
+            binaryOrderServer.stop();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package server;
+
+import history.OrderOutcome;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client of BinaryOrderServer for kiosks
+ * Any number of threads can place orders on a single connection, orders are pipelined: orderAsync sends the request
+ * and returns at once, a reader thread completes the future when its response arrives
+ * Beverage ids are fetched once on connect, call refreshBeverages after beverages of the machine change
+ */
+public class BinaryOrderClient implements AutoCloseable {
+
+    /**
+     * Channel to the server, used in blocking mode
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Direct buffer requests are written from, guarded by writeLock
+     */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BinaryProtocol.LENGTH_BYTES + BinaryProtocol.MAX_PAYLOAD_BYTES);
+
+    /**
+     * Lock to keep frames of parallel callers from interleaving
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Map to store request id -> future waiting for its response
+     */
+    private final ConcurrentHashMap<Integer, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Id of the next request
+     */
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+
+    /**
+     * Map to store beverage name -> id, replaced as a whole on refresh
+     */
+    private volatile Map<String, Integer> beverageIds = Collections.emptyMap();
+
+    /**
+     * Thread reading responses
+     */
+    private final Thread readerThread;
+
+    /**
+     * Connects to a server and fetches beverage ids
+     * @param address address of the server
+     * @throws Exception when server cannot be reached
+     */
+    public BinaryOrderClient(InetSocketAddress address) throws Exception {
+        this.channel = SocketChannel.open(address);
+        this.channel.socket().setTcpNoDelay(true);
+        this.readerThread = new Thread(this::readResponses, "binary-order-client");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+        refreshBeverages();
+    }
+
+    /**
+     * Function to fetch ids of all the beverages from the server
+     * @return read only map of beverage name -> id
+     * @throws Exception when request fails
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> refreshBeverages() throws Exception {
+        int requestId = this.nextRequestId.incrementAndGet();
+        CompletableFuture<Object> future = register(requestId);
+        send(requestId, BinaryProtocol.BEVERAGES, -1);
+        this.beverageIds = (Map<String, Integer>) future.get();
+        return this.beverageIds;
+    }
+
+    /**
+     * Function to place an order without waiting for it
+     * A beverage whose id is not known is completed at once as not valid, without a round trip
+     * @param beverage name of the beverage
+     * @return future completed with outcome of the order, or exceptionally when the connection breaks
+     */
+    public CompletableFuture<OrderOutcome> orderAsync(String beverage) {
+        Integer beverageId = this.beverageIds.get(beverage);
+        if (beverageId == null) {
+            return CompletableFuture.completedFuture(OrderOutcome.NOT_A_VALID_BEVERAGE);
+        }
+        int requestId = this.nextRequestId.incrementAndGet();
+        CompletableFuture<Object> future = register(requestId);
+        try {
+            send(requestId, BinaryProtocol.ORDER, beverageId);
+        } catch (IOException e) {
+            this.pending.remove(requestId);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(outcome -> (OrderOutcome) outcome);
+    }
+
+    /**
+     * Function to place an order and wait for its outcome
+     * @param beverage name of the beverage
+     * @return outcome of the order
+     * @throws Exception when connection breaks
+     */
+    public OrderOutcome order(String beverage) throws Exception {
+        return orderAsync(beverage).get();
+    }
+
+    /**
+     * Function to register a future for a request before it is sent
+     * @param requestId id of the request
+     * @return future completed by the reader thread
+     */
+    private CompletableFuture<Object> register(int requestId) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        this.pending.put(requestId, future);
+        return future;
+    }
+
+    /**
+     * Function to send a request
+     * @param requestId id of the request
+     * @param type type of the request
+     * @param beverageId id of the beverage for an order, ignored otherwise
+     * @throws IOException when connection is broken
+     */
+    private void send(int requestId, byte type, int beverageId) throws IOException {
+        try {
+            writeLock.lock();
+            this.writeBuffer.clear();
+            if (type == BinaryProtocol.ORDER) {
+                BinaryProtocol.putOrderRequest(this.writeBuffer, requestId, beverageId);
+            } else {
+                this.writeBuffer.putInt(BinaryProtocol.HEADER_BYTES).put(type).putInt(requestId);
+            }
+            this.writeBuffer.flip();
+            while (this.writeBuffer.hasRemaining()) {
+                this.channel.write(this.writeBuffer);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Function run by the reader thread, completes futures until the connection closes
+     */
+    private void readResponses() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryProtocol.LENGTH_BYTES + BinaryProtocol.MAX_PAYLOAD_BYTES);
+        IOException failure = new IOException("Connection is closed");
+        try {
+            while (this.channel.read(buffer) >= 0) {
+                buffer.flip();
+                int frameLength;
+                while ((frameLength = BinaryProtocol.getFrameLength(buffer)) > 0) {
+                    int frameEnd = buffer.position() + frameLength;
+                    buffer.position(buffer.position() + BinaryProtocol.LENGTH_BYTES);
+                    complete(buffer);
+                    buffer.position(frameEnd);
+                }
+                buffer.compact();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            failure = new IOException("Connection is broken", e);
+        }
+        for (CompletableFuture<Object> future : this.pending.values()) {
+            future.completeExceptionally(failure);
+        }
+        this.pending.clear();
+    }
+
+    /**
+     * Function to complete future of a response
+     * @param buffer buffer positioned at the payload
+     */
+    private void complete(ByteBuffer buffer) {
+        byte type = buffer.get();
+        CompletableFuture<Object> future = this.pending.remove(buffer.getInt());
+        if (future == null) {
+            return;
+        }
+        if (type == BinaryProtocol.ORDER) {
+            future.complete(OrderOutcome.fromCode(buffer.get()));
+        } else if (type == BinaryProtocol.BEVERAGES) {
+            int count = buffer.getShort();
+            Map<String, Integer> ids = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getShort() & 0xFFFF;
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                ids.put(new String(name, StandardCharsets.UTF_8), id);
+            }
+            future.complete(Collections.unmodifiableMap(ids));
+        } else {
+            future.completeExceptionally(new IOException("Request was not understood by the server"));
+        }
+    }
+
+    /**
+     * Function to close the connection, orders still waiting fail
+     * Interrupt while waiting for the reader thread is kept on the calling thread instead of being thrown
+     * @throws IOException when connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        try {
+            this.readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", BinaryOrderClient.class.getSimpleName() + "[", "]")
+            .add("beverages=" + beverageIds.keySet())
+            .add("pendingRequests=" + pending.size())
+            .toString();
+    }
+}
@@ -0,0 +1,515 @@
+package server;
+
+import coffeeMachine.CoffeeMachine;
+import history.NameDictionary;
+import history.OrderOutcome;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server of BinaryProtocol built on a single non blocking NIO selector loop
+ * The selector thread only reads frames and writes responses, orders are prepared by a pool with a thread per outlet
+ * plus one, so a slow order never holds up other connections. Workers queue their responses on the connection and
+ * wake the selector, which copies them into the direct write buffer of the connection.
+ * Direct buffers of closed connections are kept in a pool and given to new connections
+ */
+public class BinaryOrderServer {
+
+    /**
+     * Capacity of read and write buffers of a connection
+     */
+    private static final int BUFFER_BYTES = BinaryProtocol.LENGTH_BYTES + BinaryProtocol.MAX_PAYLOAD_BYTES;
+
+    /**
+     * Most buffers kept in the pool
+     */
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    /**
+     * Most requests of a connection whose responses are not yet copied to its write buffer
+     * Once a client pipelines this many without reading, its requests are not read until responses drain
+     */
+    private static final int MAX_OUTSTANDING_RESPONSES = 1024;
+
+    /**
+     * Most beverages which get an id, ids are sent as 16 bits so beverages beyond it cannot be ordered
+     */
+    private static final int MAX_BEVERAGE_IDS = 0xFFFF;
+
+    /**
+     * Machine orders are sent to
+     */
+    private final CoffeeMachine coffeeMachine;
+
+    /**
+     * Ids of beverages, shared by every connection, ids are below MAX_BEVERAGE_IDS so they fit in a short
+     */
+    private final NameDictionary beverageIds = new NameDictionary(MAX_BEVERAGE_IDS);
+
+    /**
+     * Channel accepting connections
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Selector of all the channels
+     */
+    private final Selector selector;
+
+    /**
+     * Pool preparing orders
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Connections which have responses waiting to be written
+     */
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Direct buffers of closed connections, only used by the selector thread
+     */
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+
+    /**
+     * Variable to store if the selector loop should keep running
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Selector thread, null when not started
+     */
+    private Thread selectorThread;
+
+    /**
+     * Number of open connections
+     */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Constructs a server with a worker per outlet plus one
+     * @param coffeeMachine started machine
+     * @param address address to listen on, port 0 picks a free port
+     * @throws Exception when machine is not yet started or address cannot be bound
+     */
+    public BinaryOrderServer(CoffeeMachine coffeeMachine, InetSocketAddress address) throws Exception {
+        for (String beverage : coffeeMachine.getBeverages()) { // Fails when machine is not yet started
+            this.beverageIds.getId(beverage); // -1 once ids run out, such beverages are not listed
+        }
+        this.coffeeMachine = coffeeMachine;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(coffeeMachine.getTotalOutlets() + 1, runnable -> {
+            Thread thread = new Thread(runnable, "binary-order-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * State of a single client connection
+     */
+    private final class Connection {
+
+        /**
+         * Channel of the connection
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Key of the channel in the selector
+         */
+        private SelectionKey key;
+
+        /**
+         * Direct buffer frames are read into, kept in write mode between reads
+         */
+        private final ByteBuffer readBuffer;
+
+        /**
+         * Direct buffer responses are written from, kept in read mode between writes
+         */
+        private final ByteBuffer writeBuffer;
+
+        /**
+         * Encoded responses of workers waiting to be copied into writeBuffer
+         */
+        private final ConcurrentLinkedQueue<byte[]> responses = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Number of dispatched requests whose responses are not yet copied into writeBuffer
+         */
+        private final AtomicInteger outstandingResponses = new AtomicInteger();
+
+        /**
+         * Variable to store if the connection is already in pendingWrites
+         */
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+        /**
+         * Variable to store if the connection is closed
+         */
+        private volatile boolean closed = false;
+
+        /**
+         * Constructs a connection
+         * @param channel channel of the connection
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.readBuffer = takeBuffer();
+            this.writeBuffer = takeBuffer();
+            this.writeBuffer.flip(); // Nothing to write yet
+        }
+
+        /**
+         * Function to queue a response, called by workers
+         * @param response encoded frame
+         */
+        void respond(byte[] response) {
+            if (this.closed) {
+                return;
+            }
+            this.responses.add(response);
+            if (this.writeScheduled.compareAndSet(false, true)) {
+                pendingWrites.add(this);
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Function to get a cleared direct buffer from the pool or a new one
+     * @return buffer of BUFFER_BYTES
+     */
+    private ByteBuffer takeBuffer() {
+        ByteBuffer buffer = this.bufferPool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_BYTES);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Function to put a buffer back in the pool
+     * @param buffer buffer which is no longer used
+     */
+    private void returnBuffer(ByteBuffer buffer) {
+        if (this.bufferPool.size() < MAX_POOLED_BUFFERS) {
+            this.bufferPool.push(buffer);
+        }
+    }
+
+    /**
+     * Function run by the selector thread until the server is stopped
+     */
+    private void selectLoop() {
+        while (this.running) {
+            try {
+                this.selector.select();
+                Connection connection;
+                while ((connection = this.pendingWrites.poll()) != null) {
+                    connection.writeScheduled.set(false);
+                    flush(connection);
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection selected = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(selected);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(selected);
+                        }
+                    } catch (IOException | IllegalArgumentException e) {
+                        close(selected); // Broken connection or malformed frame, other connections are not affected
+                    }
+                }
+            } catch (IOException e) {
+                if (this.running) {
+                    continue; // Selector kept working, try again
+                }
+            }
+        }
+    }
+
+    /**
+     * Function to accept a new connection
+     * @throws IOException when connection cannot be set up
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = this.serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+        this.connections.incrementAndGet();
+    }
+
+    /**
+     * Function to read available bytes of a connection and dispatch every complete frame
+     * @param connection connection to read
+     * @throws IOException when connection is broken
+     */
+    private void read(Connection connection) throws IOException {
+        ByteBuffer buffer = connection.readBuffer;
+        if (connection.channel.read(buffer) < 0) {
+            close(connection);
+            return;
+        }
+        buffer.flip();
+        int frameLength;
+        while ((frameLength = BinaryProtocol.getFrameLength(buffer)) > 0) {
+            int frameEnd = buffer.position() + frameLength;
+            buffer.position(buffer.position() + BinaryProtocol.LENGTH_BYTES);
+            dispatch(connection, buffer, frameEnd);
+            buffer.position(frameEnd);
+        }
+        buffer.compact();
+        updateInterest(connection);
+    }
+
+    /**
+     * Function to hand a request to the workers
+     * @param connection connection the request came from
+     * @param buffer buffer positioned at the payload
+     * @param frameEnd position after the frame
+     */
+    private void dispatch(Connection connection, ByteBuffer buffer, int frameEnd) {
+        byte type = buffer.get();
+        int requestId = buffer.getInt();
+        connection.outstandingResponses.incrementAndGet();
+        if (type == BinaryProtocol.ORDER && frameEnd - buffer.position() >= 2) {
+            int beverageId = buffer.getShort() & 0xFFFF;
+            this.executor.execute(() -> connection.respond(order(requestId, beverageId)));
+        } else if (type == BinaryProtocol.BEVERAGES) {
+            this.executor.execute(() -> connection.respond(listBeverages(requestId)));
+        } else {
+            ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.LENGTH_BYTES + BinaryProtocol.HEADER_BYTES);
+            response.putInt(BinaryProtocol.HEADER_BYTES).put(BinaryProtocol.ERROR).putInt(requestId);
+            connection.respond(response.array());
+        }
+    }
+
+    /**
+     * Function to prepare an order, called by workers
+     * @param requestId id of the request
+     * @param beverageId id of the beverage
+     * @return encoded response
+     */
+    private byte[] order(int requestId, int beverageId) {
+        OrderOutcome outcome = OrderOutcome.NOT_A_VALID_BEVERAGE;
+        if (beverageId < this.beverageIds.size()) {
+            try {
+                outcome = this.coffeeMachine.orderBeverage(this.beverageIds.getName(beverageId));
+            } catch (Exception e) {
+                outcome = OrderOutcome.MACHINE_BUSY; // Not expected, machine was started before the server
+            }
+        }
+        ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.ORDER_RESPONSE_BYTES);
+        BinaryProtocol.putOrderResponse(response, requestId, outcome);
+        return response.array();
+    }
+
+    /**
+     * Function to list ids of all the beverages, called by workers
+     * Beverages added to the machine since the server started get new ids, beverages left without an id are not listed
+     * @param requestId id of the request
+     * @return encoded response
+     */
+    private byte[] listBeverages(int requestId) {
+        List<String> beverages;
+        try {
+            beverages = this.coffeeMachine.getBeverages();
+        } catch (Exception e) {
+            beverages = Collections.emptyList();
+        }
+        int length = BinaryProtocol.HEADER_BYTES + 2;
+        byte[][] names = new byte[beverages.size()][];
+        int[] ids = new int[beverages.size()];
+        int count = 0;
+        for (String beverage : beverages) {
+            int id = this.beverageIds.getId(beverage);
+            if (id < 0) {
+                continue; // Dictionary is full, beverage cannot be ordered by id
+            }
+            byte[] name = beverage.getBytes(StandardCharsets.UTF_8);
+            if (length + 4 + name.length > BinaryProtocol.MAX_PAYLOAD_BYTES) {
+                break; // Rest does not fit in a single frame
+            }
+            ids[count] = id;
+            names[count++] = name;
+            length += 4 + name.length;
+        }
+        ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.LENGTH_BYTES + length);
+        response.putInt(length).put(BinaryProtocol.BEVERAGES).putInt(requestId).putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            response.putShort((short) ids[i]).putShort((short) names[i].length).put(names[i]);
+        }
+        return response.array();
+    }
+
+    /**
+     * Function to write queued responses of a connection, called only by the selector thread
+     * Responses which do not fit in the socket are kept and OP_WRITE is set until they are written
+     * @param connection connection to write
+     */
+    private void flush(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        ByteBuffer buffer = connection.writeBuffer;
+        try {
+            while (true) {
+                buffer.compact();
+                byte[] response;
+                while ((response = connection.responses.peek()) != null && response.length <= buffer.remaining()) {
+                    buffer.put(connection.responses.poll());
+                    connection.outstandingResponses.decrementAndGet();
+                }
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+                if (connection.channel.write(buffer) == 0) {
+                    break; // Socket is full
+                }
+            }
+            updateInterest(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Function to set operations the selector waits for on a connection, called only by the selector thread
+     * Reading is paused while the connection has too many outstanding responses, so a client which pipelines
+     * and never reads cannot make its queue of responses grow without limit
+     * @param connection connection to update
+     */
+    private void updateInterest(Connection connection) {
+        int interestOps = connection.outstandingResponses.get() < MAX_OUTSTANDING_RESPONSES ? SelectionKey.OP_READ : 0;
+        if (connection.writeBuffer.hasRemaining()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(interestOps);
+    }
+
+    /**
+     * Function to close a connection and put its buffers back in the pool
+     * @param connection connection to close
+     */
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already closed by the peer
+        }
+        returnBuffer(connection.readBuffer);
+        returnBuffer(connection.writeBuffer);
+        this.connections.decrementAndGet();
+    }
+
+    /**
+     * Function to start serving connections
+     */
+    public synchronized void start() {
+        if (this.selectorThread != null) {
+            return;
+        }
+        this.running = true;
+        this.selectorThread = new Thread(this::selectLoop, "binary-order-selector");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Function to stop serving and close all the connections
+     * @throws Exception when interrupted while waiting for the selector thread
+     */
+    public synchronized void stop() throws Exception {
+        this.running = false;
+        this.selector.wakeup();
+        if (this.selectorThread != null) {
+            this.selectorThread.join();
+            this.selectorThread = null;
+        }
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                close((Connection) key.attachment());
+            }
+        }
+        this.serverChannel.close();
+        this.selector.close();
+        this.executor.shutdown();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Function to get port the server listens on
+     * @return port
+     * @throws IOException when server channel is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) this.serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Function to get number of open connections
+     * @return open connections
+     */
+    public int getConnections() {
+        return this.connections.get();
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", BinaryOrderServer.class.getSimpleName() + "[", "]")
+            .add("connections=" + connections.get())
+            .add("beverages=" + beverageIds.size())
+            .toString();
+    }
+}
@@ -0,0 +1,101 @@
+package server;
+
+import history.OrderOutcome;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact length prefixed binary protocol between kiosks and BinaryOrderServer
+ * Every frame is [int length][payload], length counts only the payload, all numbers are big endian
+ * Payload of a request is [byte type][int requestId] followed by
+ * ORDER      [short beverageId]
+ * BEVERAGES  nothing
+ * Payload of a response is [byte type][int requestId] followed by
+ * ORDER      [byte outcome], code of OrderOutcome
+ * BEVERAGES  [short count] and count times [short beverageId][short length][utf-8 name]
+ * ERROR      nothing, request type was not known
+ * Beverage ids are assigned by the server and never change while it runs, clients fetch them with a BEVERAGES request
+ * Requests can be pipelined: a client can send many requests without waiting, responses can come in any order
+ * and are matched by requestId
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Type of an order request and its response
+     */
+    public static final byte ORDER = 1;
+
+    /**
+     * Type of a request for ids of all the beverages and its response
+     */
+    public static final byte BEVERAGES = 2;
+
+    /**
+     * Type of response to a request of unknown type
+     */
+    public static final byte ERROR = 127;
+
+    /**
+     * Bytes of the length prefix
+     */
+    public static final int LENGTH_BYTES = 4;
+
+    /**
+     * Bytes of type and request id which start every payload
+     */
+    public static final int HEADER_BYTES = 5;
+
+    /**
+     * Bytes of a whole order request frame
+     */
+    public static final int ORDER_REQUEST_BYTES = LENGTH_BYTES + HEADER_BYTES + 2;
+
+    /**
+     * Bytes of a whole order response frame
+     */
+    public static final int ORDER_RESPONSE_BYTES = LENGTH_BYTES + HEADER_BYTES + 1;
+
+    /**
+     * Largest payload accepted by either side
+     */
+    public static final int MAX_PAYLOAD_BYTES = 16 * 1024 - LENGTH_BYTES;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Function to write an order request frame
+     * @param buffer buffer with at least ORDER_REQUEST_BYTES remaining
+     * @param requestId id of the request
+     * @param beverageId id of the beverage
+     */
+    public static void putOrderRequest(ByteBuffer buffer, int requestId, int beverageId) {
+        buffer.putInt(HEADER_BYTES + 2).put(ORDER).putInt(requestId).putShort((short) beverageId);
+    }
+
+    /**
+     * Function to write an order response frame
+     * @param buffer buffer with at least ORDER_RESPONSE_BYTES remaining
+     * @param requestId id of the request
+     * @param outcome outcome of the order
+     */
+    public static void putOrderResponse(ByteBuffer buffer, int requestId, OrderOutcome outcome) {
+        buffer.putInt(HEADER_BYTES + 1).put(ORDER).putInt(requestId).put((byte) outcome.getCode());
+    }
+
+    /**
+     * Function to get length of the frame at position of the buffer
+     * @param buffer buffer in read mode
+     * @return length of the whole frame, -1 when buffer does not yet hold the whole frame
+     * @throws IllegalArgumentException when length is not valid
+     */
+    public static int getFrameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH_BYTES) {
+            return -1;
+        }
+        int payloadLength = buffer.getInt(buffer.position());
+        if (payloadLength < HEADER_BYTES || payloadLength > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Invalid frame length " + payloadLength);
+        }
+        return buffer.remaining() < LENGTH_BYTES + payloadLength ? -1 : LENGTH_BYTES + payloadLength;
+    }
+}
@@ -0,0 +1,137 @@
+package server;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import recipe.RecipeBuilder;
+
+/**
+ * Local load test of OrderServer
+ * Every client thread sends orders one after another over a kept alive connection and times every round trip
+ * Run main to load a machine on a free local port and print requests per second and latency percentiles
+ */
+public class LoadTest {
+
+    /**
+     * Function to send orders to a running server
+     * @param baseUrl url of the server, for eg http://127.0.0.1:8080
+     * @param beverages beverages to order, clients cycle through them
+     * @param clients number of parallel clients
+     * @param requestsPerClient number of orders every client sends
+     * @return report of the run
+     * @throws InterruptedException when interrupted while waiting for clients
+     */
+    public static LoadTestReport run(String baseUrl, String[] beverages, int clients, int requestsPerClient) throws InterruptedException {
+        long[][] latencies = new long[clients][requestsPerClient];
+        int[] succeeded = new int[clients];
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            threads[c] = new Thread(() -> {
+                for (int i = 0; i < requestsPerClient; i++) {
+                    String body = "{\"beverage\":\"" + beverages[(client + i) % beverages.length] + "\"}";
+                    long startNanos = System.nanoTime();
+                    try {
+                        post(baseUrl + "/orders", body);
+                        latencies[client][succeeded[client]++] = System.nanoTime() - startNanos;
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "load-test-" + c);
+        }
+        long startNanos = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        int total = 0;
+        for (int count : succeeded) {
+            total += count;
+        }
+        long[] merged = new long[total];
+        int position = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, merged, position, succeeded[c]);
+            position += succeeded[c];
+        }
+        return new LoadTestReport(errors.get(), elapsedNanos, merged);
+    }
+
+    /**
+     * Function to send a post request and read the whole response, so the connection goes back to the keep alive cache
+     * @param url url to post to
+     * @param body json body
+     * @return response body
+     * @throws IOException when request fails or status is not 200
+     */
+    static String post(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int code = connection.getResponseCode();
+        InputStream inputStream = code == 200 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (inputStream != null) {
+            try (InputStream stream = inputStream) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = stream.read(buffer)) > 0) {
+                    response.write(buffer, 0, read);
+                }
+            }
+        }
+        if (code != 200) {
+            throw new IOException("Request failed with status " + code);
+        }
+        return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Usage: LoadTest [clients] [requestsPerClient] [outlets]
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int outlets = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        // Stock large enough that every order is brewed, so the run measures the full order path
+        int orders = clients * requestsPerClient;
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(outlets)
+            .addIngredient("hot_water", orders * 200)
+            .addIngredient("hot_milk", orders * 100)
+            .addIngredient("tea_leaves_syrup", orders * 30)
+            .addRecipe(new RecipeBuilder("hot_tea", 3).addIngredient("hot_water", 200).addIngredient("hot_milk", 100).addIngredient("tea_leaves_syrup", 30).build())
+            .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 100).build())
+            .build();
+        OrderServer.enableNoDelay(); // This JVM runs only the benchmark, so the JVM wide setting is fine
+        OrderServer orderServer = new OrderServer(coffeeMachine, new InetSocketAddress("127.0.0.1", 0));
+        orderServer.start();
+        try {
+            String baseUrl = "http://127.0.0.1:" + orderServer.getPort();
+            String[] beverages = {"hot_tea", "hot_water"};
+            run(baseUrl, beverages, clients, Math.max(1, requestsPerClient / 10)); // Warm up
+            LoadTestReport report = run(baseUrl, beverages, clients, requestsPerClient);
+            System.out.println(orderServer + " " + Arrays.toString(args));
+            System.out.println(report);
+        } finally {
+            orderServer.stop(0);
+        }
+    }
+}
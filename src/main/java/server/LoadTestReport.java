@@ -0,0 +1,104 @@
+package server;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Class to hold results of a single LoadTest run
+ */
+public class LoadTestReport {
+
+    /**
+     * Variable to store number of requests which got a response
+     */
+    private final int requests;
+
+    /**
+     * Variable to store number of requests which failed or got an error status
+     */
+    private final int errors;
+
+    /**
+     * Variable to store wall clock time of the run in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Latency of every successful request in nanoseconds, sorted
+     */
+    private final long[] latencies;
+
+    /**
+     * Constructs a report
+     * @param errors number of failed requests
+     * @param elapsedNanos wall clock time of the run
+     * @param latencies latency of every successful request, sorted in place
+     */
+    public LoadTestReport(int errors, long elapsedNanos, long[] latencies) {
+        Arrays.sort(latencies);
+        this.requests = latencies.length;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Function to get number of successful requests
+     * @return successful requests
+     */
+    public int getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Function to get number of failed requests
+     * @return failed requests
+     */
+    public int getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Function to get wall clock time of the run
+     * @return time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Function to get successful requests served per second
+     * @return throughput
+     */
+    public double getRequestsPerSecond() {
+        return this.elapsedNanos <= 0 ? 0 : this.requests * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Function to get a latency percentile of successful requests
+     * @param percentile percentile between 0 and 100, for eg 99
+     * @return latency in microseconds, 0 when no request succeeded
+     */
+    public long getLatencyPercentileMicros(double percentile) {
+        if (this.latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * this.latencies.length);
+        return this.latencies[Math.max(0, rank - 1)] / 1000;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", LoadTestReport.class.getSimpleName() + "[", "]")
+            .add("requests=" + requests)
+            .add("errors=" + errors)
+            .add(String.format("requestsPerSecond=%.1f", getRequestsPerSecond()))
+            .add("p50Micros=" + getLatencyPercentileMicros(50))
+            .add("p90Micros=" + getLatencyPercentileMicros(90))
+            .add("p99Micros=" + getLatencyPercentileMicros(99))
+            .toString();
+    }
+}
@@ -0,0 +1,433 @@
+package server;
+
+import coffeeMachine.AdmissionPolicy;
+import coffeeMachine.CoffeeMachine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import history.OrderOutcome;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Embedded HTTP front of a CoffeeMachine, built only on the HttpServer of the JDK
+ * Endpoints
+ * POST /orders        {"beverage": "hot_tea"} -> {"beverage": "hot_tea", "status": "hot_tea is prepared", "prepared": true}
+ * POST /orders/batch  one order json per line -> one result json per line, in same order
+ * GET  /stock         -> {"quantities": {"hot_water": 300, ...}, "running_low": ["hot_milk"]}
+ * POST /refill        empty body refills every ingredient, {"ingredient": "hot_milk"} refills one -> same body as GET /stock
+ * Every response has a fixed length, so HTTP/1.1 clients keep their connection open between requests
+ * Requests are read by a few threads which answer stock queries and refills themselves, so those never wait behind
+ * orders. Orders are handed over to a pool with a thread per outlet and a bounded queue. Orders waiting in that queue
+ * count as waiting for an outlet, so the machine's admission policy still decides which orders are rejected, and an
+ * order which finds the queue full is rejected as busy in the same way
+ */
+public class OrderServer {
+
+    /**
+     * Content type of json responses
+     */
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /**
+     * Content type of json lines responses
+     */
+    private static final String JSON_LINES = "application/x-ndjson; charset=utf-8";
+
+    /**
+     * Default number of orders which can wait for an order thread
+     */
+    private static final int DEFAULT_MAX_QUEUED_ORDERS = 256;
+
+    /**
+     * Machine orders are sent to
+     */
+    private final CoffeeMachine coffeeMachine;
+
+    /**
+     * Underlying JDK server
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Policy of the machine deciding when orders are rejected
+     */
+    private final AdmissionPolicy admissionPolicy;
+
+    /**
+     * Pool reading requests, answering stock queries and refills and handing orders over to the order pool
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Pool preparing orders with a thread per outlet, its queue is bounded
+     */
+    private final ThreadPoolExecutor orderExecutor;
+
+    /**
+     * Constructs a server with a thread per outlet for orders and 2 threads for requests, stock queries and refills
+     * @param coffeeMachine started machine
+     * @param address address to listen on, port 0 picks a free port
+     * @throws Exception when machine is not yet started or address cannot be bound
+     */
+    public OrderServer(CoffeeMachine coffeeMachine, InetSocketAddress address) throws Exception {
+        this(coffeeMachine, address, 2);
+    }
+
+    /**
+     * Constructs a server where at most 256 orders wait for an order thread
+     * @param coffeeMachine started machine
+     * @param address address to listen on, port 0 picks a free port
+     * @param extraThreads threads for requests, stock queries and refills on top of one per outlet for orders
+     * @throws Exception when machine is not yet started or address cannot be bound
+     */
+    public OrderServer(CoffeeMachine coffeeMachine, InetSocketAddress address, int extraThreads) throws Exception {
+        this(coffeeMachine, address, extraThreads, DEFAULT_MAX_QUEUED_ORDERS);
+    }
+
+    /**
+     * Constructs a server
+     * @param coffeeMachine started machine
+     * @param address address to listen on, port 0 picks a free port
+     * @param extraThreads threads for requests, stock queries and refills on top of one per outlet for orders
+     * @param maxQueuedOrders most orders waiting for an order thread, further orders are rejected as busy
+     * @throws Exception when machine is not yet started or address cannot be bound
+     */
+    public OrderServer(CoffeeMachine coffeeMachine, InetSocketAddress address, int extraThreads, int maxQueuedOrders) throws Exception {
+        coffeeMachine.getTotalIngredients(); // Fails when machine is not yet started
+        this.coffeeMachine = coffeeMachine;
+        this.admissionPolicy = coffeeMachine.getAdmissionPolicy();
+        int requestThreads = Math.max(1, extraThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(requestThreads, requestThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "order-server-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int outlets = Math.max(1, coffeeMachine.getTotalOutlets());
+        AtomicInteger orderThreadCount = new AtomicInteger();
+        this.orderExecutor = new ThreadPoolExecutor(outlets, outlets, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, maxQueuedOrders)), runnable -> {
+            Thread thread = new Thread(runnable, "order-server-order-" + orderThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpServer = HttpServer.create(address, 0);
+        this.httpServer.setExecutor(this.executor);
+        this.httpServer.createContext("/orders", exchange -> submit(exchange,
+            orderExchange -> placeOrder(orderExchange, this::prepare), orderExchange -> placeOrder(orderExchange, this::reject)));
+        this.httpServer.createContext("/orders/batch", exchange -> submit(exchange,
+            orderExchange -> placeOrders(orderExchange, this::prepare), orderExchange -> placeOrders(orderExchange, this::reject)));
+        this.httpServer.createContext("/stock", exchange -> handle(exchange, "GET", this::getStock));
+        this.httpServer.createContext("/refill", exchange -> handle(exchange, "POST", this::refill));
+    }
+
+    /**
+     * Function to make responses of every JDK HTTP server of this JVM skip Nagle's algorithm
+     * Headers and body of a response are written separately, with Nagle's algorithm the body then waits for the
+     * delayed ack of the client on every kept alive request. The system property is JVM wide and is read once, when
+     * the JDK server is first used, so it should be called before any server is created. An explicit value of the
+     * property is kept
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Handler of a single endpoint
+     */
+    private interface Endpoint {
+
+        /**
+         * Function to handle a request
+         * @param exchange request and response
+         * @throws Exception when request is not valid
+         */
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    /**
+     * Order of a request, for eg preparing it or rejecting it
+     */
+    private interface OrderHandler {
+
+        /**
+         * Function to handle an order
+         * @param order json of the order
+         * @return json of the result
+         * @throws Exception when order is not valid
+         */
+        JSONObject handle(JSONObject order) throws Exception;
+    }
+
+    /**
+     * Function to hand a request with orders over to the order pool
+     * Request is rejected on the calling thread when the admission policy finds the machine overloaded, counting
+     * orders queued in the pool as waiting for an outlet, or when the queue of the pool is full
+     * @param exchange request and response
+     * @param endpoint endpoint preparing the orders
+     * @param rejection endpoint rejecting the orders
+     * @throws IOException when response cannot be written
+     */
+    private void submit(HttpExchange exchange, Endpoint endpoint, Endpoint rejection) throws IOException {
+        int outlets = resizeOrderPool();
+        int queueDepth = this.orderExecutor.getQueue().size() + this.coffeeMachine.getQueuedOrders();
+        if (!this.admissionPolicy.isOverloaded(queueDepth, outlets, this.coffeeMachine.getAverageServiceNanos())) {
+            try {
+                this.orderExecutor.execute(() -> {
+                    try {
+                        handle(exchange, "POST", endpoint);
+                    } catch (IOException e) {
+                        // Client went away, exchange is already closed
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // Queue is full or server is stopped, order is rejected below
+            }
+        }
+        handle(exchange, "POST", rejection);
+    }
+
+    /**
+     * Function to make the order pool follow number of outlets of the machine, which can change at runtime
+     * @return number of outlets of the machine
+     */
+    private synchronized int resizeOrderPool() {
+        int outlets = Math.max(1, this.coffeeMachine.getTotalOutlets());
+        if (outlets > this.orderExecutor.getMaximumPoolSize()) {
+            this.orderExecutor.setMaximumPoolSize(outlets); // Maximum grows first so core never exceeds it
+            this.orderExecutor.setCorePoolSize(outlets);
+        } else if (outlets < this.orderExecutor.getCorePoolSize()) {
+            this.orderExecutor.setCorePoolSize(outlets);
+            this.orderExecutor.setMaximumPoolSize(outlets);
+        }
+        return outlets;
+    }
+
+    /**
+     * Function to run an endpoint, answering wrong methods with 405 and failures with 400
+     * @param exchange request and response
+     * @param method only method allowed by the endpoint
+     * @param endpoint endpoint to run
+     * @throws IOException when response cannot be written
+     */
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                send(exchange, 405, JSON, new JSONObject().put("error", "Only " + method + " is allowed").toString());
+                return;
+            }
+            endpoint.handle(exchange);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            send(exchange, 400, JSON, new JSONObject().put("error", String.valueOf(e.getMessage())).toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Function to place a single order
+     * @param exchange request and response
+     * @param orderHandler handler preparing or rejecting the order
+     * @throws Exception when order is not valid
+     */
+    private void placeOrder(HttpExchange exchange, OrderHandler orderHandler) throws Exception {
+        JSONObject order = new JSONObject(readBody(exchange));
+        send(exchange, 200, JSON, orderHandler.handle(order).toString());
+    }
+
+    /**
+     * Function to place orders given as json lines, blank lines are skipped
+     * Orders are prepared one after another, a line which is not a valid order gets an error result instead
+     * @param exchange request and response
+     * @param orderHandler handler preparing or rejecting every order
+     * @throws Exception when body cannot be read
+     */
+    private void placeOrders(HttpExchange exchange, OrderHandler orderHandler) throws Exception {
+        StringBuilder results = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JSONObject result;
+                try {
+                    result = orderHandler.handle(new JSONObject(line));
+                } catch (Exception e) {
+                    result = new JSONObject().put("error", String.valueOf(e.getMessage()));
+                }
+                results.append(result).append('\n');
+            }
+        }
+        send(exchange, 200, JSON_LINES, results.toString());
+    }
+
+    /**
+     * Function to prepare an order
+     * @param order json of the order
+     * @return json of the result
+     * @throws Exception when order has no beverage or machine is not started
+     */
+    private JSONObject prepare(JSONObject order) throws Exception {
+        String beverage = order.getString("beverage");
+        StringBuilder status = new StringBuilder();
+        OrderOutcome outcome = this.coffeeMachine.orderBeverage(beverage, status::append);
+        return new JSONObject()
+            .put("beverage", beverage)
+            .put("status", status.toString())
+            .put("prepared", outcome == OrderOutcome.PREPARED);
+    }
+
+    /**
+     * Function to reject an order in the same way as the machine rejects an order when it is overloaded
+     * @param order json of the order
+     * @return json of the result
+     * @throws Exception when order has no beverage
+     */
+    private JSONObject reject(JSONObject order) throws Exception {
+        String beverage = order.getString("beverage");
+        return new JSONObject()
+            .put("beverage", beverage)
+            .put("status", String.format("%s cannot be prepared because machine is busy", beverage))
+            .put("prepared", false);
+    }
+
+    /**
+     * Function to answer stock of the machine
+     * @param exchange request and response
+     * @throws Exception when machine is not started
+     */
+    private void getStock(HttpExchange exchange) throws Exception {
+        send(exchange, 200, JSON, getStockJson().toString());
+    }
+
+    /**
+     * Function to refill one or all the ingredients
+     * @param exchange request and response
+     * @throws Exception when machine is not started
+     */
+    private void refill(HttpExchange exchange) throws Exception {
+        String body = readBody(exchange).trim();
+        if (body.isEmpty()) {
+            this.coffeeMachine.refillAllIngredients();
+        } else {
+            this.coffeeMachine.refillIngredient(new JSONObject(body).getString("ingredient"));
+        }
+        send(exchange, 200, JSON, getStockJson().toString());
+    }
+
+    /**
+     * Function to get json of current stock
+     * @return json with quantity of every ingredient and ingredients running low
+     * @throws Exception when machine is not started
+     */
+    private JSONObject getStockJson() throws Exception {
+        JSONObject quantities = new JSONObject();
+        for (Map.Entry<String, Integer> quantity : this.coffeeMachine.getAvailableQuantities().entrySet()) {
+            quantities.put(quantity.getKey(), quantity.getValue().intValue());
+        }
+        return new JSONObject()
+            .put("quantities", quantities)
+            .put("running_low", new JSONArray(this.coffeeMachine.getRunningLowIngredients()));
+    }
+
+    /**
+     * Function to read whole request body
+     * @param exchange request and response
+     * @return body as text
+     * @throws IOException when body cannot be read
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Function to send a response with fixed length, which keeps the connection reusable
+     * @param exchange request and response
+     * @param code http status code
+     * @param contentType content type of the body
+     * @param body body of the response
+     * @throws IOException when response cannot be written
+     */
+    private static void send(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Function to start serving requests
+     */
+    public void start() {
+        this.httpServer.start();
+    }
+
+    /**
+     * Function to stop serving requests
+     * @param delaySeconds most time given to requests in progress
+     */
+    public void stop(int delaySeconds) {
+        this.httpServer.stop(delaySeconds);
+        this.executor.shutdown();
+        this.orderExecutor.shutdown();
+    }
+
+    /**
+     * Function to get port the server listens on
+     * @return port
+     */
+    public int getPort() {
+        return this.httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Function to get number of threads handling requests
+     * @return size of the order pool, which follows number of outlets, plus threads for other requests
+     */
+    public int getThreads() {
+        return resizeOrderPool() + this.executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", OrderServer.class.getSimpleName() + "[", "]")
+            .add("address=" + httpServer.getAddress())
+            .add("threads=" + getThreads())
+            .toString();
+    }
+}
@@ -0,0 +1,174 @@
+package simulator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Class to hold aggregate statistics of a single fleet simulation run
+ */
+public class FleetReport {
+
+    /**
+     * Variable to store number of machines in the fleet
+     */
+    private final int machines;
+
+    /**
+     * Variable to store number of orders every machine received
+     */
+    private final int rounds;
+
+    /**
+     * Variable to store wall clock time of the run in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Map to store beverage name -> number of prepared orders
+     */
+    private final Map<String, Long> preparedOrders;
+
+    /**
+     * Map to store beverage name -> number of failed orders
+     */
+    private final Map<String, Long> failedOrders;
+
+    /**
+     * Map to store ingredient name -> quantity left in the whole fleet
+     */
+    private final Map<String, Long> remainingStock;
+
+    /**
+     * Variable to store number of machines which cannot prepare any beverage at the end of the run
+     */
+    private final int depletedMachines;
+
+    /**
+     * Constructs a report from raw results of a run
+     * @param machines number of machines in the fleet
+     * @param rounds number of orders every machine received
+     * @param elapsedNanos wall clock time of the run
+     * @param beverages names of beverages
+     * @param prepared number of prepared orders of every beverage
+     * @param failed number of failed orders of every beverage
+     * @param ingredients names of ingredients
+     * @param remaining quantity left of every ingredient in the whole fleet
+     * @param depletedMachines number of machines which cannot prepare any beverage
+     */
+    public FleetReport(int machines, int rounds, long elapsedNanos, String[] beverages, long[] prepared, long[] failed,
+                       String[] ingredients, long[] remaining, int depletedMachines) {
+        this.machines = machines;
+        this.rounds = rounds;
+        this.elapsedNanos = elapsedNanos;
+        this.preparedOrders = toMap(beverages, prepared);
+        this.failedOrders = toMap(beverages, failed);
+        this.remainingStock = toMap(ingredients, remaining);
+        this.depletedMachines = depletedMachines;
+    }
+
+    /**
+     * Function to zip names with their values
+     * @param names names
+     * @param values value of every name
+     * @return read only map of name -> value keeping order of names
+     */
+    private static Map<String, Long> toMap(String[] names, long[] values) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Function to get number of machines in the fleet
+     * @return number of machines
+     */
+    public int getMachines() {
+        return this.machines;
+    }
+
+    /**
+     * Function to get total number of orders of the run
+     * @return total number of orders
+     */
+    public long getTotalOrders() {
+        return (long) this.machines * this.rounds;
+    }
+
+    /**
+     * Function to get number of prepared orders of the run
+     * @return number of prepared orders
+     */
+    public long getPreparedOrders() {
+        long prepared = 0;
+        for (long orders : this.preparedOrders.values()) {
+            prepared += orders;
+        }
+        return prepared;
+    }
+
+    /**
+     * Function to get number of prepared orders of every beverage
+     * @return beverage name -> number of prepared orders
+     */
+    public Map<String, Long> getPreparedOrdersByBeverage() {
+        return this.preparedOrders;
+    }
+
+    /**
+     * Function to get number of failed orders of every beverage
+     * @return beverage name -> number of failed orders
+     */
+    public Map<String, Long> getFailedOrdersByBeverage() {
+        return this.failedOrders;
+    }
+
+    /**
+     * Function to get quantity left of every ingredient in the whole fleet
+     * @return ingredient name -> quantity left
+     */
+    public Map<String, Long> getRemainingStock() {
+        return this.remainingStock;
+    }
+
+    /**
+     * Function to get number of machines which cannot prepare any beverage at the end of the run
+     * @return number of depleted machines
+     */
+    public int getDepletedMachines() {
+        return this.depletedMachines;
+    }
+
+    /**
+     * Function to get wall clock time of the run
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Function to get simulated orders per second of wall clock time
+     * @return simulation speed
+     */
+    public double getSimulatedOrdersPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : getTotalOrders() * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", FleetReport.class.getSimpleName() + "[", "]")
+            .add("machines=" + machines)
+            .add("totalOrders=" + getTotalOrders())
+            .add("preparedOrders=" + getPreparedOrders())
+            .add("depletedMachines=" + depletedMachines)
+            .add("remainingStock=" + remainingStock)
+            .toString();
+    }
+}
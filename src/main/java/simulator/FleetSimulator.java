@@ -0,0 +1,336 @@
+package simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import recipe.Recipe;
+
+/**
+ * Class to simulate a very large fleet of machines in bulk
+ * Stock of all the machines is kept in one flat array (machine major) and recipes in a dense requirement matrix
+ * so a fleet of a million machines costs a few int arrays instead of an Ingredient with a lock per machine
+ * Machines are independent, so the fleet is split in partitions which are advanced in parallel on a fork join pool
+ * Every machine has its own random state, same seed always gives same result whatever the parallelism is
+ * Unlike CoffeeMachine there are no outlets, every machine receives one order per round
+ */
+public class FleetSimulator {
+
+    /**
+     * Minimum number of machines advanced by a single fork join task
+     */
+    private static final int PARTITION_SIZE = 4096;
+
+    /**
+     * Variable to store number of machines in the fleet
+     */
+    private final int machines;
+
+    /**
+     * Names of ingredients, same for every machine
+     */
+    private final String[] ingredientNames;
+
+    /**
+     * Max quantity of every ingredient, same for every machine
+     */
+    private final int[] capacities;
+
+    /**
+     * Variable to store number of ingredients of every machine
+     */
+    private final int ingredientCount;
+
+    /**
+     * Stock of all the machines, quantity of ingredient j of machine m is at m * ingredientCount + j
+     */
+    private final int[] stock;
+
+    /**
+     * Random state of every machine
+     */
+    private final long[] randomStates;
+
+    /**
+     * Variable to store seed of the random state of every machine
+     */
+    private final long seed;
+
+    /**
+     * Names of beverages in the mix
+     */
+    private String[] beverages = new String[0];
+
+    /**
+     * Required quantity of ingredient j for beverage r is at r * ingredientCount + j
+     */
+    private int[] requirements = new int[0];
+
+    /**
+     * Cumulative weights of beverages in the mix
+     */
+    private double[] cumulativeWeights = new double[0];
+
+    /**
+     * Variable to store after how many rounds every machine is refilled, 0 means never
+     */
+    private int refillEveryRounds = 0;
+
+    /**
+     * Variable to store number of threads used to advance the fleet
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a fleet whose every machine starts with full stock
+     * @param machines number of machines in the fleet
+     * @param ingredientNames names of the ingredients of every machine
+     * @param capacities max quantity of every ingredient
+     * @param ingredientCount number of ingredients to take from the arrays
+     * @param seed seed of the order stream of every machine
+     */
+    public FleetSimulator(int machines, String[] ingredientNames, int[] capacities, int ingredientCount, long seed) {
+        this.machines = machines;
+        this.ingredientNames = Arrays.copyOf(ingredientNames, ingredientCount);
+        this.capacities = Arrays.copyOf(capacities, ingredientCount);
+        this.ingredientCount = ingredientCount;
+        this.stock = new int[machines * ingredientCount];
+        this.randomStates = new long[machines];
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Function to add a beverage to the order mix of every machine
+     * A beverage needing an ingredient which machines do not have can never be prepared
+     * @param recipe recipe of the beverage
+     * @param weight relative weight of the beverage, higher weight means more orders
+     * @return this simulator
+     */
+    public FleetSimulator addBeverage(Recipe recipe, double weight) {
+        if (weight <= 0) {
+            return this;
+        }
+        int beverage = this.beverages.length;
+        this.beverages = Arrays.copyOf(this.beverages, beverage + 1);
+        this.beverages[beverage] = recipe.getName();
+        this.requirements = Arrays.copyOf(this.requirements, (beverage + 1) * this.ingredientCount);
+        String[] names = recipe.getIngredientNames();
+        int[] quantities = recipe.getRequiredQuantities();
+        for (int i = 0; i < names.length; i++) {
+            int ingredient = Arrays.asList(this.ingredientNames).indexOf(names[i]);
+            if (ingredient < 0) {
+                // Not available in any machine, no stock can ever satisfy it
+                Arrays.fill(this.requirements, beverage * this.ingredientCount, (beverage + 1) * this.ingredientCount, Integer.MAX_VALUE);
+                break;
+            }
+            this.requirements[beverage * this.ingredientCount + ingredient] += quantities[i];
+        }
+        this.cumulativeWeights = Arrays.copyOf(this.cumulativeWeights, beverage + 1);
+        this.cumulativeWeights[beverage] = (beverage == 0 ? 0 : this.cumulativeWeights[beverage - 1]) + weight;
+        return this;
+    }
+
+    /**
+     * Function to refill every machine after given number of rounds
+     * @param refillEveryRounds number of rounds between refills, 0 means never
+     * @return this simulator
+     */
+    public FleetSimulator setRefillEveryRounds(int refillEveryRounds) {
+        this.refillEveryRounds = Math.max(0, refillEveryRounds);
+        return this;
+    }
+
+    /**
+     * Function to set number of threads used to advance the fleet
+     * @param parallelism number of threads
+     * @return this simulator
+     */
+    public FleetSimulator setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Function to fill every machine to its capacity and restart the order stream of every machine
+     */
+    public void reset() {
+        for (int machine = 0; machine < this.machines; machine++) {
+            System.arraycopy(this.capacities, 0, this.stock, machine * this.ingredientCount, this.ingredientCount);
+            this.randomStates[machine] = mix(this.seed + machine * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    /**
+     * Function to get current quantity of an ingredient of a machine
+     * @param machine index of the machine
+     * @param ingredient index of the ingredient
+     * @return current quantity
+     */
+    public int getQuantity(int machine, int ingredient) {
+        return this.stock[machine * this.ingredientCount + ingredient];
+    }
+
+    /**
+     * Function to advance every machine of the fleet by given number of rounds
+     * Stock is not reset, so consecutive runs continue from where previous run stopped
+     * @param rounds number of orders every machine receives
+     * @return aggregate statistics of the run
+     * @throws Exception when beverage mix is empty
+     */
+    public FleetReport run(int rounds) throws Exception {
+        if (this.beverages.length == 0) {
+            throw new Exception("Beverage mix is empty");
+        }
+        long start = System.nanoTime();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(this.parallelism);
+        long[] statistics;
+        try {
+            statistics = forkJoinPool.invoke(new Partition(0, this.machines, rounds));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int beverageCount = this.beverages.length;
+        return new FleetReport(this.machines, rounds, elapsedNanos, this.beverages,
+            Arrays.copyOfRange(statistics, 0, beverageCount),
+            Arrays.copyOfRange(statistics, beverageCount, 2 * beverageCount),
+            this.ingredientNames,
+            Arrays.copyOfRange(statistics, 2 * beverageCount, 2 * beverageCount + this.ingredientCount),
+            (int) statistics[statistics.length - 1]);
+    }
+
+    /**
+     * Function to advance given machines
+     * Statistics are laid out as served per beverage, failed per beverage, remaining stock per ingredient, depleted machines
+     * @param from first machine
+     * @param to machine after the last one
+     * @param rounds number of orders every machine receives
+     * @return statistics of given machines
+     */
+    private long[] advance(int from, int to, int rounds) {
+        int beverageCount = this.beverages.length;
+        int ingredients = this.ingredientCount;
+        int[] stock = this.stock;
+        int[] requirements = this.requirements;
+        double[] cumulativeWeights = this.cumulativeWeights;
+        double totalWeight = cumulativeWeights[beverageCount - 1];
+        long[] statistics = new long[2 * beverageCount + ingredients + 1];
+
+        for (int machine = from; machine < to; machine++) {
+            int base = machine * ingredients;
+            long randomState = this.randomStates[machine];
+            for (int round = 0; round < rounds; round++) {
+                randomState += 0x9E3779B97F4A7C15L;
+                double pick = (mix(randomState) >>> 11) * 0x1.0p-53 * totalWeight;
+                int beverage = 0;
+                while (beverage < beverageCount - 1 && cumulativeWeights[beverage] <= pick) {
+                    beverage++;
+                }
+
+                int required = beverage * ingredients;
+                boolean sufficient = true;
+                for (int j = 0; j < ingredients; j++) {
+                    sufficient &= stock[base + j] >= requirements[required + j];
+                }
+                if (sufficient) {
+                    for (int j = 0; j < ingredients; j++) {
+                        stock[base + j] -= requirements[required + j];
+                    }
+                    statistics[beverage]++;
+                } else {
+                    statistics[beverageCount + beverage]++;
+                }
+
+                if (this.refillEveryRounds > 0 && (round + 1) % this.refillEveryRounds == 0) {
+                    System.arraycopy(this.capacities, 0, stock, base, ingredients);
+                }
+            }
+            this.randomStates[machine] = randomState;
+
+            boolean depleted = true;
+            for (int beverage = 0; beverage < beverageCount && depleted; beverage++) {
+                boolean sufficient = true;
+                for (int j = 0; j < ingredients; j++) {
+                    sufficient &= stock[base + j] >= requirements[beverage * ingredients + j];
+                }
+                depleted = !sufficient;
+            }
+            if (depleted) {
+                statistics[statistics.length - 1]++;
+            }
+            for (int j = 0; j < ingredients; j++) {
+                statistics[2 * beverageCount + j] += stock[base + j];
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Function to scramble a random state, see SplitMix64
+     * @param value state to scramble
+     * @return well distributed 64 bit value
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Fork join task advancing a range of machines, splits itself until range is small enough
+     */
+    private class Partition extends RecursiveTask<long[]> {
+
+        /**
+         * Version of the serialized form, RecursiveTask is serializable
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * First machine of the range
+         */
+        private final int from;
+
+        /**
+         * Machine after the last one of the range
+         */
+        private final int to;
+
+        /**
+         * Number of orders every machine receives
+         */
+        private final int rounds;
+
+        /**
+         * Constructs a task for given range of machines
+         * @param from first machine
+         * @param to machine after the last one
+         * @param rounds number of orders every machine receives
+         */
+        Partition(int from, int to, int rounds) {
+            this.from = from;
+            this.to = to;
+            this.rounds = rounds;
+        }
+
+        /**
+         * @return statistics of the range
+         */
+        @Override
+        protected long[] compute() {
+            if (this.to - this.from <= PARTITION_SIZE) {
+                return advance(this.from, this.to, this.rounds);
+            }
+            int middle = (this.from + this.to) >>> 1;
+            Partition left = new Partition(this.from, middle, this.rounds);
+            left.fork();
+            long[] statistics = new Partition(middle, this.to, this.rounds).compute();
+            long[] leftStatistics = left.join();
+            for (int i = 0; i < statistics.length; i++) {
+                statistics[i] += leftStatistics[i];
+            }
+            return statistics;
+        }
+    }
+}
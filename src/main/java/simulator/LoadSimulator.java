@@ -0,0 +1,232 @@
+package simulator;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineMaker;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+
+/**
+ * Class to replay order streams against a fresh CoffeeMachine built by CoffeeMachineMaker
+ * Every run builds a new machine from the configuration so runs are independent of each other
+ * Orders can be replayed as fast as possible or paced by their arrival times
+ */
+public class LoadSimulator {
+
+    /**
+     * Json representation of the machine, same format as CoffeeMachineMaker
+     */
+    private final JSONObject machineConfig;
+
+    /**
+     * Variable to store number of threads placing orders
+     */
+    private final int threadCount;
+
+    /**
+     * Variable to store how many milliseconds of real time one millisecond of stream time takes
+     * 0 replays all the orders as fast as possible
+     */
+    private double timeScale = 0;
+
+    /**
+     * Variable to store after how many completed orders stock is sampled
+     */
+    private int sampleEveryOrders = 100;
+
+    /**
+     * Quantity per second poured by a background refill, 0 never refills during a run
+     */
+    private double refillFlowRate = 0;
+
+    /**
+     * Variable to store number of refills which can run at the same time
+     */
+    private int refillWorkers = 1;
+
+    /**
+     * Constructs a simulator for given machine
+     * @param machineConfig json representation of the machine
+     * @param outletCount number of outlets to use, overrides count_n of the configuration
+     * @param threadCount number of threads placing orders
+     */
+    public LoadSimulator(JSONObject machineConfig, int outletCount, int threadCount) {
+        this.machineConfig = new JSONObject(machineConfig.toString()); // Copy so that caller's configuration is not changed
+        this.machineConfig.getJSONObject(CoffeeMachineMaker.MACHINE)
+            .getJSONObject(CoffeeMachineMaker.OUTLETS)
+            .put(CoffeeMachineMaker.OUTLETS_COUNT, outletCount);
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Function to set pacing of the replay
+     * @param timeScale real milliseconds per stream millisecond, 0 to replay as fast as possible
+     * @return this simulator
+     */
+    public LoadSimulator setTimeScale(double timeScale) {
+        this.timeScale = Math.max(0, timeScale);
+        return this;
+    }
+
+    /**
+     * Function to set how often stock is sampled for depletion curves
+     * @param sampleEveryOrders number of completed orders between samples
+     * @return this simulator
+     */
+    public LoadSimulator setSampleEveryOrders(int sampleEveryOrders) {
+        this.sampleEveryOrders = Math.max(1, sampleEveryOrders);
+        return this;
+    }
+
+    /**
+     * Function to refill ingredients in background while orders are replayed
+     * Whenever stock is sampled, every ingredient at or below half of its initial quantity gets a refill at given flow rate
+     * @param refillFlowRate quantity per second poured by a refill, 0 to never refill
+     * @param refillWorkers number of refills which can run at the same time
+     * @return this simulator
+     */
+    public LoadSimulator setBackgroundRefills(double refillFlowRate, int refillWorkers) {
+        this.refillFlowRate = Math.max(0, refillFlowRate);
+        this.refillWorkers = Math.max(1, refillWorkers);
+        return this;
+    }
+
+    /**
+     * Function to start background refills of ingredients which are running low, see setBackgroundRefills
+     * @param coffeeMachine machine being replayed against
+     * @param initialQuantities quantity of every ingredient when run started
+     * @param quantities current quantity of every ingredient
+     * @throws Exception when machine is not yet started
+     */
+    private void refillRunningLow(CoffeeMachine coffeeMachine, Map<String, Integer> initialQuantities, Map<String, Integer> quantities) throws Exception {
+        for (Map.Entry<String, Integer> quantity : quantities.entrySet()) {
+            if (quantity.getValue() * 2 <= initialQuantities.getOrDefault(quantity.getKey(), 0)) {
+                coffeeMachine.startRefill(quantity.getKey(), this.refillFlowRate);
+            }
+        }
+    }
+
+    /**
+     * Function to replay given orders against a new machine
+     * Latency of an order is measured from its scheduled arrival when paced, else from its submission
+     * @param orders orders to replay sorted by arrival time
+     * @return report of the run
+     * @throws Exception when machine cannot be built
+     */
+    public SimulationReport run(List<SimulatedOrder> orders) throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput(this.machineConfig);
+
+        long[] latencies = new long[orders.size()];
+        String[] results = new String[orders.size()];
+        AtomicInteger completedOrders = new AtomicInteger();
+        TreeMap<Integer, Map<String, Integer>> samples = new TreeMap<>();
+        Map<String, Integer> initialQuantities = coffeeMachine.getAvailableQuantities();
+        samples.put(0, initialQuantities);
+        if (this.refillFlowRate > 0) {
+            coffeeMachine.setRefillWorkers(this.refillWorkers);
+        }
+
+        ExecutorService es = Executors.newFixedThreadPool(this.threadCount);
+        List<Future<?>> futureList = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                SimulatedOrder order = orders.get(i);
+                long arrivalNanos = startNanos + (long) (order.getArrivalMillis() * this.timeScale * 1e6);
+                if (this.timeScale > 0) {
+                    long waitNanos = arrivalNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+                int index = i;
+                long submitNanos = this.timeScale > 0 ? arrivalNanos : System.nanoTime();
+                futureList.add(es.submit(() -> {
+                    String result;
+                    try {
+                        result = coffeeMachine.prepareBeverage(order.getBeverage());
+                    } catch (Exception e) {
+                        result = String.format("%s failed with %s", order.getBeverage(), e.getMessage());
+                    }
+                    latencies[index] = System.nanoTime() - submitNanos;
+                    results[index] = result;
+                    int completed = completedOrders.incrementAndGet();
+                    if (completed % this.sampleEveryOrders == 0) {
+                        Map<String, Integer> quantities = coffeeMachine.getAvailableQuantities();
+                        synchronized (samples) {
+                            samples.put(completed, quantities);
+                        }
+                        if (this.refillFlowRate > 0) {
+                            refillRunningLow(coffeeMachine, initialQuantities, quantities);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+        } finally {
+            es.shutdown();
+            coffeeMachine.stopRefills();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        samples.put(orders.size(), coffeeMachine.getAvailableQuantities());
+
+        int preparedOrders = 0;
+        Map<String, Integer> failures = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            String beverage = orders.get(i).getBeverage();
+            if (results[i].equals(String.format("%s is prepared", beverage))) {
+                preparedOrders++;
+            } else {
+                // Strip beverage name so that same reason of different beverages is counted together
+                String reason = results[i].startsWith(beverage) ? results[i].substring(beverage.length()).trim() : results[i];
+                failures.merge(reason, 1, Integer::sum);
+            }
+        }
+
+        List<Integer> sampleOrders = new ArrayList<>(samples.keySet());
+        Map<String, List<Integer>> depletionCurves = new LinkedHashMap<>();
+        for (String ingredient : new TreeMap<>(samples.firstEntry().getValue()).keySet()) {
+            List<Integer> curve = new ArrayList<>();
+            for (Map<String, Integer> sample : samples.values()) {
+                curve.add(sample.getOrDefault(ingredient, 0));
+            }
+            depletionCurves.put(ingredient, curve);
+        }
+        return new SimulationReport(orders.size(), preparedOrders, elapsedNanos, latencies, failures, sampleOrders, depletionCurves);
+    }
+
+    // Usage: LoadSimulator <machine json file> <outlets> <threads> <orders per second> <duration millis> <seed>
+    public static void main(String[] args) throws Exception {
+        StringBuilder configuration = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                configuration.append(line).append('\n');
+            }
+        }
+        JSONObject machineConfig = new JSONObject(configuration.toString());
+
+        OrderStreamGenerator generator = new OrderStreamGenerator(Long.parseLong(args[5]));
+        for (Object beverage : machineConfig.getJSONObject(CoffeeMachineMaker.MACHINE).getJSONObject(CoffeeMachineMaker.BEVERAGES).names()) {
+            generator.addBeverage((String) beverage, 1.0);
+        }
+        List<SimulatedOrder> orders = generator.generate(Double.parseDouble(args[3]), Long.parseLong(args[4]));
+
+        LoadSimulator loadSimulator = new LoadSimulator(machineConfig, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        System.out.println(loadSimulator.run(orders));
+    }
+}
@@ -0,0 +1,162 @@
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class to generate synthetic order streams
+ * Orders arrive as a poisson process whose rate can be raised in rush hour windows
+ * Every beverage is picked according to the configured beverage mix
+ * Same seed and same configuration always generates the same stream
+ */
+public class OrderStreamGenerator {
+
+    /**
+     * Seed used to create the random generator of every stream
+     */
+    private final long seed;
+
+    /**
+     * Map to store beverage name -> relative weight in the mix
+     */
+    private final Map<String, Double> beverageMix = new LinkedHashMap<>();
+
+    /**
+     * List of rush hour windows in form of {startMillis, endMillis, rate multiplier}
+     */
+    private final List<double[]> rushHours = new ArrayList<>();
+
+    /**
+     * Constructs a generator whose streams are reproducible from given seed
+     * @param seed seed of the random generator
+     */
+    public OrderStreamGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Function to add a beverage to the mix
+     * @param beverage name of the beverage
+     * @param weight relative weight of the beverage, higher weight means more orders
+     * @return this generator
+     */
+    public OrderStreamGenerator addBeverage(String beverage, double weight) {
+        if (weight > 0) {
+            this.beverageMix.put(beverage, weight);
+        }
+        return this;
+    }
+
+    /**
+     * Function to add a rush hour window in which orders arrive faster
+     * @param startMillis start of the window from start of the stream
+     * @param endMillis end of the window from start of the stream
+     * @param rateMultiplier how many times the base rate orders arrive in the window
+     * @return this generator
+     */
+    public OrderStreamGenerator addRushHour(long startMillis, long endMillis, double rateMultiplier) {
+        this.rushHours.add(new double[] {startMillis, endMillis, rateMultiplier});
+        return this;
+    }
+
+    /**
+     * Function to generate a stream of orders
+     * Non homogeneous arrivals are generated by thinning a poisson process running at the peak rate
+     * @param ordersPerSecond base arrival rate of orders
+     * @param durationMillis length of the stream
+     * @return orders sorted by arrival time
+     * @throws Exception when beverage mix is empty or rate is not positive
+     */
+    public List<SimulatedOrder> generate(double ordersPerSecond, long durationMillis) throws Exception {
+        if (this.beverageMix.isEmpty()) {
+            throw new Exception("Beverage mix is empty");
+        }
+        if (ordersPerSecond <= 0) {
+            throw new Exception("Order rate should be positive");
+        }
+
+        String[] beverages = this.beverageMix.keySet().toArray(new String[0]);
+        double[] cumulativeWeights = new double[beverages.length];
+        double totalWeight = 0;
+        for (int i = 0; i < beverages.length; i++) {
+            totalWeight += this.beverageMix.get(beverages[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        double peakMultiplier = 1.0;
+        for (double[] rushHour : this.rushHours) {
+            peakMultiplier = Math.max(peakMultiplier, rushHour[2]);
+        }
+        double peakRatePerMilli = ordersPerSecond * peakMultiplier / 1000.0;
+
+        Random random = new Random(this.seed);
+        List<SimulatedOrder> orders = new ArrayList<>();
+        double time = 0;
+        while (true) {
+            time += -Math.log(1.0 - random.nextDouble()) / peakRatePerMilli; // Exponential inter arrival time
+            if (time >= durationMillis) {
+                break;
+            }
+            double acceptProbability = getRateMultiplier(time) / peakMultiplier;
+            if (random.nextDouble() >= acceptProbability) {
+                continue;
+            }
+            double pick = random.nextDouble() * totalWeight;
+            int beverage = 0;
+            while (beverage < beverages.length - 1 && cumulativeWeights[beverage] <= pick) {
+                beverage++;
+            }
+            orders.add(new SimulatedOrder((long) time, beverages[beverage]));
+        }
+        return orders;
+    }
+
+    /**
+     * Function to get rate multiplier at given time
+     * @param time time from start of the stream
+     * @return multiplier of the highest rush hour window containing the time, 1 outside of all windows
+     */
+    private double getRateMultiplier(double time) {
+        double multiplier = 1.0;
+        for (double[] rushHour : this.rushHours) {
+            if (time >= rushHour[0] && time < rushHour[1]) {
+                multiplier = Math.max(multiplier, rushHour[2]);
+            }
+        }
+        return multiplier;
+    }
+
+    /**
+     * Function to read a recorded order stream
+     * Every non empty line should be in form of "arrivalMillis,beverage", lines starting with # are ignored
+     * @param reader reader of the recording
+     * @return orders sorted by arrival time
+     * @throws Exception when a line is not valid
+     */
+    public static List<SimulatedOrder> readRecording(BufferedReader reader) throws Exception {
+        List<SimulatedOrder> orders = new ArrayList<>();
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int separator = line.indexOf(',');
+                if (separator < 0) {
+                    throw new Exception(String.format("Invalid recorded order %s", line));
+                }
+                orders.add(new SimulatedOrder(Long.parseLong(line.substring(0, separator).trim()), line.substring(separator + 1).trim()));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new Exception("Unable to read recorded orders", e);
+        }
+        orders.sort((first, second) -> Long.compare(first.getArrivalMillis(), second.getArrivalMillis()));
+        return orders;
+    }
+}
@@ -0,0 +1,57 @@
+package simulator;
+
+import java.util.StringJoiner;
+
+/**
+ * Class to hold a single order of an order stream
+ * Arrival time is relative to start of the stream so same stream can be replayed any time
+ */
+public class SimulatedOrder {
+
+    /**
+     * Variable to store arrival time of the order in milliseconds from start of the stream
+     */
+    private final long arrivalMillis;
+
+    /**
+     * Variable to store name of the ordered beverage
+     */
+    private final String beverage;
+
+    /**
+     * Constructs an order with given arrival time and beverage
+     * @param arrivalMillis arrival time in milliseconds from start of the stream
+     * @param beverage name of the ordered beverage
+     */
+    public SimulatedOrder(long arrivalMillis, String beverage) {
+        this.arrivalMillis = arrivalMillis;
+        this.beverage = beverage;
+    }
+
+    /**
+     * Function to get arrival time of the order
+     * @return arrival time in milliseconds from start of the stream
+     */
+    public long getArrivalMillis() {
+        return this.arrivalMillis;
+    }
+
+    /**
+     * Function to get the ordered beverage
+     * @return name of the beverage
+     */
+    public String getBeverage() {
+        return this.beverage;
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", SimulatedOrder.class.getSimpleName() + "[", "]")
+            .add("arrivalMillis=" + arrivalMillis)
+            .add("beverage='" + beverage + "'")
+            .toString();
+    }
+}
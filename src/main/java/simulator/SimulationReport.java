@@ -0,0 +1,162 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Class to hold result of a single simulation run
+ * It has throughput, latency percentiles, failure breakdown and stock depletion curves of the run
+ */
+public class SimulationReport {
+
+    /**
+     * Variable to store total number of orders replayed
+     */
+    private final int totalOrders;
+
+    /**
+     * Variable to store number of orders which were prepared
+     */
+    private final int preparedOrders;
+
+    /**
+     * Variable to store wall clock time of the run in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Sorted latencies of all the orders in nanoseconds
+     */
+    private final long[] sortedLatencies;
+
+    /**
+     * Map to store failure reason -> number of orders failed with it
+     */
+    private final Map<String, Integer> failures;
+
+    /**
+     * Number of completed orders at which every stock sample was taken
+     */
+    private final List<Integer> sampleOrders;
+
+    /**
+     * Map to store ingredient name -> quantity at every sample
+     */
+    private final Map<String, List<Integer>> depletionCurves;
+
+    /**
+     * Constructs a report from raw results of a run
+     * @param totalOrders total number of orders replayed
+     * @param preparedOrders number of orders which were prepared
+     * @param elapsedNanos wall clock time of the run
+     * @param latencies latency of every order in nanoseconds
+     * @param failures failure reason -> number of orders
+     * @param sampleOrders number of completed orders at every stock sample
+     * @param depletionCurves ingredient name -> quantity at every stock sample
+     */
+    public SimulationReport(int totalOrders, int preparedOrders, long elapsedNanos, long[] latencies, Map<String, Integer> failures,
+                            List<Integer> sampleOrders, Map<String, List<Integer>> depletionCurves) {
+        this.totalOrders = totalOrders;
+        this.preparedOrders = preparedOrders;
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencies = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(this.sortedLatencies);
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+        this.sampleOrders = Collections.unmodifiableList(new ArrayList<>(sampleOrders));
+        this.depletionCurves = Collections.unmodifiableMap(new LinkedHashMap<>(depletionCurves));
+    }
+
+    /**
+     * Function to get total number of orders replayed
+     * @return total number of orders
+     */
+    public int getTotalOrders() {
+        return this.totalOrders;
+    }
+
+    /**
+     * Function to get number of orders which were prepared
+     * @return number of prepared orders
+     */
+    public int getPreparedOrders() {
+        return this.preparedOrders;
+    }
+
+    /**
+     * Function to get number of orders which were not prepared
+     * @return number of failed orders
+     */
+    public int getFailedOrders() {
+        return this.totalOrders - this.preparedOrders;
+    }
+
+    /**
+     * Function to get throughput of the run
+     * @return orders completed per second of wall clock time
+     */
+    public double getThroughput() {
+        return this.elapsedNanos == 0 ? 0 : this.totalOrders * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Function to get latency at a given percentile
+     * @param percentile percentile between 0 and 100
+     * @return latency in milliseconds, 0 when no order was replayed
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+        if (this.sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * this.sortedLatencies.length) - 1;
+        index = Math.max(0, Math.min(this.sortedLatencies.length - 1, index));
+        return this.sortedLatencies[index] / 1e6;
+    }
+
+    /**
+     * Function to get failure breakdown of the run
+     * @return failure reason -> number of orders failed with it
+     */
+    public Map<String, Integer> getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Function to get number of completed orders at which every stock sample was taken
+     * @return list of completed orders count, same length as every depletion curve
+     */
+    public List<Integer> getSampleOrders() {
+        return this.sampleOrders;
+    }
+
+    /**
+     * Function to get depletion curve of an ingredient
+     * @param ingredient name of the ingredient
+     * @return quantity of the ingredient at every sample, empty list for an unknown ingredient
+     */
+    public List<Integer> getDepletionCurve(String ingredient) {
+        return this.depletionCurves.getOrDefault(ingredient, Collections.emptyList());
+    }
+
+    /**
+     * @return Returns a string representation of this class
+     */
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", SimulationReport.class.getSimpleName() + "[", "]")
+            .add("totalOrders=" + totalOrders)
+            .add("preparedOrders=" + preparedOrders)
+            .add(String.format("throughput=%.1f", getThroughput()))
+            .add(String.format("p50=%.3fms", getLatencyPercentileMillis(50)))
+            .add(String.format("p90=%.3fms", getLatencyPercentileMillis(90)))
+            .add(String.format("p99=%.3fms", getLatencyPercentileMillis(99)))
+            .add(String.format("max=%.3fms", getLatencyPercentileMillis(100)))
+            .add("failures=" + failures)
+            .toString();
+    }
+}
@@ -0,0 +1,30 @@
+package coffeeMachine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdmissionPolicyTest {
+    @Test
+    public void testDefaultPolicyNeverRejects() {
+        AdmissionPolicy admissionPolicy = new AdmissionPolicy();
+        assertEquals(-1, admissionPolicy.getAcquireTimeoutMillis());
+        assertFalse(admissionPolicy.isOverloaded(100000, 1, 1000000000L));
+    }
+
+    @Test
+    public void testOverloaded() {
+        AdmissionPolicy admissionPolicy = new AdmissionPolicy(100, 10, 50);
+
+        // Queue depth limit
+        assertFalse(admissionPolicy.isOverloaded(9, 4, 0));
+        assertTrue(admissionPolicy.isOverloaded(10, 4, 0));
+
+        // 3 orders ahead and 1 more on 2 outlets taking 20ms each is 40ms of waiting
+        assertFalse(admissionPolicy.isOverloaded(3, 2, 20000000L));
+        // 5 orders ahead and 1 more on 2 outlets taking 20ms each is 60ms of waiting
+        assertTrue(admissionPolicy.isOverloaded(5, 2, 20000000L));
+
+        assertEquals("AdmissionPolicy[acquireTimeoutMillis=100, maxQueueDepth=10, maxEstimatedWaitMillis=50]", admissionPolicy.toString());
+    }
+}
@@ -0,0 +1,85 @@
+package coffeeMachine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import recipe.RecipeBuilder;
+import recipe.RecipeDefinitions;
+
+import static org.junit.Assert.*;
+
+public class CoffeeMachineBuilderTest {
+    @Test
+    public void testBuild() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(2, 1, 1)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 500)
+            .addRecipe(new RecipeBuilder("hot_milk", 1).addIngredient("hot_milk", 100).build())
+            .addRecipe(new RecipeBuilder("milky_water").addIngredient("hot_water", 100).addIngredient("hot_milk", 300).build())
+            .build();
+
+        assertEquals(2, coffeeMachine.getTotalOutlets());
+        assertEquals(2, coffeeMachine.getTotalIngredients());
+        assertEquals(2, coffeeMachine.getTotalRecipes());
+        assertEquals("milky_water is prepared", coffeeMachine.prepareBeverage("milky_water"));
+        assertEquals("hot_milk is prepared", coffeeMachine.prepareBeverage("hot_milk"));
+        assertEquals("milky_water cannot be prepared because item hot_milk is not sufficient", coffeeMachine.prepareBeverage("milky_water"));
+
+        // Recipes built without Pair can be added to a running machine as well
+        coffeeMachine.addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 100).build());
+        assertEquals("hot_water is prepared", coffeeMachine.prepareBeverage("hot_water"));
+        assertEquals(300, (int) coffeeMachine.getAvailableQuantities().get("hot_water"));
+    }
+
+    @Test
+    public void testRecipeDefinitions() throws Exception {
+        RecipeDefinitions recipeDefinitions = new RecipeDefinitions();
+        for (int i = 0; i < 1000; i++) {
+            recipeDefinitions.addDefinition("water_" + i, new String[]{"hot_water"}, new int[]{1 + i % 10}, 1);
+        }
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 500)
+            .setRecipeDefinitions(recipeDefinitions, 16)
+            .addRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build())
+            .build();
+
+        assertEquals(1001, coffeeMachine.getTotalRecipes());
+        assertEquals(1001, coffeeMachine.getBeverages().size());
+        assertEquals("water_9 is prepared", coffeeMachine.prepareBeverage("water_9"));
+        assertEquals("hot_milk is prepared", coffeeMachine.prepareBeverage("hot_milk"));
+        assertEquals(490, (int) coffeeMachine.getAvailableQuantities().get("hot_water"));
+
+        // Reload keeps the definitions and replaces only recipes of the machine itself
+        CatalogDiff catalogDiff = coffeeMachine.applyConfiguration(1, new String[0], new int[0], 0,
+            Arrays.asList(new RecipeBuilder("water_1").addIngredient("hot_water", 2).build(), new RecipeBuilder("cold_milk").addIngredient("hot_milk", 50).build()));
+        assertEquals("[cold_milk]", catalogDiff.getAddedRecipes().toString());
+        assertEquals("[hot_milk]", catalogDiff.getRemovedRecipes().toString());
+        assertTrue(catalogDiff.getChangedRecipes().isEmpty());
+        assertEquals(1001, coffeeMachine.getTotalRecipes());
+        assertEquals("water_1 is prepared", coffeeMachine.prepareBeverage("water_1"));
+        assertEquals("cold_milk is prepared", coffeeMachine.prepareBeverage("cold_milk"));
+        assertEquals(1001, coffeeMachine.getSnapshot().getRecipes().size());
+        assertEquals(Integer.valueOf(10), coffeeMachine.planServings(Collections.singletonMap("water_9", 10)).get("water_9"));
+
+        Throwable throwable = assertThrows(Exception.class, () -> coffeeMachine.applyConfiguration(1, new String[] {"hot_tea"}, new int[] {100}, 1,
+            Collections.singletonList(new RecipeBuilder("water_1").addIngredient("hot_water", 3).build())));
+        assertEquals("water_1 is a predefined recipe and cannot be changed", throwable.getMessage());
+        assertEquals(2, coffeeMachine.getTotalIngredients());
+    }
+
+    @Test
+    public void testApplyTo() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1).addIngredient("hot_water", 500).build();
+        CatalogDiff catalogDiff = new CoffeeMachineBuilder(2)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 500)
+            .addRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build())
+            .applyTo(coffeeMachine);
+
+        assertEquals("[hot_milk]", catalogDiff.getAddedIngredients().toString());
+        assertEquals("[hot_milk]", catalogDiff.getAddedRecipes().toString());
+        assertEquals(2, coffeeMachine.getTotalOutlets());
+        assertEquals("hot_milk is prepared", coffeeMachine.prepareBeverage("hot_milk"));
+    }
+}
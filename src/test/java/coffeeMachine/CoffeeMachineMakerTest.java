@@ -67,6 +67,130 @@ public class CoffeeMachineMakerTest {
     }
 
 
+    @Test
+    public void testModifiers() throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\n"
+            + "  \"machine\": {\n"
+            + "    \"outlets\": {\n"
+            + "      \"count_n\": 1\n"
+            + "    },\n"
+            + "    \"total_items_quantity\": {\n"
+            + "      \"hot_water\": 500,\n"
+            + "      \"tea_leaves_syrup\": 100\n"
+            + "    },\n"
+            + "    \"beverages\": {\n"
+            + "      \"hot_tea\": {\n"
+            + "        \"hot_water\": 200,\n"
+            + "        \"tea_leaves_syrup\": 30\n"
+            + "      }\n"
+            + "    },\n"
+            + "    \"modifiers\": {\n"
+            + "      \"small\": {\n"
+            + "        \"scale\": 0.5\n"
+            + "      },\n"
+            + "      \"strong\": {\n"
+            + "        \"tea_leaves_syrup\": 40\n"
+            + "      }\n"
+            + "    }\n"
+            + "  }\n"
+            + "}");
+        assertEquals(1, coffeeMachine.getTotalRecipes());
+        assertEquals("small hot_tea is prepared", coffeeMachine.prepareBeverage("hot_tea", "small"));
+        assertEquals("strong hot_tea is prepared", coffeeMachine.prepareBeverage("hot_tea", "strong"));
+        assertEquals(Integer.valueOf(200), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals(Integer.valueOf(15), coffeeMachine.getAvailableQuantities().get("tea_leaves_syrup"));
+        assertEquals("strong hot_tea cannot be prepared because item tea_leaves_syrup is not sufficient", coffeeMachine.prepareBeverage("hot_tea", "strong"));
+    }
+
+    @Test
+    public void testSteps() throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\n"
+            + "  \"machine\": {\n"
+            + "    \"outlets\": {\n"
+            + "      \"count_n\": 1\n"
+            + "    },\n"
+            + "    \"total_items_quantity\": {\n"
+            + "      \"hot_water\": 500,\n"
+            + "      \"hot_milk\": 500\n"
+            + "    },\n"
+            + "    \"beverages\": {\n"
+            + "      \"latte\": {\n"
+            + "        \"hot_water\": 100,\n"
+            + "        \"hot_milk\": 100,\n"
+            + "        \"steps\": {\n"
+            + "          \"heat_water\": {\n"
+            + "            \"millis\": 20\n"
+            + "          },\n"
+            + "          \"froth_milk\": {\n"
+            + "            \"millis\": 30\n"
+            + "          },\n"
+            + "          \"mix\": {\n"
+            + "            \"millis\": 5,\n"
+            + "            \"after\": [\"heat_water\", \"froth_milk\"]\n"
+            + "          }\n"
+            + "        }\n"
+            + "      }\n"
+            + "    }\n"
+            + "  }\n"
+            + "}");
+        assertEquals(35, coffeeMachine.getCriticalPathMillis("latte"));
+        assertEquals("latte is prepared", coffeeMachine.prepareBeverage("latte"));
+        assertEquals(Integer.valueOf(400), coffeeMachine.getAvailableQuantities().get("hot_milk"));
+
+        Throwable throwable = assertThrows(Exception.class, () -> CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\"machine\": {\"outlets\": {\"count_n\": 1}, \"total_items_quantity\": {},"
+            + " \"beverages\": {\"a\": {\"steps\": {\"mix\": {\"millis\": 1, \"after\": [\"heat\"]}}}}}}"));
+        assertEquals("Step mix depends on heat which is not a known step", throwable.getMessage());
+    }
+
+    @Test
+    public void testComponents() throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\n"
+            + "  \"machine\": {\n"
+            + "    \"outlets\": {\n"
+            + "      \"count_n\": 1\n"
+            + "    },\n"
+            + "    \"total_items_quantity\": {\n"
+            + "      \"hot_water\": 500,\n"
+            + "      \"hot_milk\": 500,\n"
+            + "      \"ginger_syrup\": 100,\n"
+            + "      \"tea_leaves_syrup\": 100\n"
+            + "    },\n"
+            + "    \"beverages\": {\n"
+            + "      \"masala_tea\": {\n"
+            + "        \"ginger_syrup\": 20,\n"
+            + "        \"components\": {\n"
+            + "          \"tea_base\": 1\n"
+            + "        }\n"
+            + "      },\n"
+            + "      \"large_masala_tea\": {\n"
+            + "        \"components\": {\n"
+            + "          \"masala_tea\": 2\n"
+            + "        }\n"
+            + "      }\n"
+            + "    },\n"
+            + "    \"bases\": {\n"
+            + "      \"tea_base\": {\n"
+            + "        \"hot_water\": 100,\n"
+            + "        \"hot_milk\": 50,\n"
+            + "        \"tea_leaves_syrup\": 30\n"
+            + "      }\n"
+            + "    }\n"
+            + "  }\n"
+            + "}");
+        assertEquals(2, coffeeMachine.getTotalRecipes());
+        assertEquals("tea_base is not a valid beverage", coffeeMachine.prepareBeverage("tea_base"));
+        assertEquals("masala_tea is prepared", coffeeMachine.prepareBeverage("masala_tea"));
+        assertEquals(Integer.valueOf(80), coffeeMachine.getAvailableQuantities().get("ginger_syrup"));
+        assertEquals(Integer.valueOf(70), coffeeMachine.getAvailableQuantities().get("tea_leaves_syrup"));
+        assertEquals("large_masala_tea is prepared", coffeeMachine.prepareBeverage("large_masala_tea"));
+        assertEquals(Integer.valueOf(200), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals("large_masala_tea cannot be prepared because item tea_leaves_syrup is not sufficient", coffeeMachine.prepareBeverage("large_masala_tea"));
+
+        Throwable throwable = assertThrows(Exception.class, () -> CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\"machine\": {\"outlets\": {\"count_n\": 1}, \"total_items_quantity\": {},"
+            + " \"beverages\": {\"a\": {\"components\": {\"b\": 1}}, \"b\": {\"components\": {\"a\": 1}}}}}"));
+        assertTrue(throwable.getMessage().contains("has a cycle of components"));
+    }
+
     @Test
     public void testCoffeeMachineCreationMultiThreaded() throws Exception {
         CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput("{\n"
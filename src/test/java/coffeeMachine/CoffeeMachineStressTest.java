@@ -0,0 +1,168 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoffeeMachineStressTest {
+    private static final String[] RECIPES = {"recipe_1", "recipe_2", "recipe_3", "recipe_4"};
+
+    private Map<String, Map<String, Integer>> getRecipeRequirements() {
+        Map<String, Map<String, Integer>> requirements = new HashMap<>();
+        requirements.put("recipe_1", new HashMap<>());
+        requirements.get("recipe_1").put("ingredient_a", 10);
+        requirements.get("recipe_1").put("ingredient_b", 30);
+        requirements.put("recipe_2", new HashMap<>());
+        requirements.get("recipe_2").put("ingredient_c", 10);
+        requirements.get("recipe_2").put("ingredient_a", 5);
+        requirements.put("recipe_3", new HashMap<>());
+        requirements.get("recipe_3").put("ingredient_a", 7);
+        requirements.get("recipe_3").put("late_ingredient", 5);
+        requirements.put("recipe_4", new HashMap<>());
+        requirements.get("recipe_4").put("ingredient_c", 3);
+        requirements.get("recipe_4").put("ingredient_b", 11);
+        return requirements;
+    }
+
+    private CoffeeMachine getTestCoffeeMachine(Map<String, Integer> initialStock) throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(16);
+        coffeeMachine.initialize(new ArrayList<>(), new ArrayList<>());
+        for (Map.Entry<String, Integer> entry : initialStock.entrySet()) {
+            coffeeMachine.addNewIngredient(entry.getKey(), entry.getValue());
+        }
+        for (String recipe : RECIPES) {
+            List<Pair<String, Integer>> ingredients = new ArrayList<>();
+            getRecipeRequirements().get(recipe).forEach((name, quantity) -> ingredients.add(new Pair<>(name, quantity)));
+            coffeeMachine.addRecipe(recipe, ingredients);
+        }
+        return coffeeMachine;
+    }
+
+    @Test
+    public void testStockIsConservedUnderConcurrentOrdersRefillsAndAdditions() throws Exception {
+        Map<String, Integer> initialStock = new HashMap<>();
+        initialStock.put("ingredient_a", 100000);
+        initialStock.put("ingredient_b", 3000);
+        initialStock.put("ingredient_c", 50000);
+        CoffeeMachine coffeeMachine = getTestCoffeeMachine(initialStock);
+        Map<String, Map<String, Integer>> requirements = getRecipeRequirements();
+
+        int totalOrders = 20000;
+        AtomicIntegerArray prepared = new AtomicIntegerArray(RECIPES.length);
+        AtomicLong refilledB = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<String> violations = new ArrayList<>();
+
+        // Sampler to catch any ingredient going below zero while orders are running
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    for (Map.Entry<String, Integer> entry : coffeeMachine.getAvailableQuantities().entrySet()) {
+                        if (entry.getValue() < 0) {
+                            synchronized (violations) {
+                                violations.add(entry.toString());
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    synchronized (violations) {
+                        violations.add(e.getMessage());
+                    }
+                }
+            }
+        });
+        sampler.start();
+
+        ExecutorService es = Executors.newFixedThreadPool(64);
+        List<Future<?>> futureList = new ArrayList<>();
+        Random random = new Random(2024);
+        for (int i = 0; i < totalOrders; i++) {
+            int recipe = random.nextInt(RECIPES.length);
+            int index = i;
+            futureList.add(es.submit(() -> {
+                if (index % 500 == 0) {
+                    refilledB.addAndGet(coffeeMachine.refillIngredient("ingredient_b"));
+                }
+                if (index >= totalOrders / 2 && index % 1000 == 0) {
+                    coffeeMachine.addNewIngredient("late_ingredient", 20000); // Only the first addition is kept
+                }
+                String result = coffeeMachine.prepareBeverage(RECIPES[recipe]);
+                if (result.equals(String.format("%s is prepared", RECIPES[recipe]))) {
+                    prepared.incrementAndGet(recipe);
+                } else {
+                    assertTrue(result.startsWith(String.format("%s cannot be prepared because", RECIPES[recipe])));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futureList) {
+            future.get();
+        }
+        es.shutdown();
+        running.set(false);
+        sampler.join();
+
+        assertEquals(new ArrayList<>(), violations);
+
+        initialStock.put("late_ingredient", 20000);
+        Map<String, Long> consumed = new HashMap<>();
+        for (int recipe = 0; recipe < RECIPES.length; recipe++) {
+            long count = prepared.get(recipe);
+            requirements.get(RECIPES[recipe]).forEach((name, quantity) -> consumed.merge(name, count * quantity, Long::sum));
+        }
+
+        Map<String, Integer> finalStock = coffeeMachine.getAvailableQuantities();
+        for (Map.Entry<String, Integer> entry : initialStock.entrySet()) {
+            String ingredient = entry.getKey();
+            long refilled = ingredient.equals("ingredient_b") ? refilledB.get() : 0;
+            long expected = entry.getValue() + refilled - consumed.getOrDefault(ingredient, 0L);
+            assertEquals(ingredient, expected, (long) finalStock.get(ingredient));
+            assertTrue(finalStock.get(ingredient) >= 0);
+        }
+        assertTrue(prepared.get(0) > 0 && prepared.get(2) > 0);
+    }
+
+    @Test
+    public void testFailedOrdersDoNotLeakStock() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(8);
+        coffeeMachine.initialize(new ArrayList<>(), new ArrayList<>());
+        coffeeMachine.addNewIngredient("plenty", 1000000);
+        coffeeMachine.addNewIngredient("scarce", 1000);
+        // Plenty is listed first so it would be taken before scarce runs out
+        coffeeMachine.addRecipe("scarce_drink", new ArrayList<>(Arrays.asList(new Pair<>("plenty", 1), new Pair<>("scarce", 10))));
+
+        ExecutorService es = Executors.newFixedThreadPool(32);
+        List<Future<String>> futureList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            futureList.add(es.submit(() -> coffeeMachine.prepareBeverage("scarce_drink")));
+        }
+        int prepared = 0;
+        for (Future<String> future : futureList) {
+            String result = future.get();
+            if (result.equals("scarce_drink is prepared")) {
+                prepared++;
+            } else {
+                assertEquals("scarce_drink cannot be prepared because item scarce is not sufficient", result);
+            }
+        }
+        es.shutdown();
+
+        // Exactly as many orders as the scarce stock allows, and nothing taken by failed orders
+        assertEquals(100, prepared);
+        assertEquals(0, (int) coffeeMachine.getAvailableQuantities().get("scarce"));
+        assertEquals(1000000 - 100, (int) coffeeMachine.getAvailableQuantities().get("plenty"));
+    }
+}
@@ -1,9 +1,22 @@
 package coffeeMachine;
 
+import history.OrderLog;
+import history.OrderOutcome;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.util.Pair;
 import org.junit.Test;
+import recipe.PreparationPlan;
+import recipe.PreparationStep;
+import recipe.Recipe;
+import recipe.RecipeBuilder;
+import recipe.RecipeModifier;
 
 import static org.junit.Assert.*;
 
@@ -101,6 +114,8 @@ public class CoffeeMachineTest {
         assertEquals("recipe_3 is prepared", coffeeMachine.prepareBeverage("recipe_3"));
 
         assertEquals(3, coffeeMachine.getRunningLowIngredients().size());
+        assertEquals(Arrays.asList("recipe_1", "recipe_2", "recipe_3"), coffeeMachine.getBeveragesAtRisk());
+        assertEquals(new HashSet<>(Arrays.asList("recipe_1", "recipe_3")), coffeeMachine.getBeveragesUsing("ingredient_1"));
 
         // Run again this time all should give not sufficient value
         assertEquals("recipe_1 cannot be prepared because item ingredient_1 is not sufficient", coffeeMachine.prepareBeverage("recipe_1"));
@@ -114,4 +129,260 @@ public class CoffeeMachineTest {
         assertEquals("recipe_2 is prepared", coffeeMachine.prepareBeverage("recipe_2"));
         assertEquals("recipe_3 is prepared", coffeeMachine.prepareBeverage("recipe_3"));
     }
+
+    @Test
+    public void testAdmissionControl() throws Exception {
+        // Machine without any free outlet so that every admitted order has to wait
+        CoffeeMachine coffeeMachine = new CoffeeMachine(0, new AdmissionPolicy(20, 1, Long.MAX_VALUE));
+        coffeeMachine.initialize(new ArrayList<>(), new ArrayList<>());
+        insertTestIngredientsToCoffeeMachine(coffeeMachine);
+        insertTestRecipesToCoffeeMachine(coffeeMachine);
+        coffeeMachine.addRecipe("recipe_4", new ArrayList<>(Arrays.asList(new Pair<>("ingredient_4", 10))));
+        coffeeMachine.addRecipe("recipe_5", new ArrayList<>(Arrays.asList(new Pair<>("ingredient_1", 1000))));
+
+        // Invalid and unbrewable orders are answered without an outlet
+        assertEquals("test_beverage is not a valid beverage", coffeeMachine.prepareBeverage("test_beverage"));
+        assertEquals("recipe_4 cannot be prepared because ingredient_4 is not available", coffeeMachine.prepareBeverage("recipe_4"));
+        assertEquals("recipe_5 cannot be prepared because item ingredient_1 is not sufficient", coffeeMachine.prepareBeverage("recipe_5"));
+
+        // Brewable order waits for the deadline and gives up
+        assertEquals("recipe_1 cannot be prepared because no outlet was free in time", coffeeMachine.prepareBeverage("recipe_1"));
+        assertEquals(0, coffeeMachine.getQueuedOrders());
+
+        // No order is allowed to wait so it is rejected straight away
+        CoffeeMachine sheddingMachine = new CoffeeMachine(0, new AdmissionPolicy(-1, 0, Long.MAX_VALUE));
+        sheddingMachine.initialize(new ArrayList<>(), new ArrayList<>());
+        insertTestIngredientsToCoffeeMachine(sheddingMachine);
+        insertTestRecipesToCoffeeMachine(sheddingMachine);
+        assertEquals("recipe_1 cannot be prepared because machine is busy", sheddingMachine.prepareBeverage("recipe_1"));
+
+        // Nothing was used by the rejected orders
+        assertEquals(110, (int) coffeeMachine.getAvailableQuantities().get("ingredient_1"));
+        assertEquals(110, (int) sheddingMachine.getAvailableQuantities().get("ingredient_1"));
+    }
+
+    @Test
+    public void testRepeatedIngredient() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 150)
+            .addRecipe(new RecipeBuilder("double").addIngredient("hot_water", 100).addIngredient("hot_water", 100).build())
+            .build();
+        assertEquals("double cannot be prepared because item hot_water is not sufficient", coffeeMachine.prepareBeverage("double"));
+        assertEquals("double cannot be prepared because item hot_water is not sufficient", coffeeMachine.reserveBeverage("order_1", "double", 60000));
+        StringBuilder status = new StringBuilder();
+        assertEquals(OrderOutcome.INGREDIENT_NOT_SUFFICIENT, coffeeMachine.orderBeverage("double", status::append));
+        assertEquals("double cannot be prepared because item hot_water is not sufficient", status.toString());
+        assertEquals(Integer.valueOf(150), coffeeMachine.getAvailableQuantities().get("hot_water"));
+    }
+
+    @Test
+    public void testReservations() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(1);
+        coffeeMachine.initialize(new ArrayList<>(), new ArrayList<>());
+        insertTestIngredientsToCoffeeMachine(coffeeMachine);
+        insertTestRecipesToCoffeeMachine(coffeeMachine);
+
+        assertEquals("recipe_1 is reserved", coffeeMachine.reserveBeverage("order_1", "recipe_1", 60000));
+        assertEquals("recipe_1 cannot be prepared because item ingredient_2 is not sufficient", coffeeMachine.reserveBeverage("order_2", "recipe_1", 60000));
+        assertEquals("recipe_4 is not a valid beverage", coffeeMachine.reserveBeverage("order_3", "recipe_4", 60000));
+
+        // Walk in order cannot take reserved ingredients
+        assertEquals("recipe_1 cannot be prepared because item ingredient_2 is not sufficient", coffeeMachine.prepareBeverage("recipe_1"));
+
+        coffeeMachine.setOrderLog(new OrderLog());
+        assertEquals("recipe_1 is prepared", coffeeMachine.confirmReservation("order_1"));
+        assertEquals("order_1 has no reservation", coffeeMachine.confirmReservation("order_1"));
+        // Confirmed order is recorded like a walk in order, a missing reservation is not an order
+        assertEquals(1, coffeeMachine.getOrderLog().size());
+        assertEquals(Long.valueOf(1), coffeeMachine.getOrderLog().getOutcomeCounts(0, Long.MAX_VALUE).get(OrderOutcome.PREPARED));
+        coffeeMachine.setOrderLog(null);
+
+        coffeeMachine.refillAllIngredients();
+        assertEquals("recipe_3 is reserved", coffeeMachine.reserveBeverage("order_2", "recipe_3", 60000));
+        assertTrue(coffeeMachine.releaseReservation("order_2"));
+        assertEquals("recipe_3 is prepared", coffeeMachine.prepareBeverage("recipe_3"));
+        assertEquals(0, coffeeMachine.getReservationBook().getOutstandingReservations());
+    }
+
+    @Test
+    public void testRecipeModifiers() throws Exception {
+        Recipe hotCoffee = new RecipeBuilder("hot_coffee", 2).addIngredient("hot_water", 100).addIngredient("coffee_syrup", 20).build();
+        RecipeModifier large = new RecipeModifier("large", 2, Collections.emptyMap());
+        RecipeModifier extraShot = new RecipeModifier("extra_shot", 1, Collections.singletonMap("coffee_syrup", 20));
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 500)
+            .addIngredient("coffee_syrup", 100)
+            .addRecipe(hotCoffee)
+            .addRecipeModifier(large)
+            .addRecipeModifier(extraShot)
+            .build();
+        assertEquals(new HashSet<>(Arrays.asList("large", "extra_shot")), coffeeMachine.getRecipeModifiers());
+
+        assertEquals("large hot_coffee is prepared", coffeeMachine.prepareBeverage("hot_coffee", "large"));
+        assertEquals("extra_shot hot_coffee is prepared", coffeeMachine.prepareBeverage("hot_coffee", "extra_shot"));
+        assertEquals("hot_coffee is prepared", coffeeMachine.prepareBeverage("hot_coffee", null));
+        assertEquals(Integer.valueOf(100), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals(Integer.valueOf(0), coffeeMachine.getAvailableQuantities().get("coffee_syrup"));
+
+        coffeeMachine.refillAllIngredients();
+        assertEquals("small is not a valid modifier", coffeeMachine.prepareBeverage("hot_coffee", "small"));
+        assertEquals("latte is not a valid beverage", coffeeMachine.prepareBeverage("latte", "large"));
+        coffeeMachine.prepareBeverage("hot_coffee", "large");
+        coffeeMachine.prepareBeverage("hot_coffee", "large");
+        assertEquals("large hot_coffee cannot be prepared because item hot_water is not sufficient", coffeeMachine.prepareBeverage("hot_coffee", "large"));
+
+        // Variants are reserved and logged with their own quantities
+        coffeeMachine.refillAllIngredients();
+        OrderLog orderLog = new OrderLog();
+        coffeeMachine.setOrderLog(orderLog);
+        coffeeMachine.prepareBeverage("hot_coffee", "large");
+        assertEquals("small is not a valid modifier", coffeeMachine.reserveBeverage("order_1", "hot_coffee", "small", 60000));
+        assertEquals("large hot_coffee is reserved", coffeeMachine.reserveBeverage("order_1", "hot_coffee", "large", 60000));
+        assertEquals(Integer.valueOf(100), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals("large hot_coffee is prepared", coffeeMachine.confirmReservation("order_1"));
+        coffeeMachine.prepareBeverage("hot_coffee");
+        Map<String, Long> consumption = orderLog.getConsumption(0, Long.MAX_VALUE, Collections.singletonList(hotCoffee), Arrays.asList(large, extraShot));
+        assertEquals(Long.valueOf(500), consumption.get("hot_water"));
+        assertEquals(Long.valueOf(100), consumption.get("coffee_syrup"));
+
+        // A beverage whose name starts with a modifier is not taken for a variant
+        coffeeMachine.refillAllIngredients();
+        coffeeMachine.addRecipe(new RecipeBuilder("large batch").addIngredient("hot_water", 50).build());
+        assertEquals("large batch is reserved", coffeeMachine.reserveBeverage("order_2", "large batch", 60000));
+        assertEquals("large batch is prepared", coffeeMachine.confirmReservation("order_2"));
+        assertEquals(Integer.valueOf(450), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals(Long.valueOf(1), orderLog.getTopBeverages(0, Long.MAX_VALUE, 10).get("large batch"));
+    }
+
+    @Test
+    public void testBackgroundRefill() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 200)
+            .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 100).build())
+            .build();
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.prepareBeverage("hot_water");
+        try {
+            coffeeMachine.startRefill("hot_milk", 1000);
+            fail("Missing ingredient should not be refilled");
+        } catch (Exception e) {
+            assertEquals("hot_milk is not a valid ingredient", e.getMessage());
+        }
+
+        CompletableFuture<Integer> refill = coffeeMachine.startRefill("hot_water", 2000);
+        assertEquals(200, (int) refill.get(5, TimeUnit.SECONDS));
+        assertEquals("hot_water is prepared", coffeeMachine.prepareBeverage("hot_water"));
+        coffeeMachine.stopRefills();
+    }
+
+    @Test
+    public void testPreparationSteps() throws Exception {
+        Recipe latte = new RecipeBuilder("latte").addIngredient("hot_water", 100).addIngredient("hot_milk", 100)
+            .setPreparationPlan(new PreparationPlan(Arrays.asList(
+                new PreparationStep("heat_water", 50),
+                new PreparationStep("froth_milk", 50),
+                new PreparationStep("mix", 5, "heat_water", "froth_milk"))))
+            .build();
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 500)
+            .addRecipe(latte)
+            .addRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build())
+            .build();
+        assertEquals(55, coffeeMachine.getCriticalPathMillis("latte"));
+        assertEquals(0, coffeeMachine.getCriticalPathMillis("hot_milk"));
+        Throwable throwable = assertThrows(Exception.class, () -> coffeeMachine.getCriticalPathMillis("mocha"));
+        assertEquals("mocha is not a valid beverage", throwable.getMessage());
+
+        // Order takes its critical path instead of sum of all the steps
+        long startNanos = System.nanoTime();
+        assertEquals("latte is prepared", coffeeMachine.prepareBeverage("latte"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue(elapsedMillis >= 55 && elapsedMillis < 105);
+        assertEquals(Integer.valueOf(400), coffeeMachine.getAvailableQuantities().get("hot_milk"));
+
+        // New steps of an unchanged recipe are applied without touching the recipe, which can be shared
+        CatalogDiff catalogDiff = coffeeMachine.applyConfiguration(1, new String[0], new int[0], 0,
+            Arrays.asList(latte.withPreparationPlan(null), new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build()));
+        assertTrue(catalogDiff.isEmpty());
+        assertEquals(0, coffeeMachine.getCriticalPathMillis("latte"));
+        assertEquals(55, latte.getPreparationPlan().getCriticalPathMillis());
+    }
+
+    @Test
+    public void testCompositeRecipes() throws Exception {
+        Recipe teaBase = new RecipeBuilder("tea_base").addIngredient("hot_water", 200).addIngredient("tea_leaves_syrup", 30).build();
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 1000)
+            .addIngredient("tea_leaves_syrup", 100)
+            .addIngredient("ginger_syrup", 100)
+            .addBaseRecipe(teaBase)
+            .addRecipe(new RecipeBuilder("hot_tea").addComponent("tea_base", 1).build())
+            .build();
+        assertEquals(Collections.singletonList("hot_tea"), coffeeMachine.getBeverages());
+        assertEquals("tea_base is not a valid beverage", coffeeMachine.prepareBeverage("tea_base"));
+
+        // Recipes added to a running machine are flattened with its bases and recipes as well
+        coffeeMachine.addRecipe(new RecipeBuilder("masala_tea").addIngredient("ginger_syrup", 10).addComponent("hot_tea", 1).build());
+        assertEquals("masala_tea is prepared", coffeeMachine.prepareBeverage("masala_tea"));
+        assertEquals(Integer.valueOf(800), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals(Integer.valueOf(70), coffeeMachine.getAvailableQuantities().get("tea_leaves_syrup"));
+        assertEquals(Integer.valueOf(90), coffeeMachine.getAvailableQuantities().get("ginger_syrup"));
+
+        // A base and a beverage never share a name
+        Throwable throwable = assertThrows(Exception.class, () -> coffeeMachine.addRecipe(new RecipeBuilder("tea_base").addIngredient("hot_water", 10).build()));
+        assertEquals("tea_base is already a base", throwable.getMessage());
+        throwable = assertThrows(Exception.class, () -> coffeeMachine.addBaseRecipe(new RecipeBuilder("hot_tea").addIngredient("hot_water", 10).build()));
+        assertEquals("hot_tea is already a beverage", throwable.getMessage());
+        throwable = assertThrows(Exception.class, () -> new CoffeeMachineBuilder(1)
+            .addBaseRecipe(teaBase)
+            .addRecipe(new RecipeBuilder("tea_base").addIngredient("hot_water", 10).build())
+            .build());
+        assertEquals("Recipe tea_base is declared twice", throwable.getMessage());
+
+        // Invalid number of outlets is refused before any ingredient, recipe or base is changed
+        throwable = assertThrows(Exception.class, () -> coffeeMachine.applyConfiguration(-1, new String[]{"hot_milk"}, new int[]{100}, 1,
+            Collections.singletonList(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build()), Collections.emptyList()));
+        assertEquals("Number of outlets cannot be negative", throwable.getMessage());
+        assertFalse(coffeeMachine.getAvailableQuantities().containsKey("hot_milk"));
+        assertEquals(Arrays.asList("hot_tea", "masala_tea"), coffeeMachine.getBeverages());
+        assertEquals(Collections.singleton("tea_base"), coffeeMachine.getBaseRecipes());
+        assertEquals(1, coffeeMachine.getTotalOutlets());
+
+        // Reconfiguration flattens with new bases and keeps unchanged recipes
+        CatalogDiff catalogDiff = coffeeMachine.applyConfiguration(1, new String[0], new int[0], 0,
+            Collections.singletonList(new RecipeBuilder("hot_tea").addComponent("tea_base", 3).build()),
+            Collections.singletonList(new RecipeBuilder("tea_base").addIngredient("hot_water", 100).addIngredient("tea_leaves_syrup", 15).build()));
+        assertEquals(Collections.singletonList("hot_tea"), catalogDiff.getChangedRecipes());
+        assertEquals(Collections.singletonList("masala_tea"), catalogDiff.getRemovedRecipes());
+        assertEquals(Collections.singleton("tea_base"), coffeeMachine.getBaseRecipes());
+        assertEquals("hot_tea is prepared", coffeeMachine.prepareBeverage("hot_tea"));
+        assertEquals(Integer.valueOf(500), coffeeMachine.getAvailableQuantities().get("hot_water"));
+    }
+
+    @Test
+    public void testRefillPlan() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 100)
+            .addIngredient("hot_milk", 100)
+            .addIngredient("coffee_syrup", 100)
+            .addRecipe(new RecipeBuilder("hot_water").addIngredient("hot_water", 100).build())
+            .addRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build())
+            .addRecipe(new RecipeBuilder("hot_coffee").addIngredient("hot_water", 50).addIngredient("coffee_syrup", 50).build())
+            .build();
+        assertTrue(coffeeMachine.planRefills(3).isEmpty());
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.prepareBeverage("hot_milk");
+
+        List<RefillStep> plan = coffeeMachine.planRefills(3);
+        assertEquals(2, plan.size());
+        assertEquals(Collections.singletonList("hot_water"), plan.get(0).getIngredients());
+        assertEquals(Arrays.asList("hot_coffee", "hot_water"), plan.get(0).getRestoredBeverages());
+
+        // Only planned ingredients are refilled
+        assertEquals(Collections.singletonList("hot_water"), coffeeMachine.refillPlannedIngredients(1));
+        assertEquals(Integer.valueOf(100), coffeeMachine.getAvailableQuantities().get("hot_water"));
+        assertEquals(Integer.valueOf(0), coffeeMachine.getAvailableQuantities().get("hot_milk"));
+        assertEquals("hot_coffee is prepared", coffeeMachine.prepareBeverage("hot_coffee"));
+    }
 }
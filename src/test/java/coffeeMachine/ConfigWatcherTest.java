@@ -0,0 +1,119 @@
+package coffeeMachine;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfigWatcherTest {
+    private String getTestConfiguration(int outlets, String extraIngredient, String extraBeverage) {
+        return "{\n"
+            + "  \"machine\": {\n"
+            + "    \"outlets\": {\n"
+            + "      \"count_n\": " + outlets + "\n"
+            + "    },\n"
+            + "    \"total_items_quantity\": {\n"
+            + "      \"hot_water\": 100000,\n"
+            + "      \"hot_milk\": 100000" + extraIngredient + "\n"
+            + "    },\n"
+            + "    \"beverages\": {\n"
+            + "      \"hot_milk\": {\n"
+            + "        \"hot_milk\": 10\n"
+            + "      },\n"
+            + "      \"hot_water\": {\n"
+            + "        \"hot_water\": 10\n"
+            + "      }" + extraBeverage + "\n"
+            + "    }\n"
+            + "  }\n"
+            + "}";
+    }
+
+    @Test
+    public void testReconfigureKeepsStockAndComputesDiff() throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput(getTestConfiguration(2, "", ""));
+        assertEquals("hot_milk is prepared", coffeeMachine.prepareBeverage("hot_milk"));
+
+        CatalogDiff catalogDiff = CoffeeMachineMaker.reconfigureCoffeeMachine(coffeeMachine, new JSONObject(getTestConfiguration(3,
+            ",\n\"sugar_syrup\": 500", ",\n\"sweet_milk\": {\"hot_milk\": 10, \"sugar_syrup\": 5}")));
+        assertEquals("[sugar_syrup]", catalogDiff.getAddedIngredients().toString());
+        assertEquals("[sweet_milk]", catalogDiff.getAddedRecipes().toString());
+        assertTrue(catalogDiff.getChangedRecipes().isEmpty());
+        assertTrue(catalogDiff.getRemovedRecipes().isEmpty());
+        assertEquals(3, catalogDiff.getOutlets());
+        assertEquals(3, coffeeMachine.getTotalOutlets());
+
+        // Stock used before reconfiguration is not lost
+        assertEquals(99990, (int) coffeeMachine.getAvailableQuantities().get("hot_milk"));
+        assertEquals("sweet_milk is prepared", coffeeMachine.prepareBeverage("sweet_milk"));
+
+        // Removing and changing recipes
+        catalogDiff = CoffeeMachineMaker.reconfigureCoffeeMachine(coffeeMachine, new JSONObject(getTestConfiguration(3, "",
+            "").replace("\"hot_water\": 10", "\"hot_water\": 20")));
+        assertTrue(catalogDiff.getAddedIngredients().isEmpty());
+        assertEquals("[hot_water]", catalogDiff.getChangedRecipes().toString());
+        assertEquals("[sweet_milk]", catalogDiff.getRemovedRecipes().toString());
+        assertEquals("sweet_milk is not a valid beverage", coffeeMachine.prepareBeverage("sweet_milk"));
+        assertEquals(3, coffeeMachine.getTotalIngredients());
+
+        // Same configuration again changes nothing
+        catalogDiff = CoffeeMachineMaker.reconfigureCoffeeMachine(coffeeMachine, new JSONObject(getTestConfiguration(3, "",
+            "").replace("\"hot_water\": 10", "\"hot_water\": 20")));
+        assertTrue(catalogDiff.isEmpty());
+    }
+
+    @Test
+    public void testOrdersKeepFlowingDuringReconfiguration() throws Exception {
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput(getTestConfiguration(4, "", ""));
+
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        List<Future<String>> futureList = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            futureList.add(es.submit(() -> coffeeMachine.prepareBeverage("hot_water")));
+        }
+        for (int i = 0; i < 50; i++) {
+            String extraBeverage = i % 2 == 0 ? ",\n\"water_milk\": {\"hot_milk\": 1, \"hot_water\": 1}" : "";
+            CoffeeMachineMaker.reconfigureCoffeeMachine(coffeeMachine, new JSONObject(getTestConfiguration(4 + i % 3, "", extraBeverage)));
+        }
+        for (Future<String> future : futureList) {
+            assertEquals("hot_water is prepared", future.get());
+        }
+        es.shutdown();
+        assertEquals(100000 - 2000 * 10, (int) coffeeMachine.getAvailableQuantities().get("hot_water"));
+    }
+
+    @Test
+    public void testWatchedFileIsApplied() throws Exception {
+        Path directory = Files.createTempDirectory("coffee_machine");
+        Path configurationFile = directory.resolve("machine.json");
+        Files.write(configurationFile, getTestConfiguration(2, "", "").getBytes(StandardCharsets.UTF_8));
+        CoffeeMachine coffeeMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput(getTestConfiguration(2, "", ""));
+
+        try (ConfigWatcher configWatcher = CoffeeMachineMaker.watchConfiguration(configurationFile, coffeeMachine)) {
+            Files.write(configurationFile, getTestConfiguration(5, "", "").getBytes(StandardCharsets.UTF_8));
+            long deadline = System.currentTimeMillis() + 20000;
+            while (configWatcher.getAppliedConfigurations() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, configWatcher.getAppliedConfigurations());
+            assertEquals(5, coffeeMachine.getTotalOutlets());
+            assertNull(configWatcher.getLastError());
+
+            // Broken file is ignored and machine keeps its configuration
+            Files.write(configurationFile, "{\"machine\": ".getBytes(StandardCharsets.UTF_8));
+            assertFalse(configWatcher.reload());
+            assertNotNull(configWatcher.getLastError());
+            assertEquals(5, coffeeMachine.getTotalOutlets());
+        } finally {
+            Files.deleteIfExists(configurationFile);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package coffeeMachine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.util.Pair;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OrderEventTest {
+    @Test
+    public void testOrderEvents() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(1);
+        coffeeMachine.initialize(new ArrayList<>(Arrays.asList(new Pair<>("hot_water", 100))), new ArrayList<>());
+        coffeeMachine.addRecipe("hot_water", new ArrayList<>(Arrays.asList(new Pair<>("hot_water", 60))));
+
+        // Disabled by default, so nothing is recorded outside of the recording
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.refillAllIngredients();
+
+        Path recordingFile = Files.createTempFile("orders", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("coffeeMachine.Order").withThreshold(Duration.ZERO);
+            recording.start();
+            coffeeMachine.prepareBeverage("hot_water");
+            coffeeMachine.prepareBeverage("hot_water");
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            if (event.getEventType().getName().equals("coffeeMachine.Order")) {
+                events.add(event);
+            }
+        }
+        Files.delete(recordingFile);
+
+        assertEquals(2, events.size());
+        assertEquals("hot_water", events.get(0).getString("beverage"));
+        assertTrue(events.get(0).getBoolean("prepared"));
+        assertFalse(events.get(1).getBoolean("prepared"));
+        assertEquals("hot_water cannot be prepared because item hot_water is not sufficient", events.get(1).getString("status"));
+    }
+}
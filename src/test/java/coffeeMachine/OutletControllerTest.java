@@ -0,0 +1,58 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutletControllerTest {
+    private CoffeeMachine getTestCoffeeMachine(int numOutlets) throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(numOutlets);
+        coffeeMachine.initialize(new ArrayList<>(Arrays.asList(new Pair<>("ingredient_1", 1000))), new ArrayList<>());
+        coffeeMachine.addRecipe("recipe_1", new ArrayList<>(Arrays.asList(new Pair<>("ingredient_1", 10))));
+        return coffeeMachine;
+    }
+
+    @Test
+    public void testControllerKeepsBounds() throws Exception {
+        CoffeeMachine coffeeMachine = getTestCoffeeMachine(5);
+        OutletController outletController = new OutletController(coffeeMachine, 1, 3, 10);
+        assertEquals(-1, outletController.adjust());
+        assertEquals(3, coffeeMachine.getTotalOutlets());
+    }
+
+    @Test
+    public void testControllerGrowsUnderLoadAndShrinksWhenIdle() throws Exception {
+        CoffeeMachine coffeeMachine = getTestCoffeeMachine(0);
+        OutletController outletController = new OutletController(coffeeMachine, 0, 2, 10);
+
+        ExecutorService es = Executors.newFixedThreadPool(3);
+        List<Future<String>> futureList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futureList.add(es.submit(() -> coffeeMachine.prepareBeverage("recipe_1")));
+        }
+        while (coffeeMachine.getQueuedOrders() < 3) {
+            Thread.sleep(1);
+        }
+
+        // Orders are waiting on a machine without outlets
+        assertEquals(1, outletController.adjust());
+        assertEquals(1, coffeeMachine.getTotalOutlets());
+        for (Future<String> future : futureList) {
+            assertEquals("recipe_1 is prepared", future.get());
+        }
+        es.shutdown();
+
+        // Nothing is waiting anymore so outlet is removed after some quiet rounds
+        assertEquals(0, outletController.adjust());
+        assertEquals(0, outletController.adjust());
+        assertEquals(-1, outletController.adjust());
+        assertEquals(0, coffeeMachine.getTotalOutlets());
+    }
+}
@@ -0,0 +1,51 @@
+package coffeeMachine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutletPoolTest {
+    @Test
+    public void testGrowAndShrink() throws Exception {
+        OutletPool outletPool = new OutletPool(2);
+        assertEquals(2, outletPool.getSize());
+        assertEquals(0, outletPool.getBusyOutlets());
+
+        assertTrue(outletPool.tryAcquire());
+        assertTrue(outletPool.tryAcquire());
+        assertFalse(outletPool.tryAcquire());
+        assertEquals(2, outletPool.getBusyOutlets());
+
+        // Growing makes new outlets usable straight away
+        outletPool.resize(3);
+        assertTrue(outletPool.tryAcquire());
+        assertEquals(3, outletPool.getBusyOutlets());
+
+        // Shrinking does not cancel anything, new orders wait until in-flight orders drain
+        outletPool.resize(1);
+        assertEquals(1, outletPool.getSize());
+        assertFalse(outletPool.tryAcquire());
+        outletPool.release();
+        outletPool.release();
+        assertFalse(outletPool.tryAcquire());
+        outletPool.release();
+        assertTrue(outletPool.tryAcquire());
+        outletPool.release();
+        assertEquals(1, outletPool.availablePermits());
+
+        Throwable throwable = assertThrows(Exception.class, () -> outletPool.resize(-1));
+        assertEquals("Number of outlets cannot be negative", throwable.getMessage());
+    }
+
+    @Test
+    public void testOutletNumbers() {
+        OutletPool outletPool = new OutletPool(3);
+        assertEquals(0, outletPool.claimOutlet());
+        assertEquals(1, outletPool.claimOutlet());
+        outletPool.releaseOutlet(0);
+        assertEquals(0, outletPool.claimOutlet());
+        assertEquals(2, outletPool.claimOutlet());
+        outletPool.releaseOutlet(-1); // Ignored
+        assertEquals(3, outletPool.claimOutlet());
+    }
+}
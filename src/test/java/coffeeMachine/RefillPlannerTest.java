@@ -0,0 +1,131 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import recipe.Recipe;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class RefillPlannerTest {
+
+    private static Recipe getRecipe(String name, String... ingredients) {
+        RecipeBuilder recipeBuilder = new RecipeBuilder(name);
+        for (String ingredient : ingredients) {
+            recipeBuilder.addIngredient(ingredient, 50);
+        }
+        return recipeBuilder.build();
+    }
+
+    @Test
+    public void testPlan() {
+        List<Recipe> recipes = Arrays.asList(
+            getRecipe("espresso", "coffee"),
+            getRecipe("americano", "coffee", "hot_water"),
+            getRecipe("latte", "coffee", "milk"),
+            getRecipe("flat_white", "coffee", "milk"),
+            getRecipe("cappuccino", "coffee", "milk", "foam"),
+            getRecipe("hot_milk", "milk"),
+            getRecipe("hot_water", "hot_water"),
+            getRecipe("chai", "tea", "milk"));
+        Map<String, Integer> stock = new HashMap<>();
+        stock.put("coffee", 10);
+        stock.put("milk", 10);
+        stock.put("foam", 10);
+        stock.put("hot_water", 100);
+        Map<String, Integer> maxQuantities = new HashMap<>();
+        maxQuantities.put("coffee", 500);
+        maxQuantities.put("milk", 500);
+        maxQuantities.put("foam", 500);
+        maxQuantities.put("hot_water", 500);
+
+        RefillPlanner refillPlanner = new RefillPlanner(recipes, stock, maxQuantities);
+        // chai needs tea which the machine does not have
+        assertEquals(Collections.singletonList("chai"), refillPlanner.getUnrecoverableBeverages());
+
+        List<RefillStep> plan = refillPlanner.plan();
+        assertEquals(2, plan.size());
+        // Coffee with milk restores more beverages per refill than coffee alone
+        assertEquals(Arrays.asList("coffee", "milk"), plan.get(0).getIngredients());
+        assertEquals(Arrays.asList("americano", "espresso", "flat_white", "hot_milk", "latte"), plan.get(0).getRestoredBeverages());
+        assertEquals(Collections.singletonList("foam"), plan.get(1).getIngredients());
+        assertEquals(Collections.singletonList("cappuccino"), plan.get(1).getRestoredBeverages());
+        assertEquals(3, plan.get(1).getTotalRefills());
+        assertEquals(6, plan.get(1).getTotalRestored());
+    }
+
+    @Test
+    public void testBudget() {
+        List<Recipe> recipes = Arrays.asList(
+            getRecipe("espresso", "coffee"),
+            getRecipe("ristretto", "coffee"),
+            getRecipe("latte", "coffee", "milk"),
+            getRecipe("hot_milk", "milk"),
+            getRecipe("mocha", "coffee", "milk", "chocolate"));
+        Map<String, Integer> stock = new HashMap<>();
+        stock.put("coffee", 0);
+        stock.put("milk", 0);
+        stock.put("chocolate", 0);
+        Map<String, Integer> maxQuantities = new HashMap<>();
+        maxQuantities.put("coffee", 100);
+        maxQuantities.put("milk", 100);
+        maxQuantities.put("chocolate", 20); // Too little for mocha even when full
+
+        RefillPlanner refillPlanner = new RefillPlanner(recipes, stock, maxQuantities);
+        assertEquals(Collections.singletonList("mocha"), refillPlanner.getUnrecoverableBeverages());
+
+        List<RefillStep> plan = refillPlanner.plan(1);
+        assertEquals(1, plan.size());
+        assertEquals(Collections.singletonList("coffee"), plan.get(0).getIngredients());
+        assertEquals(Arrays.asList("espresso", "ristretto"), plan.get(0).getRestoredBeverages());
+
+        // Same beverages per refill, bigger step is preferred once budget allows it
+        plan = refillPlanner.plan(2);
+        assertEquals(1, plan.size());
+        assertEquals("RefillStep[ingredients=[coffee, milk], restoredBeverages=[espresso, hot_milk, latte, ristretto], totalRefills=2, totalRestored=4]", plan.get(0).toString());
+        assertTrue(refillPlanner.plan(0).isEmpty());
+    }
+
+    @Test
+    public void testLargeCatalog() {
+        Random random = new Random(7);
+        Map<String, Integer> stock = new HashMap<>();
+        Map<String, Integer> maxQuantities = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            stock.put("ingredient_" + i, i % 2 == 0 ? 10 : 1000);
+            maxQuantities.put("ingredient_" + i, 1000);
+        }
+        List<Recipe> recipes = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            RecipeBuilder recipeBuilder = new RecipeBuilder("recipe_" + i);
+            for (int j = 0; j < 4; j++) {
+                recipeBuilder.addIngredient("ingredient_" + random.nextInt(40), 50);
+            }
+            recipes.add(recipeBuilder.build());
+        }
+
+        long startNanos = System.nanoTime();
+        List<RefillStep> plan = new RefillPlanner(recipes, stock, maxQuantities).plan();
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        assertTrue("Plan took " + elapsedMillis + " ms", elapsedMillis < 2000);
+
+        // Every offline recipe is restored once all the low ingredients are refilled
+        RefillStep last = plan.get(plan.size() - 1);
+        assertEquals(20, last.getTotalRefills());
+        int online = 0;
+        for (Recipe recipe : recipes) {
+            boolean brewable = true;
+            for (String ingredient : recipe.getIngredientNames()) {
+                brewable &= stock.get(ingredient) >= 50;
+            }
+            online += brewable ? 1 : 0;
+        }
+        assertEquals(recipes.size() - online, last.getTotalRestored());
+    }
+}
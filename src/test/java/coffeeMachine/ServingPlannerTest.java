@@ -0,0 +1,72 @@
+package coffeeMachine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.util.Pair;
+import org.junit.Test;
+import recipe.Recipe;
+
+import static org.junit.Assert.*;
+
+public class ServingPlannerTest {
+    @Test
+    public void testPlanPrefersCheaperBeverages() {
+        List<Recipe> recipes = new ArrayList<>();
+        recipes.add(new Recipe("espresso", Arrays.asList(new Pair<>("coffee", 10))));
+        recipes.add(new Recipe("latte", Arrays.asList(new Pair<>("coffee", 10), new Pair<>("milk", 100))));
+        recipes.add(new Recipe("large_latte", Arrays.asList(new Pair<>("coffee", 30), new Pair<>("milk", 200))));
+
+        Map<String, Integer> stock = new HashMap<>();
+        stock.put("coffee", 100);
+        stock.put("milk", 500);
+
+        Map<String, Integer> demand = new HashMap<>();
+        demand.put("espresso", 3);
+        demand.put("latte", 10);
+        demand.put("large_latte", 10);
+        demand.put("not_a_beverage", 5);
+
+        Map<String, Integer> plan = new ServingPlanner(recipes, stock).plan(demand);
+        assertEquals(4, plan.size());
+        assertEquals(3, (int) plan.get("espresso"));
+        assertEquals(5, (int) plan.get("latte")); // milk is the bottleneck for lattes
+        assertEquals(0, (int) plan.get("large_latte"));
+        assertEquals(0, (int) plan.get("not_a_beverage"));
+    }
+
+    @Test
+    public void testPlanNeverOverdrawsStock() {
+        List<Recipe> recipes = new ArrayList<>();
+        Map<String, Integer> demand = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            List<Pair<String, Integer>> ingredients = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                ingredients.add(new Pair<>("ingredient_" + ((i * 7 + j * 13) % 200), 1 + (i + j) % 9));
+            }
+            recipes.add(new Recipe("recipe_" + i, ingredients));
+            demand.put("recipe_" + i, 1 + i % 5);
+        }
+        Map<String, Integer> stock = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            stock.put("ingredient_" + i, 50 + i);
+        }
+
+        Map<String, Integer> plan = new ServingPlanner(recipes, stock).plan(demand);
+
+        Map<String, Integer> used = new HashMap<>();
+        int totalServings = 0;
+        for (Recipe recipe : recipes) {
+            int servings = plan.get(recipe.getName());
+            assertTrue(servings <= demand.get(recipe.getName()));
+            totalServings += servings;
+            recipe.getIngredients().forEach(ingredient -> used.merge(ingredient.getName(), servings * ingredient.getRequiredQuantity(), Integer::sum));
+        }
+        for (Map.Entry<String, Integer> entry : used.entrySet()) {
+            assertTrue(entry.getValue() <= stock.get(entry.getKey()));
+        }
+        assertTrue(totalServings > 0);
+    }
+}
@@ -0,0 +1,50 @@
+package coffeeMachine;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.json.JSONObject;
+import org.junit.Test;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class SnapshotExporterTest {
+    @Test
+    public void testExport() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(2)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 300)
+            .addRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).addIngredient("hot_water", 50).build())
+            .build();
+        assertEquals("hot_milk is prepared", coffeeMachine.prepareBeverage("hot_milk"));
+
+        Path directory = Files.createTempDirectory("snapshots");
+        Path exportFile = directory.resolve("machine.json");
+        SnapshotExporter snapshotExporter = new SnapshotExporter(coffeeMachine, exportFile);
+        MachineSnapshot machineSnapshot = snapshotExporter.export();
+
+        assertEquals(2, machineSnapshot.getOutlets());
+        assertEquals(1, machineSnapshot.getRecipes().size());
+        assertEquals(Integer.valueOf(200), machineSnapshot.getStockSnapshot().getQuantities().get("hot_milk"));
+        assertSame(machineSnapshot, snapshotExporter.getLastSnapshot());
+
+        // Exported file has current stock and can be used to create the machine again
+        JSONObject exported = new JSONObject(new String(Files.readAllBytes(exportFile), StandardCharsets.UTF_8));
+        assertEquals(450, exported.getJSONObject(MachineSnapshot.STOCK).getInt("hot_water"));
+        CoffeeMachine restoredMachine = CoffeeMachineMaker.getCoffeeMachineFromGivenInput(exported);
+        assertEquals(2, restoredMachine.getTotalOutlets());
+        assertEquals(2, restoredMachine.getTotalIngredients());
+        assertEquals("hot_milk is prepared", restoredMachine.prepareBeverage("hot_milk"));
+
+        // Background export keeps writing
+        snapshotExporter.start(10);
+        Thread.sleep(100);
+        snapshotExporter.stop();
+        assertNull(snapshotExporter.getLastError());
+        assertNotSame(machineSnapshot, snapshotExporter.getLastSnapshot());
+
+        Files.delete(exportFile);
+        Files.delete(directory);
+    }
+}
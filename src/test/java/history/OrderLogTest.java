@@ -0,0 +1,127 @@
+package history;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+import recipe.Recipe;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class OrderLogTest {
+    private static final long HOUR = 3600_000L;
+
+    @Test
+    public void testQueries() {
+        OrderLog orderLog = new OrderLog();
+        orderLog.append(0, "hot_tea", OrderOutcome.PREPARED, null, 0, 2000_000);
+        orderLog.append(10, "hot_tea", OrderOutcome.PREPARED, null, 1, 3000_000);
+        orderLog.append(20, "hot_coffee", OrderOutcome.PREPARED, null, 0, 1000_000);
+        orderLog.append(30, "hot_coffee", OrderOutcome.INGREDIENT_NOT_SUFFICIENT, "hot_milk", -1, 10_000);
+        orderLog.append(HOUR, "hot_coffee", OrderOutcome.PREPARED, null, 0, 1000_000);
+        orderLog.append(HOUR + 1, "hot_coffee", OrderOutcome.PREPARED, null, 0, 1000_000);
+        orderLog.append(HOUR + 2, "green_tea", OrderOutcome.INGREDIENT_NOT_AVAILABLE, "green_mixture", -1, 10_000);
+        orderLog.append(HOUR + 3, "latte", OrderOutcome.NOT_A_VALID_BEVERAGE, null, -1, 1_000);
+        assertEquals(8, orderLog.size());
+
+        Map<String, Long> top = orderLog.getTopBeverages(0, 2 * HOUR, 10);
+        assertEquals(Arrays.asList("hot_coffee", "hot_tea"), Arrays.asList(top.keySet().toArray()));
+        assertEquals(Long.valueOf(3), top.get("hot_coffee"));
+        assertEquals(1, orderLog.getTopBeverages(0, 2 * HOUR, 1).size());
+
+        Map<Long, Map<String, Long>> topPerHour = orderLog.getTopBeveragesPerHour(0, 2 * HOUR, 1);
+        assertEquals(2, topPerHour.size());
+        assertEquals(Long.valueOf(2), topPerHour.get(0L).get("hot_tea"));
+        assertEquals(Long.valueOf(2), topPerHour.get(HOUR).get("hot_coffee"));
+
+        Map<String, Double> failureRates = orderLog.getFailureRatesByIngredient(0, 2 * HOUR);
+        assertEquals(0.125, failureRates.get("hot_milk"), 1e-9);
+        assertEquals(0.125, failureRates.get("green_mixture"), 1e-9);
+
+        Map<OrderOutcome, Long> outcomes = orderLog.getOutcomeCounts(0, HOUR);
+        assertEquals(Long.valueOf(3), outcomes.get(OrderOutcome.PREPARED));
+        assertEquals(Long.valueOf(1), outcomes.get(OrderOutcome.INGREDIENT_NOT_SUFFICIENT));
+        assertEquals(Long.valueOf(0), outcomes.get(OrderOutcome.MACHINE_BUSY));
+
+        Recipe hotTea = new RecipeBuilder("hot_tea").addIngredient("hot_water", 200).addIngredient("hot_milk", 100).build();
+        Recipe hotCoffee = new RecipeBuilder("hot_coffee").addIngredient("hot_water", 100).build();
+        Map<String, Long> consumption = orderLog.getConsumption(0, HOUR, Arrays.asList(hotTea, hotCoffee));
+        assertEquals(Long.valueOf(500), consumption.get("hot_water"));
+        assertEquals(Long.valueOf(200), consumption.get("hot_milk"));
+
+        // 1000, 1000, 1000, 2000, 3000 micros, so median is in bucket up to 1023
+        assertEquals(1023, orderLog.getLatencyPercentileMicros(0, 2 * HOUR, 50));
+        assertEquals(4095, orderLog.getLatencyPercentileMicros(0, 2 * HOUR, 100));
+    }
+
+    @Test
+    public void testBeverageIds() {
+        OrderLog orderLog = new OrderLog();
+        orderLog.append(HOUR, "hot_tea", OrderOutcome.PREPARED, null, 0, 1000);
+        orderLog.append(HOUR + 1, "latte", OrderOutcome.NOT_A_VALID_BEVERAGE, null, -1, 1000);
+        orderLog.append(3 * HOUR, "hot_tea", OrderOutcome.PREPARED, null, 0, 1000);
+        assertEquals(3, orderLog.size());
+        assertEquals(0, orderLog.getBeverageId("hot_tea"));
+        assertEquals(1, orderLog.getBeverageId("hot_coffee")); // latte got no id
+        assertEquals(Long.valueOf(1), orderLog.getOutcomeCounts(0, Long.MAX_VALUE).get(OrderOutcome.NOT_A_VALID_BEVERAGE));
+
+        // Open ended window counts only hours of the log
+        Map<Long, Map<String, Long>> topPerHour = orderLog.getTopBeveragesPerHour(0, Long.MAX_VALUE, 1);
+        assertEquals(Arrays.asList(HOUR, 3 * HOUR), Arrays.asList(topPerHour.keySet().toArray()));
+        assertTrue(new OrderLog().getTopBeveragesPerHour(Long.MIN_VALUE, Long.MAX_VALUE, 1).isEmpty());
+
+        // Ids have 16 bits in a packed code
+        Throwable throwable = assertThrows(IllegalArgumentException.class,
+            () -> orderLog.append(0, 1 << 16, OrderOutcome.PREPARED, -1, 0, 1000));
+        assertEquals("Beverage id 65536 does not fit in 16 bits", throwable.getMessage());
+        for (int i = orderLog.getBeverageId("hot_coffee") + 1; i < 0xFFFF; i++) {
+            assertEquals(i, orderLog.getBeverageId("beverage_" + i));
+        }
+        assertEquals(-1, orderLog.getBeverageId("one_too_many"));
+        assertFalse(orderLog.append(0, "one_too_many", OrderOutcome.PREPARED, null, 0, 1000));
+        assertEquals(3, orderLog.size());
+    }
+
+    @Test
+    public void testParallelAppends() throws Exception {
+        OrderLog orderLog = new OrderLog();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int outlet = i;
+            threads[i] = new Thread(() -> {
+                for (int order = 0; order < 50000; order++) {
+                    orderLog.append(order, order % 2 == 0 ? "hot_tea" : "hot_coffee", OrderOutcome.PREPARED, null, outlet, 1000);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200000, orderLog.size());
+        assertEquals(Long.valueOf(100000), orderLog.getTopBeverages(0, Long.MAX_VALUE, 2).get("hot_tea"));
+        assertEquals(Long.valueOf(200000), orderLog.getOutcomeCounts(0, Long.MAX_VALUE).get(OrderOutcome.PREPARED));
+    }
+
+    @Test
+    public void testMachineRecordsOrders() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 150)
+            .addRecipe(new RecipeBuilder("hot_water").addIngredient("hot_water", 100).build())
+            .build();
+        OrderLog orderLog = new OrderLog();
+        coffeeMachine.setOrderLog(orderLog);
+
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.prepareBeverage("latte");
+
+        Map<OrderOutcome, Long> outcomes = orderLog.getOutcomeCounts(0, Long.MAX_VALUE);
+        assertEquals(Long.valueOf(1), outcomes.get(OrderOutcome.PREPARED));
+        assertEquals(Long.valueOf(1), outcomes.get(OrderOutcome.INGREDIENT_NOT_SUFFICIENT));
+        assertEquals(Long.valueOf(1), outcomes.get(OrderOutcome.NOT_A_VALID_BEVERAGE));
+        assertEquals(1.0 / 3, orderLog.getFailureRatesByIngredient(0, Long.MAX_VALUE).get("hot_water"), 1e-9);
+    }
+}
@@ -0,0 +1,104 @@
+package history;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import ingredient.StockSnapshot;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class StockHistoryTest {
+
+    @Test
+    public void testRollups() {
+        StockHistory stockHistory = new StockHistory();
+        stockHistory.record(1000, "hot_water", 500);
+        stockHistory.record(1500, "hot_water", 300);
+        stockHistory.record(2000, "hot_water", 200);
+        stockHistory.record(61_000, "hot_water", 100);
+
+        List<StockPoint> seconds = stockHistory.getSeries("hot_water", StockHistory.Resolution.SECOND, 0, 120_000);
+        assertEquals(3, seconds.size());
+        assertEquals(1000, seconds.get(0).getTimestampMillis());
+        assertEquals(300, seconds.get(0).getMinQuantity());
+        assertEquals(500, seconds.get(0).getMaxQuantity());
+        assertEquals(300, seconds.get(0).getLastQuantity());
+        assertEquals(400.0, seconds.get(0).getAverageQuantity(), 1e-9);
+
+        List<StockPoint> minutes = stockHistory.getSeries("hot_water", StockHistory.Resolution.MINUTE, 0, 120_000);
+        assertEquals(2, minutes.size());
+        assertEquals(200, minutes.get(0).getMinQuantity());
+        assertEquals(200, minutes.get(0).getLastQuantity());
+        assertEquals(60_000, minutes.get(1).getTimestampMillis());
+
+        List<StockPoint> hours = stockHistory.getSeries("hot_water", StockHistory.Resolution.HOUR, 0, 120_000);
+        assertEquals(1, hours.size());
+        assertEquals(100, hours.get(0).getLastQuantity());
+        assertEquals(275.0, hours.get(0).getAverageQuantity(), 1e-9);
+
+        assertEquals(1, stockHistory.getSeries("hot_water", StockHistory.Resolution.SECOND, 2000, 3000).size());
+        assertTrue(stockHistory.getSeries("hot_milk", StockHistory.Resolution.SECOND, 0, 120_000).isEmpty());
+    }
+
+    @Test
+    public void testRingOverwritesOldSlots() {
+        StockHistory stockHistory = new StockHistory(4, 4, 4);
+        for (int second = 0; second < 10; second++) {
+            stockHistory.record(second * 1000L, "hot_water", 100 - second);
+        }
+        List<StockPoint> seconds = stockHistory.getSeries("hot_water", StockHistory.Resolution.SECOND, 0, 10_000);
+        assertEquals(4, seconds.size());
+        assertEquals(6000, seconds.get(0).getTimestampMillis());
+        assertEquals(91, seconds.get(3).getLastQuantity());
+
+        // A sample older than the ring is dropped instead of overwriting a newer slot
+        stockHistory.record(1000, "hot_water", 0);
+        seconds = stockHistory.getSeries("hot_water", StockHistory.Resolution.SECOND, 0, 10_000);
+        assertEquals(4, seconds.size());
+        assertEquals(6000, seconds.get(0).getTimestampMillis());
+        assertEquals(0, stockHistory.getSeries("hot_water", StockHistory.Resolution.MINUTE, 0, 10_000).get(0).getMinQuantity());
+    }
+
+    @Test
+    public void testSnapshotAndLevelCrossing() throws Exception {
+        StockHistory stockHistory = new StockHistory();
+        Map<String, Integer> quantities = new HashMap<>();
+        quantities.put("hot_water", 500);
+        quantities.put("hot_milk", 300);
+        stockHistory.record(new StockSnapshot(1, 5000, quantities, quantities));
+        assertEquals(2, stockHistory.getIngredients().size());
+        assertEquals(300, stockHistory.getSeries("hot_milk", StockHistory.Resolution.SECOND, 5000, 6000).get(0).getLastQuantity());
+
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 1000)
+            .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 300).build())
+            .build();
+        StockHistory machineHistory = new StockHistory();
+        coffeeMachine.setStockListener(machineHistory, 10);
+        coffeeMachine.prepareBeverage("hot_water");
+        coffeeMachine.prepareBeverage("hot_water");
+        List<StockPoint> points = machineHistory.getSeries("hot_water", StockHistory.Resolution.HOUR, 0, Long.MAX_VALUE);
+        assertEquals(1, points.size());
+        assertEquals(400, points.get(0).getLastQuantity());
+        assertEquals(700, points.get(0).getMaxQuantity());
+    }
+
+    @Test
+    public void testBackgroundSampler() throws Exception {
+        StockHistory stockHistory = new StockHistory();
+        Map<String, Integer> quantities = new HashMap<>();
+        quantities.put("hot_water", 500);
+        stockHistory.start(() -> new StockSnapshot(1, System.currentTimeMillis(), quantities, quantities), 10);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stockHistory.getIngredients().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        stockHistory.stop();
+        assertNull(stockHistory.getLastError());
+        assertFalse(stockHistory.getSeries("hot_water", StockHistory.Resolution.HOUR, 0, Long.MAX_VALUE).isEmpty());
+    }
+}
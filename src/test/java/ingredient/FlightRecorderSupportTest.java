@@ -0,0 +1,13 @@
+package ingredient;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FlightRecorderSupportTest {
+    @Test
+    public void testAvailability() {
+        // Tests run on a runtime with jdk.jfr, see OrderEventTest
+        assertTrue(FlightRecorderSupport.isAvailable());
+    }
+}
@@ -36,6 +36,17 @@ public class IngredientTest {
         assertEquals(30, ingredient.getQuantity());
     }
 
+    @Test
+    public void testFillIngredient() {
+        Ingredient ingredient = new Ingredient("test_ingredient", 10, 100);
+        assertEquals(50, ingredient.fillIngredient(50));
+        assertEquals(60, ingredient.getQuantity());
+        // Quantity never goes above max quantity
+        assertEquals(40, ingredient.fillIngredient(50));
+        assertEquals(0, ingredient.fillIngredient(50));
+        assertEquals(100, ingredient.getQuantity());
+    }
+
     @Test
     public void testToString() {
         Ingredient ingredient = new Ingredient("test_ingredient", 100, 1000);
@@ -43,4 +54,16 @@ public class IngredientTest {
         String actual = ingredient.toString();
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void testRestoreIngredient() {
+        Ingredient ingredient = new Ingredient("test_ingredient", 100, 100);
+        assertTrue(ingredient.useIngredient(60));
+        assertEquals(30, ingredient.restoreIngredient(30));
+        assertEquals(70, ingredient.getQuantity());
+        // Refilled in between, putting back all of the rest would go above max quantity
+        ingredient.refillIngredient();
+        assertEquals(0, ingredient.restoreIngredient(30));
+        assertEquals(100, ingredient.getQuantity());
+    }
 }
@@ -3,6 +3,7 @@ package ingredient;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import javafx.util.Pair;
 import org.junit.Test;
 
@@ -62,6 +63,86 @@ public class IngredientsHolderTest {
         assertEquals(0, ingredientsHolder.getRunningLowIngredients().size());
     }
 
+    @Test
+    public void testCheckOrder() {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[] {"ingredient_1", "ingredient_2", "ingredient_3"}, new int[] {100, 10, 50}, 3);
+        String[] names = {"ingredient_1", "ingredient_2", "ingredient_3", "ingredient_4"};
+        int[] quantities = {10, 20, 60, 10};
+
+        // Every ingredient except first one fails, first failing probe is reported
+        assertEquals(1, ingredientsHolder.checkIngredients(names, quantities));
+        assertEquals(3, ingredientsHolder.checkIngredients(names, quantities, new int[] {3, 0, 1, 2}));
+        assertEquals(2, ingredientsHolder.useIngredients(names, quantities, new int[] {0, 2, 1, 3}));
+        assertEquals(100, (int) ingredientsHolder.getAvailableQuantities().get("ingredient_1"));
+
+        assertEquals(-1, ingredientsHolder.useIngredients(new String[] {"ingredient_1", "ingredient_3"}, new int[] {30, 20}, new int[] {1, 0}));
+        assertEquals(70, (int) ingredientsHolder.getAvailableQuantities().get("ingredient_1"));
+        assertArrayEquals(new int[] {7, 0, 0, 0}, ingredientsHolder.getServingsLeft(names, quantities));
+    }
+
+    @Test
+    public void testRepeatedIngredient() {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[] {"hot_water", "hot_milk"}, new int[] {150, 100}, 2);
+        String[] names = {"hot_water", "hot_milk", "hot_water"};
+        int[] quantities = {100, 10, 100};
+
+        // Every entry is checked against total quantity of its ingredient, so nothing is taken
+        assertEquals(0, ingredientsHolder.checkIngredients(names, quantities));
+        assertEquals(2, ingredientsHolder.useIngredients(names, quantities, new int[] {2, 1, 0}));
+        assertEquals(150, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+        assertEquals(100, (int) ingredientsHolder.getAvailableQuantities().get("hot_milk"));
+        assertArrayEquals(new int[] {0, 10, 0}, ingredientsHolder.getServingsLeft(names, quantities));
+
+        assertEquals(-1, ingredientsHolder.useIngredients(new String[] {"hot_water", "hot_water"}, new int[] {50, 100}));
+        assertEquals(0, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[] {"hot_water", "hot_milk"}, new int[] {100000, 100000}, 2);
+        StockSnapshot stockSnapshot = ingredientsHolder.getSnapshot();
+        assertEquals(Integer.valueOf(100000), stockSnapshot.getQuantities().get("hot_water"));
+        assertEquals(Integer.valueOf(100000), stockSnapshot.getMaxQuantities().get("hot_milk"));
+        assertEquals(stockSnapshot.getVersion(), ingredientsHolder.getSnapshot().getVersion());
+
+        ingredientsHolder.useIngredient("hot_water", 10);
+        assertTrue(ingredientsHolder.getSnapshot().getVersion() > stockSnapshot.getVersion());
+        ingredientsHolder.refillAllIngredients();
+
+        // Both ingredients are always used together, so every snapshot should see them equal
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                while (ingredientsHolder.useIngredients(new String[] {"hot_water", "hot_milk"}, new int[] {1, 1}) < 0) {
+                    // Keep using until stock is over
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Integer> quantities = ingredientsHolder.getSnapshot().getQuantities();
+            assertEquals(quantities.get("hot_water"), quantities.get("hot_milk"));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Integer.valueOf(0), ingredientsHolder.getSnapshot().getQuantities().get("hot_milk"));
+    }
+
+    @Test
+    public void testStockListener() {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new ArrayList<>(Arrays.asList(new Pair<>("hot_water", 100))));
+        List<Integer> reported = new ArrayList<>();
+        ingredientsHolder.setStockListener((ingredient, quantity, maxQuantity, timestampMillis) -> reported.add(quantity), 4);
+
+        ingredientsHolder.useIngredient("hot_water", 10); // Still in top level, first change is always reported
+        ingredientsHolder.useIngredient("hot_water", 5);
+        ingredientsHolder.useIngredient("hot_water", 20);
+        ingredientsHolder.useIngredients(new String[] {"hot_water"}, new int[] {40});
+        ingredientsHolder.refillIngredient("hot_water");
+        assertEquals(Arrays.asList(90, 65, 25, 100), reported);
+    }
+
     @Test
     public void testNewIngredientInsertion() {
         List<Pair<String, Integer>> initialIngredients = new ArrayList<>(Arrays.asList(new Pair<>("ingredient_1", 100), new Pair<>("ingredient_2", 100), new Pair<>("ingredient_3", 50)));
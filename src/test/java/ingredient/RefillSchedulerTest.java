@@ -0,0 +1,124 @@
+package ingredient;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefillSchedulerTest {
+
+    @Test
+    public void testGradualRefill() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[]{"hot_water"}, new int[]{1000}, 1);
+        ingredientsHolder.useIngredient("hot_water", 1000);
+        RefillScheduler refillScheduler = new RefillScheduler(ingredientsHolder, 1, 5);
+        try {
+            CompletableFuture<Integer> refill = refillScheduler.startRefill("hot_water", 5000);
+            // Same ingredient is not refilled twice
+            assertSame(refill, refillScheduler.startRefill("hot_water", 100));
+            assertEquals(Collections.singletonList("hot_water"), refillScheduler.getRunningRefills());
+
+            // Orders keep using stock while it rises
+            Thread.sleep(50);
+            int quantity = ingredientsHolder.getAvailableQuantities().get("hot_water");
+            assertTrue(quantity > 0 && quantity < 1000);
+            assertTrue(ingredientsHolder.useIngredient("hot_water", 10));
+
+            assertEquals(1010, (int) refill.get(5, TimeUnit.SECONDS));
+            assertEquals(1000, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+            assertTrue(refillScheduler.getRunningRefills().isEmpty());
+
+            // Missing ingredient has nothing to refill
+            assertEquals(0, (int) refillScheduler.startRefill("hot_milk", 100).get());
+        } finally {
+            refillScheduler.stop();
+        }
+    }
+
+    @Test
+    public void testWorkers() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[]{"hot_water", "hot_milk", "sugar_syrup"}, new int[]{100, 100, 100}, 3);
+        ingredientsHolder.useIngredient("hot_water", 100);
+        ingredientsHolder.useIngredient("hot_milk", 100);
+        ingredientsHolder.useIngredient("sugar_syrup", 50);
+        RefillScheduler refillScheduler = new RefillScheduler(ingredientsHolder, 1, 5);
+        try {
+            CompletableFuture<Integer> water = refillScheduler.startRefill("hot_water", 2000);
+            CompletableFuture<Integer> milk = refillScheduler.startRefill("hot_milk", 2000);
+            CompletableFuture<Integer> sugar = refillScheduler.startRefill("sugar_syrup", 2000);
+            assertEquals(Collections.singletonList("hot_water"), refillScheduler.getRunningRefills());
+            assertEquals(Arrays.asList("hot_milk", "sugar_syrup"), refillScheduler.getWaitingRefills());
+
+            // Waiting refills start one by one as worker gets free
+            assertEquals(50, (int) sugar.get(5, TimeUnit.SECONDS));
+            assertTrue(water.isDone() && milk.isDone());
+            assertEquals(100, (int) water.get());
+            assertEquals(100, (int) milk.get());
+        } finally {
+            refillScheduler.stop();
+        }
+    }
+
+    @Test
+    public void testFailedPour() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[]{"hot_water", "hot_milk"}, new int[]{100, 100}, 2);
+        ingredientsHolder.useIngredient("hot_water", 100);
+        ingredientsHolder.useIngredient("hot_milk", 100);
+        ingredientsHolder.setStockListener((ingredient, quantity, maxQuantity, timestampMillis) -> {
+            if (ingredient.equals("hot_water")) {
+                throw new IllegalStateException("hot_water sensor is broken");
+            }
+        }, 100);
+        RefillScheduler refillScheduler = new RefillScheduler(ingredientsHolder, 1, 5);
+        try {
+            CompletableFuture<Integer> water = refillScheduler.startRefill("hot_water", 2000);
+            CompletableFuture<Integer> milk = refillScheduler.startRefill("hot_milk", 2000);
+
+            // Failed pour ends the refill with its error and frees the worker for the next one
+            try {
+                water.get(5, TimeUnit.SECONDS);
+                fail("Refill should fail with error of the pour");
+            } catch (ExecutionException e) {
+                assertEquals("hot_water sensor is broken", e.getCause().getMessage());
+            }
+            assertEquals(100, (int) milk.get(5, TimeUnit.SECONDS));
+            assertTrue(refillScheduler.getRunningRefills().isEmpty());
+        } finally {
+            refillScheduler.stop();
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[]{"hot_water", "hot_milk"}, new int[]{100000, 100}, 2);
+        ingredientsHolder.useIngredient("hot_water", 100000);
+        ingredientsHolder.useIngredient("hot_milk", 100);
+        RefillScheduler refillScheduler = new RefillScheduler(ingredientsHolder, 1, 5);
+        CompletableFuture<Integer> water = refillScheduler.startRefill("hot_water", 1000);
+        CompletableFuture<Integer> milk = refillScheduler.startRefill("hot_milk", 1000);
+        Thread.sleep(30);
+        refillScheduler.stop();
+
+        // Quantity added so far is kept
+        int added = water.get(1, TimeUnit.SECONDS);
+        assertTrue(added < 100000);
+        assertEquals(added, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+        assertEquals(0, (int) milk.get(1, TimeUnit.SECONDS));
+        try {
+            refillScheduler.startRefill("hot_milk", 1000);
+            fail("Stopped scheduler should not start refills");
+        } catch (IllegalStateException e) {
+            assertEquals("Refill scheduler is stopped", e.getMessage());
+        }
+        try {
+            new RefillScheduler(ingredientsHolder, 1).startRefill("hot_milk", 0);
+            fail("Flow rate should be positive");
+        } catch (IllegalArgumentException e) {
+            assertEquals("flow rate of a refill should be positive", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ingredient;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReservationBookTest {
+    @Test
+    public void testReservations() throws Exception {
+        AtomicLong clock = new AtomicLong(0);
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[] {"hot_water", "hot_milk"}, new int[] {300, 100}, 2);
+        ReservationBook reservationBook = new ReservationBook(ingredientsHolder, 10, 64, clock::get);
+        String[] names = {"hot_water", "hot_milk"};
+        int[] quantities = {100, 50};
+
+        assertEquals(-1, reservationBook.reserve("order_1", "latte", names, quantities, 1000));
+        assertEquals(-1, reservationBook.reserve("order_2", "latte", names, quantities, 1000));
+        assertEquals(1, reservationBook.reserve("order_3", "latte", names, quantities, 1000)); // Milk is held by other orders
+        assertEquals(2, reservationBook.getOutstandingReservations());
+        assertEquals(100, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+
+        Exception exception = assertThrows(Exception.class, () -> reservationBook.reserve("order_1", "latte", names, quantities, 1000));
+        assertEquals("Order order_1 is already reserved", exception.getMessage());
+
+        // Confirmed ingredients stay used, released ingredients are put back
+        assertEquals("latte", reservationBook.confirm("order_1"));
+        assertNull(reservationBook.confirm("order_1"));
+        assertTrue(reservationBook.release("order_2"));
+        assertFalse(reservationBook.release("order_2"));
+        assertEquals(200, (int) ingredientsHolder.getAvailableQuantities().get("hot_water"));
+        assertEquals(50, (int) ingredientsHolder.getAvailableQuantities().get("hot_milk"));
+
+        // Holds which are not confirmed expire
+        assertEquals(-1, reservationBook.reserve("order_4", "latte", names, quantities, 500));
+        clock.set(400);
+        assertEquals(0, reservationBook.expireReservations());
+        clock.set(510);
+        assertEquals(1, reservationBook.expireReservations());
+        assertNull(reservationBook.getReservation("order_4"));
+        assertNull(reservationBook.confirm("order_4"));
+        assertEquals(50, (int) ingredientsHolder.getAvailableQuantities().get("hot_milk"));
+        assertEquals(0, reservationBook.getOutstandingReservations());
+
+        // Beverage and modifier of a variant are kept apart
+        assertEquals(-1, reservationBook.reserve("order_5", "latte", "large", names, new int[] {100, 20}, 1000));
+        ReservationBook.Reservation reservation = reservationBook.findReservation("order_5");
+        assertEquals("latte", reservation.getBeverage());
+        assertEquals("large", reservation.getModifier());
+        assertEquals("large latte", reservationBook.getReservation("order_5"));
+        assertEquals("large latte", reservationBook.confirm("order_5"));
+    }
+
+    @Test
+    public void testHoldPastEndOfTime() throws Exception {
+        AtomicLong clock = new AtomicLong(1000);
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new String[] {"hot_water"}, new int[] {300}, 1);
+        ReservationBook reservationBook = new ReservationBook(ingredientsHolder, 10, 64, clock::get);
+
+        // Deadline would overflow into the past and expire straight away
+        assertEquals(-1, reservationBook.reserve("order_1", "tea", new String[] {"hot_water"}, new int[] {100}, Long.MAX_VALUE));
+        clock.set(1_000_000);
+        assertEquals(0, reservationBook.expireReservations());
+        assertEquals("tea", reservationBook.confirm("order_1"));
+    }
+}
@@ -0,0 +1,155 @@
+package ingredient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StockEventBusTest {
+
+    @Test
+    public void testDeliveryInBatches() throws Exception {
+        StockEventBus stockEventBus = new StockEventBus(64, 8, StockEventBus.OverflowPolicy.BLOCK);
+        assertEquals(64, stockEventBus.getCapacity());
+        List<StockEvent> received = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        stockEventBus.subscribe(events -> {
+            batchSizes.add(events.size());
+            received.addAll(events);
+        });
+        stockEventBus.subscribe(events -> {
+            throw new IllegalStateException("broken subscriber");
+        });
+        assertFalse(stockEventBus.publish(new StockEvent("hot_water", -1, 0, 0))); // Not started
+
+        stockEventBus.start();
+        int producers = 4;
+        int eventsPerProducer = 1000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            String ingredient = "ingredient_" + p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    assertTrue(stockEventBus.publish(new StockEvent(ingredient, -1, i, i)));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        stockEventBus.stop();
+
+        assertEquals(producers * eventsPerProducer, received.size());
+        assertEquals(producers * eventsPerProducer, stockEventBus.getDeliveredEvents());
+        assertEquals(0, stockEventBus.getDroppedEvents());
+        assertEquals(0, stockEventBus.getPendingEvents());
+        assertTrue(stockEventBus.getSubscriberErrors() > 0);
+        for (int size : batchSizes) {
+            assertTrue(size <= 8);
+        }
+        // Events of a single producer keep their order
+        int[] next = new int[producers];
+        for (StockEvent event : received) {
+            int producer = Integer.parseInt(event.getIngredient().substring("ingredient_".length()));
+            assertEquals(next[producer]++, event.getQuantity());
+        }
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        StockEventBus stockEventBus = new StockEventBus(4, 4, StockEventBus.OverflowPolicy.DROP_NEWEST);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<StockEvent> received = Collections.synchronizedList(new ArrayList<>());
+        stockEventBus.subscribe(events -> {
+            received.addAll(events);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stockEventBus.start();
+        stockEventBus.publish(new StockEvent("hot_water", -1, 0, 0));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        // Delivery thread is stuck in the subscriber, so only 4 more events fit
+        int accepted = 0;
+        for (int i = 1; i <= 10; i++) {
+            if (stockEventBus.publish(new StockEvent("hot_water", -1, i, i))) {
+                accepted++;
+            }
+        }
+        assertEquals(4, accepted);
+        assertEquals(6, stockEventBus.getDroppedEvents());
+        release.countDown();
+        stockEventBus.stop();
+        assertEquals(5, received.size());
+    }
+
+    @Test
+    public void testStockChangesArePublished() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new ArrayList<>(Arrays.asList(new Pair<>("hot_water", 100), new Pair<>("hot_milk", 100))));
+        StockEventBus stockEventBus = new StockEventBus();
+        List<StockEvent> received = Collections.synchronizedList(new ArrayList<>());
+        stockEventBus.subscribe(received::addAll);
+        stockEventBus.start();
+        ingredientsHolder.setStockEventBus(stockEventBus);
+
+        ingredientsHolder.useIngredient("hot_water", 30);
+        ingredientsHolder.useIngredient("hot_water", 300); // Not sufficient, nothing changes
+        ingredientsHolder.useIngredients(new String[] {"hot_water", "hot_milk"}, new int[] {10, 20});
+        ingredientsHolder.releaseIngredients(new String[] {"hot_milk"}, new int[] {50}); // Capped at max quantity
+        ingredientsHolder.refillIngredient("hot_water");
+        stockEventBus.stop();
+
+        assertEquals(5, received.size());
+        assertEquals(-30, received.get(0).getDelta());
+        assertEquals(70, received.get(0).getQuantity());
+        assertEquals("hot_milk", received.get(2).getIngredient());
+        assertEquals(-20, received.get(2).getDelta());
+        assertEquals(20, received.get(3).getDelta());
+        assertEquals(40, received.get(4).getDelta());
+        assertEquals(100, received.get(4).getQuantity());
+    }
+
+    @Test
+    public void testQuantityOfEventIsTheOneAfterItsChange() throws Exception {
+        IngredientsHolder ingredientsHolder = new IngredientsHolder(new ArrayList<>(Arrays.asList(new Pair<>("hot_water", 4000))));
+        StockEventBus stockEventBus = new StockEventBus(8192, 64, StockEventBus.OverflowPolicy.BLOCK);
+        List<StockEvent> received = Collections.synchronizedList(new ArrayList<>());
+        stockEventBus.subscribe(received::addAll);
+        stockEventBus.start();
+        ingredientsHolder.setStockEventBus(stockEventBus);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ingredientsHolder.useIngredient("hot_water", 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        stockEventBus.stop();
+
+        // Every use leaves a different quantity behind, reading it after the lock is released could repeat one
+        assertEquals(4000, received.size());
+        boolean[] seen = new boolean[4000];
+        for (StockEvent event : received) {
+            assertFalse(seen[event.getQuantity()]);
+            seen[event.getQuantity()] = true;
+        }
+    }
+}
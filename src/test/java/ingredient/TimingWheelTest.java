@@ -0,0 +1,47 @@
+package ingredient;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+    @Test
+    public void testExpiry() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(10, 8, 1000);
+        List<String> expired = new ArrayList<>();
+
+        timingWheel.schedule("first", 1025);
+        TimingWheel.Timeout<String> cancelled = timingWheel.schedule("second", 1030);
+        timingWheel.schedule("third", 1500); // More than a round of the wheel away
+        assertEquals(3, timingWheel.size());
+
+        assertTrue(timingWheel.cancel(cancelled));
+        assertFalse(timingWheel.cancel(cancelled));
+        assertEquals(2, timingWheel.size());
+
+        // Never expires before the deadline
+        assertEquals(0, timingWheel.advance(1020, expired::add));
+        assertEquals(1, timingWheel.advance(1030, expired::add));
+        assertEquals("first", expired.get(0));
+
+        // Third one shares slots with earlier ticks but stays until its own round
+        assertEquals(0, timingWheel.advance(1100, expired::add));
+        assertEquals(0, timingWheel.advance(1490, expired::add));
+        assertEquals(1, timingWheel.advance(5000, expired::add));
+        assertEquals("third", expired.get(1));
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void testManyTimeouts() {
+        TimingWheel<Integer> timingWheel = new TimingWheel<>(1, 512, 0);
+        for (int i = 0; i < 200000; i++) {
+            timingWheel.schedule(i, i % 1000);
+        }
+        int[] expired = new int[1];
+        assertEquals(200000, timingWheel.advance(999, item -> expired[0]++) + timingWheel.size());
+        assertEquals(200000, expired[0]);
+    }
+}
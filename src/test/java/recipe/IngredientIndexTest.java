@@ -0,0 +1,35 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IngredientIndexTest {
+    @Test
+    public void testIndex() {
+        IngredientIndex ingredientIndex = new IngredientIndex();
+        ingredientIndex.addRecipe(new RecipeBuilder("hot_tea").addIngredient("hot_water", 200).addIngredient("tea_leaves_syrup", 30).build());
+        ingredientIndex.addRecipe(new RecipeBuilder("black_tea").addIngredient("hot_water", 300).build());
+        ingredientIndex.addRecipe(new RecipeBuilder("black_tea").addIngredient("hot_water", 300).build()); // Same recipe twice
+
+        assertEquals(new HashSet<>(Arrays.asList("hot_tea", "black_tea")), ingredientIndex.getRecipesUsing("hot_water"));
+        assertEquals(2, ingredientIndex.getUsageCount("hot_water"));
+        assertEquals(1, ingredientIndex.getUsageCount("tea_leaves_syrup"));
+        assertEquals(0, ingredientIndex.getUsageCount("hot_milk"));
+        assertTrue(ingredientIndex.getRecipesUsing("hot_milk").isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("hot_water", "tea_leaves_syrup")), ingredientIndex.getIngredients());
+    }
+
+    @Test
+    public void testSortByUsage() {
+        Map<String, Integer> usageCounts = new HashMap<>();
+        usageCounts.put("sugar_syrup", 2);
+        usageCounts.put("hot_water", 4);
+        usageCounts.put("ginger_syrup", 2);
+        assertEquals(Arrays.asList("hot_water", "ginger_syrup", "sugar_syrup"), IngredientIndex.sortByUsage(usageCounts));
+    }
+}
@@ -0,0 +1,103 @@
+package recipe;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PreparationPlanTest {
+
+    @Test
+    public void testCriticalPath() throws Exception {
+        PreparationPlan preparationPlan = new PreparationPlan(Arrays.asList(
+            new PreparationStep("mix", 5, "heat_water", "froth_milk"),
+            new PreparationStep("heat_water", 40),
+            new PreparationStep("froth_milk", 30, "steam"),
+            new PreparationStep("steam", 20),
+            new PreparationStep("pour", 3, "mix")));
+
+        assertEquals(58, preparationPlan.getCriticalPathMillis());
+        assertEquals(Arrays.asList("steam", "froth_milk", "mix", "pour"), preparationPlan.getCriticalPath());
+        assertEquals(98, preparationPlan.getSequentialMillis());
+
+        // Every step comes after its dependencies
+        StringBuilder order = new StringBuilder();
+        for (PreparationStep step : preparationPlan.getSteps()) {
+            for (String dependency : step.getDependencies()) {
+                assertTrue(order.indexOf(dependency + ",") >= 0);
+            }
+            order.append(step.getName()).append(',');
+        }
+        assertEquals("PreparationPlan[criticalPath=[steam, froth_milk, mix, pour], criticalPathMillis=58, sequentialMillis=98]", preparationPlan.toString());
+
+        PreparationPlan emptyPlan = new PreparationPlan(Collections.emptyList());
+        assertEquals(0, emptyPlan.getCriticalPathMillis());
+        assertTrue(emptyPlan.getCriticalPath().isEmpty());
+    }
+
+    @Test
+    public void testInvalidPlans() {
+        Throwable throwable = assertThrows(Exception.class, () -> new PreparationPlan(Arrays.asList(
+            new PreparationStep("a", 1, "b"), new PreparationStep("b", 1, "c"), new PreparationStep("c", 1, "b"))));
+        assertEquals("Step b has a cycle of dependencies b -> c -> b", throwable.getMessage());
+
+        throwable = assertThrows(Exception.class, () -> new PreparationPlan(Collections.singletonList(new PreparationStep("mix", 1, "heat_water"))));
+        assertEquals("Step mix depends on heat_water which is not a known step", throwable.getMessage());
+
+        throwable = assertThrows(Exception.class, () -> new PreparationPlan(Arrays.asList(new PreparationStep("mix", 1), new PreparationStep("mix", 2))));
+        assertEquals("Step mix is declared twice", throwable.getMessage());
+
+        throwable = assertThrows(Exception.class, () -> new PreparationPlan(Collections.singletonList(new PreparationStep("mix", -1))));
+        assertEquals("Step mix should not take negative time", throwable.getMessage());
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        PreparationPlan preparationPlan = new PreparationPlan(Arrays.asList(
+            new PreparationStep("heat_water", 60),
+            new PreparationStep("froth_milk", 60),
+            new PreparationStep("grind_beans", 60),
+            new PreparationStep("mix", 10, "heat_water", "froth_milk", "grind_beans")));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(preparationPlan.execute(executor));
+            assertTrue(elapsedMillis >= preparationPlan.getCriticalPathMillis());
+            assertTrue(elapsedMillis < preparationPlan.getSequentialMillis());
+        } finally {
+            executor.shutdown();
+        }
+
+        // A single chain never needs the executor
+        PreparationPlan chain = new PreparationPlan(Arrays.asList(new PreparationStep("heat_water", 5), new PreparationStep("mix", 5, "heat_water")));
+        assertTrue(chain.execute(null) >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testFailedStepStopsOtherSteps() throws Exception {
+        IllegalStateException failure = new IllegalStateException("grinder is jammed");
+        PreparationStep brokenStep = new PreparationStep("grind_beans", 10) {
+            @Override
+            void perform() {
+                throw failure;
+            }
+        };
+        PreparationPlan preparationPlan = new PreparationPlan(Arrays.asList(
+            new PreparationStep("heat_water", 60_000),
+            brokenStep,
+            new PreparationStep("mix", 10, "heat_water", "grind_beans")));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            long startNanos = System.nanoTime();
+            // Cause of the failure is thrown as it is, and the long sibling step is interrupted instead of awaited
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> preparationPlan.execute(executor)));
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(10));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,27 @@
+package recipe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeBuilderTest {
+    @Test
+    public void testBuild() {
+        RecipeBuilder recipeBuilder = new RecipeBuilder("test_recipe", 1)
+            .addIngredient("ingredient_1", 10)
+            .addIngredient("ingredient_2", 30)
+            .addIngredient("ingredient_3", 20); // More than expected so arrays will grow
+        Recipe recipe = recipeBuilder.build();
+
+        assertEquals("test_recipe", recipe.getName());
+        assertEquals(3, recipe.getIngredients().size());
+        assertArrayEquals(new String[] {"ingredient_1", "ingredient_2", "ingredient_3"}, recipe.getIngredientNames());
+        assertArrayEquals(new int[] {10, 30, 20}, recipe.getRequiredQuantities());
+        assertEquals("Recipe[name='test_recipe', ingredients=[RecipeIngredient[name='ingredient_1', requiredQuantity=10], RecipeIngredient[name='ingredient_2', requiredQuantity=30], RecipeIngredient[name='ingredient_3', requiredQuantity=20]]]", recipe.toString());
+
+        // Builder can be used again without changing already built recipe
+        Recipe biggerRecipe = recipeBuilder.addIngredient("ingredient_4", 5).build();
+        assertEquals(4, biggerRecipe.getIngredients().size());
+        assertEquals(3, recipe.getIngredients().size());
+    }
+}
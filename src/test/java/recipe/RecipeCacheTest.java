@@ -0,0 +1,68 @@
+package recipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeCacheTest {
+
+    private static RecipeState getRecipe(String name) {
+        return new RecipeState(new RecipeBuilder(name).addIngredient("hot_water", 100).build());
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        RecipeCache recipeCache = new RecipeCache(0);
+        assertNull(recipeCache.get("hot_water"));
+        RecipeState recipe = getRecipe("hot_water");
+        assertSame(recipe, recipeCache.putIfAbsent(recipe));
+        // Recipe cached first is kept
+        assertSame(recipe, recipeCache.putIfAbsent(getRecipe("hot_water")));
+        assertSame(recipe, recipeCache.get("hot_water"));
+        assertEquals(1, recipeCache.getHits());
+        assertEquals(1, recipeCache.getMisses());
+
+        // Unbounded cache keeps everything
+        for (int i = 0; i < 100; i++) {
+            recipeCache.putIfAbsent(getRecipe("recipe_" + i));
+        }
+        assertEquals(101, recipeCache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        RecipeCache recipeCache = new RecipeCache(3);
+        for (int i = 0; i < 10; i++) {
+            recipeCache.putIfAbsent(getRecipe("recipe_" + i));
+            assertTrue(recipeCache.size() <= 3);
+        }
+        assertEquals(3, recipeCache.size());
+    }
+
+    @Test
+    public void testSecondChance() {
+        RecipeCache recipeCache = new RecipeCache(2);
+        recipeCache.putIfAbsent(getRecipe("a"));
+        recipeCache.putIfAbsent(getRecipe("b"));
+        recipeCache.putIfAbsent(getRecipe("c"));
+        assertEquals(2, recipeCache.size());
+        List<String> survivors = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            if (recipeCache.contains(name)) {
+                survivors.add(name);
+            }
+        }
+        assertEquals(2, survivors.size());
+
+        // Hand cleared flags of both survivors, so the one used again is kept and the other is evicted
+        recipeCache.get(survivors.get(0));
+        recipeCache.putIfAbsent(getRecipe("d"));
+        assertEquals(2, recipeCache.size());
+        assertTrue(recipeCache.contains(survivors.get(0)));
+        assertTrue(recipeCache.contains("d"));
+        assertFalse(recipeCache.contains(survivors.get(1)));
+    }
+}
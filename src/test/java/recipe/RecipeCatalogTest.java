@@ -0,0 +1,74 @@
+package recipe;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeCatalogTest {
+    @Test
+    public void testCatalog() {
+        RecipeCatalog recipeCatalog = new RecipeCatalog(Arrays.asList(
+            new RecipeBuilder("hot_tea").addIngredient(new String("hot_water"), 100).build(),
+            new RecipeBuilder("hot_tea").addIngredient("hot_milk", 100).build(), // Duplicate name is ignored
+            new RecipeBuilder("black_tea").addIngredient(new String("hot_water"), 200).build()));
+
+        assertEquals(2, recipeCatalog.getTotalRecipes());
+        assertEquals(2, recipeCatalog.getRecipes().size());
+        assertNull(recipeCatalog.getRecipe("hot_coffee"));
+        assertArrayEquals(new String[] {"hot_water"}, recipeCatalog.getRecipe("hot_tea").getIngredientNames());
+
+        // Same name of different recipes is one shared String
+        assertSame(recipeCatalog.getRecipe("hot_tea").getIngredientNames()[0], recipeCatalog.getRecipe("black_tea").getIngredientNames()[0]);
+        assertSame(recipeCatalog.intern(new String("hot_water")), recipeCatalog.getRecipe("hot_tea").getIngredientNames()[0]);
+        // Names outside of the catalog are not remembered
+        String unknown = new String("hot_chocolate");
+        assertSame(unknown, recipeCatalog.intern(unknown));
+        assertNotSame(recipeCatalog.intern(new String("hot_chocolate")), recipeCatalog.intern(new String("hot_chocolate")));
+    }
+
+    @Test
+    public void testCompositeRecipes() {
+        RecipeCatalog recipeCatalog = new RecipeCatalog(Arrays.asList(
+            new RecipeBuilder("hot_water").addIngredient("hot_water", 100).build(),
+            new RecipeBuilder("hot_tea").addIngredient("tea_leaves_syrup", 30).addComponent("hot_water", 2).build()));
+        Recipe hotTea = recipeCatalog.getRecipe("hot_tea");
+        assertFalse(hotTea.isComposite());
+        assertArrayEquals(new String[] {"tea_leaves_syrup", "hot_water"}, hotTea.getIngredientNames());
+        assertArrayEquals(new int[] {30, 200}, hotTea.getRequiredQuantities());
+
+        Throwable throwable = assertThrows(IllegalArgumentException.class, () -> new RecipeCatalog(Arrays.asList(
+            new RecipeBuilder("hot_tea").addComponent("tea_base", 1).build())));
+        assertEquals("tea_base is not a known recipe", throwable.getMessage());
+    }
+
+    @Test
+    public void testSharedByMachines() throws Exception {
+        RecipeCatalog recipeCatalog = new RecipeCatalog(Arrays.asList(
+            new RecipeBuilder("hot_tea").addIngredient("hot_water", 100).build()));
+
+        CoffeeMachine firstMachine = new CoffeeMachineBuilder(1)
+            .setRecipeCatalog(recipeCatalog)
+            .addIngredient("hot_water", 100)
+            .build();
+        CoffeeMachine secondMachine = new CoffeeMachineBuilder(1)
+            .setRecipeCatalog(recipeCatalog)
+            .addIngredient("hot_water", 300)
+            .addRecipe(new RecipeBuilder("hot_tea").addIngredient("hot_water", 300).build()) // Catalog recipe wins
+            .addRecipe(new RecipeBuilder("hot_water").addIngredient("hot_water", 50).build()) // Kept only by this machine
+            .build();
+
+        assertEquals(1, firstMachine.getTotalRecipes());
+        assertEquals(2, secondMachine.getTotalRecipes());
+
+        // Recipes are shared but stock is not
+        assertEquals("hot_tea is prepared", firstMachine.prepareBeverage("hot_tea"));
+        assertEquals("hot_tea cannot be prepared because item hot_water is not sufficient", firstMachine.prepareBeverage("hot_tea"));
+        assertEquals("hot_tea is prepared", secondMachine.prepareBeverage("hot_tea"));
+        assertEquals("hot_tea is prepared", secondMachine.prepareBeverage("hot_tea"));
+        assertEquals("hot_water is prepared", secondMachine.prepareBeverage("hot_water"));
+        assertEquals("hot_water is not a valid beverage", firstMachine.prepareBeverage("hot_water"));
+    }
+}
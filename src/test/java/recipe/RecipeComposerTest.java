@@ -0,0 +1,67 @@
+package recipe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeComposerTest {
+    @Test
+    public void testFlattening() throws Exception {
+        RecipeComposer recipeComposer = new RecipeComposer()
+            .addRecipe(new RecipeBuilder("tea_base").addIngredient("hot_water", 200).addIngredient("tea_leaves_syrup", 30).build())
+            .addRecipe(new RecipeBuilder("masala_base").addIngredient("ginger_syrup", 10).addIngredient("hot_water", 20).build())
+            .addRecipe(new RecipeBuilder("masala_tea").addIngredient("sugar_syrup", 10).addIngredient("hot_water", 5).build())
+            .addComponent("masala_tea", "tea_base", 1)
+            .addComponent("masala_tea", "masala_base", 2)
+            .addComponent("double_masala_tea", "masala_tea", 2);
+
+        Recipe masalaTea = recipeComposer.compose("masala_tea");
+        assertArrayEquals(new String[] {"sugar_syrup", "hot_water", "tea_leaves_syrup", "ginger_syrup"}, masalaTea.getIngredientNames());
+        assertArrayEquals(new int[] {10, 245, 30, 20}, masalaTea.getRequiredQuantities());
+        assertSame(masalaTea, recipeComposer.compose("masala_tea"));
+
+        Recipe doubleMasalaTea = recipeComposer.compose("double_masala_tea");
+        assertArrayEquals(new int[] {20, 490, 60, 40}, doubleMasalaTea.getRequiredQuantities());
+
+        // Plain recipes are kept as they are
+        Recipe teaBase = new RecipeBuilder("tea_base").addIngredient("hot_water", 200).build();
+        recipeComposer.addRecipe(teaBase);
+        assertSame(teaBase, recipeComposer.compose("tea_base"));
+        assertEquals(4, recipeComposer.composeAll().size());
+    }
+
+    @Test
+    public void testCompositeRecipesAndKnownRecipes() throws Exception {
+        Recipe hotWater = new RecipeBuilder("hot_water").addIngredient("hot_water", 100).build();
+        RecipeComposer recipeComposer = new RecipeComposer(name -> name.equals("hot_water") ? hotWater : null)
+            .addUniqueRecipe(new RecipeBuilder("tea_base").addIngredient("tea_leaves_syrup", 30).addComponent("hot_water", 2).build())
+            .addUniqueRecipe(new RecipeBuilder("hot_tea").addIngredient("sugar_syrup", 10).addComponent("tea_base", 1).build());
+
+        Recipe hotTea = recipeComposer.compose("hot_tea");
+        assertFalse(hotTea.isComposite());
+        assertArrayEquals(new String[] {"sugar_syrup", "tea_leaves_syrup", "hot_water"}, hotTea.getIngredientNames());
+        assertArrayEquals(new int[] {10, 30, 200}, hotTea.getRequiredQuantities());
+        assertSame(hotWater, recipeComposer.compose("hot_water"));
+
+        Throwable throwable = assertThrows(Exception.class, () -> recipeComposer.addUniqueRecipe(new RecipeBuilder("tea_base").build()));
+        assertEquals("Recipe tea_base is declared twice", throwable.getMessage());
+    }
+
+    @Test
+    public void testErrors() {
+        RecipeComposer recipeComposer = new RecipeComposer()
+            .addComponent("recipe_1", "recipe_2", 1)
+            .addComponent("recipe_2", "recipe_3", 1)
+            .addComponent("recipe_3", "recipe_2", 1)
+            .addComponent("recipe_4", "recipe_5", 1)
+            .addRecipe(new RecipeBuilder("recipe_6").addIngredient("hot_water", 10).build())
+            .addComponent("recipe_7", "recipe_6", 0);
+
+        Throwable throwable = assertThrows(Exception.class, () -> recipeComposer.compose("recipe_1"));
+        assertEquals("Recipe recipe_2 has a cycle of components recipe_2 -> recipe_3 -> recipe_2", throwable.getMessage());
+        throwable = assertThrows(Exception.class, () -> recipeComposer.compose("recipe_4"));
+        assertEquals("recipe_5 is not a known recipe", throwable.getMessage());
+        throwable = assertThrows(Exception.class, () -> recipeComposer.compose("recipe_7"));
+        assertEquals("Recipe recipe_7 needs a positive number of portions of recipe_6", throwable.getMessage());
+    }
+}
@@ -0,0 +1,53 @@
+package recipe;
+
+import java.util.Arrays;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeDefinitionsTest {
+
+    @Test
+    public void testDefinitions() {
+        RecipeDefinitions recipeDefinitions = new RecipeDefinitions();
+        assertTrue(recipeDefinitions.addDefinition("hot_water", new String[]{"hot_water"}, new int[]{100}, 1));
+        assertTrue(recipeDefinitions.addDefinition("hot_tea", Arrays.asList(new Pair<>("hot_water", 200), new Pair<>("tea_leaves_syrup", 30))));
+        // Duplicate names are not added
+        assertFalse(recipeDefinitions.addDefinition("hot_tea", new String[]{"hot_milk"}, new int[]{100}, 1));
+        assertEquals(2, recipeDefinitions.size());
+
+        assertEquals(-1, recipeDefinitions.findDefinition("test"));
+        int id = recipeDefinitions.findDefinition("hot_tea");
+        assertEquals("hot_tea", recipeDefinitions.getName(id));
+        assertArrayEquals(new String[]{"hot_water", "tea_leaves_syrup"}, recipeDefinitions.getIngredientNames(id));
+        // Ingredient names are shared between definitions
+        assertSame(recipeDefinitions.getIngredientNames(0)[0], recipeDefinitions.getIngredientNames(id)[0]);
+
+        Recipe recipe = recipeDefinitions.materialize(id);
+        assertEquals("hot_tea", recipe.getName());
+        assertArrayEquals(new int[]{200, 30}, recipe.getRequiredQuantities());
+        assertNotSame(recipe, recipeDefinitions.materialize(id));
+        assertEquals("RecipeDefinitions[definitions=2, ingredients=2, entries=3]", recipeDefinitions.toString());
+    }
+
+    @Test
+    public void testGrowth() {
+        RecipeDefinitions recipeDefinitions = new RecipeDefinitions();
+        String[] names = new String[10];
+        int[] quantities = new int[10];
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < names.length; j++) {
+                names[j] = "ingredient_" + ((i + j) % 50);
+                quantities[j] = i + j;
+            }
+            assertTrue(recipeDefinitions.addDefinition("recipe_" + i, names, quantities, 1 + i % names.length));
+        }
+        assertEquals(1000, recipeDefinitions.size());
+        Recipe recipe = recipeDefinitions.materialize(recipeDefinitions.findDefinition("recipe_999"));
+        assertEquals(10, recipe.getRequiredQuantities().length);
+        assertEquals("ingredient_49", recipe.getIngredientNames()[0]);
+        assertEquals(999, recipe.getRequiredQuantities()[0]);
+        assertEquals("RecipeDefinitions[definitions=1000, ingredients=50, entries=5500]", recipeDefinitions.toString());
+    }
+}
@@ -1,6 +1,9 @@
 package recipe;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import javafx.util.Pair;
@@ -84,6 +87,120 @@ public class RecipeHolderTest {
         assertEquals("green_tea", recipe.getName());
     }
 
+    @Test
+    public void testIngredientIndex() {
+        RecipeHolder recipeHolder = new RecipeHolder(getTestRecipes());
+        assertEquals(new HashSet<>(Arrays.asList("hot_tea", "hot_coffee")), recipeHolder.getRecipesUsing("hot_milk"));
+        assertEquals(Collections.singleton("green_tea"), recipeHolder.getRecipesUsing("green_mixture"));
+        assertTrue(recipeHolder.getRecipesUsing("test").isEmpty());
+        assertEquals(Arrays.asList("green_tea", "hot_coffee", "hot_tea"), recipeHolder.getRecipesUsing(Arrays.asList("hot_milk", "green_mixture")));
+
+        // Index follows newly added recipes
+        recipeHolder.addNewRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build());
+        assertEquals(3, recipeHolder.getRecipesUsing("hot_milk").size());
+        assertEquals(Integer.valueOf(3), recipeHolder.getIngredientUsage().get("hot_milk"));
+        assertEquals(Arrays.asList("ginger_syrup", "hot_water", "sugar_syrup", "hot_milk", "tea_leaves_syrup", "green_mixture"),
+            recipeHolder.getIngredientsByUsage());
+
+        // Recipes of a shared catalog are part of the index
+        RecipeHolder layeredHolder = new RecipeHolder(new RecipeCatalog(recipeHolder.getRecipes()));
+        layeredHolder.addNewRecipe(new RecipeBuilder("milk_shake").addIngredient("hot_milk", 100).build());
+        assertEquals(4, layeredHolder.getRecipesUsing("hot_milk").size());
+        assertEquals(Integer.valueOf(4), layeredHolder.getIngredientUsage().get("hot_milk"));
+    }
+
+    @Test
+    public void testRecipeStatesPerHolder() {
+        RecipeCatalog recipeCatalog = new RecipeCatalog(new RecipeHolder(getTestRecipes()).getRecipes());
+        RecipeHolder firstHolder = new RecipeHolder(recipeCatalog);
+        RecipeHolder secondHolder = new RecipeHolder(recipeCatalog);
+        assertNull(firstHolder.getRecipeState("test"));
+
+        // Holders share the recipe but not what they learnt about it
+        RecipeState firstState = firstHolder.getRecipeState("green_tea");
+        RecipeState secondState = secondHolder.getRecipeState("green_tea");
+        assertSame(firstState.getRecipe(), secondState.getRecipe());
+        assertNotSame(firstState, secondState);
+        assertSame(firstState, firstHolder.getRecipeState("green_tea"));
+        firstState.recordFailure(3);
+        assertArrayEquals(new int[] {3, 0, 1, 2}, firstState.getCheckOrder());
+        assertArrayEquals(new int[] {0, 1, 2, 3}, secondState.getCheckOrder());
+
+        // Replacing holder keeps states of recipes which did not change
+        RecipeHolder ownHolder = new RecipeHolder(recipeCatalog.getRecipes());
+        RecipeState ownState = ownHolder.getRecipeState("green_tea");
+        ownHolder.getRecipeState("hot_tea");
+        List<Recipe> newRecipes = new ArrayList<>();
+        newRecipes.add(ownState.getRecipe());
+        newRecipes.add(new RecipeBuilder("hot_tea").addIngredient("hot_water", 100).build());
+        RecipeHolder newHolder = new RecipeHolder(newRecipes);
+        newHolder.keepRecipeStates(ownHolder);
+        assertSame(ownState, newHolder.getRecipeState("green_tea"));
+        assertEquals(1, newHolder.getRecipeState("hot_tea").getCheckOrder().length);
+
+        // States of lazy definitions are cached along with their recipes
+        RecipeDefinitions recipeDefinitions = new RecipeDefinitions();
+        recipeDefinitions.addDefinition("green_tea", Collections.singletonList(new Pair<>("hot_water", 100)));
+        RecipeHolder lazyHolder = new RecipeHolder(recipeDefinitions, 0);
+        assertSame(lazyHolder.getRecipe("green_tea"), lazyHolder.getRecipeState("green_tea").getRecipe());
+        assertSame(lazyHolder.getRecipeState("green_tea"), lazyHolder.getRecipeState("green_tea"));
+    }
+
+    @Test
+    public void testLazyDefinitions() {
+        RecipeDefinitions recipeDefinitions = new RecipeDefinitions();
+        for (Pair<String, List<Pair<String, Integer>>> recipe : getTestRecipes()) {
+            recipeDefinitions.addDefinition(recipe.getKey(), recipe.getValue());
+        }
+        RecipeHolder recipeHolder = new RecipeHolder(recipeDefinitions, 2);
+        assertEquals(4, recipeHolder.getTotalRecipes());
+        assertEquals(0, recipeHolder.getCachedRecipes());
+
+        // Names and index do not materialize anything
+        assertEquals(new HashSet<>(Arrays.asList("hot_tea", "hot_coffee", "black_tea", "green_tea")), new HashSet<>(recipeHolder.getRecipeNames()));
+        assertEquals(new HashSet<>(Arrays.asList("hot_tea", "hot_coffee")), recipeHolder.getRecipesUsing("hot_milk"));
+        assertEquals(Integer.valueOf(4), recipeHolder.getIngredientUsage().get("hot_water"));
+        assertEquals(0, recipeHolder.getCachedRecipes());
+
+        // Recipe is materialized once and then served from cache
+        assertNull(recipeHolder.getRecipe("test"));
+        Recipe recipe = recipeHolder.getRecipe("green_tea");
+        assertEquals(4, recipe.getIngredients().size());
+        assertSame(recipe, recipeHolder.getRecipe("green_tea"));
+        assertEquals(1, recipeHolder.getCachedRecipes());
+
+        // Cache stays within its bound
+        recipeHolder.getRecipe("hot_tea");
+        recipeHolder.getRecipe("black_tea");
+        assertEquals(2, recipeHolder.getCachedRecipes());
+        assertEquals(4, recipeHolder.getRecipes().size());
+        assertEquals(2, recipeHolder.getCachedRecipes());
+
+        // Defined names cannot be added again, others are kept by the holder
+        recipeHolder.addNewRecipe(new RecipeBuilder("green_tea").addIngredient("hot_milk", 100).build());
+        recipeHolder.addNewRecipe(new RecipeBuilder("hot_milk").addIngredient("hot_milk", 100).build());
+        assertEquals(5, recipeHolder.getTotalRecipes());
+        assertEquals(4, recipeHolder.getRecipe("green_tea").getIngredients().size());
+        assertEquals(3, recipeHolder.getRecipesUsing("hot_milk").size());
+        assertEquals(5, recipeHolder.getRecipes().size());
+
+        // Walking all the recipes does not materialize definitions
+        List<String> walked = new ArrayList<>();
+        recipeHolder.forEachRecipe((name, ingredientNames, requiredQuantities) -> walked.add(name + "=" + requiredQuantities.length));
+        assertEquals(5, walked.size());
+        assertTrue(walked.contains("hot_coffee=5"));
+        assertEquals(2, recipeHolder.getCachedRecipes());
+
+        // Replacing holder keeps definitions with their cache and replaces own recipes
+        RecipeHolder newHolder = recipeHolder.withRecipes(Collections.singletonList(new RecipeBuilder("cold_milk").addIngredient("hot_milk", 100).build()));
+        assertEquals(5, newHolder.getTotalRecipes());
+        assertTrue(newHolder.hasRecipe("cold_milk"));
+        assertTrue(newHolder.hasRecipe("hot_coffee"));
+        assertFalse(newHolder.hasRecipe("hot_milk"));
+        assertEquals(2, newHolder.getCachedRecipes());
+        assertSame(recipeHolder.getRecipeState("green_tea"), newHolder.getRecipeState("green_tea"));
+    }
+
     @Test
     public void testToString() {
         RecipeHolder recipeHolder = new RecipeHolder(getTestRecipes());
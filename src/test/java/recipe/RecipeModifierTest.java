@@ -0,0 +1,48 @@
+package recipe;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeModifierTest {
+    @Test
+    public void testApply() {
+        Map<String, Integer> adjustments = new HashMap<>();
+        adjustments.put("coffee_syrup", 30);
+        adjustments.put("sugar_syrup", -100);
+        adjustments.put("green_mixture", 10);
+        RecipeModifier recipeModifier = new RecipeModifier("large_extra_shot", 1.5, adjustments);
+
+        int[] quantities = recipeModifier.apply(new String[] {"hot_water", "coffee_syrup", "sugar_syrup"}, new int[] {100, 15, 10});
+        // Scaled, then adjusted, never below 0 and adjustment of an unused ingredient is ignored
+        assertArrayEquals(new int[] {150, 53, 0}, quantities);
+
+        assertThrows(IllegalArgumentException.class, () -> new RecipeModifier("broken", -1, Collections.emptyMap()));
+    }
+
+    @Test
+    public void testVariantsOfRecipe() {
+        Recipe recipe = new RecipeBuilder("hot_coffee").addIngredient("hot_water", 100).addIngredient("coffee_syrup", 20).build();
+        RecipeState recipeState = new RecipeState(recipe);
+        RecipeModifier large = new RecipeModifier("large", 2, Collections.emptyMap());
+        RecipeModifier extraShot = new RecipeModifier("extra_shot", 1, Collections.singletonMap("coffee_syrup", 20));
+
+        assertSame(recipe.getRequiredQuantities(), recipeState.getRequiredQuantities(null));
+        int[] largeQuantities = recipeState.getRequiredQuantities(large);
+        assertArrayEquals(new int[] {200, 40}, largeQuantities);
+        assertArrayEquals(new int[] {100, 40}, recipeState.getRequiredQuantities(extraShot));
+        // Quantities of a variant are computed once and base recipe is not changed
+        assertSame(largeQuantities, recipeState.getRequiredQuantities(large));
+        assertArrayEquals(new int[] {100, 20}, recipe.getRequiredQuantities());
+
+        // Modifier replaced under same name is not served from quantities of its old version
+        RecipeModifier newLarge = new RecipeModifier("large", 3, Collections.emptyMap());
+        int[] newLargeQuantities = recipeState.getRequiredQuantities(newLarge);
+        assertArrayEquals(new int[] {300, 60}, newLargeQuantities);
+        assertSame(newLargeQuantities, recipeState.getRequiredQuantities(newLarge));
+        assertArrayEquals(new int[] {100, 40}, recipeState.getRequiredQuantities(extraShot));
+    }
+}
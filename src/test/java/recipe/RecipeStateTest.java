@@ -0,0 +1,57 @@
+package recipe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecipeStateTest {
+    @Test
+    public void testAdaptiveCheckOrder() {
+        Recipe recipe = new RecipeBuilder("test_recipe").addIngredient("ingredient_1", 10).addIngredient("ingredient_2", 30).addIngredient("ingredient_3", 20).build();
+        RecipeState recipeState = new RecipeState(recipe);
+        assertSame(recipe, recipeState.getRecipe());
+        assertArrayEquals(new int[] {0, 1, 2}, recipeState.getCheckOrder());
+
+        // Most failing ingredient is checked first
+        recipeState.recordFailure(2);
+        assertArrayEquals(new int[] {2, 0, 1}, recipeState.getCheckOrder());
+        recipeState.recordFailure(1);
+        recipeState.recordFailure(1);
+        assertArrayEquals(new int[] {1, 2, 0}, recipeState.getCheckOrder());
+
+        // Scarcest ingredient breaks ties of failures
+        recipeState.recordFailure(0);
+        recipeState.recordServingsLeft(new int[] {3, 10, 5});
+        assertArrayEquals(new int[] {1, 0, 2}, recipeState.getCheckOrder());
+
+        // Stock is sampled once in a while
+        int samples = 0;
+        for (int i = 0; i < 32; i++) {
+            if (recipeState.recordServed()) {
+                samples++;
+            }
+        }
+        assertEquals(2, samples);
+    }
+
+    @Test
+    public void testOldFailuresFadeAway() {
+        Recipe recipe = new RecipeBuilder("test_recipe").addIngredient("ingredient_1", 10).addIngredient("ingredient_2", 30).build();
+        RecipeState recipeState = new RecipeState(recipe);
+        for (int i = 0; i < 1023; i++) {
+            recipeState.recordFailure(1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            recipeState.recordFailure(0);
+        }
+        assertArrayEquals(new int[] {1, 0}, recipeState.getCheckOrder());
+
+        // Reaching the limit halves both counts to 512 and 500
+        recipeState.recordFailure(1);
+        assertArrayEquals(new int[] {1, 0}, recipeState.getCheckOrder());
+        for (int i = 0; i < 13; i++) {
+            recipeState.recordFailure(0);
+        }
+        assertArrayEquals(new int[] {0, 1}, recipeState.getCheckOrder());
+    }
+}
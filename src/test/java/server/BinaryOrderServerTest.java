@@ -0,0 +1,126 @@
+package server;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import history.OrderOutcome;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class BinaryOrderServerTest {
+    private BinaryOrderServer binaryOrderServer;
+    private InetSocketAddress address;
+
+    @Before
+    public void setUp() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(2)
+            .addIngredient("hot_water", 1000)
+            .addIngredient("hot_milk", 100)
+            .addRecipe(new RecipeBuilder("hot_tea", 2).addIngredient("hot_water", 200).addIngredient("hot_milk", 100).build())
+            .addRecipe(new RecipeBuilder("hot_water", 1).addIngredient("hot_water", 10).build())
+            .build();
+        binaryOrderServer = new BinaryOrderServer(coffeeMachine, new InetSocketAddress("127.0.0.1", 0));
+        binaryOrderServer.start();
+        address = new InetSocketAddress("127.0.0.1", binaryOrderServer.getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        binaryOrderServer.stop();
+    }
+
+    @Test
+    public void testPipelinedOrders() throws Exception {
+        try (BinaryOrderClient client = new BinaryOrderClient(address)) {
+            Map<String, Integer> beverages = client.refreshBeverages();
+            assertEquals(2, beverages.size());
+            assertNotEquals(beverages.get("hot_tea"), beverages.get("hot_water"));
+
+            assertEquals(OrderOutcome.PREPARED, client.order("hot_tea"));
+            assertEquals(OrderOutcome.INGREDIENT_NOT_SUFFICIENT, client.order("hot_tea"));
+            assertEquals(OrderOutcome.NOT_A_VALID_BEVERAGE, client.order("latte"));
+
+            List<CompletableFuture<OrderOutcome>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(client.orderAsync("hot_water"));
+            }
+            for (CompletableFuture<OrderOutcome> future : futures) {
+                assertEquals(OrderOutcome.PREPARED, future.get());
+            }
+            // 800 - 50 * 10 left
+            assertEquals(OrderOutcome.PREPARED, client.order("hot_water"));
+        }
+    }
+
+    @Test
+    public void testMalformedFrameClosesOnlyItsConnection() throws Exception {
+        try (BinaryOrderClient client = new BinaryOrderClient(address); Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            OutputStream outputStream = socket.getOutputStream();
+            // Unknown request type gets an error response
+            outputStream.write(ByteBuffer.allocate(9).putInt(5).put((byte) 9).putInt(42).array());
+            outputStream.flush();
+            InputStream inputStream = socket.getInputStream();
+            byte[] response = new byte[9];
+            int read = 0;
+            while (read < response.length) {
+                read += inputStream.read(response, read, response.length - read);
+            }
+            ByteBuffer error = ByteBuffer.wrap(response);
+            assertEquals(5, error.getInt());
+            assertEquals(BinaryProtocol.ERROR, error.get());
+            assertEquals(42, error.getInt());
+
+            // Invalid length closes the connection
+            outputStream.write(ByteBuffer.allocate(4).putInt(-1).array());
+            outputStream.flush();
+            assertEquals(-1, inputStream.read());
+
+            assertEquals(OrderOutcome.PREPARED, client.order("hot_water"));
+        }
+    }
+
+    @Test
+    public void testClientWhichNeverReadsIsNotRead() throws Exception {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            OutputStream outputStream = socket.getOutputStream();
+            byte[] frames = new byte[9 * 1024];
+            ByteBuffer buffer = ByteBuffer.wrap(frames);
+            while (buffer.hasRemaining()) {
+                buffer.putInt(5).put((byte) 9).putInt(1); // Every frame gets an error response
+            }
+            // Requests sent without ever reading responses, server stops reading once responses pile up
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 4096; i++) {
+                        outputStream.write(frames);
+                    }
+                } catch (Exception e) {
+                    // Socket closed by the test
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+            writer.join(2000);
+            assertTrue(writer.isAlive());
+        }
+    }
+
+    @Test
+    public void testBenchmark() throws Exception {
+        LoadTestReport report = BinaryBenchmark.run(address, new String[] {"hot_water", "latte"}, 2, 40, 8);
+        assertEquals(80, report.getRequests());
+        assertEquals(0, report.getErrors());
+    }
+}
@@ -0,0 +1,147 @@
+package server;
+
+import coffeeMachine.CoffeeMachine;
+import coffeeMachine.CoffeeMachineBuilder;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import recipe.PreparationPlan;
+import recipe.PreparationStep;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class OrderServerTest {
+    private OrderServer orderServer;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(2)
+            .addIngredient("hot_water", 500)
+            .addIngredient("hot_milk", 100)
+            .addRecipe(new RecipeBuilder("hot_tea", 2).addIngredient("hot_water", 200).addIngredient("hot_milk", 100).build())
+            .build();
+        orderServer = new OrderServer(coffeeMachine, new InetSocketAddress("127.0.0.1", 0));
+        orderServer.start();
+        baseUrl = "http://127.0.0.1:" + orderServer.getPort();
+    }
+
+    @After
+    public void tearDown() {
+        orderServer.stop(0);
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        try (Scanner scanner = new Scanner(connection.getInputStream(), "UTF-8").useDelimiter("\\A")) {
+            return scanner.hasNext() ? scanner.next() : "";
+        }
+    }
+
+    @Test
+    public void testOrdersStockAndRefill() throws Exception {
+        assertEquals(4, orderServer.getThreads());
+
+        JSONObject prepared = new JSONObject(LoadTest.post(baseUrl + "/orders", "{\"beverage\":\"hot_tea\"}"));
+        assertEquals("hot_tea is prepared", prepared.getString("status"));
+        assertTrue(prepared.getBoolean("prepared"));
+
+        String[] results = LoadTest.post(baseUrl + "/orders/batch", "{\"beverage\":\"hot_tea\"}\n\n{\"beverage\":\"latte\"}\nnot json\n").split("\n");
+        assertEquals(3, results.length);
+        assertEquals("hot_tea cannot be prepared because item hot_milk is not sufficient", new JSONObject(results[0]).getString("status"));
+        assertFalse(new JSONObject(results[0]).getBoolean("prepared"));
+        assertEquals("latte is not a valid beverage", new JSONObject(results[1]).getString("status"));
+        assertTrue(new JSONObject(results[2]).has("error"));
+
+        JSONObject stock = new JSONObject(get("/stock"));
+        assertEquals(300, stock.getJSONObject("quantities").getInt("hot_water"));
+        assertEquals(0, stock.getJSONObject("quantities").getInt("hot_milk"));
+        assertEquals(1, stock.getJSONArray("running_low").length());
+
+        stock = new JSONObject(LoadTest.post(baseUrl + "/refill", "{\"ingredient\":\"hot_milk\"}"));
+        assertEquals(100, stock.getJSONObject("quantities").getInt("hot_milk"));
+        assertEquals(300, stock.getJSONObject("quantities").getInt("hot_water"));
+        stock = new JSONObject(LoadTest.post(baseUrl + "/refill", ""));
+        assertEquals(500, stock.getJSONObject("quantities").getInt("hot_water"));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        try {
+            LoadTest.post(baseUrl + "/orders", "{}");
+            fail("Order without beverage should fail");
+        } catch (IOException e) {
+            assertEquals("Request failed with status 400", e.getMessage());
+        }
+        try {
+            LoadTest.post(baseUrl + "/stock", "");
+            fail("Stock is read only");
+        } catch (IOException e) {
+            assertEquals("Request failed with status 405", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBoundedOrderQueue() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachineBuilder(1)
+            .addIngredient("hot_water", 1000)
+            .addRecipe(new RecipeBuilder("slow_water").addIngredient("hot_water", 100)
+                .setPreparationPlan(new PreparationPlan(Collections.singletonList(new PreparationStep("boil", 500)))).build())
+            .build();
+        OrderServer slowServer = new OrderServer(coffeeMachine, new InetSocketAddress("127.0.0.1", 0), 2, 1);
+        slowServer.start();
+        try {
+            String slowUrl = "http://127.0.0.1:" + slowServer.getPort();
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> post(slowUrl + "/orders", "{\"beverage\":\"slow_water\"}"));
+            while (coffeeMachine.getBusyOutlets() == 0) {
+                Thread.sleep(5);
+            }
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> post(slowUrl + "/orders", "{\"beverage\":\"slow_water\"}"));
+            Thread.sleep(100);
+
+            // Queue of a single order is full, so the third order is rejected and stock does not wait behind orders
+            JSONObject rejected = new JSONObject(LoadTest.post(slowUrl + "/orders", "{\"beverage\":\"slow_water\"}"));
+            assertEquals("slow_water cannot be prepared because machine is busy", rejected.getString("status"));
+            assertFalse(rejected.getBoolean("prepared"));
+            JSONObject stock = new JSONObject(LoadTest.post(slowUrl + "/refill", ""));
+            assertEquals(1000, stock.getJSONObject("quantities").getInt("hot_water"));
+            assertEquals(1, coffeeMachine.getBusyOutlets());
+
+            assertTrue(new JSONObject(first.get()).getBoolean("prepared"));
+            assertTrue(new JSONObject(second.get()).getBoolean("prepared"));
+
+            // Order pool follows outlets of the machine
+            coffeeMachine.setTotalOutlets(3);
+            assertEquals(5, slowServer.getThreads());
+        } finally {
+            slowServer.stop(0);
+        }
+    }
+
+    private static String post(String url, String body) {
+        try {
+            return LoadTest.post(url, body);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testLoadTest() throws Exception {
+        LoadTestReport report = LoadTest.run(baseUrl, new String[] {"hot_tea", "latte"}, 4, 25);
+        assertEquals(100, report.getRequests());
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getRequestsPerSecond() > 0);
+        assertTrue(report.getLatencyPercentileMicros(99) >= report.getLatencyPercentileMicros(50));
+    }
+}
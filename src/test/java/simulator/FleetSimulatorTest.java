@@ -0,0 +1,64 @@
+package simulator;
+
+import org.junit.Test;
+import recipe.RecipeBuilder;
+
+import static org.junit.Assert.*;
+
+public class FleetSimulatorTest {
+    private FleetSimulator getFleet(int machines) {
+        return new FleetSimulator(machines, new String[] {"hot_water", "tea_leaves_syrup"}, new int[] {250, 100}, 2, 42)
+            .addBeverage(new RecipeBuilder("hot_tea").addIngredient("hot_water", 100).addIngredient("tea_leaves_syrup", 10).build(), 1);
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        FleetSimulator fleetSimulator = getFleet(10000);
+        FleetReport fleetReport = fleetSimulator.run(3);
+
+        // Every machine has water for exactly two teas
+        assertEquals(30000, fleetReport.getTotalOrders());
+        assertEquals(20000, fleetReport.getPreparedOrders());
+        assertEquals(Long.valueOf(10000), fleetReport.getFailedOrdersByBeverage().get("hot_tea"));
+        assertEquals(10000, fleetReport.getDepletedMachines());
+        assertEquals(Long.valueOf(50 * 10000), fleetReport.getRemainingStock().get("hot_water"));
+        assertEquals(Long.valueOf(80 * 10000), fleetReport.getRemainingStock().get("tea_leaves_syrup"));
+        assertEquals(50, fleetSimulator.getQuantity(9999, 0));
+
+        // Refilled fleet can serve every order
+        fleetSimulator.reset();
+        fleetSimulator.setRefillEveryRounds(2);
+        fleetReport = fleetSimulator.run(6);
+        assertEquals(60000, fleetReport.getPreparedOrders());
+        assertEquals(0, fleetReport.getDepletedMachines());
+    }
+
+    @Test
+    public void testSameResultWhateverParallelism() throws Exception {
+        FleetSimulator sequential = getFleet(20000)
+            .addBeverage(new RecipeBuilder("black_tea").addIngredient("hot_water", 50).build(), 2)
+            .addBeverage(new RecipeBuilder("green_tea").addIngredient("green_mixture", 10).build(), 1)
+            .setParallelism(1);
+        FleetSimulator parallel = getFleet(20000)
+            .addBeverage(new RecipeBuilder("black_tea").addIngredient("hot_water", 50).build(), 2)
+            .addBeverage(new RecipeBuilder("green_tea").addIngredient("green_mixture", 10).build(), 1)
+            .setParallelism(4);
+
+        FleetReport sequentialReport = sequential.run(5);
+        FleetReport parallelReport = parallel.run(5);
+        assertEquals(sequentialReport.getPreparedOrdersByBeverage(), parallelReport.getPreparedOrdersByBeverage());
+        assertEquals(sequentialReport.getFailedOrdersByBeverage(), parallelReport.getFailedOrdersByBeverage());
+        assertEquals(sequentialReport.getRemainingStock(), parallelReport.getRemainingStock());
+
+        // Green mixture is not in any machine
+        assertEquals(Long.valueOf(0), parallelReport.getPreparedOrdersByBeverage().get("green_tea"));
+        assertTrue(parallelReport.getFailedOrdersByBeverage().get("green_tea") > 0);
+    }
+
+    @Test
+    public void testEmptyMix() {
+        FleetSimulator fleetSimulator = new FleetSimulator(1, new String[] {"hot_water"}, new int[] {100}, 1, 42);
+        Exception exception = assertThrows(Exception.class, () -> fleetSimulator.run(1));
+        assertEquals("Beverage mix is empty", exception.getMessage());
+    }
+}
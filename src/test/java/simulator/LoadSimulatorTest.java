@@ -0,0 +1,76 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoadSimulatorTest {
+    private static final JSONObject MACHINE_CONFIG = new JSONObject("{\n"
+        + "  \"machine\": {\n"
+        + "    \"outlets\": {\n"
+        + "      \"count_n\": 1\n"
+        + "    },\n"
+        + "    \"total_items_quantity\": {\n"
+        + "      \"hot_water\": 1000,\n"
+        + "      \"hot_milk\": 500\n"
+        + "    },\n"
+        + "    \"beverages\": {\n"
+        + "      \"hot_milk\": {\n"
+        + "        \"hot_milk\": 100\n"
+        + "      },\n"
+        + "      \"hot_water\": {\n"
+        + "        \"hot_water\": 100\n"
+        + "      }\n"
+        + "    }\n"
+        + "  }\n"
+        + "}");
+
+    @Test
+    public void testReportOfRun() throws Exception {
+        List<SimulatedOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orders.add(new SimulatedOrder(i, i % 2 == 0 ? "hot_milk" : "hot_water"));
+        }
+        orders.add(new SimulatedOrder(20, "espresso"));
+
+        SimulationReport report = new LoadSimulator(MACHINE_CONFIG, 4, 8).setSampleEveryOrders(5).run(orders);
+
+        assertEquals(21, report.getTotalOrders());
+        assertEquals(15, report.getPreparedOrders()); // 5 hot milk and 10 hot water
+        assertEquals(6, report.getFailedOrders());
+        assertEquals(5, (int) report.getFailures().get("cannot be prepared because item hot_milk is not sufficient"));
+        assertEquals(1, (int) report.getFailures().get("is not a valid beverage"));
+
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyPercentileMillis(50) <= report.getLatencyPercentileMillis(99));
+
+        // Initial and final samples are always present
+        List<Integer> hotMilk = report.getDepletionCurve("hot_milk");
+        assertEquals(report.getSampleOrders().size(), hotMilk.size());
+        assertEquals(0, (int) report.getSampleOrders().get(0));
+        assertEquals(500, (int) hotMilk.get(0));
+        assertEquals(0, (int) hotMilk.get(hotMilk.size() - 1));
+        assertEquals(0, (int) report.getDepletionCurve("hot_water").get(hotMilk.size() - 1));
+        assertTrue(report.getDepletionCurve("sugar").isEmpty());
+
+        // Caller's configuration is not changed by the simulator
+        assertEquals(1, MACHINE_CONFIG.getJSONObject("machine").getJSONObject("outlets").getInt("count_n"));
+    }
+
+    @Test
+    public void testBackgroundRefills() throws Exception {
+        List<SimulatedOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orders.add(new SimulatedOrder(i * 10, "hot_milk"));
+        }
+
+        // 5 orders empty hot milk, refills pouring in between orders serve the rest
+        SimulationReport report = new LoadSimulator(MACHINE_CONFIG, 1, 2).setTimeScale(1).setSampleEveryOrders(1)
+            .setBackgroundRefills(100000, 1).run(orders);
+        assertTrue(report.getPreparedOrders() > 5);
+        assertEquals(5, new LoadSimulator(MACHINE_CONFIG, 1, 2).setTimeScale(1).run(orders).getPreparedOrders());
+    }
+}
@@ -0,0 +1,71 @@
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OrderStreamGeneratorTest {
+    private OrderStreamGenerator getTestGenerator(long seed) {
+        return new OrderStreamGenerator(seed)
+            .addBeverage("hot_tea", 3)
+            .addBeverage("hot_coffee", 1)
+            .addRushHour(5000, 6000, 10);
+    }
+
+    @Test
+    public void testStreamIsReproducibleFromSeed() throws Exception {
+        List<SimulatedOrder> first = getTestGenerator(42).generate(20, 10000);
+        List<SimulatedOrder> second = getTestGenerator(42).generate(20, 10000);
+        List<SimulatedOrder> third = getTestGenerator(43).generate(20, 10000);
+
+        assertEquals(first.toString(), second.toString());
+        assertNotEquals(first.toString(), third.toString());
+    }
+
+    @Test
+    public void testRushHourAndMix() throws Exception {
+        List<SimulatedOrder> orders = getTestGenerator(7).generate(20, 10000);
+
+        int rushHourOrders = 0;
+        int teaOrders = 0;
+        long previousArrival = 0;
+        for (SimulatedOrder order : orders) {
+            assertTrue(order.getArrivalMillis() >= previousArrival);
+            assertTrue(order.getArrivalMillis() < 10000);
+            previousArrival = order.getArrivalMillis();
+            if (order.getArrivalMillis() >= 5000 && order.getArrivalMillis() < 6000) {
+                rushHourOrders++;
+            }
+            if (order.getBeverage().equals("hot_tea")) {
+                teaOrders++;
+            }
+        }
+        // 9 normal seconds at 20 orders per second and one rush hour second at 200 orders per second
+        assertTrue(orders.size() > 300 && orders.size() < 460);
+        assertTrue(rushHourOrders > 150);
+        assertTrue(teaOrders > orders.size() / 2);
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        Throwable throwable = assertThrows(Exception.class, () -> new OrderStreamGenerator(1).generate(10, 1000));
+        assertEquals("Beverage mix is empty", throwable.getMessage());
+
+        throwable = assertThrows(Exception.class, () -> getTestGenerator(1).generate(0, 1000));
+        assertEquals("Order rate should be positive", throwable.getMessage());
+    }
+
+    @Test
+    public void testReadRecording() throws Exception {
+        List<SimulatedOrder> orders = OrderStreamGenerator.readRecording(new BufferedReader(new StringReader("# recorded orders\n200,hot_coffee\n\n100, hot_tea\n")));
+        assertEquals(2, orders.size());
+        assertEquals("SimulatedOrder[arrivalMillis=100, beverage='hot_tea']", orders.get(0).toString());
+        assertEquals("SimulatedOrder[arrivalMillis=200, beverage='hot_coffee']", orders.get(1).toString());
+
+        Throwable throwable = assertThrows(Exception.class, () -> OrderStreamGenerator.readRecording(new BufferedReader(new StringReader("hot_tea\n"))));
+        assertEquals("Invalid recorded order hot_tea", throwable.getMessage());
+    }
+}